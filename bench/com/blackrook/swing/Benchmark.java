@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * A small timing harness for the benchmarks in this source folder.
+ * <p>Each case is run a few times to warm up, then timed over several runs. The median and best
+ * times are printed, along with the median time per operation. Every case returns a value that is
+ * folded into a sink, so that the JIT cannot remove the work being measured.
+ * <p>These are plain main-method benchmarks, not JMH, so treat the numbers as comparisons between
+ * the cases in one run, not as absolute measurements.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+public final class Benchmark
+{
+	/** Default warm-up runs. */
+	public static final int DEFAULT_WARMUPS = 5;
+	/** Default timed runs. */
+	public static final int DEFAULT_RUNS = 10;
+
+	/** A single benchmark case. */
+	public static interface Case
+	{
+		/**
+		 * Runs the case once.
+		 * @return any value derived from the work done.
+		 * @throws Exception if the case fails.
+		 */
+		long run() throws Exception;
+	}
+
+	/** Result sink. */
+	private static volatile long sink;
+
+	private Benchmark() {}
+
+	/**
+	 * Runs and prints a benchmark case with the default amount of warm-up and timed runs.
+	 * @param name the case name.
+	 * @param operations the amount of operations in one run, for the per-operation time.
+	 * @param benchmarkCase the case to run.
+	 * @return the median time of one run, in nanoseconds.
+	 * @throws Exception if the case fails.
+	 */
+	public static long run(String name, long operations, Case benchmarkCase) throws Exception
+	{
+		return run(name, operations, DEFAULT_WARMUPS, DEFAULT_RUNS, benchmarkCase);
+	}
+
+	/**
+	 * Runs and prints a benchmark case.
+	 * @param name the case name.
+	 * @param operations the amount of operations in one run, for the per-operation time.
+	 * @param warmups the amount of untimed runs.
+	 * @param runs the amount of timed runs.
+	 * @param benchmarkCase the case to run.
+	 * @return the median time of one run, in nanoseconds.
+	 * @throws Exception if the case fails.
+	 */
+	public static long run(String name, long operations, int warmups, int runs, Case benchmarkCase) throws Exception
+	{
+		long out = 0L;
+		for (int i = 0; i < warmups; i++)
+			out += benchmarkCase.run();
+
+		long[] times = new long[runs];
+		for (int i = 0; i < runs; i++)
+		{
+			long start = System.nanoTime();
+			out += benchmarkCase.run();
+			times[i] = System.nanoTime() - start;
+		}
+		sink += out;
+
+		Arrays.sort(times);
+		long median = times[runs / 2];
+		System.out.println(String.format("%-48s median %10.3f ms   best %10.3f ms   %10.2f ns/op",
+			name, median / 1000000.0, times[0] / 1000000.0, (double)median / Math.max(operations, 1L)
+		));
+		return median;
+	}
+
+	/**
+	 * Runs a case on the Event Dispatch Thread and waits for it to finish.
+	 * Benchmarks that touch Swing components wrap their cases with this.
+	 * @param benchmarkCase the case to run.
+	 * @return a case that runs the provided case on the Event Dispatch Thread.
+	 */
+	public static Case onEventThread(final Case benchmarkCase)
+	{
+		return new Case()
+		{
+			@Override
+			public long run() throws Exception
+			{
+				final long[] out = new long[1];
+				final Exception[] error = new Exception[1];
+				try {
+					SwingUtilities.invokeAndWait(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							try {
+								out[0] = benchmarkCase.run();
+							} catch (Exception e) {
+								error[0] = e;
+							}
+						}
+					});
+				} catch (InvocationTargetException e) {
+					throw new RuntimeException(e.getCause());
+				}
+				if (error[0] != null)
+					throw error[0];
+				return out[0];
+			}
+		};
+	}
+
+	/**
+	 * Prints a header line for a group of cases.
+	 * @param title the group title.
+	 */
+	public static void header(String title)
+	{
+		System.out.println();
+		System.out.println("== " + title + " ==");
+	}
+
+	/**
+	 * Prints the sink, so that no result is unused.
+	 * Call at the end of a benchmark's main method.
+	 */
+	public static void finish()
+	{
+		System.out.println();
+		System.out.println("(sink " + Long.toHexString(sink) + ")");
+	}
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.list;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import com.blackrook.swing.Benchmark;
+
+/**
+ * Measures adding to a large list and laying it out, with fast layout against the full measuring
+ * that JList does when no fixed cell size is set.
+ * <p>Each layout asks the list for its preferred size, as its parent's layout would.
+ * <p>Run with: <code>ant bench -Dbench.class=com.blackrook.swing.list.FastLayoutBenchmark</code>
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+public final class FastLayoutBenchmark
+{
+	/** Items in the list. */
+	private static final int ITEMS = 1000000;
+	/** Single adds per run. */
+	private static final int ADDS = 20;
+	/** Untimed runs per case. */
+	private static final int WARMUPS = 1;
+	/** Timed runs per case. */
+	private static final int RUNS = 3;
+
+	private FastLayoutBenchmark() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		final List<String> items = new ArrayList<String>(ITEMS);
+		for (int i = 0; i < ITEMS; i++)
+			items.add("element number " + i);
+
+		Benchmark.header(ITEMS + " items added at once, then laid out");
+		Benchmark.run("full measuring (previous path)", ITEMS, WARMUPS, RUNS, batchCase(items, false));
+		Benchmark.run("fast layout", ITEMS, WARMUPS, RUNS, batchCase(items, true));
+
+		Benchmark.header(ADDS + " single adds to " + ITEMS + " items, each laid out");
+		Benchmark.run("full measuring (previous path)", ADDS, WARMUPS, RUNS, singleCase(createList(items, false)));
+		Benchmark.run("fast layout", ADDS, WARMUPS, RUNS, singleCase(createList(items, true)));
+
+		Benchmark.finish();
+	}
+
+	// Creates a filled and laid out list on the Event Dispatch Thread.
+	private static RList<String> createList(final List<String> items, final boolean fastLayout) throws Exception
+	{
+		final List<RList<String>> out = new ArrayList<RList<String>>(1);
+		SwingUtilities.invokeAndWait(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				RList<String> list = new RList<String>();
+				list.setFastLayout(fastLayout);
+				list.addItems(items);
+				list.getPreferredSize();
+				out.add(list);
+			}
+		});
+		return out.get(0);
+	}
+
+	// Adds all of the items to a new list at once, and lays it out.
+	private static Benchmark.Case batchCase(final List<String> items, final boolean fastLayout)
+	{
+		return Benchmark.onEventThread(new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				RList<String> list = new RList<String>();
+				list.setFastLayout(fastLayout);
+				list.addItems(items);
+				return list.getPreferredSize().width;
+			}
+		});
+	}
+
+	// Adds items to a list one at a time, and lays it out after each.
+	private static Benchmark.Case singleCase(final RList<String> list)
+	{
+		return Benchmark.onEventThread(new Benchmark.Case()
+		{
+			private int next = 0;
+
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ADDS; i++)
+				{
+					list.addItem("more " + (next++));
+					out += list.getPreferredSize().height;
+				}
+				return out;
+			}
+		});
+	}
+
+}
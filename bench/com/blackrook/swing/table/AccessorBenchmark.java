@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.lang.reflect.Method;
+
+import com.blackrook.commons.Reflect;
+import com.blackrook.swing.Benchmark;
+
+/**
+ * Compares the cost of reading a column value through each {@link ColumnAccessor} strategy
+ * against the plain reflection path that table models used before, and a direct call.
+ * <p>Run with: <code>ant bench -Dbench.class=com.blackrook.swing.table.AccessorBenchmark</code>
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+public final class AccessorBenchmark
+{
+	/** Rows read per run. */
+	private static final int ROWS = 1000000;
+
+	/**
+	 * A public row type, for which generated lambda accessors can be made.
+	 */
+	public static class PublicRow
+	{
+		private final int id;
+		private final String name;
+
+		public PublicRow(int id)
+		{
+			this.id = id;
+			this.name = "row" + id;
+		}
+
+		public int getId()
+		{
+			return id;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+	}
+
+	/**
+	 * A package-private row type, which falls back to method handle accessors.
+	 */
+	static class HiddenRow
+	{
+		private final int id;
+
+		HiddenRow(int id)
+		{
+			this.id = id;
+		}
+
+		public int getId()
+		{
+			return id;
+		}
+	}
+
+	private AccessorBenchmark() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		final PublicRow[] rows = new PublicRow[ROWS];
+		final HiddenRow[] hiddenRows = new HiddenRow[ROWS];
+		for (int i = 0; i < ROWS; i++)
+		{
+			rows[i] = new PublicRow(i);
+			hiddenRows[i] = new HiddenRow(i);
+		}
+
+		final Method idGetter = PublicRow.class.getMethod("getId");
+		final Method nameGetter = PublicRow.class.getMethod("getName");
+		final Method hiddenIdGetter = HiddenRow.class.getMethod("getId");
+		final ColumnAccessor idLambda = ColumnAccessor.create(idGetter, null);
+		final ColumnAccessor nameLambda = ColumnAccessor.create(nameGetter, null);
+		final ColumnAccessor idHandle = ColumnAccessor.create(hiddenIdGetter, null);
+
+		Benchmark.header("int column, " + ROWS + " rows");
+		Benchmark.run("direct call", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += rows[i].getId();
+				return out;
+			}
+		});
+		Benchmark.run("Reflect.invokeBlind (previous path)", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += (Integer)Reflect.invokeBlind(idGetter, rows[i]);
+				return out;
+			}
+		});
+		Benchmark.run(idHandle.getClass().getSimpleName() + ".get", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += (Integer)idHandle.get(hiddenRows[i]);
+				return out;
+			}
+		});
+		Benchmark.run(idLambda.getClass().getSimpleName() + ".get", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += (Integer)idLambda.get(rows[i]);
+				return out;
+			}
+		});
+		Benchmark.run(idLambda.getClass().getSimpleName() + ".getLong", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += idLambda.getLong(rows[i]);
+				return out;
+			}
+		});
+
+		Benchmark.header("String column, " + ROWS + " rows");
+		Benchmark.run("direct call", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += rows[i].getName().length();
+				return out;
+			}
+		});
+		Benchmark.run("Reflect.invokeBlind (previous path)", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += ((String)Reflect.invokeBlind(nameGetter, rows[i])).length();
+				return out;
+			}
+		});
+		Benchmark.run(nameLambda.getClass().getSimpleName() + ".get", ROWS, new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				long out = 0L;
+				for (int i = 0; i < ROWS; i++)
+					out += ((String)nameLambda.get(rows[i])).length();
+				return out;
+			}
+		});
+
+		Benchmark.finish();
+	}
+
+}
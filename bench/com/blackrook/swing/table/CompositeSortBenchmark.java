@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.SwingUtilities;
+
+import com.blackrook.swing.Benchmark;
+
+/**
+ * Measures the time to sort one million rows by several columns at once, with keys that the sorter
+ * packs into one long per row, with keys too wide to pack, and with the same keys sorted through
+ * plain comparators, which is how every multi-key sort was done before packing was added.
+ * <p>Run with: <code>ant bench -Dbench.class=com.blackrook.swing.table.CompositeSortBenchmark</code>
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+public final class CompositeSortBenchmark
+{
+	/** Rows to sort. */
+	private static final int ROWS = 1000000;
+
+	/** Enum column values. */
+	public static enum Kind
+	{
+		ALPHA, BETA, GAMMA, DELTA;
+	}
+
+	/**
+	 * A row with small and wide key columns.
+	 */
+	public static class Row
+	{
+		private final Kind kind;
+		private final int small;
+		private final Integer boxed;
+		private final long wide;
+
+		public Row(Random random)
+		{
+			this.kind = random.nextInt(10) == 0 ? null : Kind.values()[random.nextInt(Kind.values().length)];
+			this.small = random.nextInt(50) - 10;
+			this.boxed = random.nextInt(5) == 0 ? null : random.nextInt(100);
+			this.wide = random.nextLong();
+		}
+
+		@TableDescriptor(order = 0, name = "Kind")
+		public Kind getKind()
+		{
+			return kind;
+		}
+
+		@TableDescriptor(order = 1, name = "Small")
+		public int getSmall()
+		{
+			return small;
+		}
+
+		@TableDescriptor(order = 2, name = "Boxed")
+		public Integer getBoxed()
+		{
+			return boxed;
+		}
+
+		@TableDescriptor(order = 3, name = "Wide")
+		public long getWide()
+		{
+			return wide;
+		}
+	}
+
+	/** A comparator that the sorter does not recognize, so columns using it are never packed. */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static final Comparator<Object> NATURAL = new Comparator<Object>()
+	{
+		@Override
+		public int compare(Object o1, Object o2)
+		{
+			return ((Comparable)o1).compareTo(o2);
+		}
+	};
+
+	private CompositeSortBenchmark() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		Random random = new Random(7L);
+		List<Row> rows = new ArrayList<Row>(ROWS);
+		for (int i = 0; i < ROWS; i++)
+			rows.add(new Row(random));
+
+		RTable<Row> table = createTable(rows, false);
+		RTable<Row> comparatorTable = createTable(rows, true);
+
+		Benchmark.header("sort " + ROWS + " rows by three small keys");
+		Benchmark.run("packed keys", ROWS, 2, 5, sortCase(table, "+Kind,-Small,+Boxed"));
+		Benchmark.run("plain comparators (previous path)", ROWS, 2, 5, sortCase(comparatorTable, "+Kind,-Small,+Boxed"));
+
+		Benchmark.header("sort " + ROWS + " rows by a small and a wide key");
+		Benchmark.run("composite of typed keys", ROWS, 2, 5, sortCase(table, "+Kind,-Wide"));
+		Benchmark.run("plain comparators (previous path)", ROWS, 2, 5, sortCase(comparatorTable, "+Kind,-Wide"));
+
+		Benchmark.finish();
+	}
+
+	// Creates a table on the Event Dispatch Thread.
+	private static RTable<Row> createTable(final List<Row> rows, final boolean plainComparators) throws Exception
+	{
+		final List<RTable<Row>> out = new ArrayList<RTable<Row>>(1);
+		SwingUtilities.invokeAndWait(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				RTable<Row> table = new RTable<Row>(Row.class);
+				if (plainComparators)
+				{
+					for (int column = 0; column < table.getTable().getColumnCount(); column++)
+						table.setColumnComparator(column, NATURAL);
+				}
+				table.setItems(rows);
+				out.add(table);
+			}
+		});
+		return out.get(0);
+	}
+
+	// Sorts by a sort spec, then clears the sort so that the next run sorts again.
+	private static Benchmark.Case sortCase(final RTable<Row> table, final String spec)
+	{
+		return Benchmark.onEventThread(new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				table.setSortSpec(spec);
+				long out = table.getFilteredItem(0).hashCode();
+				table.setSortKeys();
+				return out;
+			}
+		});
+	}
+
+}
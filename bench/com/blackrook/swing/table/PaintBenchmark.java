@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableCellRenderer;
+
+import com.blackrook.swing.Benchmark;
+
+/**
+ * Measures the time to paint a screen of table rows with the typed renderers that tables use
+ * for primitive, date, and enum columns, against the same table drawn by the stock JTable renderers,
+ * which read every value through {@link JTable#getValueAt(int, int)}.
+ * <p>Run with: <code>ant bench -Dbench.class=com.blackrook.swing.table.PaintBenchmark</code>
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+public final class PaintBenchmark
+{
+	/** Rows in the table. */
+	private static final int ROWS = 1000;
+	/** Painted width in pixels. */
+	private static final int WIDTH = 800;
+	/** Painted height in pixels. */
+	private static final int HEIGHT = 2000;
+	/** Frames painted per run. */
+	private static final int FRAMES = 100;
+
+	/** Enum column values. */
+	public static enum Kind
+	{
+		ALPHA, BETA, GAMMA;
+	}
+
+	/**
+	 * A row with one column of each type that has a typed renderer.
+	 */
+	public static class Row
+	{
+		private final int intValue;
+		private final double doubleValue;
+		private final Date date;
+		private final Kind kind;
+
+		public Row(int index)
+		{
+			this.intValue = index * 7;
+			this.doubleValue = index / 3.0;
+			this.date = new Date(1500000000000L + index * 86400000L);
+			this.kind = Kind.values()[index % Kind.values().length];
+		}
+
+		@TableDescriptor(order = 0)
+		public int getIntValue()
+		{
+			return intValue;
+		}
+
+		@TableDescriptor(order = 1)
+		public double getDoubleValue()
+		{
+			return doubleValue;
+		}
+
+		@TableDescriptor(order = 2)
+		public Date getDate()
+		{
+			return date;
+		}
+
+		@TableDescriptor(order = 3)
+		public Kind getKind()
+		{
+			return kind;
+		}
+	}
+
+	private PaintBenchmark() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		final List<Row> rows = new ArrayList<Row>(ROWS);
+		for (int i = 0; i < ROWS; i++)
+			rows.add(new Row(i));
+
+		final RTable<Row> typedTable = createTable(rows, false);
+		final RTable<Row> stockTable = createTable(rows, true);
+		JTable table = typedTable.getTable();
+		int cells = Math.min(ROWS, HEIGHT / table.getRowHeight() + 1) * table.getColumnCount();
+
+		Benchmark.header(FRAMES + " frames of " + cells + " cells");
+		Benchmark.run("stock renderers (previous path)", (long)FRAMES * cells, paintCase(stockTable));
+		Benchmark.run("typed renderers", (long)FRAMES * cells, paintCase(typedTable));
+
+		Benchmark.header(FRAMES + " frames of " + cells + " cells, renderer preparation only");
+		Benchmark.run("stock renderers (previous path)", (long)FRAMES * cells, prepareCase(stockTable));
+		Benchmark.run("typed renderers", (long)FRAMES * cells, prepareCase(typedTable));
+
+		Benchmark.finish();
+	}
+
+	// Creates and sizes a table on the Event Dispatch Thread, with the stock renderers set on its columns if asked.
+	private static RTable<Row> createTable(final List<Row> rows, final boolean stockRenderers) throws Exception
+	{
+		final List<RTable<Row>> out = new ArrayList<RTable<Row>>(1);
+		SwingUtilities.invokeAndWait(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				RTable<Row> table = new RTable<Row>(Row.class);
+				table.setItems(rows);
+				JTable view = table.getTable();
+				view.setSize(WIDTH, HEIGHT);
+				if (stockRenderers)
+				{
+					// renderers set on columns are used as-is, and the stock ones are reached through a wrapper.
+					for (int column = 0; column < view.getColumnCount(); column++)
+						table.setColumnRenderer(column, new StockRenderer(view.getDefaultRenderer(view.getColumnClass(column))));
+				}
+				out.add(table);
+			}
+		});
+		return out.get(0);
+	}
+
+	// Paints frames of a table into an image.
+	private static Benchmark.Case paintCase(final RTable<Row> table)
+	{
+		final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		return Benchmark.onEventThread(new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				Graphics2D g = image.createGraphics();
+				try {
+					for (int i = 0; i < FRAMES; i++)
+						table.getTable().paint(g);
+				} finally {
+					g.dispose();
+				}
+				return image.getRGB(0, 0);
+			}
+		});
+	}
+
+	// Prepares the renderers of every painted cell, without painting them.
+	private static Benchmark.Case prepareCase(final RTable<Row> table)
+	{
+		return Benchmark.onEventThread(new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				JTable view = table.getTable();
+				int rows = Math.min(view.getRowCount(), HEIGHT / view.getRowHeight() + 1);
+				int columns = view.getColumnCount();
+				long out = 0L;
+				for (int i = 0; i < FRAMES; i++)
+					for (int r = 0; r < rows; r++)
+						for (int c = 0; c < columns; c++)
+						{
+							Component component = view.prepareRenderer(view.getCellRenderer(r, c), r, c);
+							out += component.hashCode();
+						}
+				return out;
+			}
+		});
+	}
+
+	/**
+	 * Passes calls to a stock renderer, so that the table does not replace it with a typed one.
+	 */
+	private static class StockRenderer implements TableCellRenderer
+	{
+		private final TableCellRenderer renderer;
+
+		private StockRenderer(TableCellRenderer renderer)
+		{
+			this.renderer = renderer;
+		}
+
+		@Override
+		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column)
+		{
+			return renderer.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+		}
+	}
+
+}
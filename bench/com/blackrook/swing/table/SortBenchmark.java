@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+
+import com.blackrook.swing.Benchmark;
+
+/**
+ * Measures the time to sort one million rows by a single column, for each column type
+ * that the sorter keys by primitives, against the same column sorted through a plain comparator,
+ * which is keyed by objects like before the typed keys were added.
+ * <p>Run with: <code>ant bench -Dbench.class=com.blackrook.swing.table.SortBenchmark</code>
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+public final class SortBenchmark
+{
+	/** Rows to sort. */
+	private static final int ROWS = 1000000;
+
+	/** Enum column values. */
+	public static enum Kind
+	{
+		ALPHA, BETA, GAMMA, DELTA;
+	}
+
+	/**
+	 * A row with one column of each type.
+	 */
+	public static class Row
+	{
+		private final int intValue;
+		private final long longValue;
+		private final double doubleValue;
+		private final Date date;
+		private final Kind kind;
+		private final boolean flag;
+		private final String name;
+
+		public Row(Random random)
+		{
+			this.intValue = random.nextInt();
+			this.longValue = random.nextLong();
+			this.doubleValue = random.nextDouble();
+			this.date = new Date(random.nextInt() & 0x7fffffffL);
+			this.kind = Kind.values()[random.nextInt(Kind.values().length)];
+			this.flag = random.nextBoolean();
+			this.name = "name" + random.nextInt(ROWS);
+		}
+
+		@TableDescriptor(order = 0)
+		public int getIntValue()
+		{
+			return intValue;
+		}
+
+		@TableDescriptor(order = 1)
+		public long getLongValue()
+		{
+			return longValue;
+		}
+
+		@TableDescriptor(order = 2)
+		public double getDoubleValue()
+		{
+			return doubleValue;
+		}
+
+		@TableDescriptor(order = 3)
+		public Date getDate()
+		{
+			return date;
+		}
+
+		@TableDescriptor(order = 4)
+		public Kind getKind()
+		{
+			return kind;
+		}
+
+		@TableDescriptor(order = 5)
+		public boolean isFlag()
+		{
+			return flag;
+		}
+
+		@TableDescriptor(order = 6)
+		public String getName()
+		{
+			return name;
+		}
+	}
+
+	/** A comparator that the sorter does not recognize, so columns using it are keyed by objects. */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static final Comparator<Object> NATURAL = new Comparator<Object>()
+	{
+		@Override
+		public int compare(Object o1, Object o2)
+		{
+			return ((Comparable)o1).compareTo(o2);
+		}
+	};
+
+	private SortBenchmark() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		Random random = new Random(1L);
+		List<Row> rows = new ArrayList<Row>(ROWS);
+		for (int i = 0; i < ROWS; i++)
+			rows.add(new Row(random));
+
+		final RTable<Row> typedTable = createTable(rows, false);
+		final RTable<Row> comparatorTable = createTable(rows, true);
+		int columns = typedTable.getTable().getColumnCount();
+
+		Benchmark.header("sort " + ROWS + " rows by one column");
+		for (int column = 0; column < columns; column++)
+		{
+			String name = typedTable.getTable().getColumnName(column);
+			Benchmark.run(name + ", stock comparators", ROWS, 2, 5, sortCase(typedTable, column));
+			Benchmark.run(name + ", plain comparator", ROWS, 2, 5, sortCase(comparatorTable, column));
+		}
+
+		Benchmark.finish();
+	}
+
+	// Creates a table on the Event Dispatch Thread.
+	private static RTable<Row> createTable(final List<Row> rows, final boolean plainComparators) throws Exception
+	{
+		final List<RTable<Row>> out = new ArrayList<RTable<Row>>(1);
+		SwingUtilities.invokeAndWait(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				RTable<Row> table = new RTable<Row>(Row.class);
+				if (plainComparators)
+				{
+					for (int column = 0; column < table.getTable().getColumnCount(); column++)
+						table.setColumnComparator(column, NATURAL);
+				}
+				table.setItems(rows);
+				out.add(table);
+			}
+		});
+		return out.get(0);
+	}
+
+	// Sorts a column, then clears the sort so that the next run sorts again.
+	private static Benchmark.Case sortCase(final RTable<Row> table, final int column)
+	{
+		return Benchmark.onEventThread(new Benchmark.Case()
+		{
+			@Override
+			public long run()
+			{
+				table.setSortKeys(new RowSorter.SortKey(column, SortOrder.ASCENDING));
+				long out = table.getFilteredItem(0).hashCode();
+				table.setSortKeys();
+				return out;
+			}
+		});
+	}
+
+}
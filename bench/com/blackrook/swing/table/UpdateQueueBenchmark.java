@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+
+import com.blackrook.swing.Benchmark;
+
+/**
+ * Measures the time for several background threads to push a stream of row changes into a sorted table
+ * until the table has applied all of them, through the table's update queue and through one
+ * {@link SwingUtilities#invokeLater(Runnable)} per change, like callers had to do before the queue was added.
+ * <p>Every producer adds rows, updates every hundredth one, and removes every tenth one.
+ * <p>Run with: <code>ant bench -Dbench.class=com.blackrook.swing.table.UpdateQueueBenchmark</code>
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+public final class UpdateQueueBenchmark
+{
+	/** Producer threads. */
+	private static final int PRODUCERS = 4;
+	/** Rows added per producer. */
+	private static final int ROWS_PER_PRODUCER = 10000;
+	/** Changes posted per run. */
+	private static final int CHANGES = PRODUCERS * (ROWS_PER_PRODUCER + ROWS_PER_PRODUCER / 100 + ROWS_PER_PRODUCER / 10);
+
+	/**
+	 * A table row.
+	 */
+	public static class Row
+	{
+		private final int value;
+		private final String name;
+
+		public Row(int value, String name)
+		{
+			this.value = value;
+			this.name = name;
+		}
+
+		@TableDescriptor(order = 0)
+		public int getValue()
+		{
+			return value;
+		}
+
+		@TableDescriptor(order = 1)
+		public String getName()
+		{
+			return name;
+		}
+	}
+
+	/**
+	 * A way to hand a change to a table.
+	 */
+	private static interface Poster
+	{
+		void add(RTable<Row> table, Row row);
+		void update(RTable<Row> table, Row row);
+		void remove(RTable<Row> table, Row row);
+	}
+
+	/** Posts changes to the table's update queue. */
+	private static final Poster QUEUE = new Poster()
+	{
+		@Override
+		public void add(RTable<Row> table, Row row)
+		{
+			table.postAdd(row);
+		}
+
+		@Override
+		public void update(RTable<Row> table, Row row)
+		{
+			table.postUpdate(row);
+		}
+
+		@Override
+		public void remove(RTable<Row> table, Row row)
+		{
+			table.postRemove(row);
+		}
+	};
+
+	/** Posts one Event Dispatch Thread task per change. */
+	private static final Poster INVOKE_LATER = new Poster()
+	{
+		@Override
+		public void add(final RTable<Row> table, final Row row)
+		{
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					table.addItem(row);
+				}
+			});
+		}
+
+		@Override
+		public void update(final RTable<Row> table, final Row row)
+		{
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					table.updateItem(row);
+				}
+			});
+		}
+
+		@Override
+		public void remove(final RTable<Row> table, final Row row)
+		{
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					table.removeItem(row);
+				}
+			});
+		}
+	};
+
+	private UpdateQueueBenchmark() {}
+
+	public static void main(String[] args) throws Exception
+	{
+		Benchmark.header(PRODUCERS + " producers, " + CHANGES + " changes into a sorted table");
+		Benchmark.run("invokeLater per change (previous path)", CHANGES, 1, 3, producerCase(INVOKE_LATER));
+		Benchmark.run("update queue", CHANGES, 1, 3, producerCase(QUEUE));
+		Benchmark.finish();
+	}
+
+	// Runs the producers against a new table, and waits until the table has applied every change.
+	private static Benchmark.Case producerCase(final Poster poster)
+	{
+		return new Benchmark.Case()
+		{
+			@Override
+			public long run() throws Exception
+			{
+				final RTable<Row> table = createTable();
+				List<Thread> threads = new ArrayList<Thread>(PRODUCERS);
+				for (int p = 0; p < PRODUCERS; p++)
+				{
+					final String name = "producer" + p;
+					Thread thread = new Thread(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							for (int i = 0; i < ROWS_PER_PRODUCER; i++)
+							{
+								Row row = new Row(i, name);
+								poster.add(table, row);
+								if (i % 100 == 0)
+									poster.update(table, row);
+								if (i % 10 == 0)
+									poster.remove(table, row);
+							}
+						}
+					});
+					threads.add(thread);
+					thread.start();
+				}
+				for (Thread thread : threads)
+					thread.join();
+
+				while (table.getQueuedUpdateCount() > 0)
+					Thread.sleep(1L);
+				// waits for the last drain or posted task to finish.
+				return Benchmark.onEventThread(new Benchmark.Case()
+				{
+					@Override
+					public long run()
+					{
+						return table.getItemCount();
+					}
+				}).run();
+			}
+		};
+	}
+
+	// Creates a table sorted by its first column, on the Event Dispatch Thread.
+	private static RTable<Row> createTable() throws Exception
+	{
+		final List<RTable<Row>> out = new ArrayList<RTable<Row>>(1);
+		SwingUtilities.invokeAndWait(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				RTable<Row> table = new RTable<Row>(Row.class);
+				table.setSortKeys(new RowSorter.SortKey(0, SortOrder.ASCENDING));
+				out.add(table);
+			}
+		});
+		return out.get(0);
+	}
+
+}
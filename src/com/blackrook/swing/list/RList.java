@@ -9,6 +9,9 @@ package com.blackrook.swing.list;
 
 import java.awt.BorderLayout;
 import java.awt.Component;
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.Random;
 
 import javax.swing.BorderFactory;
 import javax.swing.DefaultListCellRenderer;
@@ -19,6 +22,8 @@ import javax.swing.JScrollPane;
 import javax.swing.ListCellRenderer;
 import javax.swing.ListSelectionModel;
 import javax.swing.border.BevelBorder;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
@@ -28,12 +33,22 @@ import com.blackrook.swing.field.RListEventListener;
 /**
  * List type for keeping track of a list of objects.
  * This is already enclosed in a JScrollPane which contains a JList object.
+ * <p>Indices are in one of two spaces. Methods that read, add, or remove items by index
+ * ({@link #getItem(int)}, {@link #addItem(int, Object)}, {@link #removeItem(int)}) take indices into the whole list.
+ * Selection methods take and return indices into the shown items, which differ while a filter is set.
+ * Use {@link #getFilteredItem(int)} to read a shown item, and {@link #convertIndexToModel(int)} and
+ * {@link #convertIndexToView(int)} to convert between the two.
  * @author Matthew Tropiano
  */
 public class RList<T extends Object> extends JPanel implements RListEventListener<T>
 {
 	private static final long serialVersionUID = 929879343687450071L;
 
+	/** Items measured from each end of the list for fast layout. */
+	private static final int FAST_LAYOUT_EDGE_ITEMS = 50;
+	/** Random items measured for fast layout. */
+	private static final int FAST_LAYOUT_RANDOM_ITEMS = 200;
+
 	/**
 	 * Selection policy.
 	 */
@@ -92,8 +107,22 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	private JList<T> list;
 	/** The list's data model. */
 	private RListModel<T> dataModel;
+	/** The filtered view of the data model, which the list shows. */
+	private RListFilterModel<T> filterModel;
+	/** Queue of items posted from any thread. */
+	private RListAppendQueue<T> appendQueue;
 	/** The scrolling pane for this list. */
 	private JScrollPane scrollPane;
+	/** Cached item strings by index, or null if fast layout is off. */
+	private String[] itemStrings;
+	/** Amount of indices tracked by the item string cache. */
+	private int itemStringCount;
+	/** Keeps the item string cache in step with the model, in fast layout. */
+	private ListDataListener itemStringListener;
+	/** Grows the cell size to fit shown items as they are added or changed, in fast layout. */
+	private ListDataListener fastLayoutListener;
+	/** Random source for sampling items. */
+	private Random random;
 
 	/**
 	 * Creates a new, empty RList with single selection 
@@ -157,7 +186,28 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	public RList(List<T> backingList, SelectPolicy selectPolicy, VPolicy vsbPolicy, HPolicy hsbPolicy)
 	{
 		this.dataModel = new RListModel<T>(backingList);
-		this.list = new JList<T>(dataModel);
+		this.filterModel = new RListFilterModel<T>(dataModel);
+		this.list = new JList<T>(filterModel);
+		this.appendQueue = new RListAppendQueue<T>(new RListAppendQueue.Applier<T>()
+		{
+			@Override
+			public int getSize()
+			{
+				return dataModel.getSize();
+			}
+			
+			@Override
+			public void removeFirst(int count)
+			{
+				onRemoveAll(dataModel.removeRange(0, count));
+			}
+			
+			@Override
+			public void append(List<T> items)
+			{
+				addItems(items);
+			}
+		});
 		
 		list.setSelectionMode(selectPolicy.intern);
 		list.addListSelectionListener(new ListSelectionListener()
@@ -178,12 +228,81 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 			public Component getListCellRendererComponent(JList<? extends T> list, T value, int index, boolean isSelected, boolean cellHasFocus)
 			{
 				JLabel renderer = (JLabel)defaultRenderer.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-				renderer.setText(getItemString(value));
+				renderer.setText(getCachedItemString(value, index));
 				return renderer;
 			}
 			
 		});
 		
+		this.itemStrings = null;
+		this.itemStringCount = 0;
+		this.random = new Random();
+		// model indices: registered after the filter model, so this runs before the filter model passes the event on.
+		this.itemStringListener = new ListDataListener()
+		{
+			@Override
+			public void intervalAdded(ListDataEvent e)
+			{
+				int count = e.getIndex1() - e.getIndex0() + 1;
+				if (e.getIndex0() > itemStringCount || itemStringCount + count != dataModel.getSize())
+					resetItemStrings();
+				else
+				{
+					if (itemStringCount + count > itemStrings.length)
+						itemStrings = Arrays.copyOf(itemStrings, Math.max(itemStringCount + count, itemStrings.length + (itemStrings.length >> 1)));
+					System.arraycopy(itemStrings, e.getIndex0(), itemStrings, e.getIndex1() + 1, itemStringCount - e.getIndex0());
+					Arrays.fill(itemStrings, e.getIndex0(), e.getIndex1() + 1, null);
+					itemStringCount += count;
+				}
+			}
+			
+			@Override
+			public void intervalRemoved(ListDataEvent e)
+			{
+				if (e.getIndex1() >= itemStringCount)
+				{
+					resetItemStrings();
+					return;
+				}
+				System.arraycopy(itemStrings, e.getIndex1() + 1, itemStrings, e.getIndex0(), itemStringCount - e.getIndex1() - 1);
+				int count = e.getIndex1() - e.getIndex0() + 1;
+				Arrays.fill(itemStrings, itemStringCount - count, itemStringCount, null);
+				itemStringCount -= count;
+			}
+			
+			@Override
+			public void contentsChanged(ListDataEvent e)
+			{
+				if (itemStringCount != dataModel.getSize())
+					resetItemStrings();
+				int first = Math.max(e.getIndex0(), 0);
+				int last = Math.min(e.getIndex1(), itemStringCount - 1);
+				if (first <= last)
+					Arrays.fill(itemStrings, first, last + 1, null);
+			}
+		};
+		// view indices: the filter model has already mapped the event to the shown items.
+		this.fastLayoutListener = new ListDataListener()
+		{
+			@Override
+			public void intervalAdded(ListDataEvent e)
+			{
+				measureCells(Math.max(e.getIndex0(), 0), Math.min(e.getIndex1(), filterModel.getSize() - 1), false);
+			}
+			
+			@Override
+			public void intervalRemoved(ListDataEvent e)
+			{
+				// cells only grow.
+			}
+			
+			@Override
+			public void contentsChanged(ListDataEvent e)
+			{
+				measureCells(Math.max(e.getIndex0(), 0), Math.min(e.getIndex1(), filterModel.getSize() - 1), false);
+			}
+		};
+		
 		scrollPane = new JScrollPane(list, vsbPolicy.intern, hsbPolicy.intern);
 		scrollPane.setBorder(BorderFactory.createBevelBorder(BevelBorder.LOWERED));
 
@@ -198,6 +317,7 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	public void clear()
 	{
 		dataModel.clear();
+		onClear();
 	}
 	
 	/**
@@ -220,8 +340,201 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 		list.setCellRenderer(cellRenderer);
 	}
 	
+	/**
+	 * Sets if this list uses fast layout.
+	 * <p>Normally, the list measures every item to size its cells whenever its contents change.
+	 * In fast layout, all cells get one fixed size, fit to a sample of the items: some from each end,
+	 * some at random, and the visible ones. Afterward, only added and changed items are measured (or a
+	 * sample of them, if many), and cells only grow. Items wider than any measured item are cut off.
+	 * <p>Fast layout also caches {@link #getItemString(Object)} per item, until the item is replaced or removed.
+	 * If items change in place, call {@link #refreshItems()}.
+	 * <p>A prototype item, if set, decides the cell size instead of measuring.
+	 * @param enabled true to enable, false to disable.
+	 * @since 2.8.0
+	 * @see #setPrototypeItem(Object)
+	 */
+	public void setFastLayout(boolean enabled)
+	{
+		if (enabled == isFastLayout())
+			return;
+		
+		if (enabled)
+		{
+			itemStrings = new String[Math.max(dataModel.getSize(), 16)];
+			itemStringCount = dataModel.getSize();
+			dataModel.addListDataListener(itemStringListener);
+			filterModel.addListDataListener(fastLayoutListener);
+			measureCells(0, filterModel.getSize() - 1, true);
+		}
+		else
+		{
+			dataModel.removeListDataListener(itemStringListener);
+			filterModel.removeListDataListener(fastLayoutListener);
+			itemStrings = null;
+			itemStringCount = 0;
+			if (list.getPrototypeCellValue() == null)
+			{
+				list.setFixedCellWidth(-1);
+				list.setFixedCellHeight(-1);
+			}
+		}
+	}
+	
+	/**
+	 * @return true if this list uses fast layout, false if not.
+	 * @since 2.8.0
+	 * @see #setFastLayout(boolean)
+	 */
+	public boolean isFastLayout()
+	{
+		return itemStrings != null;
+	}
+	
+	/**
+	 * Sets an item that all cells are sized to fit, so that no other items are measured.
+	 * The item does not need to be in the list. See JList.setPrototypeCellValue().
+	 * @param item the prototype item, or null for none.
+	 * @since 2.8.0
+	 */
+	public void setPrototypeItem(T item)
+	{
+		list.setPrototypeCellValue(item);
+		if (item != null)
+			return;
+		
+		if (isFastLayout())
+			measureCells(0, filterModel.getSize() - 1, true);
+		else
+		{
+			list.setFixedCellWidth(-1);
+			list.setFixedCellHeight(-1);
+		}
+	}
+	
+	/**
+	 * Refreshes the display of all items, after items have changed in place.
+	 * In fast layout, this clears the cached item strings and measures the cells again.
+	 * @since 2.8.0
+	 */
+	public void refreshItems()
+	{
+		if (isFastLayout())
+		{
+			resetItemStrings();
+			measureCells(0, filterModel.getSize() - 1, true);
+		}
+		list.repaint();
+	}
+	
+	/**
+	 * Sets how the items in this list are indexed, which makes finding, removing,
+	 * and selecting items by value faster on long lists.
+	 * Lists are not indexed by default.
+	 * @param policy the index policy.
+	 * @throws IllegalArgumentException if policy is null.
+	 * @since 2.8.0
+	 * @see RListModel#setIndexPolicy(RListModel.IndexPolicy)
+	 */
+	public void setIndexPolicy(RListModel.IndexPolicy policy)
+	{
+		dataModel.setIndexPolicy(policy);
+	}
+	
+	/**
+	 * Sets a filter for the items shown in this list.
+	 * Items that the filter does not include are hidden, but are still in the list.
+	 * <p>Filters on long lists are evaluated on a background thread, and the shown items change when it is done
+	 * (see {@link #isFilterPending()}). A filter set in the meantime cancels it. If the new filter is a narrowing
+	 * of the current one (see {@link RListFilter#isNarrowingOf(RListFilter)}), only the items already shown are tested.
+	 * <p>While a filter is set, selected indices are indices into the shown items.
+	 * See {@link #convertIndexToModel(int)} and {@link #convertIndexToView(int)}.
+	 * @param filter the filter, or null to show all items.
+	 * @since 2.8.0
+	 */
+	public void setFilter(RListFilter<T> filter)
+	{
+		filterModel.setFilter(filter);
+	}
+	
+	/**
+	 * Sets a filter for the items shown in this list that includes only the items
+	 * whose item string (see {@link #getItemString(Object)}) contains some text, ignoring case.
+	 * Text that contains the current text only tests the items already shown, so this
+	 * can be called as the text is typed.
+	 * @param text the text to search for, or null or empty to show all items.
+	 * @since 2.8.0
+	 * @see #setFilter(RListFilter)
+	 */
+	public void setFilterText(String text)
+	{
+		setFilter(text == null || text.isEmpty() ? null : new TextFilter(text));
+	}
+	
+	/**
+	 * Returns the filter that decides the items shown in this list.
+	 * While a background filter is in progress, this is still the previous filter.
+	 * @return the filter, or null if all items are shown.
+	 * @since 2.8.0
+	 */
+	public RListFilter<T> getFilter()
+	{
+		return filterModel.getFilter();
+	}
+	
+	/**
+	 * Returns if a background filter is in progress.
+	 * @since 2.8.0
+	 */
+	public boolean isFilterPending()
+	{
+		return filterModel.isFilterPending();
+	}
+	
+	/**
+	 * Returns the amount of items shown in the list, after filtering.
+	 * @since 2.8.0
+	 */
+	public int getFilteredItemCount()
+	{
+		return filterModel.getSize();
+	}
+	
+	/**
+	 * Returns the item at a particular index in the shown items, after filtering.
+	 * @since 2.8.0
+	 */
+	public T getFilteredItem(int index)
+	{
+		return filterModel.getElementAt(index);
+	}
+	
+	/**
+	 * Converts an index into the shown items to an index into the whole list.
+	 * @param index the index in the shown items.
+	 * @return the index in the list.
+	 * @throws IndexOutOfBoundsException if a filter is set and the index is not of a shown item.
+	 * @since 2.8.0
+	 */
+	public int convertIndexToModel(int index)
+	{
+		return filterModel.convertIndexToSource(index);
+	}
+	
+	/**
+	 * Converts an index into the whole list to an index into the shown items.
+	 * @param index the index in the list.
+	 * @return the index in the shown items, or -1 if the item at that index is filtered out.
+	 * @since 2.8.0
+	 */
+	public int convertIndexToView(int index)
+	{
+		return filterModel.convertIndexToView(index);
+	}
+	
 	/** 
 	 * Sets the selected item in the list.
+	 * If more than one item matches, the first one is selected.
+	 * If that item is filtered out, the selection does not change.
 	 * @param item the item to select in the list. Can be null for no selection.
 	 * @since 2.6.2
 	 */
@@ -232,18 +545,17 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 			list.clearSelection();
 			return;
 		}
-			
-		for (int i = 0; i < dataModel.getSize(); i++)
-		{
-			if (getItem(i).equals(item))
-				setSelectedIndex(i);
-		}
 		
+		int index = dataModel.getIndexOf(item);
+		if (index >= 0)
+			index = filterModel.convertIndexToView(index);
+		if (index >= 0)
+			setSelectedIndex(index);
 	}
 	
 	/** 
 	 * Sets the selected index in the list.
-	 * @param index the index to select in the list.
+	 * @param index the index to select in the shown items.
 	 */
 	public void setSelectedIndex(int index)
 	{
@@ -252,7 +564,7 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	
 	/** 
 	 * Sets the selected indices in the list.
-	 * @param index the indices to select in the list.
+	 * @param index the indices to select in the shown items.
 	 */
 	public void setSelectedIndices(int ... index)
 	{
@@ -260,8 +572,9 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	}
 	
 	/**
-	 * Returns the first selected index in the list.
+	 * Returns the first selected index in the list, as an index into the shown items.
 	 * Returns -1 if nothing selected.
+	 * @see #convertIndexToModel(int)
 	 */
 	public int getSelectedIndex()
 	{
@@ -269,7 +582,8 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	}
 
 	/**
-	 * Returns all of the selected indices in the list.
+	 * Returns all of the selected indices in the list, as indices into the shown items.
+	 * @see #convertIndexToModel(int)
 	 */
 	public int[] getSelectedIndices()
 	{
@@ -284,7 +598,7 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	{
 		int s = getSelectedIndex();
 		if (s < 0) return null;
-		return (T)dataModel.getElementAt(s);
+		return (T)filterModel.getElementAt(s);
 	}
 
 	/**
@@ -296,7 +610,7 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 		int[] s = getSelectedIndices();
 		List<T> alist = new List<T>(s.length);
 		for (int i : s)
-			alist.add(getItem(i));
+			alist.add(filterModel.getElementAt(i));
 		return alist;
 	}
 
@@ -320,6 +634,8 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	/**
 	 * The default cell renderer uses this method to return
 	 * what to display as a string. By default this is <code>item.toString()</code>.
+	 * In fast layout, the result is cached per item.
+	 * <p>When filtering by text on a long list, this is called from a background thread.
 	 * @return the string to use. Should not return null.
 	 * @since 2.6.1
 	 */
@@ -328,6 +644,73 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 		return item.toString();
 	}
 
+	// Gets an item's string, from the cache if there is one.
+	private String getCachedItemString(T item, int index)
+	{
+		if (itemStrings == null || index < 0 || index >= filterModel.getSize())
+			return getItemString(item);
+		// renderers are also called for items that are not at the index, like prototypes.
+		index = filterModel.convertIndexToSource(index);
+		if (index >= itemStringCount || dataModel.getElementAt(index) != item)
+			return getItemString(item);
+		String out = itemStrings[index];
+		if (out == null)
+			itemStrings[index] = out = getItemString(item);
+		return out;
+	}
+	
+	// Clears the item string cache.
+	private void resetItemStrings()
+	{
+		if (itemStrings.length < dataModel.getSize())
+			itemStrings = new String[dataModel.getSize()];
+		else
+			Arrays.fill(itemStrings, null);
+		itemStringCount = dataModel.getSize();
+	}
+	
+	// Measures a sample of the shown cells in a range of indices, and grows the fixed cell size to fit them, or fits it to them if reset.
+	private void measureCells(int first, int last, boolean reset)
+	{
+		if (list.getPrototypeCellValue() != null)
+			return;
+		
+		Dimension size = new Dimension(reset ? 0 : list.getFixedCellWidth(), reset ? 0 : list.getFixedCellHeight());
+		int count = last - first + 1;
+		if (count <= FAST_LAYOUT_EDGE_ITEMS * 2 + FAST_LAYOUT_RANDOM_ITEMS)
+		{
+			for (int i = first; i <= last; i++)
+				measureCell(i, size);
+		}
+		else
+		{
+			for (int i = 0; i < FAST_LAYOUT_EDGE_ITEMS; i++)
+			{
+				measureCell(first + i, size);
+				measureCell(last - i, size);
+			}
+			for (int i = 0; i < FAST_LAYOUT_RANDOM_ITEMS; i++)
+				measureCell(first + random.nextInt(count), size);
+			int lastVisible = Math.min(list.getLastVisibleIndex(), filterModel.getSize() - 1);
+			for (int i = Math.max(list.getFirstVisibleIndex(), first); i <= Math.min(lastVisible, last); i++)
+				measureCell(i, size);
+		}
+		
+		if (size.width != list.getFixedCellWidth())
+			list.setFixedCellWidth(size.width);
+		if (size.height != list.getFixedCellHeight())
+			list.setFixedCellHeight(size.height);
+	}
+	
+	// Measures a shown cell, and grows a size to fit it.
+	private void measureCell(int index, Dimension size)
+	{
+		T item = filterModel.getElementAt(index);
+		Dimension cell = list.getCellRenderer().getListCellRendererComponent(list, item, index, false, false).getPreferredSize();
+		size.width = Math.max(size.width, cell.width);
+		size.height = Math.max(size.height, cell.height);
+	}
+	
 	/**
 	 * Checks if this list contains an item.
 	 * @param item the item to check for.
@@ -340,7 +723,8 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	}
 	
 	/**
-	 * Returns the item at a particular index in the list.
+	 * Returns the item at a particular index in the whole list, whether or not it is filtered out.
+	 * @see #getFilteredItem(int)
 	 */
 	public T getItem(int index)
 	{
@@ -371,17 +755,55 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 	
 	/**
 	 * Adds a bunch of items to the list.
+	 * Only one model event is fired for the whole batch.
 	 * @param objects the objects to add to the list.
 	 */
 	public void addItems(T[] objects)
 	{
-		for (T obj : objects)
-			addItem(obj);
+		addItems(Arrays.asList(objects));
+	}
+	
+	/**
+	 * Adds a bunch of items to the end of the list in one pass.
+	 * Only one model event is fired for the whole batch.
+	 * @param objects the objects to add to the list.
+	 * @since 2.8.0
+	 */
+	public void addItems(Iterable<? extends T> objects)
+	{
+		onAddAll(dataModel.addAll(objects));
+	}
+	
+	/**
+	 * Inserts a bunch of items into the list at a specific index, in one pass.
+	 * Only one model event is fired for the whole batch.
+	 * @param index the index at which to place the objects.
+	 * @param objects the objects to add to the list.
+	 * @since 2.8.0
+	 * @see RListModel#insertAll(int, Iterable)
+	 */
+	public void addItems(int index, Iterable<? extends T> objects)
+	{
+		List<T> added = dataModel.insertAll(index, objects);
+		if (added.size() > 0)
+			onAddAll(added);
+	}
+	
+	/**
+	 * Replaces all of the items in the list in one pass.
+	 * @param objects the new items.
+	 * @since 2.8.0
+	 */
+	public void setItems(Iterable<? extends T> objects)
+	{
+		List<T> items = dataModel.setAll(objects);
+		onClear();
+		onAddAll(items);
 	}
 	
 	/**
 	 * Adds an item to the list at a specific index.
-	 * @param index the index at which to place the object.
+	 * @param index the index in the whole list at which to place the object.
 	 * @param object the object to add to the list.
 	 */
 	public void addItem(int index, T object)
@@ -401,9 +823,39 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 		return b;
 	}
 	
+	/**
+	 * Removes a bunch of items from the list in one pass.
+	 * @param objects the objects to remove from the list.
+	 * @return the amount of items removed.
+	 * @since 2.8.0
+	 * @see RListModel#removeAll(Iterable)
+	 */
+	public int removeItems(Iterable<? extends T> objects)
+	{
+		List<T> removed = dataModel.removeAll(objects);
+		if (!removed.isEmpty())
+			onRemoveAll(removed);
+		return removed.size();
+	}
+	
+	/**
+	 * Removes all items from the list except for a bunch of items, in one pass.
+	 * @param objects the objects to keep in the list.
+	 * @return the amount of items removed.
+	 * @since 2.8.0
+	 * @see RListModel#retainAll(Iterable)
+	 */
+	public int retainItems(Iterable<? extends T> objects)
+	{
+		List<T> removed = dataModel.retainAll(objects);
+		if (!removed.isEmpty())
+			onRemoveAll(removed);
+		return removed.size();
+	}
+	
 	/**
 	 * Removes an item from the list at a specific index.
-	 * @param index the index from which to remove the object.
+	 * @param index the index in the whole list from which to remove the object.
 	 */
 	public T removeItem(int index)
 	{
@@ -412,6 +864,111 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 		return out;
 	}
 
+	/**
+	 * Queues an item to be added to the end of the list. Can be called from any thread.
+	 * <p>Queued items are added on the Event Dispatch Thread at most once per frame, in one batch.
+	 * If the list has a maximum item count, the oldest items are removed to make room.
+	 * @param object the object to add.
+	 * @since 2.8.0
+	 * @see #setMaxItemCount(int)
+	 */
+	public void postAdd(T object)
+	{
+		appendQueue.post(object);
+	}
+
+	/**
+	 * Sets how many times per second queued items are added. Default is {@value RListAppendQueue#DEFAULT_FRAME_RATE}.
+	 * @param framesPerSecond the maximum amount of times per second.
+	 * @throws IllegalArgumentException if framesPerSecond is less than 1.
+	 * @since 2.8.0
+	 */
+	public void setUpdateFrameRate(int framesPerSecond)
+	{
+		appendQueue.setFrameRate(framesPerSecond);
+	}
+
+	/**
+	 * Sets the maximum amount of queued items added per frame. Default is {@value RListAppendQueue#DEFAULT_MAX_BATCH}.
+	 * Items past this amount wait for the next frame.
+	 * @param maxBatch the maximum amount of items.
+	 * @throws IllegalArgumentException if maxBatch is less than 1.
+	 * @since 2.8.0
+	 */
+	public void setMaxUpdateBatch(int maxBatch)
+	{
+		appendQueue.setMaxBatch(maxBatch);
+	}
+
+	/**
+	 * Sets the maximum amount of items kept in the list, for lists that are added to with {@link #postAdd(Object)}.
+	 * When queued items are added, the oldest items at the start of the list are removed to make room,
+	 * and queued items past this amount are dropped oldest-first before they are added, so neither the list
+	 * nor the queue grows past it. Items past this amount are removed from the list right away.
+	 * Default is 0, unbounded.
+	 * <p>Unlike {@link #postAdd(Object)}, this must be called on the Event Dispatch Thread, since it changes the list.
+	 * @param maxCount the maximum amount of items, or 0 for unbounded.
+	 * @throws IllegalArgumentException if maxCount is less than 0.
+	 * @since 2.8.0
+	 */
+	public void setMaxItemCount(int maxCount)
+	{
+		appendQueue.setMaxSize(maxCount);
+		int excess = dataModel.getSize() - maxCount;
+		if (maxCount > 0 && excess > 0)
+		{
+			onRemoveAll(dataModel.removeRange(0, excess));
+			appendQueue.addEvicted(excess);
+		}
+	}
+
+	/**
+	 * Returns the maximum amount of items kept in the list, or 0 if unbounded.
+	 * @since 2.8.0
+	 * @see #setMaxItemCount(int)
+	 */
+	public int getMaxItemCount()
+	{
+		return appendQueue.getMaxSize();
+	}
+
+	/**
+	 * Returns the amount of items currently waiting in the queue.
+	 * @since 2.8.0
+	 */
+	public int getQueuedUpdateCount()
+	{
+		return appendQueue.getSize();
+	}
+
+	/**
+	 * Returns the highest amount of items that have waited in the queue at once.
+	 * @since 2.8.0
+	 */
+	public int getPeakQueuedUpdateCount()
+	{
+		return appendQueue.getPeakSize();
+	}
+
+	/**
+	 * Returns the total amount of queued items added so far.
+	 * @since 2.8.0
+	 */
+	public long getAppliedUpdateCount()
+	{
+		return appendQueue.getAppliedCount();
+	}
+
+	/**
+	 * Returns the total amount of items removed from the list or dropped from the queue
+	 * to keep the list at its maximum item count.
+	 * @since 2.8.0
+	 */
+	public long getEvictedItemCount()
+	{
+		return appendQueue.getEvictedCount();
+	}
+
 	/**
 	 * @return this list's data model.
 	 */
@@ -426,16 +983,84 @@ public class RList<T extends Object> extends JPanel implements RListEventListene
 		// Do nothing.
 	}
 
+	/**
+	 * Called when many objects are added to the list at once.
+	 * By default, this calls {@link #onAdd(Object)} for each object.
+	 * @param objects the added objects.
+	 * @since 2.8.0
+	 */
+	public void onAddAll(Iterable<? extends T> objects)
+	{
+		for (T obj : objects)
+			onAdd(obj);
+	}
+
 	@Override
 	public void onRemove(T object)
 	{
 		// Do nothing.
 	}
 
+	/**
+	 * Called when many objects are removed from the list at once.
+	 * By default, this calls {@link #onRemove(Object)} for each object.
+	 * @param objects the removed objects.
+	 * @since 2.8.0
+	 */
+	public void onRemoveAll(Iterable<? extends T> objects)
+	{
+		for (T obj : objects)
+			onRemove(obj);
+	}
+
+	/**
+	 * Called when the list is cleared.
+	 * Does nothing unless overridden.
+	 * @since 2.8.0
+	 */
+	public void onClear()
+	{
+		// Do nothing.
+	}
+
 	@Override
 	public void onSelect()
 	{
 		// Do nothing.
 	}
 
+	// Checks if a string contains some text, ignoring case.
+	private static boolean containsIgnoreCase(String string, String text)
+	{
+		for (int i = 0, end = string.length() - text.length(); i <= end; i++)
+			if (string.regionMatches(true, i, text, 0, text.length()))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Filter for {@link #setFilterText(String)}.
+	 */
+	private class TextFilter extends RListFilter<T>
+	{
+		private final String text;
+		
+		private TextFilter(String text)
+		{
+			this.text = text;
+		}
+		
+		@Override
+		public boolean includeItem(T item)
+		{
+			return containsIgnoreCase(getItemString(item), text);
+		}
+		
+		@Override
+		public boolean isNarrowingOf(RListFilter<T> previous)
+		{
+			return previous instanceof RList<?>.TextFilter && containsIgnoreCase(text, ((RList<?>.TextFilter)previous).text);
+		}
+	}
+
 }
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.list;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.Timer;
+
+import com.blackrook.commons.list.List;
+
+/**
+ * A lock-free queue of items to append to a list, which any thread can post to,
+ * drained on the Event Dispatch Thread at most once per frame.
+ * <p>If the list has a maximum size, it behaves like a ring buffer: each drain removes the oldest
+ * items from the start of the list to make room for the new ones, and items that would be removed
+ * as soon as they are added are dropped from the queue instead, so that neither grows past the maximum.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class RListAppendQueue<T>
+{
+	/** Default drains per second. */
+	static final int DEFAULT_FRAME_RATE = 30;
+	/** Default maximum items per drain. */
+	static final int DEFAULT_MAX_BATCH = 10000;
+
+	/**
+	 * Applies batches of items on the Event Dispatch Thread.
+	 */
+	static interface Applier<T>
+	{
+		/**
+		 * @return the amount of items in the list.
+		 */
+		int getSize();
+
+		/**
+		 * Removes items from the start of the list.
+		 * @param count the amount of items to remove.
+		 */
+		void removeFirst(int count);
+
+		/**
+		 * Adds items to the end of the list.
+		 * @param items the items to add, in posted order.
+		 */
+		void append(List<T> items);
+	}
+
+	/** The applier. */
+	private final Applier<T> applier;
+	/** Queued items. */
+	private final ConcurrentLinkedQueue<T> queue;
+	/** Drain timer. */
+	private final Timer timer;
+	/** Set while a drain is scheduled. */
+	private final AtomicBoolean scheduled;
+
+	/** Amount of queued items. */
+	private final AtomicInteger size;
+	/** Highest amount of queued items seen. */
+	private final AtomicInteger peakSize;
+	/** Total items appended. */
+	private final AtomicLong appliedCount;
+	/** Total items removed or dropped to keep the list at its maximum size. */
+	private final AtomicLong evictedCount;
+
+	/** Maximum amount of items in the list. 0 is unbounded. */
+	private volatile int maxSize;
+	/** Maximum items per drain. */
+	private volatile int maxBatch;
+
+	/**
+	 * Creates a new queue.
+	 * @param applier the applier to hand items to.
+	 */
+	RListAppendQueue(Applier<T> applier)
+	{
+		this.applier = applier;
+		this.queue = new ConcurrentLinkedQueue<T>();
+		this.scheduled = new AtomicBoolean(false);
+		this.size = new AtomicInteger(0);
+		this.peakSize = new AtomicInteger(0);
+		this.appliedCount = new AtomicLong(0L);
+		this.evictedCount = new AtomicLong(0L);
+		this.maxSize = 0;
+		this.maxBatch = DEFAULT_MAX_BATCH;
+		this.timer = new Timer(1000 / DEFAULT_FRAME_RATE, new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				drain();
+			}
+		});
+		this.timer.setRepeats(false);
+		this.timer.setCoalesce(true);
+	}
+
+	/**
+	 * Sets the maximum amount of drains per second.
+	 * @param framesPerSecond the frame rate.
+	 * @throws IllegalArgumentException if framesPerSecond is less than 1.
+	 */
+	void setFrameRate(int framesPerSecond)
+	{
+		if (framesPerSecond < 1)
+			throw new IllegalArgumentException("Frame rate must be at least 1.");
+		timer.setInitialDelay(Math.max(1000 / framesPerSecond, 1));
+	}
+
+	/**
+	 * Sets the maximum amount of items in the list.
+	 * Queued items past this amount are dropped right away. Items already in the list are not removed
+	 * here: the caller trims them and reports them with {@link #addEvicted(int)}.
+	 * @param maxSize the maximum size, or 0 for unbounded.
+	 * @throws IllegalArgumentException if maxSize is less than 0.
+	 */
+	void setMaxSize(int maxSize)
+	{
+		if (maxSize < 0)
+			throw new IllegalArgumentException("Maximum size cannot be less than 0.");
+		this.maxSize = maxSize;
+		evictQueued();
+	}
+
+	/**
+	 * @return the maximum amount of items in the list, or 0 for unbounded.
+	 */
+	int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**
+	 * Sets the maximum amount of items appended per drain.
+	 * @param maxBatch the maximum batch size.
+	 * @throws IllegalArgumentException if maxBatch is less than 1.
+	 */
+	void setMaxBatch(int maxBatch)
+	{
+		if (maxBatch < 1)
+			throw new IllegalArgumentException("Maximum batch size must be at least 1.");
+		this.maxBatch = maxBatch;
+	}
+
+	/**
+	 * Posts an item to append. Can be called from any thread.
+	 * If this puts more items in the queue than the maximum size, the oldest queued item is dropped.
+	 * @param item the item.
+	 */
+	void post(T item)
+	{
+		int current = size.incrementAndGet();
+		int peak;
+		while ((peak = peakSize.get()) < current && !peakSize.compareAndSet(peak, current));
+
+		queue.offer(item);
+		evictQueued();
+		if (scheduled.compareAndSet(false, true))
+			timer.restart();
+	}
+
+	/**
+	 * Adds to the count of evicted items, for items removed from the list outside of a drain.
+	 * @param count the amount of items.
+	 */
+	void addEvicted(int count)
+	{
+		evictedCount.addAndGet(count);
+	}
+
+	/**
+	 * @return the amount of queued items.
+	 */
+	int getSize()
+	{
+		return size.get();
+	}
+
+	/**
+	 * @return the highest amount of queued items seen.
+	 */
+	int getPeakSize()
+	{
+		return peakSize.get();
+	}
+
+	/**
+	 * @return the total amount of items appended.
+	 */
+	long getAppliedCount()
+	{
+		return appliedCount.get();
+	}
+
+	/**
+	 * @return the total amount of items removed or dropped to keep the list at its maximum size.
+	 */
+	long getEvictedCount()
+	{
+		return evictedCount.get();
+	}
+
+	// Drops the oldest queued items past the maximum size.
+	private void evictQueued()
+	{
+		int max = maxSize;
+		while (max > 0 && size.get() > max && queue.poll() != null)
+		{
+			size.decrementAndGet();
+			evictedCount.incrementAndGet();
+		}
+	}
+
+	// Drains up to one batch on the Event Dispatch Thread.
+	private void drain()
+	{
+		int max = maxBatch;
+		int applied = 0;
+		try {
+			List<T> added = new List<T>(Math.max(Math.min(size.get(), max), 1));
+			T item;
+			while (added.size() < max && (item = queue.poll()) != null)
+			{
+				// counted off right away, so that posts do not drop queued items to make room for this batch.
+				size.decrementAndGet();
+				added.add(item);
+			}
+			if (added.isEmpty())
+				return;
+
+			int limit = maxSize;
+			if (limit > 0)
+			{
+				// producers can race past the maximum, so the batch itself may need trimming.
+				if (added.size() > limit)
+				{
+					List<T> kept = new List<T>(limit);
+					for (int i = added.size() - limit; i < added.size(); i++)
+						kept.add(added.getByIndex(i));
+					evictedCount.addAndGet(added.size() - limit);
+					added = kept;
+				}
+				int excess = Math.min(applier.getSize() + added.size() - limit, applier.getSize());
+				if (excess > 0)
+				{
+					applier.removeFirst(excess);
+					evictedCount.addAndGet(excess);
+				}
+			}
+			applier.append(added);
+			applied = added.size();
+		} finally {
+			appliedCount.addAndGet(applied);
+			reschedule();
+		}
+	}
+
+	// Schedules the next drain if there is anything left.
+	private void reschedule()
+	{
+		if (!queue.isEmpty())
+		{
+			timer.restart();
+			return;
+		}
+		scheduled.set(false);
+		// a post may have happened after the empty check but before the flag was cleared.
+		if (!queue.isEmpty() && scheduled.compareAndSet(false, true))
+			timer.restart();
+	}
+
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.list;
+
+/**
+ * The item filter for RLists. When set on the list, only the items that it includes are shown.
+ * <p>On long lists, {@link #includeItem(Object)} is called from a background thread,
+ * so implementations must be safe to call off of the Event Dispatch Thread.
+ * @author Matthew Tropiano
+ * @param <T> matching object.
+ * @since 2.8.0
+ */
+public abstract class RListFilter<T>
+{
+	/**
+	 * Called to check if an item in included in the list.
+	 * @param item the item to test.
+	 * @return true to include, false to not include.
+	 */
+	public abstract boolean includeItem(T item);
+
+	/**
+	 * Checks if this filter is a narrowing of another filter, meaning that every item
+	 * that this filter includes is also included by the other filter (for example, search text
+	 * that contains the previous search text).
+	 * <p>When a narrowing filter replaces the current filter on a list, only the currently
+	 * shown items are tested again instead of every item in the list.
+	 * <p>By default, this returns false.
+	 * @param previous the filter being replaced.
+	 * @return true if this filter only removes items from the results of the previous filter, false otherwise.
+	 */
+	public boolean isNarrowingOf(RListFilter<T> previous)
+	{
+		return false;
+	}
+
+}
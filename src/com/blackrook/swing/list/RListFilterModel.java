@@ -0,0 +1,625 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.list;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.AbstractListModel;
+import javax.swing.SwingWorker;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+/**
+ * A filtered view of an {@link RListModel}, which is the model that an {@link RList} shows.
+ * <p>Without a filter, source model changes pass through as-is. With one, this keeps an ascending mapping
+ * of view indices to source indices, which is updated in place as the source model changes.
+ * <p>Filters on long lists are evaluated in chunks on a background thread, and a filter set in the meantime
+ * cancels it. A filter that narrows the current one only tests the items that are already shown.
+ * The new mapping replaces the old one in one step on the Event Dispatch Thread, reported as the
+ * items removed from and added to the view, so that the selection stays on the items that are still shown.
+ * @author Matthew Tropiano
+ * @param <T> the object type contained in the list.
+ * @since 2.8.0
+ */
+class RListFilterModel<T> extends AbstractListModel<T>
+{
+	private static final long serialVersionUID = 4519604880377153024L;
+
+	/** Amount of items tested at or past which a filter is evaluated in the background. */
+	static final int ASYNC_THRESHOLD = 10000;
+	/** Items tested between checks for cancellation, in the background. */
+	private static final int FILTER_CHUNK = 4096;
+	/** Most events fired for a new filter result, before it is reported as a full replacement instead. */
+	private static final int MAX_CHANGE_EVENTS = 16;
+	/** Most source changes that a background result is caught up with, before it is evaluated again instead. */
+	private static final int MAX_PENDING_CHANGES = 64;
+
+	private static final int CHANGE_ADDED = 0;
+	private static final int CHANGE_REMOVED = 1;
+	private static final int CHANGE_CHANGED = 2;
+
+	/** The source model. */
+	private RListModel<T> source;
+	/** Size of the source model, as of its last event. */
+	private int sourceSize;
+	/** The applied filter, or null for none. */
+	private RListFilter<T> filter;
+	/** View index to source index, ascending, if there is a filter. */
+	private int[] viewToSource;
+	/** Amount of mapped view indices. */
+	private int viewCount;
+	/** If true, the mapping is out of date until the filter is evaluated again, so it cannot be narrowed. */
+	private boolean viewStale;
+	/** The filter being evaluated in the background, if any. */
+	private FilterWorker pendingFilter;
+	/** Increased on every new filter, so that results from replaced filters are dropped. */
+	private long filterGeneration;
+
+	/**
+	 * Creates a new filtered view of a model.
+	 * @param source the source model.
+	 */
+	RListFilterModel(RListModel<T> source)
+	{
+		this.source = source;
+		this.sourceSize = source.getSize();
+		this.filter = null;
+		this.viewToSource = null;
+		this.viewCount = 0;
+		this.viewStale = false;
+		this.pendingFilter = null;
+		this.filterGeneration = 0L;
+
+		source.addListDataListener(new ListDataListener()
+		{
+			// a batch change can fire several events after it is done, so counts are taken from each event.
+			@Override
+			public void intervalAdded(ListDataEvent e)
+			{
+				int count = Math.min(e.getIndex1() - e.getIndex0() + 1, source.getSize() - sourceSize);
+				if (count > 0)
+					sourceAdded(Math.min(Math.max(e.getIndex0(), 0), sourceSize), count);
+			}
+
+			@Override
+			public void intervalRemoved(ListDataEvent e)
+			{
+				int count = Math.min(e.getIndex1() - e.getIndex0() + 1, sourceSize - source.getSize());
+				if (count > 0)
+					sourceRemoved(Math.min(Math.max(e.getIndex0(), 0), sourceSize - count), count);
+			}
+
+			@Override
+			public void contentsChanged(ListDataEvent e)
+			{
+				// replacing past the end appends, and is reported as a change.
+				int size = source.getSize();
+				if (size > sourceSize)
+					sourceAdded(sourceSize, size - sourceSize);
+				else if (size < sourceSize)
+					sourceRemoved(size, sourceSize - size);
+				int first = Math.max(e.getIndex0(), 0);
+				int last = Math.min(e.getIndex1(), size - 1);
+				if (first <= last)
+					sourceChanged(first, last - first + 1);
+			}
+		});
+	}
+
+	/**
+	 * Sets the filter on this view.
+	 * If a background filter is in progress, it is cancelled.
+	 * @param filter the new filter, or null for none.
+	 */
+	void setFilter(RListFilter<T> filter)
+	{
+		startFilter(filter, true);
+	}
+
+	/**
+	 * @return the filter that decides the items in this view, or null for none.
+	 */
+	RListFilter<T> getFilter()
+	{
+		return filter;
+	}
+
+	/**
+	 * @return true if a filter is being evaluated in the background, false if not.
+	 */
+	boolean isFilterPending()
+	{
+		return pendingFilter != null;
+	}
+
+	/**
+	 * Converts a view index to a source model index.
+	 * @param index the view index.
+	 * @return the source model index.
+	 * @throws IndexOutOfBoundsException if a filter is set and the index is outside of the view.
+	 */
+	int convertIndexToSource(int index)
+	{
+		if (filter == null)
+			return index;
+		if (index < 0 || index >= viewCount)
+			throw new IndexOutOfBoundsException("Index " + index + " is outside of the view.");
+		return viewToSource[index];
+	}
+
+	/**
+	 * Converts a source model index to a view index.
+	 * @param index the source model index.
+	 * @return the view index, or -1 if the item at the index is filtered out.
+	 */
+	int convertIndexToView(int index)
+	{
+		if (filter == null)
+			return index;
+		int out = findView(index);
+		return out < viewCount && viewToSource[out] == index ? out : -1;
+	}
+
+	@Override
+	public int getSize()
+	{
+		return filter != null ? viewCount : source.getSize();
+	}
+
+	@Override
+	public T getElementAt(int index)
+	{
+		return source.getElementAt(convertIndexToSource(index));
+	}
+
+	// Evaluates a filter, or starts evaluating it in the background.
+	private void startFilter(RListFilter<T> filter, boolean narrow)
+	{
+		if (pendingFilter != null)
+		{
+			pendingFilter.cancel(false);
+			pendingFilter = null;
+		}
+		filterGeneration++;
+
+		if (filter == null)
+		{
+			if (this.filter != null)
+				applyFilter(null, null);
+			return;
+		}
+
+		int[] candidates = null;
+		int count = sourceSize;
+		if (narrow && this.filter != null && !viewStale && filter.isNarrowingOf(this.filter))
+		{
+			candidates = Arrays.copyOf(viewToSource, viewCount);
+			count = viewCount;
+		}
+		Object[] items = new Object[count];
+		for (int i = 0; i < count; i++)
+			items[i] = source.getElementAt(candidates != null ? candidates[i] : i);
+
+		if (count >= ASYNC_THRESHOLD)
+		{
+			pendingFilter = new FilterWorker(filter, candidates, items, filterGeneration);
+			pendingFilter.execute();
+		}
+		else
+			applyFilter(filter, evaluateFilter(filter, candidates, items, null));
+	}
+
+	// Evaluates the pending filter (or the applied one) on every item again, after a big source change.
+	private void refilter()
+	{
+		viewStale = true;
+		startFilter(pendingFilter != null ? pendingFilter.filter : filter, false);
+	}
+
+	/**
+	 * Tests items against a filter.
+	 * @return the source indices of the included items, or null if the worker was cancelled.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> int[] evaluateFilter(RListFilter<T> filter, int[] candidates, Object[] items, SwingWorker<?, ?> worker)
+	{
+		int[] out = new int[items.length];
+		int count = 0;
+		for (int start = 0; start < items.length; start += FILTER_CHUNK)
+		{
+			if (worker != null && worker.isCancelled())
+				return null;
+			int end = Math.min(start + FILTER_CHUNK, items.length);
+			for (int i = start; i < end; i++)
+			{
+				if (filter.includeItem((T)items[i]))
+					out[count++] = candidates != null ? candidates[i] : i;
+			}
+		}
+		return count < out.length ? Arrays.copyOf(out, count) : out;
+	}
+
+	// Replaces the filter and mapping, and reports the difference as the removed runs, highest first,
+	// and then the added runs, lowest first, or as a full replacement if there are too many runs.
+	private void applyFilter(RListFilter<T> filter, int[] mapping)
+	{
+		int[] oldMapping = this.filter != null ? viewToSource : null;
+		int oldCount = getSize();
+		int newCount = mapping != null ? mapping.length : sourceSize;
+
+		// runs as start and end pairs, removed ones in old view indices and added ones in new view indices.
+		int[] removed = new int[MAX_CHANGE_EVENTS * 2];
+		int[] added = new int[MAX_CHANGE_EVENTS * 2];
+		int removedCount = 0;
+		int addedCount = 0;
+		boolean replaceAll = false;
+		int i = 0;
+		int j = 0;
+		while (!replaceAll && (i < oldCount || j < newCount))
+		{
+			int oldIndex = i < oldCount ? (oldMapping != null ? oldMapping[i] : i) : Integer.MAX_VALUE;
+			int newIndex = j < newCount ? (mapping != null ? mapping[j] : j) : Integer.MAX_VALUE;
+			if (oldIndex == newIndex)
+			{
+				i++;
+				j++;
+			}
+			else if (oldIndex < newIndex)
+			{
+				if (removedCount > 0 && removed[removedCount * 2 - 1] == i - 1)
+					removed[removedCount * 2 - 1] = i;
+				else if (removedCount + addedCount < MAX_CHANGE_EVENTS)
+				{
+					removed[removedCount * 2] = removed[removedCount * 2 + 1] = i;
+					removedCount++;
+				}
+				else
+					replaceAll = true;
+				i++;
+			}
+			else
+			{
+				if (addedCount > 0 && added[addedCount * 2 - 1] == j - 1)
+					added[addedCount * 2 - 1] = j;
+				else if (removedCount + addedCount < MAX_CHANGE_EVENTS)
+				{
+					added[addedCount * 2] = added[addedCount * 2 + 1] = j;
+					addedCount++;
+				}
+				else
+					replaceAll = true;
+				j++;
+			}
+		}
+
+		this.filter = filter;
+		this.viewToSource = mapping;
+		this.viewCount = mapping != null ? mapping.length : 0;
+		this.viewStale = false;
+
+		if (replaceAll)
+		{
+			if (oldCount > 0)
+				fireIntervalRemoved(this, 0, oldCount - 1);
+			if (newCount > 0)
+				fireIntervalAdded(this, 0, newCount - 1);
+		}
+		else
+		{
+			for (int r = removedCount - 1; r >= 0; r--)
+				fireIntervalRemoved(this, removed[r * 2], removed[r * 2 + 1]);
+			for (int r = 0; r < addedCount; r++)
+				fireIntervalAdded(this, added[r * 2], added[r * 2 + 1]);
+		}
+	}
+
+	// Finds the first view index whose source index is at or past a source index.
+	private int findView(int sourceIndex)
+	{
+		int lo = 0;
+		int hi = viewCount;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (viewToSource[mid] < sourceIndex)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	// Replaces a range of view indices with some source indices, and shifts the ones after them.
+	private void replaceView(int start, int end, int[] indices, int count, int shift)
+	{
+		int newCount = viewCount - (end - start) + count;
+		if (newCount > viewToSource.length)
+			viewToSource = Arrays.copyOf(viewToSource, Math.max(newCount, viewToSource.length + (viewToSource.length >> 1)));
+		System.arraycopy(viewToSource, end, viewToSource, start + count, viewCount - end);
+		System.arraycopy(indices, 0, viewToSource, start, count);
+		viewCount = newCount;
+		if (shift != 0)
+		{
+			for (int i = start + count; i < viewCount; i++)
+				viewToSource[i] += shift;
+		}
+	}
+
+	// Tests a range of source items against the applied filter, and returns how many were included.
+	private int evaluateRange(int first, int count, int[] out)
+	{
+		int included = 0;
+		for (int i = first; i < first + count; i++)
+		{
+			if (filter.includeItem(source.getElementAt(i)))
+				out[included++] = i;
+		}
+		return included;
+	}
+
+	// Called when items are added to the source model.
+	private void sourceAdded(int first, int count)
+	{
+		if (pendingFilter != null)
+			pendingFilter.logChange(CHANGE_ADDED, first, count);
+		sourceSize += count;
+		if (filter == null)
+		{
+			fireIntervalAdded(this, first, first + count - 1);
+			return;
+		}
+
+		int start = findView(first);
+		if (count >= ASYNC_THRESHOLD)
+		{
+			// the new items are shown once the filter is evaluated again.
+			replaceView(start, start, viewToSource, 0, count);
+			refilter();
+			return;
+		}
+
+		int[] included = new int[count];
+		int includedCount = evaluateRange(first, count, included);
+		replaceView(start, start, included, includedCount, count);
+		if (includedCount > 0)
+			fireIntervalAdded(this, start, start + includedCount - 1);
+	}
+
+	// Called when items are removed from the source model.
+	private void sourceRemoved(int first, int count)
+	{
+		if (pendingFilter != null)
+			pendingFilter.logChange(CHANGE_REMOVED, first, count);
+		sourceSize -= count;
+		if (filter == null)
+		{
+			fireIntervalRemoved(this, first, first + count - 1);
+			return;
+		}
+
+		int start = findView(first);
+		int end = findView(first + count);
+		replaceView(start, end, viewToSource, 0, -count);
+		if (end > start)
+			fireIntervalRemoved(this, start, end - 1);
+	}
+
+	// Called when items in the source model change.
+	private void sourceChanged(int first, int count)
+	{
+		if (pendingFilter != null)
+			pendingFilter.logChange(CHANGE_CHANGED, first, count);
+		if (filter == null)
+		{
+			fireContentsChanged(this, first, first + count - 1);
+			return;
+		}
+
+		int start = findView(first);
+		int end = findView(first + count);
+		if (count >= ASYNC_THRESHOLD)
+		{
+			// the items shown are refreshed, and decided again once the filter is evaluated again.
+			if (end > start)
+				fireContentsChanged(this, start, end - 1);
+			refilter();
+			return;
+		}
+
+		int[] included = new int[count];
+		int includedCount = evaluateRange(first, count, included);
+		boolean same = includedCount == end - start;
+		for (int i = 0; same && i < includedCount; i++)
+			same = included[i] == viewToSource[start + i];
+
+		if (same)
+		{
+			if (end > start)
+				fireContentsChanged(this, start, end - 1);
+			return;
+		}
+
+		replaceView(start, end, included, includedCount, 0);
+		if (end > start)
+			fireIntervalRemoved(this, start, end - 1);
+		if (includedCount > 0)
+			fireIntervalAdded(this, start, start + includedCount - 1);
+	}
+
+	/**
+	 * Evaluates a filter on a snapshot of items in the background.
+	 * Source changes made in the meantime are logged, so that the result can be caught up with them.
+	 */
+	private class FilterWorker extends SwingWorker<int[], Void>
+	{
+		private final RListFilter<T> filter;
+		private final int[] candidates;
+		private final Object[] items;
+		private final long workerGeneration;
+		/** Source changes since the snapshot, as kind, first index, and count triples. */
+		private int[] changes;
+		private int changeCount;
+
+		private FilterWorker(RListFilter<T> filter, int[] candidates, Object[] items, long workerGeneration)
+		{
+			this.filter = filter;
+			this.candidates = candidates;
+			this.items = items;
+			this.workerGeneration = workerGeneration;
+			this.changes = new int[MAX_PENDING_CHANGES * 3];
+			this.changeCount = 0;
+		}
+
+		// Logs a source change.
+		private void logChange(int kind, int first, int count)
+		{
+			if (changeCount < MAX_PENDING_CHANGES)
+			{
+				changes[changeCount * 3] = kind;
+				changes[changeCount * 3 + 1] = first;
+				changes[changeCount * 3 + 2] = count;
+			}
+			changeCount++;
+		}
+
+		@Override
+		protected int[] doInBackground() throws Exception
+		{
+			return evaluateFilter(filter, candidates, items, this);
+		}
+
+		@Override
+		protected void done()
+		{
+			if (isCancelled() || workerGeneration != filterGeneration)
+				return;
+
+			pendingFilter = null;
+			int[] result;
+			try {
+				result = get();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Background filter failed.", e.getCause());
+			}
+
+			if (changeCount > 0)
+				result = catchUp(result);
+			if (result != null)
+				applyFilter(filter, result);
+			else
+				startFilter(filter, true);
+		}
+
+		/**
+		 * Brings a result up to date with the logged source changes.
+		 * Indices of added or changed items are tracked as ranges that are tested at the end.
+		 * @return the new result, or null if there were too many changes or changed items.
+		 */
+		private int[] catchUp(int[] result)
+		{
+			if (changeCount > MAX_PENDING_CHANGES)
+				return null;
+
+			int count = result.length;
+			// untested source ranges, as start and end (exclusive) pairs.
+			int[] ranges = new int[changeCount * 2];
+			int rangeCount = 0;
+			for (int c = 0; c < changeCount; c++)
+			{
+				int kind = changes[c * 3];
+				int first = changes[c * 3 + 1];
+				int n = changes[c * 3 + 2];
+				switch (kind)
+				{
+					case CHANGE_ADDED:
+					{
+						for (int i = 0; i < count; i++)
+							if (result[i] >= first)
+								result[i] += n;
+						for (int r = 0; r < rangeCount; r++)
+						{
+							if (ranges[r * 2] >= first)
+								ranges[r * 2] += n;
+							if (ranges[r * 2 + 1] > first)
+								ranges[r * 2 + 1] += n;
+						}
+						ranges[rangeCount * 2] = first;
+						ranges[rangeCount * 2 + 1] = first + n;
+						rangeCount++;
+						break;
+					}
+					case CHANGE_REMOVED:
+					{
+						int kept = 0;
+						for (int i = 0; i < count; i++)
+						{
+							if (result[i] < first)
+								result[kept++] = result[i];
+							else if (result[i] >= first + n)
+								result[kept++] = result[i] - n;
+						}
+						count = kept;
+						for (int r = 0; r < rangeCount * 2; r++)
+							if (ranges[r] > first)
+								ranges[r] = Math.max(first, ranges[r] - n);
+						break;
+					}
+					case CHANGE_CHANGED:
+					{
+						int kept = 0;
+						for (int i = 0; i < count; i++)
+							if (result[i] < first || result[i] >= first + n)
+								result[kept++] = result[i];
+						count = kept;
+						ranges[rangeCount * 2] = first;
+						ranges[rangeCount * 2 + 1] = first + n;
+						rangeCount++;
+						break;
+					}
+				}
+			}
+
+			// sort ranges by start.
+			long[] sorted = new long[rangeCount];
+			int tested = 0;
+			for (int r = 0; r < rangeCount; r++)
+			{
+				sorted[r] = ((long)ranges[r * 2] << 32) | ranges[r * 2 + 1];
+				tested += ranges[r * 2 + 1] - ranges[r * 2];
+			}
+			if (tested >= ASYNC_THRESHOLD)
+				return null;
+			Arrays.sort(sorted);
+
+			int[] out = new int[count + tested];
+			int outCount = 0;
+			int i = 0;
+			int next = 0;
+			for (long range : sorted)
+			{
+				int start = Math.max((int)(range >>> 32), next);
+				int end = Math.min((int)range, sourceSize);
+				while (i < count && result[i] < start)
+					out[outCount++] = result[i++];
+				while (i < count && result[i] < end)
+					i++;
+				for (int s = start; s < end; s++)
+					if (filter.includeItem(source.getElementAt(s)))
+						out[outCount++] = s;
+				next = Math.max(next, end);
+			}
+			while (i < count)
+				out[outCount++] = result[i++];
+			return Arrays.copyOf(out, outCount);
+		}
+	}
+
+}
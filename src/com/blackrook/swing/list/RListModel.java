@@ -8,9 +8,15 @@
 package com.blackrook.swing.list;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 import javax.swing.AbstractListModel;
 
@@ -18,6 +24,11 @@ import com.blackrook.commons.list.List;
 
 /**
  * Common list model for RLists.
+ * <p>The model can keep an index of its elements (see {@link #setIndexPolicy(IndexPolicy)}),
+ * which makes {@link #contains(Object)} constant time, and {@link #getIndexOf(Object)} and {@link #remove(Object)}
+ * constant time as long as elements are only added or removed at the end. Other changes mark the positions
+ * after the first changed index as out of date, and they are found again on the next lookup past that index.
+ * An indexed model must only be changed through its own methods, not through its backing list.
  * @author Matthew Tropiano
  * @param <T> the object type contained in the list.
  * @since 2.7.0 
@@ -26,8 +37,33 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 {
 	private static final long serialVersionUID = -4038392735611615114L;
 
+	/** Most removal events fired by one batch removal, before it is reported as one change instead. */
+	private static final int MAX_REMOVAL_EVENTS = 16;
+
+	/**
+	 * How elements are indexed.
+	 * @since 2.8.0
+	 */
+	public static enum IndexPolicy
+	{
+		/** No index. Lookups search the list in order, by equality. */
+		NONE,
+		/** Elements are indexed by {@link Object#equals(Object)} and {@link Object#hashCode()}. */
+		EQUALITY,
+		/** Elements are indexed by reference. Lookups only find the same object. */
+		IDENTITY;
+	}
+
 	/** Data set. */
 	private List<T> data;
+	/** Index policy. */
+	private IndexPolicy indexPolicy;
+	/** Element index, or null if not indexed. */
+	private Map<Object, IndexEntry> index;
+	/** Index entry per position, in the same order as the data. */
+	private IndexEntry[] entries;
+	/** Amount of leading positions whose indexed first positions are up to date. */
+	private int validPositions;
 
 	RListModel()
 	{
@@ -37,14 +73,68 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	RListModel(List<T> data)
 	{
 		this.data = data;
+		this.indexPolicy = IndexPolicy.NONE;
+		this.index = null;
+		this.entries = null;
+		this.validPositions = 0;
 	}
 	
+	/**
+	 * Sets how the elements of this model are indexed, and indexes the current elements.
+	 * Models are not indexed by default.
+	 * @param policy the index policy.
+	 * @throws IllegalArgumentException if policy is null.
+	 * @since 2.8.0
+	 */
+	public void setIndexPolicy(IndexPolicy policy)
+	{
+		if (policy == null)
+			throw new IllegalArgumentException("Index policy cannot be null.");
+		
+		indexPolicy = policy;
+		switch (policy)
+		{
+			case EQUALITY:
+				index = new HashMap<Object, IndexEntry>(Math.max(data.size() * 4 / 3, 16));
+				break;
+			case IDENTITY:
+				index = new IdentityHashMap<Object, IndexEntry>(Math.max(data.size(), 16));
+				break;
+			default:
+				index = null;
+				entries = null;
+				return;
+		}
+		entries = new IndexEntry[Math.max(data.size(), 16)];
+		validPositions = 0;
+		for (int i = 0; i < data.size(); i++)
+			indexInserted(data.getByIndex(i), i, i);
+	}
+
+	/**
+	 * @return how the elements of this model are indexed.
+	 * @since 2.8.0
+	 */
+	public IndexPolicy getIndexPolicy()
+	{
+		return indexPolicy;
+	}
+
 	/**
 	 * Clears the model.
 	 */
 	public void clear()
 	{
+		int size = data.size();
 		data.clear();
+		if (index != null)
+		{
+			index.clear();
+			Arrays.fill(entries, null);
+			validPositions = 0;
+		}
+		if (size > 0)
+			fireIntervalRemoved(this, 0, size - 1);
 	}
 
 	/**
@@ -54,6 +144,8 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void add(T object)
 	{
 		data.add(object);
+		if (index != null)
+			indexInserted(object, data.size() - 1, data.size() - 1);
 		fireIntervalAdded(this, data.size() - 1, data.size() - 1);
 	}
 
@@ -66,7 +158,10 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	 */
 	public void add(int index, T object)
 	{
+		int size = data.size();
 		data.add(index, object);
+		if (this.index != null && data.size() > size)
+			indexInserted(object, Math.min(index, size), size);
 		fireIntervalAdded(this, index, index);
 	}
 
@@ -79,24 +174,32 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	 */
 	public void replace(int index, T object)
 	{
+		int size = data.size();
 		data.replace(index, object);
+		if (this.index != null && index >= 0)
+		{
+			if (index < size)
+				indexReplaced(object, index, size);
+			else if (data.size() > size)
+				indexInserted(object, size, size);
+		}
 		fireContentsChanged(this, index, index);
 	}
 
 	/**
 	 * Removes an object from the model, if it exists in the model.
-	 * Sequential search.
+	 * Sequential search, unless this model is indexed.
 	 * @param object the object to search for and remove.
 	 * @return true if removed, false if not in the model.
-	 * @throws NullPointerException if object is null.
+	 * @throws NullPointerException if object is null and this model is not indexed.
 	 */
 	public boolean remove(T object)
 	{
-		int index = data.getIndexOf(object);
-		boolean out = data.remove(object);
-		if (out)
-			fireIntervalRemoved(this, index, index);
-		return out;
+		int index = getIndexOf(object);
+		if (index < 0)
+			return false;
+		removeIndex(index);
+		return true;
 	}
 
 	/**
@@ -107,33 +210,226 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	 */
 	public T removeIndex(int index)
 	{
+		int size = data.size();
 		T out = data.removeIndex(index); 
+		if (this.index != null && data.size() < size)
+			indexRemoved(index, size);
 		if (out != null)
 			fireIntervalRemoved(this, index, index);
 		return out;
 	}
 
+	/**
+	 * Adds objects to the end of the model in one pass.
+	 * Only one event is fired for the whole batch.
+	 * The objects are only iterated once, and can be this model itself.
+	 * @param objects the objects to add.
+	 * @return the list of added objects, in order.
+	 * @since 2.8.0
+	 */
+	public List<T> addAll(Iterable<? extends T> objects)
+	{
+		List<T> items = copyItems(objects);
+		int size = data.size();
+		for (T object : items)
+		{
+			data.add(object);
+			if (index != null)
+				indexInserted(object, data.size() - 1, data.size() - 1);
+		}
+		if (data.size() > size)
+			fireIntervalAdded(this, size, data.size() - 1);
+		return items;
+	}
+
+	/**
+	 * Inserts objects at an index in one pass, shifting the objects after it once.
+	 * Only one event is fired for the whole batch.
+	 * If index is greater than or equal to the size, they are added at the end.
+	 * If index is less than 0, nothing is added.
+	 * @param index the index to insert the objects at.
+	 * @param objects the objects to insert, in order.
+	 * @return the list of inserted objects, in order, which is empty if nothing was inserted.
+	 * @since 2.8.0
+	 */
+	public List<T> insertAll(int index, Iterable<? extends T> objects)
+	{
+		if (index < 0)
+			return new List<T>(1);
+		int size = data.size();
+		if (index >= size)
+			return addAll(objects);
+		
+		List<T> items = copyItems(objects);
+		int count = items.size();
+		if (count == 0)
+			return items;
+		
+		// append the objects that end up past the old end, then move the rest back once.
+		for (int i = size; i < size + count; i++)
+			data.add(i - count >= index ? data.getByIndex(i - count) : items.getByIndex(i - index));
+		for (int i = size - 1; i >= index + count; i--)
+			data.replace(i, data.getByIndex(i - count));
+		for (int i = index; i < index + count && i < size; i++)
+			data.replace(i, items.getByIndex(i - index));
+
+		if (this.index != null)
+		{
+			validPositions = Math.min(validPositions, index);
+			if (size + count > entries.length)
+				entries = Arrays.copyOf(entries, Math.max(size + count, entries.length + (entries.length >> 1)));
+			System.arraycopy(entries, index, entries, index + count, size - index);
+			for (int i = 0; i < count; i++)
+				entries[index + i] = indexAdd(items.getByIndex(i), index + i);
+		}
+		fireIntervalAdded(this, index, index + count - 1);
+		return items;
+	}
+
+	/**
+	 * Removes a range of objects from the model in one pass, shifting everything after it up.
+	 * Indices outside of the model are clamped to it. Only one event is fired.
+	 * @param startIndex the starting index, inclusive.
+	 * @param endIndex the ending index, exclusive.
+	 * @return the removed objects, in order.
+	 * @since 2.8.0
+	 */
+	public List<T> removeRange(int startIndex, int endIndex)
+	{
+		int size = data.size();
+		startIndex = Math.max(startIndex, 0);
+		endIndex = Math.min(endIndex, size);
+		int count = endIndex - startIndex;
+		if (count <= 0)
+			return new List<T>();
+		
+		List<T> removed = new List<T>(count);
+		for (int i = startIndex; i < endIndex; i++)
+		{
+			removed.add(data.getByIndex(i));
+			if (index != null)
+				indexRemove(entries[i]);
+		}
+		for (int i = endIndex; i < size; i++)
+			data.replace(i - count, data.getByIndex(i));
+		for (int i = size - 1; i >= size - count; i--)
+			data.removeIndex(i);
+		if (index != null)
+		{
+			System.arraycopy(entries, endIndex, entries, startIndex, size - endIndex);
+			Arrays.fill(entries, size - count, size, null);
+			validPositions = Math.min(validPositions, startIndex);
+		}
+		fireIntervalRemoved(this, startIndex, endIndex - 1);
+		return removed;
+	}
+
+	/**
+	 * Removes all objects that are in a set of objects, in one pass.
+	 * Objects are matched the same way as {@link #contains(Object)}: by reference if this model is
+	 * indexed by identity, and by equality otherwise.
+	 * One event is fired per run of removed objects, or one change event if there are many runs.
+	 * @param objects the objects to remove.
+	 * @return the removed objects, in the order that they were in the model.
+	 * @since 2.8.0
+	 */
+	public List<T> removeAll(Iterable<? extends T> objects)
+	{
+		return removeMatching(objects, true);
+	}
+
+	/**
+	 * Removes all objects that are not in a set of objects, in one pass.
+	 * Objects are matched the same way as {@link #contains(Object)}: by reference if this model is
+	 * indexed by identity, and by equality otherwise.
+	 * One event is fired per run of removed objects, or one change event if there are many runs.
+	 * @param objects the objects to keep.
+	 * @return the removed objects, in the order that they were in the model.
+	 * @since 2.8.0
+	 */
+	public List<T> retainAll(Iterable<? extends T> objects)
+	{
+		return removeMatching(objects, false);
+	}
+
+	/**
+	 * Replaces the contents of this model in one pass.
+	 * At most one change event and one add or remove event are fired.
+	 * The objects are copied before the contents are replaced, so they are only iterated once,
+	 * and can be this model itself.
+	 * @param objects the new contents.
+	 * @return the list of new contents, in order.
+	 * @since 2.8.0
+	 */
+	public List<T> setAll(Iterable<? extends T> objects)
+	{
+		List<T> items = copyItems(objects);
+		int size = data.size();
+		int count = 0;
+		for (T object : items)
+		{
+			if (count < size)
+				data.replace(count, object);
+			else
+				data.add(object);
+			count++;
+		}
+		for (int i = size - 1; i >= count; i--)
+			data.removeIndex(i);
+		
+		if (index != null)
+			setIndexPolicy(indexPolicy);
+		if (count < size)
+			fireIntervalRemoved(this, count, size - 1);
+		else if (count > size)
+			fireIntervalAdded(this, size, count - 1);
+		if (Math.min(size, count) > 0)
+			fireContentsChanged(this, 0, Math.min(size, count) - 1);
+		return items;
+	}
+
+	// Copies objects into a new list.
+	private static <T> List<T> copyItems(Iterable<? extends T> objects)
+	{
+		List<T> out = new List<T>();
+		for (T object : objects)
+			out.add(object);
+		return out;
+	}
+
 	/**
 	 * Checks if an object exists in this model.
 	 * Implementation may dictate how the object is searched.
 	 * @param object the object to look for.
-	 * @return true if an equal object exists, or false if not.
+	 * @return true if an equal object exists (or the same object, if indexed by identity), or false if not.
 	 * @see #getIndexOf(Object)
+	 * @see #setIndexPolicy(IndexPolicy)
 	 */
 	public boolean contains(T object)
 	{
+		if (index != null)
+			return index.containsKey(object);
 		return data.contains(object);
 	}
 
 	/**
 	 * Gets the index of an object, presumably in the model.
 	 * @param object the object to search for.
-	 * @return the index of the object if it is in the model, or -1 if it is not present.
-	 * @throws NullPointerException if object is null.
+	 * @return the index of the first matching object if it is in the model, or -1 if it is not present.
+	 * @throws NullPointerException if object is null and this model is not indexed.
+	 * @see #setIndexPolicy(IndexPolicy)
 	 */
 	public int getIndexOf(T object)
 	{
-		return data.getIndexOf(object);
+		if (index == null)
+			return data.getIndexOf(object);
+		
+		IndexEntry entry = index.get(object);
+		if (entry == null)
+			return -1;
+		if (entry.position >= validPositions)
+			updatePositions();
+		return entry.position;
 	}
 
 	/**
@@ -157,6 +453,7 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void sort()
 	{
 		data.sort();
+		relinkPositions(0, data.size());
 		fireContentsChanged(this, 0, data.size() - 1);
 	}
 
@@ -168,6 +465,7 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void sort(Comparator<? super T> comparator)
 	{
 		data.sort(comparator);
+		relinkPositions(0, data.size());
 		fireContentsChanged(this, 0, data.size() - 1);
 	}
 
@@ -180,6 +478,7 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void sort(int startIndex, int endIndex)
 	{
 		data.sort(startIndex, endIndex);
+		relinkPositions(startIndex, endIndex);
 		fireContentsChanged(this, startIndex, endIndex - 1);
 	}
 
@@ -193,6 +492,7 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void sort(Comparator<? super T> comparator, int startIndex, int endIndex)
 	{
 		data.sort(comparator, startIndex, endIndex);
+		relinkPositions(startIndex, endIndex);
 		fireContentsChanged(this, startIndex, endIndex - 1);
 	}
 
@@ -210,6 +510,8 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void swap(int index0, int index1)
 	{
 		data.swap(index0, index1);
+		relinkPositions(index0, index0 + 1);
+		relinkPositions(index1, index1 + 1);
 		fireContentsChanged(this, index0, index0);
 		fireContentsChanged(this, index1, index1);
 	}
@@ -229,6 +531,8 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void shift(int sourceIndex, int targetIndex)
 	{
 		data.swap(sourceIndex, targetIndex);
+		relinkPositions(sourceIndex, sourceIndex + 1);
+		relinkPositions(targetIndex, targetIndex + 1);
 		fireContentsChanged(this, sourceIndex, targetIndex);
 	}
 
@@ -240,6 +544,7 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 	public void shuffle(Random random)
 	{
 		data.shuffle(random);
+		relinkPositions(0, data.size());
 		fireContentsChanged(this, 0, data.size() - 1);
 	}
 
@@ -261,4 +566,168 @@ public class RListModel<T> extends AbstractListModel<T> implements Iterable<T>
 		return data.iterator();
 	}
 
+	// Removes the objects that are (or are not) in a set of objects, compacting the rest in one pass.
+	private List<T> removeMatching(Iterable<? extends T> objects, boolean contained)
+	{
+		Set<Object> set = indexPolicy == IndexPolicy.IDENTITY
+			? Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>())
+			: new HashSet<Object>();
+		for (T object : objects)
+			set.add(object);
+
+		int size = data.size();
+		List<T> removed = new List<T>();
+		// removed runs, as start and end pairs, as long as there are few enough to report.
+		int[] runs = new int[MAX_REMOVAL_EVENTS * 2];
+		int runCount = 0;
+		int lastRemoved = -2;
+		int kept = 0;
+		for (int i = 0; i < size; i++)
+		{
+			T object = data.getByIndex(i);
+			if (set.contains(object) == contained)
+			{
+				removed.add(object);
+				if (index != null)
+					indexRemove(entries[i]);
+				if (lastRemoved != i - 1 && runCount++ < MAX_REMOVAL_EVENTS)
+					runs[runCount * 2 - 2] = i;
+				if (runCount <= MAX_REMOVAL_EVENTS)
+					runs[runCount * 2 - 1] = i;
+				lastRemoved = i;
+			}
+			else
+			{
+				if (kept != i)
+				{
+					data.replace(kept, object);
+					if (index != null)
+						entries[kept] = entries[i];
+				}
+				kept++;
+			}
+		}
+		if (runCount == 0)
+			return removed;
+		
+		for (int i = size - 1; i >= kept; i--)
+			data.removeIndex(i);
+		if (index != null)
+		{
+			Arrays.fill(entries, kept, size, null);
+			validPositions = Math.min(validPositions, runs[0]);
+		}
+		
+		// highest first, so each event's indices are still good after the ones before it.
+		if (runCount <= MAX_REMOVAL_EVENTS)
+		{
+			for (int r = runCount - 1; r >= 0; r--)
+				fireIntervalRemoved(this, runs[r * 2], runs[r * 2 + 1]);
+		}
+		else
+		{
+			fireIntervalRemoved(this, kept, size - 1);
+			if (kept > 0)
+				fireContentsChanged(this, 0, kept - 1);
+		}
+		return removed;
+	}
+
+	// Indexes an object inserted at a position, in a list that had a size before the insert.
+	private void indexInserted(T object, int position, int size)
+	{
+		// appending keeps all positions up to date if they already were.
+		if (position == size && validPositions == size)
+			validPositions = size + 1;
+		else
+			validPositions = Math.min(validPositions, position);
+
+		if (size == entries.length)
+			entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+		System.arraycopy(entries, position, entries, position + 1, size - position);
+		entries[position] = indexAdd(object, position);
+	}
+
+	// Unindexes the object removed from a position, in a list that had a size before the removal.
+	private void indexRemoved(int position, int size)
+	{
+		validPositions = Math.min(validPositions, position);
+		indexRemove(entries[position]);
+		System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+		entries[size - 1] = null;
+	}
+
+	// Reindexes a position whose object was replaced, in a list with a size.
+	private void indexReplaced(T object, int position, int size)
+	{
+		// replacing the last object keeps all positions up to date if they already were.
+		if (position < size - 1 || validPositions < size)
+			validPositions = Math.min(validPositions, position);
+		indexRemove(entries[position]);
+		entries[position] = indexAdd(object, position);
+	}
+
+	// Counts an object in the index, and returns its entry.
+	private IndexEntry indexAdd(T object, int position)
+	{
+		IndexEntry entry = index.get(object);
+		if (entry == null)
+			index.put(object, entry = new IndexEntry(object, position));
+		else if (position < entry.position)
+			entry.position = position;
+		entry.count++;
+		return entry;
+	}
+
+	// Uncounts an entry in the index.
+	private void indexRemove(IndexEntry entry)
+	{
+		if (--entry.count == 0)
+			index.remove(entry.key);
+	}
+
+	// Finds the entries of a range of moved positions again, and marks the positions from there as out of date.
+	private void relinkPositions(int startIndex, int endIndex)
+	{
+		if (index == null || startIndex >= endIndex)
+			return;
+		for (int i = startIndex; i < endIndex; i++)
+			entries[i] = index.get(data.getByIndex(i));
+		validPositions = Math.min(validPositions, startIndex);
+	}
+
+	// Finds the first positions of the elements past the up-to-date positions.
+	private void updatePositions()
+	{
+		int valid = validPositions;
+		// backwards, so that each element's first position is the last one written.
+		for (int i = data.size() - 1; i >= valid; i--)
+		{
+			IndexEntry entry = entries[i];
+			if (entry.position >= valid)
+				entry.position = i;
+		}
+		validPositions = data.size();
+	}
+
+	/**
+	 * An indexed element's count and first position.
+	 */
+	private static final class IndexEntry
+	{
+		/** Indexed key. */
+		private final Object key;
+		/** Amount of matching elements. */
+		private int count;
+		/** First position, if less than the amount of valid positions. */
+		private int position;
+		
+		private IndexEntry(Object key, int position)
+		{
+			this.key = key;
+			this.count = 0;
+			this.position = position;
+		}
+	}
+
 }
@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import com.blackrook.commons.Reflect;
+
+/**
+ * Reads and writes a single column value on a row object.
+ * <p>Accessors are resolved once per column from the column's getter and setter methods.
+ * The fastest available strategy is chosen at creation time: a generated lambda via
+ * {@link LambdaMetafactory}, then a {@link MethodHandle}, and lastly plain reflection.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+abstract class ColumnAccessor
+{
+	/** Lookup used for all method handle creation. */
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+	/** Generic getter type. */
+	private static final MethodType GET_TYPE = MethodType.methodType(Object.class, Object.class);
+	/** Generic setter type. */
+	private static final MethodType SET_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/**
+	 * Creates the best accessor available for a getter/setter pair.
+	 * @param getter the getter method.
+	 * @param setter the setter method (can be null).
+	 * @return a new accessor.
+	 */
+	static ColumnAccessor create(Method getter, Method setter)
+	{
+		ColumnAccessor out;
+		if ((out = LambdaAccessor.tryCreate(getter, setter)) != null)
+			return out;
+		if ((out = HandleAccessor.tryCreate(getter, setter)) != null)
+			return out;
+		return new ReflectAccessor(getter, setter);
+	}
+
+	/**
+	 * Reads the value of this column from a row.
+	 * @param row the row object.
+	 * @return the value read.
+	 */
+	abstract Object get(Object row);
+
+	/**
+	 * Writes the value of this column to a row.
+	 * Does nothing if the column has no setter.
+	 * @param row the row object.
+	 * @param value the value to write.
+	 */
+	abstract void set(Object row, Object value);
+
+	/**
+	 * Reads the value of this column from a row as a long.
+	 * The column's getter must return a primitive integer type (byte, short, int, or long).
+	 * @param row the row object.
+	 * @return the value read.
+	 */
+	long getLong(Object row)
+	{
+		return ((Number)get(row)).longValue();
+	}
+
+	/**
+	 * Reads the value of this column from a row as a double.
+	 * The column's getter must return a primitive floating-point type (float or double).
+	 * @param row the row object.
+	 * @return the value read.
+	 */
+	double getDouble(Object row)
+	{
+		return ((Number)get(row)).doubleValue();
+	}
+
+	// Checks if generated classes can see and call the target method.
+	private static boolean isLinkable(Method method)
+	{
+		if (!Modifier.isPublic(method.getModifiers()))
+			return false;
+		if (!isVisible(method.getDeclaringClass()))
+			return false;
+		if (!isVisible(method.getReturnType()))
+			return false;
+		for (Class<?> param : method.getParameterTypes())
+			if (!isVisible(param))
+				return false;
+		return true;
+	}
+
+	// Checks if a class is public and resolvable from this class's loader.
+	private static boolean isVisible(Class<?> clazz)
+	{
+		if (clazz.isPrimitive())
+			return true;
+		if (clazz.isArray())
+			return isVisible(clazz.getComponentType());
+		for (Class<?> c = clazz; c != null; c = c.getEnclosingClass())
+			if (!Modifier.isPublic(c.getModifiers()))
+				return false;
+		try {
+			return Class.forName(clazz.getName(), false, ColumnAccessor.class.getClassLoader()) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	// Checks if a type is a primitive integer type.
+	static boolean isIntegerPrimitive(Class<?> clazz)
+	{
+		return clazz == byte.class || clazz == short.class || clazz == int.class || clazz == long.class;
+	}
+
+	// Checks if a type is a primitive floating-point type.
+	static boolean isFloatPrimitive(Class<?> clazz)
+	{
+		return clazz == float.class || clazz == double.class;
+	}
+
+	// Boxes a primitive type, if primitive.
+	private static Class<?> boxed(Class<?> clazz)
+	{
+		return MethodType.methodType(clazz).wrap().returnType();
+	}
+
+	// Rethrows a throwable from a method handle call.
+	private static RuntimeException propagate(Throwable t)
+	{
+		if (t instanceof RuntimeException)
+			return (RuntimeException)t;
+		if (t instanceof Error)
+			throw (Error)t;
+		return new RuntimeException(t);
+	}
+
+	/**
+	 * Accessor that uses generated lambdas. Effectively a direct call after inlining.
+	 */
+	private static class LambdaAccessor extends ColumnAccessor
+	{
+		private final Function<Object, Object> getter;
+		private final BiConsumer<Object, Object> setter;
+		private final ToLongFunction<Object> longGetter;
+		private final ToDoubleFunction<Object> doubleGetter;
+
+		private LambdaAccessor(Function<Object, Object> getter, BiConsumer<Object, Object> setter, ToLongFunction<Object> longGetter, ToDoubleFunction<Object> doubleGetter)
+		{
+			this.getter = getter;
+			this.setter = setter;
+			this.longGetter = longGetter;
+			this.doubleGetter = doubleGetter;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static LambdaAccessor tryCreate(Method getterMethod, Method setterMethod)
+		{
+			if (!isLinkable(getterMethod) || (setterMethod != null && !isLinkable(setterMethod)))
+				return null;
+
+			try {
+				Class<?> declaring = getterMethod.getDeclaringClass();
+				CallSite getSite = LambdaMetafactory.metafactory(LOOKUP, "apply",
+					MethodType.methodType(Function.class),
+					GET_TYPE.erase(),
+					LOOKUP.unreflect(getterMethod),
+					MethodType.methodType(boxed(getterMethod.getReturnType()), declaring)
+				);
+				Function<Object, Object> getter = (Function<Object, Object>)getSite.getTarget().invoke();
+
+				BiConsumer<Object, Object> setter = null;
+				if (setterMethod != null)
+				{
+					CallSite setSite = LambdaMetafactory.metafactory(LOOKUP, "accept",
+						MethodType.methodType(BiConsumer.class),
+						SET_TYPE.erase(),
+						LOOKUP.unreflect(setterMethod),
+						MethodType.methodType(void.class, setterMethod.getDeclaringClass(), boxed(setterMethod.getParameterTypes()[0]))
+					);
+					setter = (BiConsumer<Object, Object>)setSite.getTarget().invoke();
+				}
+
+				// primitive getters also get unboxed variants.
+				Class<?> returnType = getterMethod.getReturnType();
+				ToLongFunction<Object> longGetter = null;
+				ToDoubleFunction<Object> doubleGetter = null;
+				if (isIntegerPrimitive(returnType))
+				{
+					CallSite longSite = LambdaMetafactory.metafactory(LOOKUP, "applyAsLong",
+						MethodType.methodType(ToLongFunction.class),
+						MethodType.methodType(long.class, Object.class),
+						LOOKUP.unreflect(getterMethod),
+						MethodType.methodType(long.class, declaring)
+					);
+					longGetter = (ToLongFunction<Object>)longSite.getTarget().invoke();
+				}
+				else if (isFloatPrimitive(returnType))
+				{
+					CallSite doubleSite = LambdaMetafactory.metafactory(LOOKUP, "applyAsDouble",
+						MethodType.methodType(ToDoubleFunction.class),
+						MethodType.methodType(double.class, Object.class),
+						LOOKUP.unreflect(getterMethod),
+						MethodType.methodType(double.class, declaring)
+					);
+					doubleGetter = (ToDoubleFunction<Object>)doubleSite.getTarget().invoke();
+				}
+				return new LambdaAccessor(getter, setter, longGetter, doubleGetter);
+			} catch (Throwable t) {
+				return null;
+			}
+		}
+
+		@Override
+		Object get(Object row)
+		{
+			return getter.apply(row);
+		}
+
+		@Override
+		void set(Object row, Object value)
+		{
+			if (setter != null)
+				setter.accept(row, value);
+		}
+
+		@Override
+		long getLong(Object row)
+		{
+			return longGetter != null ? longGetter.applyAsLong(row) : super.getLong(row);
+		}
+
+		@Override
+		double getDouble(Object row)
+		{
+			return doubleGetter != null ? doubleGetter.applyAsDouble(row) : super.getDouble(row);
+		}
+	}
+
+	/**
+	 * Accessor that uses method handles.
+	 */
+	private static class HandleAccessor extends ColumnAccessor
+	{
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+
+		private HandleAccessor(MethodHandle getter, MethodHandle setter)
+		{
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		private static HandleAccessor tryCreate(Method getterMethod, Method setterMethod)
+		{
+			try {
+				getterMethod.setAccessible(true);
+				MethodHandle getter = LOOKUP.unreflect(getterMethod).asType(GET_TYPE);
+				MethodHandle setter = null;
+				if (setterMethod != null)
+				{
+					setterMethod.setAccessible(true);
+					setter = LOOKUP.unreflect(setterMethod).asType(SET_TYPE);
+				}
+				return new HandleAccessor(getter, setter);
+			} catch (IllegalAccessException e) {
+				return null;
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
+
+		@Override
+		Object get(Object row)
+		{
+			try {
+				return (Object)getter.invokeExact(row);
+			} catch (Throwable t) {
+				throw propagate(t);
+			}
+		}
+
+		@Override
+		void set(Object row, Object value)
+		{
+			if (setter == null)
+				return;
+			try {
+				setter.invokeExact(row, value);
+			} catch (Throwable t) {
+				throw propagate(t);
+			}
+		}
+	}
+
+	/**
+	 * Accessor that uses plain reflection.
+	 */
+	private static class ReflectAccessor extends ColumnAccessor
+	{
+		private final Method getter;
+		private final Method setter;
+
+		private ReflectAccessor(Method getter, Method setter)
+		{
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		@Override
+		Object get(Object row)
+		{
+			return Reflect.invokeBlind(getter, row);
+		}
+
+		@Override
+		void set(Object row, Object value)
+		{
+			if (setter != null)
+				Reflect.invokeBlind(setter, row, value);
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.blackrook.commons.hash.HashMap;
+
+/**
+ * Hash index of the values of a single column, mapping each distinct value
+ * to the set of rows that have it. Rows are tracked by identity.
+ * <p>The value last indexed for each row is remembered, so that a row can be moved
+ * to its new value's bucket without knowing what its old value was. So is the amount of times
+ * that a row was added, so that a row that is in a model more than once stays until its last removal.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class ColumnIndex
+{
+	/** Stand-in key for null values. */
+	private static final Object NULL_KEY = new Object();
+
+	/** Accessor for the indexed column. */
+	private final ColumnAccessor accessor;
+	/** Value to rows. */
+	private HashMap<Object, Set<Object>> rowsByValue;
+	/** Row to last indexed value and occurrences. */
+	private IdentityHashMap<Object, RowEntry> entryByRow;
+
+	/**
+	 * Creates a new, empty index.
+	 * @param accessor the accessor used to read the indexed column.
+	 */
+	ColumnIndex(ColumnAccessor accessor)
+	{
+		this.accessor = accessor;
+		clear();
+	}
+
+	/**
+	 * Removes all rows from this index.
+	 */
+	void clear()
+	{
+		this.rowsByValue = new HashMap<Object, Set<Object>>();
+		this.entryByRow = new IdentityHashMap<Object, RowEntry>();
+	}
+
+	/**
+	 * Adds an occurrence of a row to this index, and moves the row if its value changed since it was last indexed.
+	 * @param row the row to add.
+	 */
+	void add(Object row)
+	{
+		RowEntry entry = entryByRow.get(row);
+		if (entry == null)
+			entryByRow.put(row, entry = new RowEntry());
+		entry.count++;
+		index(row, entry);
+	}
+
+	/**
+	 * Moves a row if its value changed since it was last indexed.
+	 * Rows that are not in this index are ignored.
+	 * @param row the row to update.
+	 */
+	void update(Object row)
+	{
+		RowEntry entry = entryByRow.get(row);
+		if (entry != null)
+			index(row, entry);
+	}
+
+	/**
+	 * Removes an occurrence of a row from this index.
+	 * The row stays in this index until all of its occurrences are removed.
+	 * @param row the row to remove.
+	 */
+	void remove(Object row)
+	{
+		RowEntry entry = entryByRow.get(row);
+		if (entry == null || --entry.count > 0)
+			return;
+		entryByRow.remove(row);
+		removeFromBucket(entry.value, row);
+	}
+
+	/**
+	 * Gets the rows that have a specific value.
+	 * @param value the value to look up.
+	 * @return the set of rows, or an empty set if none. Do not alter this set.
+	 */
+	Set<Object> get(Object value)
+	{
+		Set<Object> out = rowsByValue.get(key(value));
+		return out != null ? out : Collections.emptySet();
+	}
+
+	// Puts a row in its current value's bucket, if it is not already there.
+	private void index(Object row, RowEntry entry)
+	{
+		Object value = key(accessor.get(row));
+		if (entry.value != null)
+		{
+			if (entry.value.equals(value))
+				return;
+			removeFromBucket(entry.value, row);
+		}
+		entry.value = value;
+		Set<Object> bucket = rowsByValue.get(value);
+		if (bucket == null)
+			rowsByValue.put(value, bucket = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>(4)));
+		bucket.add(row);
+	}
+
+	// Removes a row from a value's bucket.
+	private void removeFromBucket(Object value, Object row)
+	{
+		Set<Object> bucket = rowsByValue.get(value);
+		if (bucket == null)
+			return;
+		bucket.remove(row);
+		if (bucket.isEmpty())
+			rowsByValue.removeUsingKey(value);
+	}
+
+	// Converts a value to a hash key.
+	private static Object key(Object value)
+	{
+		return value != null ? value : NULL_KEY;
+	}
+
+	/**
+	 * A row's last indexed value and amount of occurrences.
+	 */
+	private static final class RowEntry
+	{
+		/** Last indexed value key, or null if not indexed yet. */
+		private Object value;
+		/** Amount of occurrences. */
+		private int count;
+		
+		private RowEntry()
+		{
+			this.value = null;
+			this.count = 0;
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.Arrays;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.swing.table.RTable.WidthPolicy;
+import com.blackrook.swing.table.RTableModel.Column;
+
+/**
+ * Computes column widths for a table width, according to each column's {@link WidthPolicy}.
+ * <p>Fixed and content widths are taken first, and the space left is shared by the proportional
+ * columns by their descriptor widths. The proportional ratios are computed once per policy change,
+ * and a layout is only computed again if the table width or a policy changed.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class ColumnLayout
+{
+	/** Marks a content width that has not been measured. */
+	private static final int UNMEASURED = -1;
+
+	/** The column list. */
+	private final List<Column> columns;
+	/** Policy per column. */
+	private final WidthPolicy[] policies;
+	/** Fixed width in pixels per column, for fixed columns. */
+	private final int[] fixedWidths;
+	/** Measured width in pixels per column, for content columns. */
+	private final int[] contentWidths;
+
+	/** Share of the proportional space per column, or null if out of date. */
+	private float[] ratios;
+	/** Table width of the last layout. */
+	private int lastWidth;
+
+	/**
+	 * Creates a new layout, with all columns proportional.
+	 * @param columns the columns to lay out.
+	 */
+	ColumnLayout(List<Column> columns)
+	{
+		int count = columns.size();
+		this.columns = columns;
+		this.policies = new WidthPolicy[count];
+		this.fixedWidths = new int[count];
+		this.contentWidths = new int[count];
+		Arrays.fill(policies, WidthPolicy.PROPORTIONAL);
+		Arrays.fill(contentWidths, UNMEASURED);
+		this.ratios = null;
+		this.lastWidth = -1;
+	}
+
+	/**
+	 * Sets a column's policy.
+	 * @param column the column index.
+	 * @param policy the new policy.
+	 * @param fixedWidth the width in pixels, if the policy is {@link WidthPolicy#FIXED}.
+	 */
+	void setPolicy(int column, WidthPolicy policy, int fixedWidth)
+	{
+		policies[column] = policy;
+		fixedWidths[column] = Math.max(fixedWidth, 0);
+		contentWidths[column] = UNMEASURED;
+		invalidate();
+	}
+
+	/**
+	 * Gets a column's policy.
+	 * @param column the column index.
+	 * @return the policy.
+	 */
+	WidthPolicy getPolicy(int column)
+	{
+		return policies[column];
+	}
+
+	/**
+	 * Checks if a column needs its content measured before the next layout.
+	 * @param column the column index.
+	 * @return true if so, false if not.
+	 */
+	boolean needsContentWidth(int column)
+	{
+		return policies[column] == WidthPolicy.CONTENT && contentWidths[column] == UNMEASURED;
+	}
+
+	/**
+	 * Sets the measured content width of a column.
+	 * @param column the column index.
+	 * @param width the width in pixels.
+	 */
+	void setContentWidth(int column, int width)
+	{
+		contentWidths[column] = Math.max(width, 0);
+		lastWidth = -1;
+	}
+
+	/**
+	 * Forgets all measured content widths.
+	 * @return true if any column uses the content policy, false if not.
+	 */
+	boolean invalidateContent()
+	{
+		boolean out = false;
+		for (int i = 0; i < policies.length; i++)
+		{
+			if (policies[i] == WidthPolicy.CONTENT)
+			{
+				contentWidths[i] = UNMEASURED;
+				out = true;
+			}
+		}
+		if (out)
+			lastWidth = -1;
+		return out;
+	}
+
+	/**
+	 * Forces the next layout to be computed.
+	 */
+	void invalidate()
+	{
+		ratios = null;
+		lastWidth = -1;
+	}
+
+	/**
+	 * Computes the column widths for a table width.
+	 * @param width the table width in pixels.
+	 * @return the widths per column, or null if nothing changed since the last layout.
+	 */
+	int[] layout(int width)
+	{
+		if (width == lastWidth)
+			return null;
+		lastWidth = width;
+
+		if (ratios == null)
+			ratios = computeRatios();
+
+		int count = policies.length;
+		int[] out = new int[count];
+		int used = 0;
+		for (int i = 0; i < count; i++)
+		{
+			switch (policies[i])
+			{
+				case FIXED:
+					out[i] = fixedWidths[i];
+					break;
+				case CONTENT:
+					out[i] = Math.max(contentWidths[i], 0);
+					break;
+				default:
+					continue;
+			}
+			used += out[i];
+		}
+
+		int remaining = Math.max(width - used, 0);
+		for (int i = 0; i < count; i++)
+			if (policies[i] == WidthPolicy.PROPORTIONAL)
+				out[i] = (int)(ratios[i] * remaining);
+		return out;
+	}
+
+	// Computes each proportional column's share of the proportional space.
+	private float[] computeRatios()
+	{
+		int count = policies.length;
+		float[] out = new float[count];
+		int total = 0;
+		for (int i = 0; i < count; i++)
+			if (policies[i] == WidthPolicy.PROPORTIONAL)
+				total += columns.getByIndex(i).width;
+		if (total <= 0)
+			return out;
+		for (int i = 0; i < count; i++)
+			if (policies[i] == WidthPolicy.PROPORTIONAL)
+				out[i] = (float)columns.getByIndex(i).width / total;
+		return out;
+	}
+
+}
@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.Icon;
+import javax.swing.JTable;
+import javax.swing.SwingWorker;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
+
+import com.blackrook.commons.hash.HashMap;
+
+/**
+ * Measures the content width of table columns from a sample of rows instead of every row.
+ * <p>The sample is the first and last rows in view order, a set of random rows, and the visible rows.
+ * Columns drawn by the table's stock renderers are measured as text with {@link FontMetrics},
+ * using a cache of widths keyed by string, and this part can run off of the Event Dispatch Thread.
+ * Columns with other renderers are measured with their renderer on the Event Dispatch Thread.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class ColumnMeasurer
+{
+	/** Default amount of rows sampled from each end of the table. */
+	static final int DEFAULT_EDGE_ROWS = 50;
+	/** Default amount of random rows sampled. */
+	static final int DEFAULT_RANDOM_ROWS = 200;
+	/** Extra width added to measured content, in pixels. */
+	private static final int PADDING = 4;
+	/** Sampled cell count at or above which text is measured in the background. */
+	private static final int ASYNC_THRESHOLD = 2000;
+	/** Maximum amount of cached string widths. */
+	private static final int MAX_CACHED_WIDTHS = 65536;
+
+	/**
+	 * Receives measured widths on the Event Dispatch Thread.
+	 */
+	static interface Listener
+	{
+		/**
+		 * Called when columns have been measured.
+		 * @param columns the column indices.
+		 * @param widths the widths in pixels, per column.
+		 */
+		void measured(int[] columns, int[] widths);
+	}
+
+	/** The table to measure. */
+	private final JTable table;
+	/** The table of pinned columns, or null. */
+	private JTable frozenTable;
+	/** Random row source. */
+	private final Random random;
+	/** Cached string widths, for one font. */
+	private HashMap<String, Integer> widthCache;
+	/** The font that the cache is for. */
+	private Font cacheFont;
+	/** Rows sampled from each end. */
+	private int edgeRows;
+	/** Random rows sampled. */
+	private int randomRows;
+	/** Pending background measurement. */
+	private SwingWorker<int[], Void> pending;
+
+	/**
+	 * Creates a new measurer.
+	 * @param table the table to measure.
+	 */
+	ColumnMeasurer(JTable table)
+	{
+		this.table = table;
+		this.frozenTable = null;
+		this.random = new Random();
+		this.widthCache = new HashMap<String, Integer>();
+		this.cacheFont = null;
+		this.edgeRows = DEFAULT_EDGE_ROWS;
+		this.randomRows = DEFAULT_RANDOM_ROWS;
+		this.pending = null;
+	}
+
+	/**
+	 * Sets the table that shows the pinned leading columns, sharing the measured table's rows.
+	 * Columns are measured in whichever table shows them.
+	 * @param frozenTable the table, or null for none.
+	 */
+	void setFrozenTable(JTable frozenTable)
+	{
+		this.frozenTable = frozenTable;
+	}
+
+	/**
+	 * Sets the sample size.
+	 * @param edgeRows the amount of rows sampled from each end of the table.
+	 * @param randomRows the amount of random rows sampled.
+	 * @throws IllegalArgumentException if either is less than 0.
+	 */
+	void setSampleSize(int edgeRows, int randomRows)
+	{
+		if (edgeRows < 0 || randomRows < 0)
+			throw new IllegalArgumentException("Sample sizes cannot be less than 0.");
+		this.edgeRows = edgeRows;
+		this.randomRows = randomRows;
+	}
+
+	/**
+	 * Measures columns on the calling thread, which must be the Event Dispatch Thread.
+	 * @param columns the column indices.
+	 * @return the widths in pixels, per column.
+	 */
+	int[] measure(int[] columns)
+	{
+		Sample sample = takeSample(columns);
+		return sample.finish(measureText(sample));
+	}
+
+	/**
+	 * Measures columns, measuring text in the background if the sample is large enough.
+	 * A measurement still pending from a previous call is cancelled.
+	 * Must be called on the Event Dispatch Thread.
+	 * @param columns the column indices.
+	 * @param listener the listener to call with the results, on the Event Dispatch Thread.
+	 */
+	void measureAsync(final int[] columns, final Listener listener)
+	{
+		if (pending != null)
+		{
+			pending.cancel(false);
+			pending = null;
+		}
+
+		final Sample sample = takeSample(columns);
+		if (sample.textCells < ASYNC_THRESHOLD)
+		{
+			listener.measured(columns, sample.finish(measureText(sample)));
+			return;
+		}
+
+		pending = new SwingWorker<int[], Void>()
+		{
+			@Override
+			protected int[] doInBackground() throws Exception
+			{
+				return measureText(sample);
+			}
+
+			@Override
+			protected void done()
+			{
+				if (isCancelled() || pending != this)
+					return;
+				pending = null;
+				try {
+					listener.measured(columns, sample.finish(get()));
+				} catch (InterruptedException e) {
+					// cancelled.
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Column measurement failed.", e.getCause());
+				}
+			}
+		};
+		pending.execute();
+	}
+
+	// Picks the sampled view rows, sorted and distinct.
+	private int[] sampleRows()
+	{
+		int rows = table.getRowCount();
+		if (rows == 0)
+			return new int[0];
+
+		int edge = Math.min(edgeRows, rows);
+		int[] out = new int[edge * 2 + randomRows + 64];
+		int n = 0;
+		for (int i = 0; i < edge; i++)
+			out[n++] = i;
+		for (int i = Math.max(rows - edge, edge); i < rows; i++)
+			out[n++] = i;
+		if (rows > edge * 2)
+			for (int i = 0; i < randomRows; i++)
+				out[n++] = random.nextInt(rows);
+
+		Rectangle visible = table.getVisibleRect();
+		int first = table.rowAtPoint(new Point(0, visible.y));
+		int last = table.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+		if (first >= 0)
+		{
+			if (last < 0)
+				last = rows - 1;
+			for (int i = first; i <= last; i++)
+			{
+				if (n == out.length)
+					out = Arrays.copyOf(out, n * 2);
+				out[n++] = i;
+			}
+		}
+
+		Arrays.sort(out, 0, n);
+		int count = 0;
+		for (int i = 0; i < n; i++)
+			if (count == 0 || out[count - 1] != out[i])
+				out[count++] = out[i];
+		return Arrays.copyOf(out, count);
+	}
+
+	// Reads the sample on the Event Dispatch Thread.
+	private Sample takeSample(int[] columns)
+	{
+		Font font = table.getFont();
+		synchronized (this)
+		{
+			if (cacheFont == null || !cacheFont.equals(font))
+			{
+				widthCache = new HashMap<String, Integer>();
+				cacheFont = font;
+			}
+		}
+
+		int[] rows = sampleRows();
+		Sample out = new Sample(columns.length, table.getFontMetrics(font), table.getIntercellSpacing().width);
+		for (int i = 0; i < columns.length; i++)
+		{
+			JTable view = frozenTable != null && frozenTable.convertColumnIndexToView(columns[i]) >= 0 ? frozenTable : table;
+			int column = view.convertColumnIndexToView(columns[i]);
+			out.headerWidths[i] = measureHeader(view, column);
+			if (isTextColumn(view, column))
+			{
+				Object[] values = new Object[rows.length];
+				for (int r = 0; r < rows.length; r++)
+					values[r] = view.getValueAt(rows[r], column);
+				out.values[i] = values;
+				out.classes[i] = view.getColumnClass(column);
+				out.insets[i] = view.getDefaultRenderer(out.classes[i])
+					.getTableCellRendererComponent(view, "", false, false, 0, column).getPreferredSize().width;
+				out.textCells += rows.length;
+			}
+			else
+			{
+				int width = 0;
+				for (int r = 0; r < rows.length; r++)
+					width = Math.max(width, view.prepareRenderer(view.getCellRenderer(rows[r], column), rows[r], column).getPreferredSize().width);
+				out.cellWidths[i] = width;
+			}
+		}
+		return out;
+	}
+
+	// Measures the header of a column, by view index.
+	private static int measureHeader(JTable table, int column)
+	{
+		TableColumn tableColumn = table.getColumnModel().getColumn(column);
+		TableCellRenderer renderer = tableColumn.getHeaderRenderer();
+		if (renderer == null && table.getTableHeader() != null)
+			renderer = table.getTableHeader().getDefaultRenderer();
+		if (renderer == null)
+			return 0;
+		return renderer.getTableCellRendererComponent(table, tableColumn.getHeaderValue(), false, false, -1, column).getPreferredSize().width;
+	}
+
+	// Checks if a column, by view index, is drawn as plain text by a stock renderer.
+	private static boolean isTextColumn(JTable table, int column)
+	{
+		// typed renderers stand in for the stock ones, and draw the same text.
+		if (table.getColumnModel().getColumn(column).getCellRenderer() != null)
+			return false;
+		Class<?> type = table.getColumnClass(column);
+		if (Boolean.class.isAssignableFrom(type) || Icon.class.isAssignableFrom(type))
+			return false;
+		// the look and feel's renderers and plain DefaultTableCellRenderers draw their value's text as-is. subclasses may not.
+		TableCellRenderer renderer = table.getDefaultRenderer(type);
+		return renderer instanceof DefaultTableCellRenderer.UIResource
+			|| (renderer != null && renderer.getClass() == DefaultTableCellRenderer.class);
+	}
+
+	// Measures the text columns of a sample. Safe to call off of the Event Dispatch Thread.
+	private int[] measureText(Sample sample)
+	{
+		NumberFormat numberFormat = null;
+		DateFormat dateFormat = null;
+		int[] out = new int[sample.values.length];
+		for (int i = 0; i < sample.values.length; i++)
+		{
+			Object[] values = sample.values[i];
+			if (values == null)
+				continue;
+			Class<?> type = sample.classes[i];
+			int width = 0;
+			for (Object value : values)
+			{
+				String text;
+				if (value == null)
+					continue;
+				else if ((type == Float.class || type == Double.class) && value instanceof Number)
+					text = (numberFormat != null ? numberFormat : (numberFormat = NumberFormat.getInstance())).format(value);
+				else if (Date.class.isAssignableFrom(type) && value instanceof Date)
+					text = (dateFormat != null ? dateFormat : (dateFormat = DateFormat.getDateInstance())).format(value);
+				else
+					text = value.toString();
+				width = Math.max(width, stringWidth(sample.metrics, text));
+			}
+			out[i] = width + sample.insets[i];
+		}
+		return out;
+	}
+
+	// Gets the width of a string, from the cache if possible.
+	private synchronized int stringWidth(FontMetrics metrics, String text)
+	{
+		Integer out = widthCache.get(text);
+		if (out == null)
+		{
+			if (widthCache.size() >= MAX_CACHED_WIDTHS)
+				widthCache.clear();
+			widthCache.put(text, out = metrics.stringWidth(text));
+		}
+		return out;
+	}
+
+	/**
+	 * A sample of column content, read on the Event Dispatch Thread.
+	 */
+	private static class Sample
+	{
+		/** Font metrics for text columns. */
+		private final FontMetrics metrics;
+		/** Intercell spacing. */
+		private final int spacing;
+		/** Header widths. */
+		private final int[] headerWidths;
+		/** Cell widths, for columns measured by renderer. */
+		private final int[] cellWidths;
+		/** Sampled values, for text columns (null for others). */
+		private final Object[][] values;
+		/** Column classes, for text columns. */
+		private final Class<?>[] classes;
+		/** Renderer insets, for text columns. */
+		private final int[] insets;
+		/** Total sampled text cells. */
+		private int textCells;
+
+		private Sample(int columns, FontMetrics metrics, int spacing)
+		{
+			this.metrics = metrics;
+			this.spacing = spacing;
+			this.headerWidths = new int[columns];
+			this.cellWidths = new int[columns];
+			this.values = new Object[columns][];
+			this.classes = new Class<?>[columns];
+			this.insets = new int[columns];
+			this.textCells = 0;
+		}
+
+		// Combines all widths into final column widths.
+		private int[] finish(int[] textWidths)
+		{
+			int[] out = new int[headerWidths.length];
+			for (int i = 0; i < out.length; i++)
+				out[i] = Math.max(headerWidths[i], Math.max(cellWidths[i], textWidths[i])) + spacing + PADDING;
+			return out;
+		}
+	}
+
+}
@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import com.blackrook.commons.list.List;
+
+/**
+ * Page cache over a {@link RTableRowProvider}.
+ * <p>Pages are fetched on a single background thread and stored on the Event Dispatch Thread,
+ * in a cache that discards the least recently used page once full. Rows that are not cached yet
+ * are read as null, and the model is told to update the page's rows once it arrives.
+ * <p>All methods except {@link #iterator()} must be called on the Event Dispatch Thread.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class PagedRows<T> implements Iterable<T>
+{
+	/** Default amount of rows per page. */
+	static final int DEFAULT_PAGE_SIZE = 256;
+	/** Default maximum amount of cached pages. */
+	static final int DEFAULT_MAX_PAGES = 64;
+
+	/** Fetch thread keep-alive time in seconds. */
+	private static final long KEEP_ALIVE_SECONDS = 30L;
+
+	/** Fetch thread factory. */
+	private static final ThreadFactory THREAD_FACTORY = new ThreadFactory()
+	{
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread out = new Thread(r, "RTableRowProvider");
+			out.setDaemon(true);
+			return out;
+		}
+	};
+
+	/** The model to notify on page arrival. */
+	private final RTableModel<T> model;
+	/** The row provider. */
+	private final RTableRowProvider<T> provider;
+	/** Rows per page. */
+	private final int pageSize;
+	/** Maximum amount of cached pages. */
+	private final int maxPages;
+	/** Row count at creation. */
+	private final int rowCount;
+
+	/** Page cache, in access order. */
+	private final LinkedHashMap<Integer, Object[]> pages;
+	/** Pages requested but not stored yet. */
+	private final HashSet<Integer> loading;
+	/** Fetch executor. */
+	private final ThreadPoolExecutor executor;
+
+	/** First page that is worth prefetching. */
+	private volatile int wantedFirst;
+	/** Last page that is worth prefetching. */
+	private volatile int wantedLast;
+	/** Closed flag. Stops pending fetches. */
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new page cache.
+	 * @param model the model to notify when pages arrive.
+	 * @param provider the row provider.
+	 * @param pageSize the amount of rows per page.
+	 * @param maxPages the maximum amount of cached pages.
+	 * @throws IllegalArgumentException if pageSize or maxPages is less than 1.
+	 */
+	PagedRows(RTableModel<T> model, RTableRowProvider<T> provider, int pageSize, final int maxPages)
+	{
+		if (pageSize < 1)
+			throw new IllegalArgumentException("Page size must be at least 1.");
+		if (maxPages < 1)
+			throw new IllegalArgumentException("Maximum cached pages must be at least 1.");
+
+		this.model = model;
+		this.provider = provider;
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		this.rowCount = Math.max(provider.getRowCount(), 0);
+		this.pages = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = -3367470213580036454L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest)
+			{
+				return size() > maxPages;
+			}
+		};
+		this.loading = new HashSet<Integer>();
+		this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), THREAD_FACTORY);
+		this.executor.allowCoreThreadTimeOut(true);
+		this.wantedFirst = 0;
+		this.wantedLast = Integer.MAX_VALUE;
+		this.closed = false;
+	}
+
+	/**
+	 * @return the provider that this reads from.
+	 */
+	RTableRowProvider<T> getProvider()
+	{
+		return provider;
+	}
+
+	/**
+	 * @return the amount of rows per page.
+	 */
+	int getPageSize()
+	{
+		return pageSize;
+	}
+
+	/**
+	 * @return the maximum amount of cached pages.
+	 */
+	int getMaxPages()
+	{
+		return maxPages;
+	}
+
+	/**
+	 * @return the amount of rows.
+	 */
+	int getRowCount()
+	{
+		return rowCount;
+	}
+
+	/**
+	 * Gets a row, requesting its page if it is not cached.
+	 * @param index the row index.
+	 * @return the row, or null if not cached or out of range.
+	 */
+	@SuppressWarnings("unchecked")
+	T get(int index)
+	{
+		if (index < 0 || index >= rowCount)
+			return null;
+		int page = index / pageSize;
+		Object[] rows = pages.get(page);
+		if (rows == null)
+		{
+			request(page, true);
+			return null;
+		}
+		int offset = index % pageSize;
+		return offset < rows.length ? (T)rows[offset] : null;
+	}
+
+	/**
+	 * Gets the index of a row by identity, looking only at cached pages.
+	 * @param row the row to look for.
+	 * @return the index of the row, or -1 if not cached.
+	 */
+	int indexOf(Object row)
+	{
+		for (Map.Entry<Integer, Object[]> entry : pages.entrySet())
+		{
+			Object[] rows = entry.getValue();
+			for (int i = 0; i < rows.length; i++)
+				if (rows[i] == row)
+					return entry.getKey() * pageSize + i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Requests the pages around a range of rows, and drops queued requests for pages outside of it.
+	 * @param first the first row index.
+	 * @param last the last row index.
+	 */
+	void prefetch(int first, int last)
+	{
+		if (rowCount == 0)
+			return;
+		first = Math.max(first, 0);
+		last = Math.min(last, rowCount - 1);
+		if (first > last)
+			return;
+
+		int firstPage = first / pageSize;
+		int lastPage = last / pageSize;
+		// keep the wanted range within what the cache can hold.
+		lastPage = Math.min(lastPage, firstPage + maxPages - 1);
+		wantedFirst = firstPage;
+		wantedLast = lastPage;
+		for (int p = firstPage; p <= lastPage; p++)
+			if (!pages.containsKey(p))
+				request(p, false);
+	}
+
+	/**
+	 * Stops all pending fetches and discards all cached pages.
+	 */
+	void close()
+	{
+		closed = true;
+		executor.shutdownNow();
+		pages.clear();
+		loading.clear();
+	}
+
+	/**
+	 * Returns an iterator that fetches every row from the provider on the calling thread,
+	 * without caching them.
+	 */
+	@Override
+	public Iterator<T> iterator()
+	{
+		return new Iterator<T>()
+		{
+			private List<T> buffer = new List<T>(pageSize);
+			private int bufferIndex = 0;
+			private int next = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				return next < rowCount;
+			}
+
+			@Override
+			public T next()
+			{
+				if (!hasNext())
+					throw new NoSuchElementException();
+				if (bufferIndex >= buffer.size())
+				{
+					buffer.clear();
+					bufferIndex = 0;
+					fetch(next, Math.min(pageSize, rowCount - next), buffer);
+					if (buffer.size() == 0)
+						throw new IllegalStateException("Row provider returned no rows at index " + next + ".");
+				}
+				next++;
+				return buffer.getByIndex(bufferIndex++);
+			}
+		};
+	}
+
+	// Fetches rows from the provider, one call at a time.
+	private void fetch(int start, int count, List<T> out)
+	{
+		synchronized (provider)
+		{
+			provider.fetchRows(start, count, out);
+		}
+	}
+
+	// Queues a page fetch if not queued already.
+	private void request(final int page, final boolean required)
+	{
+		if (closed || loading.contains(page))
+			return;
+		loading.add(page);
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				load(page, required);
+			}
+		});
+	}
+
+	// Fetches a page on the background thread and hands it to the Event Dispatch Thread.
+	private void load(final int page, boolean required)
+	{
+		if (closed)
+			return;
+
+		if (!required && (page < wantedFirst || page > wantedLast))
+		{
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					loading.remove(page);
+				}
+			});
+			return;
+		}
+
+		final int start = page * pageSize;
+		final int count = Math.min(pageSize, rowCount - start);
+		List<T> out = new List<T>(Math.max(count, 1));
+		try {
+			fetch(start, count, out);
+		} catch (final Throwable t) {
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					// failed pages are not stored, so that they are fetched again the next time that their rows are read.
+					loading.remove(page);
+					if (closed)
+						return;
+					if (t instanceof RuntimeException)
+						throw (RuntimeException)t;
+					if (t instanceof Error)
+						throw (Error)t;
+					throw new RuntimeException(t);
+				}
+			});
+			return;
+		}
+
+		final Object[] rows = new Object[Math.min(out.size(), count)];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = out.getByIndex(i);
+
+		SwingUtilities.invokeLater(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (closed)
+					return;
+				loading.remove(page);
+				pages.put(page, rows);
+				model.fireTableRowsUpdated(start, start + count - 1);
+			}
+		});
+	}
+
+}
@@ -8,29 +8,47 @@
 package com.blackrook.swing.table;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.MouseEvent;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JViewport;
 import javax.swing.ListSelectionModel;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.Timer;
 import javax.swing.border.BevelBorder;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableColumnModel;
 import javax.swing.table.TableCellEditor;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
-import javax.swing.table.TableRowSorter;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 
 import com.blackrook.commons.hash.HashMap;
 import com.blackrook.commons.list.List;
@@ -51,6 +69,9 @@ import com.blackrook.swing.table.RTableModel.Column;
 public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTableUtils
 {
 	private static final long serialVersionUID = 6409313751355248586L;
+
+	/** Minimum time between column layouts while resizing, in milliseconds. */
+	private static final int LAYOUT_DELAY_MILLIS = 30;
 	
 	/**
 	 * Selection policy.
@@ -106,21 +127,55 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		}
 	}
 		
+	/**
+	 * Column width policies.
+	 * @since 2.8.0
+	 */
+	public static enum WidthPolicy
+	{
+		/** Column shares the space left by the other columns, by its descriptor width. */
+		PROPORTIONAL,
+		/** Column has a fixed width in pixels. */
+		FIXED,
+		/** Column fits the content of its header and a sample of its rows. */
+		CONTENT;
+	}
+	
 	/** Table itself. */
-	private JTable table;
+	private RTableImpl table;
+	/** Row class. */
+	private Class<T> classType;
 	/** Table Model. */
 	private RTableModel<T> tableModel;
+	/** Table row sorter. */
+	private RTableRowSorter<T> rowSorter;
+	/** Table row selection model. */
+	private RTableSelectionModel rowSelectionModel;
 	/** Encapsulating scroll pane. */
 	private JScrollPane scrollPane;
+	/** Table of pinned leading columns, or null if none are pinned. */
+	private RFrozenTableImpl frozenTable;
+	/** Typed renderers, by model column index, or null for columns without one. */
+	private TypedCellRenderer[] typedRenderers;
 	/** The model listener for this table. */
 	private TableModelListener tableModelListener = new TableModelListener()
 	{
 		@Override
 		public void tableChanged(TableModelEvent e)
 		{
-			if (e.getType() == TableModelEvent.UPDATE)
+			rowSelectionModel.modelChanged(e);
+
+			// updates on paged models are pages arriving, not changed items.
+			// changes found by updateItems() are reported there, once per item.
+			if (e.getType() != TableModelEvent.UPDATE || tableModel.isPaged() || tableModel.isDiffing())
+				return;
+			if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE)
+				return;
+
+			int last = Math.min(e.getLastRow(), tableModel.getRowCount() - 1);
+			for (int i = e.getFirstRow(); i <= last; i++)
 			{
-				T item = getItem(e.getFirstRow());
+				T item = getItem(i);
 				if (item != null)
 					onUpdate(item);
 			}
@@ -131,6 +186,8 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 	private HashMap<Class<?>, Comparator<?>> classComparatorMap; 	
 	/** Column comparator map. */
 	private HashMap<Integer, Comparator<?>> columnComparatorMap; 	
+	/** Queue of changes posted from other threads. */
+	private RTableUpdateQueue<T> updateQueue;
 		
 	/**
 	 * Creates a new RTable that stores a class. 
@@ -197,6 +254,19 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 	public RTable(Class<T> classType, List<T> backingList, SelectPolicy selectPolicy, VPolicy vpolicy, HPolicy hpolicy)
 	{
 		columnComparatorMap = new HashMap<Integer, Comparator<?>>();
+		updateQueue = new RTableUpdateQueue<T>(new RTableUpdateQueue.Applier<T>()
+		{
+			@Override
+			public void apply(List<T> removed, List<T> added, List<T> updated)
+			{
+				if (removed.size() > 0)
+					removeItems(removed);
+				if (added.size() > 0)
+					addItems(added);
+				if (updated.size() > 0)
+					updateItems(updated);
+			}
+		});
 		classComparatorMap = new HashMap<Class<?>, Comparator<?>>();
 		
 		setClassComparator(Enum.class, ENUM_COMPARATOR);
@@ -204,6 +274,7 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		setClassComparator(Number.class, NUMBER_COMPARATOR);
 		setClassComparator(Date.class, DATE_COMPARATOR);
 		
+		this.classType = classType;
 		tableModel = new RTableModel<T>(classType, backingList);
 		tableModel.addTableModelListener(tableModelListener);
 		
@@ -211,6 +282,14 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		
 		scrollPane = new JScrollPane(table, vpolicy.intern, hpolicy.intern);
 		scrollPane.setBorder(BorderFactory.createBevelBorder(BevelBorder.LOWERED));
+		scrollPane.getViewport().addChangeListener(new ChangeListener()
+		{
+			@Override
+			public void stateChanged(ChangeEvent e)
+			{
+				prefetchVisibleRows();
+			}
+		});
 		
 		setLayout(new BorderLayout());
 		add(scrollPane, BorderLayout.CENTER);
@@ -231,14 +310,7 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 	 */
 	public int getColumnByName(String name)
 	{
-		int i = 0;
-		for (@SuppressWarnings("rawtypes") Column c : tableModel.getColumnList())
-		{
-			if (c.name.equals(name))
-				return i;
-			i++;
-		}
-		return -1;
+		return tableModel.getColumnIndex(name);
 	}
 	
 	/**
@@ -257,6 +329,8 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 	{
 		super.setEnabled(enabled);
 		table.setEnabled(enabled);
+		if (frozenTable != null)
+			frozenTable.setEnabled(enabled);
 		scrollPane.setEnabled(enabled);
 	}
 
@@ -289,7 +363,7 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 	 */
 	public void setColumnRenderer(int columnIndex, TableCellRenderer renderer)
 	{
-		TableColumn col = table.getColumnModel().getColumn(columnIndex);
+		TableColumn col = getTableColumn(columnIndex);
 		if (col != null)
 			col.setCellRenderer(renderer);
 	}
@@ -300,18 +374,595 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 	 */
 	public void setColumnEditor(int columnIndex, TableCellEditor editor)
 	{
-		TableColumn col = table.getColumnModel().getColumn(columnIndex);
+		TableColumn col = getTableColumn(columnIndex);
 		if (col != null)
 			col.setCellEditor(editor);
 	}
 
+	/**
+	 * Sets how a column's width is decided when the table is resized.
+	 * Columns are {@link WidthPolicy#PROPORTIONAL} by default.
+	 * A column set to {@link WidthPolicy#FIXED} this way keeps its current width.
+	 * @param columnIndex the column index.
+	 * @param policy the width policy.
+	 * @since 2.8.0
+	 */
+	public void setColumnWidthPolicy(int columnIndex, WidthPolicy policy)
+	{
+		int width = getTableColumn(columnIndex).getWidth();
+		table.columnLayout.setPolicy(columnIndex, policy, width);
+		table.scheduleLayout();
+	}
+
+	/**
+	 * Sets a column to a fixed width.
+	 * @param columnIndex the column index.
+	 * @param width the width in pixels.
+	 * @since 2.8.0
+	 * @see WidthPolicy#FIXED
+	 */
+	public void setColumnFixedWidth(int columnIndex, int width)
+	{
+		table.columnLayout.setPolicy(columnIndex, WidthPolicy.FIXED, width);
+		table.scheduleLayout();
+	}
+
+	/**
+	 * Gets how a column's width is decided when the table is resized.
+	 * @param columnIndex the column index.
+	 * @return the width policy.
+	 * @since 2.8.0
+	 */
+	public WidthPolicy getColumnWidthPolicy(int columnIndex)
+	{
+		return table.columnLayout.getPolicy(columnIndex);
+	}
+
+	/**
+	 * Sizes all columns to fit their content, and sets them to {@link WidthPolicy#CONTENT}.
+	 * @since 2.8.0
+	 * @see #autoFitColumns(int...)
+	 */
+	public void autoFitColumns()
+	{
+		int[] columns = new int[tableModel.getColumnCount()];
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = i;
+		autoFitColumns(columns);
+	}
+
+	/**
+	 * Sizes columns to fit their content, and sets them to {@link WidthPolicy#CONTENT}.
+	 * <p>Only the header and a sample of the rows are measured: the first and last rows, a set of random rows,
+	 * and the visible rows. Columns drawn by the stock renderers are measured as text, and on large samples,
+	 * this happens in the background. The new widths are applied together once all columns are measured.
+	 * @param columnIndices the indices of the columns to fit.
+	 * @since 2.8.0
+	 * @see #setAutoFitSampleSize(int, int)
+	 */
+	public void autoFitColumns(int ... columnIndices)
+	{
+		table.autoFit(Arrays.copyOf(columnIndices, columnIndices.length));
+	}
+
+	/**
+	 * Sets how many rows are sampled when fitting columns to their content.
+	 * By default, 50 rows are sampled from each end and 200 at random. Visible rows are always measured.
+	 * @param edgeRows the amount of rows sampled from each end of the table.
+	 * @param randomRows the amount of random rows sampled.
+	 * @throws IllegalArgumentException if either is less than 0.
+	 * @since 2.8.0
+	 */
+	public void setAutoFitSampleSize(int edgeRows, int randomRows)
+	{
+		table.columnMeasurer.setSampleSize(edgeRows, randomRows);
+	}
+
+	/**
+	 * Measures the content of the {@link WidthPolicy#CONTENT} columns again and lays out the columns.
+	 * Content is measured automatically when the table is first shown and when all of its data changes,
+	 * but not when single rows are added or changed.
+	 * @since 2.8.0
+	 */
+	public void refreshColumnWidths()
+	{
+		table.columnLayout.invalidateContent();
+		table.columnLayout.invalidate();
+		table.layoutColumns();
+	}
+
+	/**
+	 * Pins leading columns to the left side of the table, so that they stay in view while the other columns scroll.
+	 * <p>The pinned columns are shown by a second table in the scroll pane's row header that shares this table's
+	 * model, selection, and row sorter, so both scroll together vertically, and horizontal scrolling
+	 * only moves and repaints the other columns. Column indices given to this table's methods stay the same.
+	 * @param count the amount of leading columns to pin. 0 unpins all columns.
+	 * @throws IllegalArgumentException if count is less than 0 or more than the amount of columns.
+	 * @since 2.8.0
+	 */
+	public void setFrozenColumnCount(int count)
+	{
+		if (count < 0 || count > tableModel.getColumnCount())
+			throw new IllegalArgumentException("Frozen column count must be from 0 to " + tableModel.getColumnCount() + ".");
+		if (count == getFrozenColumnCount())
+			return;
+
+		if (table.getCellEditor() != null)
+			table.getCellEditor().cancelCellEditing();
+		if (frozenTable != null && frozenTable.getCellEditor() != null)
+			frozenTable.getCellEditor().cancelCellEditing();
+
+		// take all columns out in model order, then deal them out again.
+		TableColumn[] columns = new TableColumn[tableModel.getColumnCount()];
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = getTableColumn(i);
+		removeAllColumns(table.getColumnModel());
+		if (frozenTable != null)
+			removeAllColumns(frozenTable.getColumnModel());
+
+		if (count > 0 && frozenTable == null)
+		{
+			frozenTable = new RFrozenTableImpl();
+			scrollPane.setRowHeaderView(frozenTable);
+			scrollPane.setCorner(JScrollPane.UPPER_LEFT_CORNER, frozenTable.getTableHeader());
+			scrollPane.getRowHeader().addChangeListener(frozenTable.scrollListener);
+		}
+		else if (count == 0 && frozenTable != null)
+		{
+			scrollPane.getRowHeader().removeChangeListener(frozenTable.scrollListener);
+			scrollPane.setRowHeader(null);
+			scrollPane.setCorner(JScrollPane.UPPER_LEFT_CORNER, null);
+			frozenTable.dispose();
+			frozenTable = null;
+		}
+
+		for (int i = 0; i < columns.length; i++)
+			(i < count ? frozenTable : table).getColumnModel().addColumn(columns[i]);
+
+		table.columnMeasurer.setFrozenTable(frozenTable);
+		table.columnLayout.invalidate();
+		table.scheduleLayout();
+		scrollPane.revalidate();
+		scrollPane.repaint();
+	}
+
+	/**
+	 * Gets the amount of leading columns pinned to the left side of the table.
+	 * @return the amount of pinned columns.
+	 * @since 2.8.0
+	 * @see #setFrozenColumnCount(int)
+	 */
+	public int getFrozenColumnCount()
+	{
+		return frozenTable != null ? frozenTable.getColumnCount() : 0;
+	}
+
+	/**
+	 * Returns a reference to the table that shows the pinned columns.
+	 * @return the table, or null if no columns are pinned.
+	 * @since 2.8.0
+	 * @see #setFrozenColumnCount(int)
+	 */
+	public JTable getFrozenTable()
+	{
+		return frozenTable;
+	}
+
+	// Gets the table column for a column index, pinned or not.
+	private TableColumn getTableColumn(int columnIndex)
+	{
+		int frozen = getFrozenColumnCount();
+		if (columnIndex < frozen)
+			return frozenTable.getColumnModel().getColumn(columnIndex);
+		return table.getColumnModel().getColumn(columnIndex - frozen);
+	}
+
+	// Removes all columns from a column model.
+	private static void removeAllColumns(TableColumnModel columnModel)
+	{
+		for (int i = columnModel.getColumnCount() - 1; i >= 0; i--)
+			columnModel.removeColumn(columnModel.getColumn(i));
+	}
+
+	/**
+	 * Sets the columns that this table is sorted by, in order of precedence.
+	 * All keys are applied in one stable sort, reading each key column's values once per row.
+	 * Keys on columns that cannot be sorted, and repeated keys on the same column, are ignored.
+	 * @param keys the sort keys. None removes the sort.
+	 * @throws IllegalArgumentException if a key refers to a column out of range.
+	 * @since 2.8.0
+	 */
+	public void setSortKeys(RowSorter.SortKey ... keys)
+	{
+		rowSorter.setSortKeys(getSortableKeys(Arrays.asList(keys)));
+	}
+
+	/**
+	 * Returns the columns that this table is sorted by, in order of precedence.
+	 * @return the current sort keys.
+	 * @since 2.8.0
+	 */
+	public RowSorter.SortKey[] getSortKeys()
+	{
+		java.util.List<? extends RowSorter.SortKey> keys = rowSorter.getSortKeys();
+		return keys.toArray(new RowSorter.SortKey[keys.size()]);
+	}
+
+	/**
+	 * Returns the current sort as text, for saving and restoring with {@link #setSortSpec(String)}.
+	 * Columns are named, so the spec stays valid if the column order changes.
+	 * <p>The spec is a comma-separated list of column names in order of precedence, each prefixed with
+	 * <code>+</code> for ascending or <code>-</code> for descending, such as <code>-Date,+Name</code>.
+	 * Commas and backslashes in names are escaped with a backslash.
+	 * @return the sort spec, empty if not sorted.
+	 * @since 2.8.0
+	 */
+	public String getSortSpec()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (RowSorter.SortKey key : rowSorter.getSortKeys())
+		{
+			if (key.getSortOrder() == SortOrder.UNSORTED)
+				continue;
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(key.getSortOrder() == SortOrder.DESCENDING ? '-' : '+');
+			String name = tableModel.getColumnName(key.getColumn());
+			for (int i = 0; i < name.length(); i++)
+			{
+				char c = name.charAt(i);
+				if (c == ',' || c == '\\')
+					sb.append('\\');
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Sorts this table by a sort spec, as returned by {@link #getSortSpec()}.
+	 * Columns that are not found or cannot be sorted are ignored, and keys without a prefix are ascending.
+	 * @param spec the sort spec. Null or empty removes the sort.
+	 * @since 2.8.0
+	 */
+	public void setSortSpec(String spec)
+	{
+		rowSorter.setSortKeys(parseSortSpec(spec));
+	}
+
+	/**
+	 * Replaces all of the items in the table and sorts them by a sort spec, in one pass.
+	 * The items are sorted only once, by the new spec, instead of by the current sort and then again.
+	 * Otherwise, this is the same as {@link #setItems(Iterable)}.
+	 * @param objects the new objects in the table.
+	 * @param sortSpec the sort spec, as returned by {@link #getSortSpec()}. Null or empty removes the sort.
+	 * @since 2.8.0
+	 * @see #setSortSpec(String)
+	 */
+	public void setItems(Iterable<? extends T> objects, String sortSpec)
+	{
+		rowSorter.setSortKeys(parseSortSpec(sortSpec), false);
+		setItems(objects);
+	}
+
+	// Parses a sort spec into sort keys.
+	private java.util.List<RowSorter.SortKey> parseSortSpec(String spec)
+	{
+		java.util.List<RowSorter.SortKey> out = new java.util.ArrayList<RowSorter.SortKey>();
+		if (spec == null)
+			return out;
+
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i <= spec.length(); i++)
+		{
+			char c = i < spec.length() ? spec.charAt(i) : ',';
+			if (c == '\\' && i + 1 < spec.length())
+			{
+				name.append(spec.charAt(++i));
+				continue;
+			}
+			else if (c != ',')
+			{
+				name.append(c);
+				continue;
+			}
+
+			String key = name.toString().trim();
+			name.setLength(0);
+			if (key.length() == 0)
+				continue;
+			SortOrder order = SortOrder.ASCENDING;
+			if (key.charAt(0) == '+' || key.charAt(0) == '-')
+			{
+				order = key.charAt(0) == '-' ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+				key = key.substring(1).trim();
+			}
+			int column = tableModel.getColumnIndex(key);
+			if (column >= 0)
+				out.add(new RowSorter.SortKey(column, order));
+		}
+		return getSortableKeys(out);
+	}
+
+	// Removes keys on unsortable columns, and repeated keys.
+	private java.util.List<RowSorter.SortKey> getSortableKeys(java.util.List<? extends RowSorter.SortKey> keys)
+	{
+		java.util.List<RowSorter.SortKey> out = new java.util.ArrayList<RowSorter.SortKey>(keys.size());
+		for (RowSorter.SortKey key : keys)
+		{
+			if (key == null)
+				throw new IllegalArgumentException("Sort keys cannot be null.");
+			int column = key.getColumn();
+			if (column < 0 || column >= tableModel.getColumnCount())
+				throw new IllegalArgumentException("Column index " + column + " is out of range.");
+			if (!rowSorter.isSortable(column))
+				continue;
+			boolean repeated = false;
+			for (RowSorter.SortKey k : out)
+				repeated |= k.getColumn() == column;
+			if (!repeated)
+				out.add(key);
+		}
+		return out;
+	}
+
 	/**
 	 * Sets a filter for rows in the table.
 	 */
-	@SuppressWarnings("unchecked")
 	public void setRowFilter(RTableFilter<T> filter)
 	{
-		((TableRowSorter<RTableModel<T>>)table.getRowSorter()).setRowFilter(filter);
+		if (filter != null && tableModel.isPaged())
+			throw new IllegalStateException("Tables backed by a row provider cannot be filtered.");
+		rowSorter.setRowFilter(filter);
+	}
+
+	/**
+	 * Sets a filter for rows in the table that includes only the rows whose value
+	 * in a column is equal to a specific value.
+	 * If the column is indexed, the filter is applied without testing each row.
+	 * @param columnName the column name.
+	 * @param value the value to match (can be null).
+	 * @throws IllegalArgumentException if there is no column with that name.
+	 * @since 2.8.0
+	 * @see TableDescriptor#indexed()
+	 */
+	public void setRowFilter(String columnName, Object value)
+	{
+		setRowFilter(tableModel.createValueFilter(getColumnIndex(columnName), value));
+	}
+
+	/**
+	 * Sets a row provider that supplies the items in this table a page at a time,
+	 * for data sets that are too large to keep in memory. The pages around the visible rows
+	 * are fetched in the background as the table is scrolled.
+	 * <p>While a provider is set, the table cannot be sorted or filtered, and items cannot be
+	 * added or removed. Any current sort or filter is removed.
+	 * @param provider the row provider, or null to go back to the backing list.
+	 * @since 2.8.0
+	 * @see RTableModel#setRowProvider(RTableRowProvider)
+	 */
+	public void setRowProvider(RTableRowProvider<T> provider)
+	{
+		rowSorter.setRowFilter(null);
+		rowSorter.setSortKeys(null);
+		tableModel.setRowProvider(provider);
+		prefetchVisibleRows();
+	}
+
+	/**
+	 * Sets a row provider that supplies the items in this table a page at a time,
+	 * for data sets that are too large to keep in memory. The pages around the visible rows
+	 * are fetched in the background as the table is scrolled.
+	 * <p>While a provider is set, the table cannot be sorted or filtered, and items cannot be
+	 * added or removed. Any current sort or filter is removed.
+	 * @param provider the row provider, or null to go back to the backing list.
+	 * @param pageSize the amount of rows per page.
+	 * @param maxPages the maximum amount of pages kept in memory.
+	 * @throws IllegalArgumentException if pageSize or maxPages is less than 1.
+	 * @since 2.8.0
+	 * @see RTableModel#setRowProvider(RTableRowProvider, int, int)
+	 */
+	public void setRowProvider(RTableRowProvider<T> provider, int pageSize, int maxPages)
+	{
+		rowSorter.setRowFilter(null);
+		rowSorter.setSortKeys(null);
+		tableModel.setRowProvider(provider, pageSize, maxPages);
+		prefetchVisibleRows();
+	}
+
+	/**
+	 * Discards all cached pages and reads the row count from the row provider again,
+	 * if this table is backed by one.
+	 * @since 2.8.0
+	 */
+	public void refreshRows()
+	{
+		tableModel.refreshRows();
+		prefetchVisibleRows();
+	}
+
+	// Requests the pages around the visible rows, one screen ahead and behind.
+	private void prefetchVisibleRows()
+	{
+		if (!tableModel.isPaged())
+			return;
+		Rectangle view = scrollPane.getViewport().getViewRect();
+		int first = table.rowAtPoint(new Point(0, view.y));
+		int last = table.rowAtPoint(new Point(0, view.y + view.height - 1));
+		if (first < 0)
+			first = 0;
+		if (last < 0)
+			last = table.getRowCount() - 1;
+		int screen = last - first + 1;
+		tableModel.prefetchRows(first - screen, last + screen);
+	}
+
+	/**
+	 * Sets if sorting large tables is done in the background, off of the Event Dispatch Thread.
+	 * While a background sort is in progress, the table keeps its previous order and
+	 * the new order is swapped in once it is ready.
+	 * @param enabled true to enable, false to disable.
+	 * @since 2.8.0
+	 */
+	public void setAsyncSort(boolean enabled)
+	{
+		rowSorter.setAsync(enabled);
+	}
+
+	/**
+	 * Sets the row count at or above which sorting is done in the background,
+	 * if background sorting is enabled.
+	 * @param rows the row count threshold.
+	 * @since 2.8.0
+	 * @see #setAsyncSort(boolean)
+	 */
+	public void setAsyncSortThreshold(int rows)
+	{
+		rowSorter.setAsyncThreshold(rows);
+	}
+
+	/**
+	 * Returns if a background sort is in progress.
+	 * @since 2.8.0
+	 */
+	public boolean isSortPending()
+	{
+		return rowSorter.isSortPending();
+	}
+
+	/**
+	 * Sets if filtering large tables is done in the background, off of the Event Dispatch Thread,
+	 * using the same row count threshold as background sorting.
+	 * Filters are evaluated in parallel chunks, so {@link RTableFilter#includeItem(Object)} must be thread-safe.
+	 * While a background filter is in progress, the table keeps its previous filter.
+	 * @param enabled true to enable, false to disable.
+	 * @since 2.8.0
+	 * @see #setAsyncSortThreshold(int)
+	 */
+	public void setAsyncFilter(boolean enabled)
+	{
+		rowSorter.setAsyncFilter(enabled);
+	}
+
+	/**
+	 * Returns if a background filter is in progress.
+	 * @since 2.8.0
+	 */
+	public boolean isFilterPending()
+	{
+		return rowSorter.isFilterPending();
+	}
+
+	/**
+	 * Queues an item to be added to the end of the table. Can be called from any thread.
+	 * <p>Queued changes are applied on the Event Dispatch Thread at most once per frame.
+	 * Each frame's changes are coalesced into one removal pass, one addition, and one set of
+	 * updates, with as few model events as possible. An item added and removed in the same frame is never shown.
+	 * @param object the object to add.
+	 * @return true if queued, false if the update queue is full.
+	 * @since 2.8.0
+	 * @see #setUpdateQueueCapacity(int)
+	 */
+	public boolean postAdd(T object)
+	{
+		return updateQueue.post(RTableUpdateQueue.Type.ADD, object);
+	}
+
+	/**
+	 * Queues an item to be checked for changes, as in {@link #updateItems(Iterable)}. Can be called from any thread.
+	 * Items not in the table when the change is applied are ignored.
+	 * @param object the object that changed.
+	 * @return true if queued, false if the update queue is full.
+	 * @since 2.8.0
+	 * @see #postAdd(Object)
+	 */
+	public boolean postUpdate(T object)
+	{
+		return updateQueue.post(RTableUpdateQueue.Type.UPDATE, object);
+	}
+
+	/**
+	 * Queues an item to be removed from the table. Can be called from any thread.
+	 * Items not in the table when the change is applied are ignored.
+	 * @param object the object to remove.
+	 * @return true if queued, false if the update queue is full.
+	 * @since 2.8.0
+	 * @see #postAdd(Object)
+	 */
+	public boolean postRemove(T object)
+	{
+		return updateQueue.post(RTableUpdateQueue.Type.REMOVE, object);
+	}
+
+	/**
+	 * Sets how many times per second queued changes are applied. Default is {@value RTableUpdateQueue#DEFAULT_FRAME_RATE}.
+	 * @param framesPerSecond the maximum amount of times per second.
+	 * @throws IllegalArgumentException if framesPerSecond is less than 1.
+	 * @since 2.8.0
+	 */
+	public void setUpdateFrameRate(int framesPerSecond)
+	{
+		updateQueue.setFrameRate(framesPerSecond);
+	}
+
+	/**
+	 * Sets the maximum amount of changes applied per frame. Default is {@value RTableUpdateQueue#DEFAULT_MAX_BATCH}.
+	 * Changes past this amount wait for the next frame.
+	 * @param maxBatch the maximum amount of changes.
+	 * @throws IllegalArgumentException if maxBatch is less than 1.
+	 * @since 2.8.0
+	 */
+	public void setMaxUpdateBatch(int maxBatch)
+	{
+		updateQueue.setMaxBatch(maxBatch);
+	}
+
+	/**
+	 * Sets the maximum amount of queued changes. Posts past this amount are rejected
+	 * until the queue drains, so that producers can slow down. Default is 0, unbounded.
+	 * @param capacity the capacity, or 0 for unbounded.
+	 * @throws IllegalArgumentException if capacity is less than 0.
+	 * @since 2.8.0
+	 */
+	public void setUpdateQueueCapacity(int capacity)
+	{
+		updateQueue.setCapacity(capacity);
+	}
+
+	/**
+	 * Returns the amount of changes currently waiting in the update queue.
+	 * @since 2.8.0
+	 */
+	public int getQueuedUpdateCount()
+	{
+		return updateQueue.getSize();
+	}
+
+	/**
+	 * Returns the highest amount of changes that have waited in the update queue at once.
+	 * @since 2.8.0
+	 */
+	public int getPeakQueuedUpdateCount()
+	{
+		return updateQueue.getPeakSize();
+	}
+
+	/**
+	 * Returns the total amount of queued changes applied so far.
+	 * @since 2.8.0
+	 */
+	public long getAppliedUpdateCount()
+	{
+		return updateQueue.getAppliedCount();
+	}
+
+	/**
+	 * Returns the total amount of posted changes rejected because the update queue was full.
+	 * @since 2.8.0
+	 */
+	public long getRejectedUpdateCount()
+	{
+		return updateQueue.getRejectedCount();
 	}
 
 	/** 
@@ -330,31 +981,17 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 	 */
 	public void setSelectedRows(int ... index)
 	{
-		Arrays.sort(index);
-		int start = -1;
-		int end = -1;
-		for (int i = 0; i < index.length; i++)
-		{
-			if (start < 0)
-			{
-				start = index[i];
-				end = index[i];
-			}
-			else if (index[i] > end + 1)
-			{
-				table.setRowSelectionInterval(start, end);
-				start = -1;
-				end = -1;
-			}
-			else
-			{
-				index[i] = end;
-			}
-			
-			if (i == index.length - 1 && start >= 0)
-				table.setRowSelectionInterval(start, end);
-		}
-			
+		rowSelectionModel.setSelectedViewRows(index);
+	}
+
+	/**
+	 * Selects every row in the table.
+	 * While no filter is set, this takes about the same time no matter how many rows there are.
+	 * @since 2.8.0
+	 */
+	public void selectAll()
+	{
+		table.selectAll();
 	}
 
 	/**
@@ -374,6 +1011,41 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		return (T)tableModel.getRowAt(index);
 	}
 
+	/**
+	 * Returns the model index of an item in the table.
+	 * The item is looked up by identity first, and if it is not found, by {@link Object#equals(Object)}.
+	 * @param object the item to look for.
+	 * @return the index of the item, or -1 if not found.
+	 * @since 2.8.0
+	 */
+	public int getItemIndex(T object)
+	{
+		return tableModel.getIndexOf(object);
+	}
+
+	/**
+	 * Returns the items whose value in a column is equal to a specific value, in model order.
+	 * If the column is indexed, this does not need to look at every item.
+	 * @param columnName the column name.
+	 * @param value the value to match (can be null).
+	 * @throws IllegalArgumentException if there is no column with that name.
+	 * @since 2.8.0
+	 * @see TableDescriptor#indexed()
+	 */
+	public List<T> getItemsByValue(String columnName, Object value)
+	{
+		return tableModel.getRowsWhere(getColumnIndex(columnName), value);
+	}
+
+	// Gets a column index by name, or throws an exception if not found.
+	private int getColumnIndex(String columnName)
+	{
+		int out = tableModel.getColumnIndex(columnName);
+		if (out < 0)
+			throw new IllegalArgumentException("No such column: " + columnName);
+		return out;
+	}
+
 	/**
 	 * Returns the item at a particular index in the table.
 	 * This returns the correct item regardless of sorting or filtering.
@@ -438,6 +1110,55 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 			onAdd(obj);
 	}
 
+	/**
+	 * Adds a bunch of items to the end of the table in one pass.
+	 * Only one model event is fired for the whole batch.
+	 * @param objects the objects to add to the table.
+	 * @since 2.8.0
+	 */
+	public void addItems(Iterable<? extends T> objects)
+	{
+		onAddAll(tableModel.addAll(objects));
+	}
+
+	/**
+	 * Replaces all of the items in the table in one pass.
+	 * Only one model event is fired for the whole batch, the current sort is kept,
+	 * and items that were selected before the replacement are selected again if they are still present.
+	 * @param objects the new objects in the table.
+	 * @since 2.8.0
+	 */
+	public void setItems(Iterable<? extends T> objects)
+	{
+		List<T> selected = getAllSelected();
+		List<T> added = tableModel.replaceAll(objects);
+		onClear();
+		onAddAll(added);
+		selectItems(selected);
+	}
+
+	/**
+	 * Selects the rows that contain the provided items, compared by identity.
+	 * Items not in the table (or filtered out) are ignored.
+	 * @param items the items to select.
+	 * @since 2.8.0
+	 */
+	public void selectItems(Iterable<? extends T> items)
+	{
+		int[] rows = new int[16];
+		int n = 0;
+		for (T item : items)
+		{
+			int index = tableModel.getIdentityIndexOf(item);
+			if (index < 0 || table.convertRowIndexToView(index) < 0)
+				continue;
+			if (n == rows.length)
+				rows = Arrays.copyOf(rows, n * 2);
+			rows[n++] = index;
+		}
+		rowSelectionModel.setSelectedModelRows(Arrays.copyOf(rows, n));
+	}
+
 	/**
 	 * Adds an item to the table at a specific index.
 	 * @param index the index at which to place the object.
@@ -541,19 +1262,169 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		return atable;
 	}
 
+	/**
+	 * Returns the selected objects in the table, in model order, without copying them.
+	 * The returned iterable reads the current selection each time it is iterated,
+	 * and must not be iterated while the table changes.
+	 * Rows that are selected but filtered out are skipped.
+	 * @since 2.8.0
+	 */
+	public Iterable<T> getSelectedItems()
+	{
+		return new Iterable<T>()
+		{
+			@Override
+			public Iterator<T> iterator()
+			{
+				return new Iterator<T>()
+				{
+					private int next = rowSelectionModel.nextSelected(0);
+
+					@Override
+					public boolean hasNext()
+					{
+						return next >= 0;
+					}
+
+					@Override
+					public T next()
+					{
+						if (next < 0)
+							throw new NoSuchElementException();
+						T out = tableModel.getRowAt(next);
+						next = rowSelectionModel.nextSelected(next + 1);
+						return out;
+					}
+				};
+			}
+		};
+	}
+
 	/**
 	 * Removes the selected items from the table.
 	 * @since 2.5.2 
 	 */
 	public void removeSelectedItems()
 	{
-		for (int rowIndex : getSelectedRows())
+		int[] rows = rowSelectionModel.getSelectedModelRows();
+		List<T> removed = tableModel.removeRows(rows);
+		if (removed.size() > 0)
+			onRemoveAll(removed);
+	}
+
+	/**
+	 * Removes a bunch of items from the table in one pass.
+	 * Items are found by identity first, then by equality. Items not in the table are ignored.
+	 * @param objects the objects to remove.
+	 * @since 2.8.0
+	 */
+	public void removeItems(Iterable<? extends T> objects)
+	{
+		int[] rows = new int[16];
+		int n = 0;
+		for (T object : objects)
 		{
-			int modelIndex = table.convertRowIndexToModel(rowIndex);
-			T out = tableModel.removeRowAt(modelIndex);
-			if (out != null)
-				onRemove(out);
+			int index = tableModel.getIndexOf(object);
+			if (index < 0)
+				continue;
+			if (n == rows.length)
+				rows = Arrays.copyOf(rows, n * 2);
+			rows[n++] = index;
 		}
+		if (n == 0)
+			return;
+		List<T> removed = tableModel.removeRows(Arrays.copyOf(rows, n));
+		if (removed.size() > 0)
+			onRemoveAll(removed);
+	}
+
+	/**
+	 * Checks an item for changes made outside of the table, and repaints only the cells that changed.
+	 * Calls {@link #onUpdate(Object)} if it changed.
+	 * @param object the object that may have changed. Found by identity.
+	 * @return true if it is in the table and changed, false otherwise.
+	 * @since 2.8.0
+	 * @see RTableModel#updateRows(Iterable)
+	 */
+	public boolean updateItem(T object)
+	{
+		return updateItems(Collections.singletonList(object)) > 0;
+	}
+
+	/**
+	 * Checks a bunch of items for changes made outside of the table, and repaints only the cells that changed.
+	 * Calls {@link #onUpdate(Object)} for each item that changed.
+	 * @param objects the objects that may have changed. Found by identity.
+	 * @return the amount of items that are in the table and changed.
+	 * @since 2.8.0
+	 * @see RTableModel#updateRows(Iterable)
+	 */
+	public int updateItems(Iterable<? extends T> objects)
+	{
+		List<T> changed = tableModel.updateRows(objects);
+		for (T object : changed)
+			onUpdate(object);
+		return changed.size();
+	}
+
+	/**
+	 * Creates an exporter that writes the contents of this table to a channel or file.
+	 * Rows are read straight from the row objects, in view or model order, and exports can run in the background.
+	 * @param format the output format.
+	 * @return a new exporter.
+	 * @throws IllegalArgumentException if format is null.
+	 * @since 2.8.0
+	 * @see RTableExporter
+	 */
+	public RTableExporter<T> createExporter(RTableExporter.Format format)
+	{
+		return new RTableExporter<T>(tableModel, table, format);
+	}
+
+	/**
+	 * Creates a model that shows the rows of this table grouped by the values of a column,
+	 * with collapsible group header rows that show aggregates of the numeric columns.
+	 * The grouped model follows changes to this table until it is disposed, and can be shown in any {@link JTable}.
+	 * @param columnName the name of the column to group by.
+	 * @return a new group model.
+	 * @throws IllegalArgumentException if the column does not exist.
+	 * @throws IllegalStateException if this table is paged.
+	 * @since 2.8.0
+	 * @see RTableGroupModel
+	 */
+	public RTableGroupModel<T> createGroupModel(String columnName)
+	{
+		if (tableModel.isPaged())
+			throw new IllegalStateException("Paged tables cannot be grouped.");
+		return new RTableGroupModel<T>(tableModel, getColumnIndex(columnName));
+	}
+
+	/**
+	 * Creates an importer that reads rows into this table from a channel or file.
+	 * Row objects are created with the row class's public no-argument constructor.
+	 * @param format the input format, either {@link RTableExporter.Format#CSV} or {@link RTableExporter.Format#TSV}.
+	 * @return a new importer.
+	 * @throws IllegalArgumentException if format is not a delimited format, or the row class has no public no-argument constructor.
+	 * @since 2.8.0
+	 * @see RTableImporter
+	 */
+	public RTableImporter<T> createImporter(RTableExporter.Format format)
+	{
+		return new RTableImporter<T>(this, tableModel, RTableImporter.constructorFactory(classType), format);
+	}
+
+	/**
+	 * Creates an importer that reads rows into this table from a channel or file.
+	 * @param format the input format, either {@link RTableExporter.Format#CSV} or {@link RTableExporter.Format#TSV}.
+	 * @param rowFactory the factory that creates new row objects.
+	 * @return a new importer.
+	 * @throws IllegalArgumentException if format is not a delimited format, or rowFactory is null.
+	 * @since 2.8.0
+	 * @see RTableImporter
+	 */
+	public RTableImporter<T> createImporter(RTableExporter.Format format, RTableImporter.RowFactory<T> rowFactory)
+	{
+		return new RTableImporter<T>(this, tableModel, rowFactory, format);
 	}
 
 	/**
@@ -591,6 +1462,18 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		// Do nothing.
 	}
 	
+	/**
+	 * Called when many objects are added to the table at once.
+	 * By default, this calls {@link #onAdd(Object)} for each object.
+	 * @param objects the added objects.
+	 * @since 2.8.0
+	 */
+	public void onAddAll(Iterable<? extends T> objects)
+	{
+		for (T obj : objects)
+			onAdd(obj);
+	}
+
 	/**
 	 * Called when an object is removed from the table.
 	 * Does nothing unless overridden.
@@ -601,6 +1484,18 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		// Do nothing.
 	}
 	
+	/**
+	 * Called when many objects are removed from the table at once.
+	 * By default, this calls {@link #onRemove(Object)} for each object.
+	 * @param objects the removed objects.
+	 * @since 2.8.0
+	 */
+	public void onRemoveAll(Iterable<? extends T> objects)
+	{
+		for (T obj : objects)
+			onRemove(obj);
+	}
+	
 	/**
 	 * Called when the table is cleared.
 	 * Does nothing unless overridden.
@@ -633,16 +1528,103 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		// Do nothing.
 	}
 	
+	/** Table view of the rows, with the behavior shared by the main table and the pinned columns. */
+	private abstract class RTableView extends JTable
+	{
+		private static final long serialVersionUID = -3380211576427006514L;
+
+		private RTableView(RTableModel<T> model, TableColumnModel columnModel)
+		{
+			super(model, columnModel);
+		}
+
+		@Override
+		public int[] getSelectedRows()
+		{
+			return rowSelectionModel.getSelectedViewRows();
+		}
+
+		@Override
+		public int getSelectedRowCount()
+		{
+			return rowSelectionModel.getSelectedCount();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * <p>Typed renderers only stand in for the look and feel's renderers, so that renderers
+		 * set on a column or set as the default for a class are always used.
+		 */
+		@Override
+		public TableCellRenderer getCellRenderer(int row, int column)
+		{
+			TableCellRenderer out = super.getCellRenderer(row, column);
+			if (!(out instanceof DefaultTableCellRenderer.UIResource) || typedRenderers == null)
+				return out;
+			int columnIndex = convertColumnIndexToModel(column);
+			if (columnIndex < 0 || columnIndex >= typedRenderers.length || typedRenderers[columnIndex] == null)
+				return out;
+			return typedRenderers[columnIndex];
+		}
+
+		@Override
+		public Component prepareRenderer(TableCellRenderer renderer, int row, int column)
+		{
+			if (!(renderer instanceof TypedCellRenderer))
+				return super.prepareRenderer(renderer, row, column);
+
+			// same as JTable, but the renderer reads the row itself instead of a boxed value.
+			boolean isSelected = false;
+			boolean hasFocus = false;
+			if (!isPaintingForPrint())
+			{
+				isSelected = isCellSelected(row, column);
+				hasFocus = getSelectionModel().getLeadSelectionIndex() == row
+					&& getColumnModel().getSelectionModel().getLeadSelectionIndex() == column
+					&& isFocusOwner();
+			}
+			Object item = tableModel.getRowAt(convertRowIndexToModel(row));
+			return ((TypedCellRenderer)renderer).getRowRendererComponent(this, item, isSelected, hasFocus, row, column);
+		}
+
+		@Override
+		public String getToolTipText(MouseEvent event)
+		{
+			Point p = event.getPoint();
+			int row = rowAtPoint(p);
+			int col = columnAtPoint(p);
+			if (row < 0 || col < 0)
+				return null;
+			int columnIndex = convertColumnIndexToModel(col);
+			Column column = tableModel.getColumnList().getByIndex(columnIndex);
+			if (column != null)
+				return column.tip;
+			return null;
+		}
+
+	}
+
 	/** 
 	 * Implementation of some special things that the table does. 
 	 */
-	private class RTableImpl extends JTable
+	private class RTableImpl extends RTableView
 	{
 		private static final long serialVersionUID = 8261354740182093448L;
 
+		/** Column layout. */
+		private ColumnLayout columnLayout;
+		/** Timer that throttles column layout. */
+		private Timer layoutTimer;
+		/** Column content measurer. */
+		private ColumnMeasurer columnMeasurer;
+
 		private RTableImpl(RTableModel<T> model, SelectPolicy policy)
 		{
-			super(model);
+			super(model, null);
+			setRowSorter(rowSorter = new RTableRowSorterImpl(model));
+			// the selection is kept by model index, so it never has to be moved on sort.
+			setSelectionModel(rowSelectionModel = new RTableSelectionModel(rowSorter));
+			setUpdateSelectionOnSort(false);
 			setSelectionMode(policy.intern);
 			getSelectionModel().addListSelectionListener(new ListSelectionListener()
 			{
@@ -653,46 +1635,210 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 						onSelectRow();
 				}
 			});
-			setUpdateSelectionOnSort(true);
 			setColumnSelectionAllowed(false);
 			getTableHeader().setReorderingAllowed(false);
 			getTableHeader().setResizingAllowed(false);
-			setRowSorter(new RTableRowSorterImpl(model));
+
+			List<Column> columns = model.getColumnList();
+			typedRenderers = new TypedCellRenderer[columns.size()];
+			for (int i = 0; i < columns.size(); i++)
+				typedRenderers[i] = TypedCellRenderer.create(columns.getByIndex(i));
+
+			columnLayout = new ColumnLayout(model.getColumnList());
+			columnMeasurer = new ColumnMeasurer(this);
+			layoutTimer = new Timer(LAYOUT_DELAY_MILLIS, new ActionListener()
+			{
+				@Override
+				public void actionPerformed(ActionEvent e)
+				{
+					layoutColumns();
+				}
+			});
+			layoutTimer.setRepeats(false);
 			addComponentListener(new ComponentAdapter()
 			{
 				@Override
 				public void componentResized(ComponentEvent e)
 				{
-					int width = getWidth();
-					int wtotal = 0;
-					for (RTableModel<T>.Column c : tableModel.getColumnList())
-						wtotal += c.width;
-					int i = 0;
-					for (RTableModel<T>.Column c : tableModel.getColumnList())
-						getColumnModel().getColumn(i++).setPreferredWidth((int)(((float)c.width/wtotal) * width));
+					// lay out at most once per timer period while resizing.
+					if (!layoutTimer.isRunning())
+						layoutTimer.start();
 				}
 			});
 		}
-		
+
+		/**
+		 * Sets the widths of the columns from the layout, measuring content if needed.
+		 * Only columns whose width changed are touched.
+		 */
+		private void layoutColumns()
+		{
+			int[] columns = new int[tableModel.getColumnCount()];
+			int n = 0;
+			for (int i = 0; i < columns.length; i++)
+				if (columnLayout.needsContentWidth(i))
+					columns[n++] = i;
+			if (n > 0)
+			{
+				columns = Arrays.copyOf(columns, n);
+				int[] widths = columnMeasurer.measure(columns);
+				for (int i = 0; i < n; i++)
+					columnLayout.setContentWidth(columns[i], widths[i]);
+			}
+
+			// pinned columns share the width.
+			int width = getWidth();
+			if (frozenTable != null)
+				for (int i = 0; i < frozenTable.getColumnCount(); i++)
+					width += frozenTable.getColumnModel().getColumn(i).getPreferredWidth();
+
+			int[] widths = columnLayout.layout(width);
+			if (widths == null)
+				return;
+			for (int i = 0; i < widths.length && i < tableModel.getColumnCount(); i++)
+			{
+				TableColumn column = getTableColumn(i);
+				if (column.getPreferredWidth() != widths[i])
+					column.setPreferredWidth(widths[i]);
+			}
+		}
+
 		@Override
-		public String getToolTipText(MouseEvent event)
+		public void tableChanged(TableModelEvent e)
 		{
-			Point p = event.getPoint();
-			int row = rowAtPoint(p);
-			int col = columnAtPoint(p);
-			if (row < 0 || col < 0)
-				return null;
-			int columnIndex = convertColumnIndexToModel(col);
-			RTableModel<?>.Column column = tableModel.getColumnList().getByIndex(columnIndex);
-			if (column != null)
-				return column.tip;
-			return null;
+			super.tableChanged(e);
+			// content widths go stale when the whole data set changes, not on every row.
+			if (columnLayout == null)
+				return;
+			if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE)
+				if (columnLayout.invalidateContent())
+					scheduleLayout();
+		}
+
+		/**
+		 * Fits columns to their content, measured in the background if the sample is large,
+		 * and applies all of the new widths in one layout.
+		 */
+		private void autoFit(int[] columns)
+		{
+			columnMeasurer.measureAsync(columns, new ColumnMeasurer.Listener()
+			{
+				@Override
+				public void measured(int[] columns, int[] widths)
+				{
+					for (int i = 0; i < columns.length; i++)
+					{
+						columnLayout.setPolicy(columns[i], WidthPolicy.CONTENT, 0);
+						columnLayout.setContentWidth(columns[i], widths[i]);
+					}
+					layoutColumns();
+				}
+			});
+		}
+
+		// Schedules a column layout.
+		private void scheduleLayout()
+		{
+			if (!layoutTimer.isRunning())
+				layoutTimer.start();
 		}
 		
 	}
 	
+	/**
+	 * Table of the pinned columns.
+	 * It reads the main table's row sorter without installing it, since the main table already
+	 * passes model changes to the sorter, and it keeps no row state of its own.
+	 */
+	private class RFrozenTableImpl extends RTableView
+	{
+		private static final long serialVersionUID = 5105934447417950375L;
+
+		/** Repaints on sort and filter changes. */
+		private RowSorterListener sorterListener;
+		/** Scrolls the main table along when this one scrolls itself, like on keyboard moves. */
+		private ChangeListener scrollListener;
+
+		private RFrozenTableImpl()
+		{
+			super(tableModel, new DefaultTableColumnModel());
+			setSelectionModel(rowSelectionModel);
+			setColumnSelectionAllowed(false);
+			setAutoResizeMode(AUTO_RESIZE_OFF);
+			setFont(table.getFont());
+			setGridColor(table.getGridColor());
+			setShowHorizontalLines(table.getShowHorizontalLines());
+			setShowVerticalLines(table.getShowVerticalLines());
+			setIntercellSpacing(table.getIntercellSpacing());
+			getTableHeader().setReorderingAllowed(false);
+			getTableHeader().setResizingAllowed(false);
+
+			rowSorter.addRowSorterListener(sorterListener = new RowSorterListener()
+			{
+				@Override
+				public void sorterChanged(RowSorterEvent e)
+				{
+					resizeAndRepaint();
+					getTableHeader().repaint();
+				}
+			});
+			scrollListener = new ChangeListener()
+			{
+				@Override
+				public void stateChanged(ChangeEvent e)
+				{
+					JViewport viewport = scrollPane.getViewport();
+					Point position = viewport.getViewPosition();
+					int y = ((JViewport)e.getSource()).getViewPosition().y;
+					if (position.y != y)
+						viewport.setViewPosition(new Point(position.x, y));
+				}
+			};
+		}
+
+		// Detaches this table from the shared model, selection, and sorter.
+		private void dispose()
+		{
+			rowSorter.removeRowSorterListener(sorterListener);
+			rowSelectionModel.removeListSelectionListener(this);
+			tableModel.removeTableModelListener(this);
+		}
+
+		@Override
+		public RowSorter<? extends TableModel> getRowSorter()
+		{
+			return rowSorter;
+		}
+
+		@Override
+		public int getRowHeight()
+		{
+			return table.getRowHeight();
+		}
+
+		@Override
+		public int getRowHeight(int row)
+		{
+			return table.getRowHeight(row);
+		}
+
+		@Override
+		public Dimension getPreferredScrollableViewportSize()
+		{
+			return new Dimension(getPreferredSize().width, super.getPreferredScrollableViewportSize().height);
+		}
+
+		@Override
+		public void tableChanged(TableModelEvent e)
+		{
+			// rows and selection follow the main table and the sorter; only the size and picture change here.
+			resizeAndRepaint();
+		}
+
+	}
+	
 	/** Row sorter implementation. */
-	private class RTableRowSorterImpl extends TableRowSorter<RTableModel<T>>
+	private class RTableRowSorterImpl extends RTableRowSorter<T>
 	{
 		private RTableRowSorterImpl(RTableModel<T> model)
 		{
@@ -702,7 +1848,9 @@ public class RTable<T extends Object> extends JPanel implements Iterable<T>, RTa
 		@Override
 		public boolean isSortable(int column)
 		{
-			RTableModel<?>.Column col = getModel().getColumnList().getByIndex(column);
+			if (tableModel.isPaged())
+				return false;
+			Column col = getModel().getColumnList().getByIndex(column);
 			if (col != null)
 				return col.sortable;
 			return false;
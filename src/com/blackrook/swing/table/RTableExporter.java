@@ -0,0 +1,806 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.util.Date;
+import java.util.Iterator;
+
+import javax.swing.JTable;
+import javax.swing.SwingWorker;
+
+import com.blackrook.commons.list.List;
+import com.blackrook.swing.table.RTableModel.Column;
+
+/**
+ * Writes the contents of an {@link RTable} to a channel as CSV, TSV, or JSON.
+ * <p>The rows to write are taken from the table when an export starts, in the current view order
+ * (sorted and filtered) or in model order. Cells are read straight from the row objects through
+ * each column's accessor, so primitive values are written without boxing, and text is encoded
+ * through one reused buffer. Paged tables are read from their row provider a page at a time.
+ * <p>Exports can run in the background with {@link #exportAsync(WritableByteChannel)}, which returns
+ * a {@link SwingWorker} that reports progress from 0 to 100 and can be cancelled.
+ * The row objects should not be changed while they are being written.
+ * <p>Exporters must be created and started on the Event Dispatch Thread.
+ * @author Matthew Tropiano
+ * @param <T> the row object type.
+ * @since 2.8.0
+ */
+public class RTableExporter<T>
+{
+	/** Size of the character and byte buffers. */
+	private static final int BUFFER_SIZE = 16384;
+	/** Amount of rows written between progress updates and cancellation checks. */
+	private static final int PROGRESS_ROWS = 1024;
+
+	/**
+	 * Output formats.
+	 */
+	public static enum Format
+	{
+		/** Comma-separated values, as in RFC 4180. Fields are quoted only if needed. */
+		CSV,
+		/** Tab-separated values. Tabs, line breaks, and backslashes in fields are written as backslash escapes. */
+		TSV,
+		/** A JSON array of objects, keyed by column name. */
+		JSON;
+	}
+
+	/** Column type: anything, written as its string. */
+	private static final int TYPE_OBJECT = 0;
+	/** Column type: primitive integer. */
+	private static final int TYPE_INTEGER = 1;
+	/** Column type: primitive float. */
+	private static final int TYPE_FLOAT = 2;
+	/** Column type: primitive double. */
+	private static final int TYPE_DOUBLE = 3;
+	/** Column type: boxed number or boolean, written unquoted. */
+	private static final int TYPE_LITERAL = 4;
+	/** Column type: date. */
+	private static final int TYPE_DATE = 5;
+
+	/** Source model. */
+	private final RTableModel<T> model;
+	/** Source table, for view order. */
+	private final JTable table;
+
+	/** Output format. */
+	private Format format;
+	/** Write in view order? */
+	private boolean viewOrder;
+	/** Write a header line (CSV/TSV)? */
+	private boolean header;
+	/** Output charset. */
+	private Charset charset;
+	/** Date format, or null for ISO 8601 in UTC. */
+	private DateFormat dateFormat;
+	/** Line separator, or null for the format's default. */
+	private String lineSeparator;
+
+	/**
+	 * Creates a new exporter.
+	 * @param model the source model.
+	 * @param table the source table.
+	 * @param format the output format.
+	 */
+	RTableExporter(RTableModel<T> model, JTable table, Format format)
+	{
+		this.model = model;
+		this.table = table;
+		this.viewOrder = true;
+		this.header = true;
+		this.charset = StandardCharsets.UTF_8;
+		this.dateFormat = null;
+		this.lineSeparator = null;
+		setFormat(format);
+	}
+
+	/**
+	 * Sets the output format.
+	 * @param format the format.
+	 * @return this exporter.
+	 * @throws IllegalArgumentException if format is null.
+	 */
+	public RTableExporter<T> setFormat(Format format)
+	{
+		if (format == null)
+			throw new IllegalArgumentException("Format cannot be null.");
+		this.format = format;
+		return this;
+	}
+
+	/**
+	 * Sets whether rows are written in the current view order, skipping filtered rows,
+	 * or in model order. Default is view order.
+	 * @param viewOrder true for view order, false for model order.
+	 * @return this exporter.
+	 */
+	public RTableExporter<T> setViewOrder(boolean viewOrder)
+	{
+		this.viewOrder = viewOrder;
+		return this;
+	}
+
+	/**
+	 * Sets whether a line of column names is written first, in CSV and TSV. Default is true.
+	 * @param header true to write a header line.
+	 * @return this exporter.
+	 */
+	public RTableExporter<T> setHeader(boolean header)
+	{
+		this.header = header;
+		return this;
+	}
+
+	/**
+	 * Sets the output character set. Default is UTF-8.
+	 * Characters that the charset cannot encode are replaced.
+	 * @param charset the charset.
+	 * @return this exporter.
+	 * @throws IllegalArgumentException if charset is null.
+	 */
+	public RTableExporter<T> setCharset(Charset charset)
+	{
+		if (charset == null)
+			throw new IllegalArgumentException("Charset cannot be null.");
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * Sets the format for date columns. The format is copied when an export starts.
+	 * By default, dates are written in ISO 8601 in UTC with milliseconds, like <code>2019-04-01T12:30:00.000Z</code>,
+	 * which is much faster than formatting with a {@link DateFormat}.
+	 * @param dateFormat the format, or null for the default.
+	 * @return this exporter.
+	 */
+	public RTableExporter<T> setDateFormat(DateFormat dateFormat)
+	{
+		this.dateFormat = dateFormat;
+		return this;
+	}
+
+	/**
+	 * Sets the line separator. Default is CRLF for CSV and LF for the others.
+	 * @param lineSeparator the separator, or null for the format's default.
+	 * @return this exporter.
+	 */
+	public RTableExporter<T> setLineSeparator(String lineSeparator)
+	{
+		this.lineSeparator = lineSeparator;
+		return this;
+	}
+
+	/**
+	 * Writes the table on the calling thread, which must be the Event Dispatch Thread.
+	 * The channel is not closed.
+	 * @param channel the channel to write to.
+	 * @return the amount of rows written.
+	 * @throws IOException if a write error occurs.
+	 */
+	public long export(WritableByteChannel channel) throws IOException
+	{
+		return new Job().write(channel, null);
+	}
+
+	/**
+	 * Writes the table to a file on the calling thread, which must be the Event Dispatch Thread.
+	 * The file is created or replaced.
+	 * @param file the file to write to.
+	 * @return the amount of rows written.
+	 * @throws IOException if a write error occurs.
+	 */
+	public long export(File file) throws IOException
+	{
+		Job job = new Job();
+		try (FileChannel channel = openFile(file))
+		{
+			return job.write(channel, null);
+		}
+	}
+
+	/**
+	 * Starts writing the table in the background. The rows to write are taken before this returns.
+	 * The channel is not closed.
+	 * <p>The returned worker's result is the amount of rows written, and its progress goes from 0 to 100.
+	 * It checks for cancellation between blocks of rows, so it can be cancelled without interrupting,
+	 * which would close an interruptible channel.
+	 * @param channel the channel to write to.
+	 * @return the started worker.
+	 */
+	public SwingWorker<Long, Void> exportAsync(WritableByteChannel channel)
+	{
+		return start(new Job(), channel, null);
+	}
+
+	/**
+	 * Starts writing the table to a file in the background. The rows to write are taken before this returns.
+	 * The file is created or replaced, and is deleted if the export is cancelled.
+	 * <p>The returned worker's result is the amount of rows written, and its progress goes from 0 to 100.
+	 * @param file the file to write to.
+	 * @return the started worker.
+	 */
+	public SwingWorker<Long, Void> exportAsync(File file)
+	{
+		return start(new Job(), null, file);
+	}
+
+	// Starts a job in the background.
+	private SwingWorker<Long, Void> start(Job job, WritableByteChannel channel, File file)
+	{
+		ExportWorker out = new ExportWorker(job, channel, file);
+		out.execute();
+		return out;
+	}
+
+	// Opens a file for writing.
+	private static FileChannel openFile(File file) throws IOException
+	{
+		return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * A single export, with everything read from the table on the Event Dispatch Thread.
+	 */
+	private class Job
+	{
+		private final Format format;
+		private final boolean header;
+		private final String lineSeparator;
+		private final CharsetEncoder encoder;
+		private final DateFormat dateFormat;
+		private final String[] names;
+		private final ColumnAccessor[] accessors;
+		private final int[] types;
+		/** Rows to write, or null to read from the model's iterator (paged). */
+		private final Object[] rows;
+		/** Amount of rows to write. */
+		private final int rowCount;
+
+		private Job()
+		{
+			this.format = RTableExporter.this.format;
+			this.header = RTableExporter.this.header;
+			this.lineSeparator = RTableExporter.this.lineSeparator != null
+				? RTableExporter.this.lineSeparator
+				: (format == Format.CSV ? "\r\n" : "\n");
+			this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.dateFormat = RTableExporter.this.dateFormat != null ? (DateFormat)RTableExporter.this.dateFormat.clone() : null;
+
+			List<Column> columns = model.getColumnList();
+			this.names = new String[columns.size()];
+			this.accessors = new ColumnAccessor[columns.size()];
+			this.types = new int[columns.size()];
+			for (int i = 0; i < columns.size(); i++)
+			{
+				Column column = columns.getByIndex(i);
+				Class<?> type = column.getterMethod.getReturnType();
+				names[i] = column.name;
+				accessors[i] = column.accessor;
+				if (ColumnAccessor.isIntegerPrimitive(type))
+					types[i] = TYPE_INTEGER;
+				else if (type == Float.TYPE)
+					types[i] = TYPE_FLOAT;
+				else if (type == Double.TYPE)
+					types[i] = TYPE_DOUBLE;
+				else if (type == Boolean.TYPE || Boolean.class.isAssignableFrom(type) || Number.class.isAssignableFrom(type))
+					types[i] = TYPE_LITERAL;
+				else if (Date.class.isAssignableFrom(type))
+					types[i] = TYPE_DATE;
+				else
+					types[i] = TYPE_OBJECT;
+			}
+
+			if (model.isPaged())
+			{
+				this.rows = null;
+				this.rowCount = model.getRowCount();
+			}
+			else if (viewOrder)
+			{
+				this.rowCount = table.getRowCount();
+				this.rows = new Object[rowCount];
+				for (int i = 0; i < rowCount; i++)
+					rows[i] = model.getRowAt(table.convertRowIndexToModel(i));
+			}
+			else
+			{
+				this.rowCount = model.getRowCount();
+				this.rows = new Object[rowCount];
+				for (int i = 0; i < rowCount; i++)
+					rows[i] = model.getRowAt(i);
+			}
+		}
+
+		/**
+		 * Writes this job's rows.
+		 * @param channel the output channel.
+		 * @param worker the worker to report to, or null.
+		 * @return the amount of rows written.
+		 */
+		private long write(WritableByteChannel channel, ExportWorker worker) throws IOException
+		{
+			ChannelWriter out = new ChannelWriter(channel, encoder);
+			Iterator<T> iterator = rows == null ? model.iterator() : null;
+
+			if (format == Format.JSON)
+				out.append('[').append(lineSeparator);
+			else if (header)
+			{
+				for (int c = 0; c < names.length; c++)
+				{
+					if (c > 0)
+						out.append(format == Format.CSV ? ',' : '\t');
+					writeText(out, names[c]);
+				}
+				out.append(lineSeparator);
+			}
+
+			int written = 0;
+			while (written < rowCount)
+			{
+				if (worker != null && written % PROGRESS_ROWS == 0)
+				{
+					if (worker.isCancelled())
+						break;
+					worker.progress(written, rowCount);
+				}
+
+				Object row;
+				if (iterator != null)
+				{
+					if (!iterator.hasNext())
+						break;
+					row = iterator.next();
+				}
+				else
+					row = rows[written];
+
+				if (format == Format.JSON)
+				{
+					if (written > 0)
+						out.append(',').append(lineSeparator);
+					writeJSONRow(out, row);
+				}
+				else
+				{
+					writeDelimitedRow(out, row);
+					out.append(lineSeparator);
+				}
+				written++;
+			}
+
+			if (format == Format.JSON)
+			{
+				if (written > 0)
+					out.append(lineSeparator);
+				out.append(']').append(lineSeparator);
+			}
+			out.finish();
+			if (worker != null && !worker.isCancelled())
+				worker.progress(rowCount, rowCount);
+			return written;
+		}
+
+		// Writes one CSV or TSV row, without the line separator.
+		private void writeDelimitedRow(ChannelWriter out, Object row) throws IOException
+		{
+			for (int c = 0; c < accessors.length; c++)
+			{
+				if (c > 0)
+					out.append(format == Format.CSV ? ',' : '\t');
+				if (row == null)
+					continue;
+				writeValue(out, row, c);
+			}
+		}
+
+		// Writes one JSON object.
+		private void writeJSONRow(ChannelWriter out, Object row) throws IOException
+		{
+			if (row == null)
+			{
+				out.append("null");
+				return;
+			}
+			out.append('{');
+			for (int c = 0; c < accessors.length; c++)
+			{
+				if (c > 0)
+					out.append(',');
+				writeJSONString(out, names[c]);
+				out.append(':');
+				writeValue(out, row, c);
+			}
+			out.append('}');
+		}
+
+		// Writes a single cell.
+		private void writeValue(ChannelWriter out, Object row, int column) throws IOException
+		{
+			ColumnAccessor accessor = accessors[column];
+			switch (types[column])
+			{
+				case TYPE_INTEGER:
+					out.append(accessor.getLong(row));
+					return;
+				case TYPE_FLOAT:
+				{
+					float value = (float)accessor.getDouble(row);
+					if (format == Format.JSON && (Float.isNaN(value) || Float.isInfinite(value)))
+						out.append("null");
+					else
+						out.append(Float.toString(value));
+					return;
+				}
+				case TYPE_DOUBLE:
+				{
+					double value = accessor.getDouble(row);
+					if (format == Format.JSON && (Double.isNaN(value) || Double.isInfinite(value)))
+						out.append("null");
+					else
+						out.append(Double.toString(value));
+					return;
+				}
+			}
+
+			Object value = accessor.get(row);
+			if (value == null)
+			{
+				if (format == Format.JSON)
+					out.append("null");
+				return;
+			}
+
+			switch (types[column])
+			{
+				case TYPE_LITERAL:
+				{
+					if (format == Format.JSON && (value instanceof Double || value instanceof Float))
+					{
+						double d = ((Number)value).doubleValue();
+						if (Double.isNaN(d) || Double.isInfinite(d))
+						{
+							out.append("null");
+							return;
+						}
+					}
+					out.append(value.toString());
+					return;
+				}
+				case TYPE_DATE:
+				{
+					if (dateFormat == null)
+					{
+						if (format == Format.JSON)
+							out.append('"');
+						out.appendDate(((Date)value).getTime());
+						if (format == Format.JSON)
+							out.append('"');
+						return;
+					}
+					out.text.setLength(0);
+					dateFormat.format((Date)value, out.text, out.position);
+					writeText(out, out.text);
+					return;
+				}
+				default:
+					writeText(out, value.toString());
+					return;
+			}
+		}
+
+		// Writes text, escaped for the format.
+		private void writeText(ChannelWriter out, CharSequence text) throws IOException
+		{
+			switch (format)
+			{
+				case CSV:
+					writeCSVString(out, text);
+					break;
+				case TSV:
+					writeTSVString(out, text);
+					break;
+				case JSON:
+					writeJSONString(out, text);
+					break;
+			}
+		}
+
+	}
+
+	// Writes a CSV field, quoted if it contains a comma, quote, or line break.
+	private static void writeCSVString(ChannelWriter out, CharSequence text) throws IOException
+	{
+		boolean quote = false;
+		for (int i = 0; i < text.length() && !quote; i++)
+		{
+			char c = text.charAt(i);
+			quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quote)
+		{
+			out.append(text);
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if (c == '"')
+				out.append('"');
+			out.append(c);
+		}
+		out.append('"');
+	}
+
+	// Writes a TSV field, with tabs, line breaks, and backslashes escaped.
+	private static void writeTSVString(ChannelWriter out, CharSequence text) throws IOException
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			switch (c)
+			{
+				case '\t':
+					out.append('\\').append('t');
+					break;
+				case '\n':
+					out.append('\\').append('n');
+					break;
+				case '\r':
+					out.append('\\').append('r');
+					break;
+				case '\\':
+					out.append('\\').append('\\');
+					break;
+				default:
+					out.append(c);
+					break;
+			}
+		}
+	}
+
+	// Writes a quoted JSON string.
+	private static void writeJSONString(ChannelWriter out, CharSequence text) throws IOException
+	{
+		out.append('"');
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			switch (c)
+			{
+				case '"':
+					out.append('\\').append('"');
+					break;
+				case '\\':
+					out.append('\\').append('\\');
+					break;
+				case '\n':
+					out.append('\\').append('n');
+					break;
+				case '\r':
+					out.append('\\').append('r');
+					break;
+				case '\t':
+					out.append('\\').append('t');
+					break;
+				default:
+					if (c < 0x20)
+					{
+						out.append("\\u00");
+						out.append(Character.forDigit(c >> 4, 16));
+						out.append(Character.forDigit(c & 15, 16));
+					}
+					else
+						out.append(c);
+					break;
+			}
+		}
+		out.append('"');
+	}
+
+	/**
+	 * Runs an export in the background.
+	 */
+	private class ExportWorker extends SwingWorker<Long, Void>
+	{
+		private final Job job;
+		/** Channel to write to, or null to open the file. */
+		private final WritableByteChannel channel;
+		/** File to write to, if no channel. */
+		private final File file;
+
+		private ExportWorker(Job job, WritableByteChannel channel, File file)
+		{
+			this.job = job;
+			this.channel = channel;
+			this.file = file;
+		}
+
+		@Override
+		protected Long doInBackground() throws Exception
+		{
+			if (channel != null)
+				return job.write(channel, this);
+
+			long rows;
+			try (FileChannel fileChannel = openFile(file))
+			{
+				rows = job.write(fileChannel, this);
+			}
+			if (isCancelled())
+				file.delete();
+			return rows;
+		}
+
+		// Reports progress.
+		private void progress(long row, long rows)
+		{
+			setProgress(rows > 0 ? (int)(row * 100 / rows) : 100);
+		}
+	}
+
+	/**
+	 * Buffers characters, encodes them, and writes them to a channel in blocks.
+	 */
+	private static class ChannelWriter
+	{
+		private final WritableByteChannel channel;
+		private final CharsetEncoder encoder;
+		private final CharBuffer chars;
+		private final ByteBuffer bytes;
+		/** Scratch space for integers. */
+		private final char[] digits;
+		/** Scratch space for formatted text. */
+		private final StringBuffer text;
+		/** Field position for formatting. */
+		private final FieldPosition position;
+
+		private ChannelWriter(WritableByteChannel channel, CharsetEncoder encoder)
+		{
+			this.channel = channel;
+			this.encoder = encoder;
+			this.chars = CharBuffer.allocate(BUFFER_SIZE);
+			this.bytes = ByteBuffer.allocate(BUFFER_SIZE * 2);
+			this.digits = new char[20];
+			this.text = new StringBuffer(32);
+			this.position = new FieldPosition(0);
+			encoder.reset();
+		}
+
+		private ChannelWriter append(char c) throws IOException
+		{
+			if (!chars.hasRemaining())
+				drain(false);
+			chars.put(c);
+			return this;
+		}
+
+		private ChannelWriter append(CharSequence text) throws IOException
+		{
+			for (int i = 0; i < text.length(); i++)
+				append(text.charAt(i));
+			return this;
+		}
+
+		private ChannelWriter append(long value) throws IOException
+		{
+			if (value == Long.MIN_VALUE)
+				return append(Long.toString(value));
+			if (value < 0)
+			{
+				append('-');
+				value = -value;
+			}
+			int n = digits.length;
+			do {
+				digits[--n] = (char)('0' + (value % 10));
+				value /= 10;
+			} while (value > 0);
+			while (n < digits.length)
+				append(digits[n++]);
+			return this;
+		}
+
+		// Appends a time in ISO 8601 in UTC, with milliseconds.
+		private void appendDate(long millis) throws IOException
+		{
+			long days = Math.floorDiv(millis, 86400000L);
+			long time = Math.floorMod(millis, 86400000L);
+
+			// civil date from days since the epoch, in the proleptic Gregorian calendar.
+			long z = days + 719468;
+			long era = Math.floorDiv(z, 146097);
+			long dayOfEra = z - era * 146097;
+			long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+			long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+			long mp = (5 * dayOfYear + 2) / 153;
+			long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+			long month = mp < 10 ? mp + 3 : mp - 9;
+			long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+			if (year < 0)
+				append('-');
+			else if (year > 9999)
+				append('+');
+			appendPadded(Math.abs(year), 4);
+			append('-');
+			appendPadded(month, 2);
+			append('-');
+			appendPadded(day, 2);
+			append('T');
+			appendPadded(time / 3600000, 2);
+			append(':');
+			appendPadded(time / 60000 % 60, 2);
+			append(':');
+			appendPadded(time / 1000 % 60, 2);
+			append('.');
+			appendPadded(time % 1000, 3);
+			append('Z');
+		}
+
+		// Appends a non-negative value with leading zeroes.
+		private void appendPadded(long value, int width) throws IOException
+		{
+			for (long place = 10; --width > 0; place *= 10)
+				if (value < place)
+					append('0');
+			append(value);
+		}
+
+		// Encodes buffered characters and writes full byte blocks.
+		private void drain(boolean endOfInput) throws IOException
+		{
+			chars.flip();
+			while (true)
+			{
+				CoderResult result = encoder.encode(chars, bytes, endOfInput);
+				if (result.isOverflow())
+					writeBytes();
+				else
+					break;
+			}
+			chars.compact();
+		}
+
+		// Writes all encoded bytes.
+		private void writeBytes() throws IOException
+		{
+			bytes.flip();
+			while (bytes.hasRemaining())
+				channel.write(bytes);
+			bytes.clear();
+		}
+
+		// Encodes and writes everything left.
+		private void finish() throws IOException
+		{
+			drain(true);
+			while (encoder.flush(bytes).isOverflow())
+				writeBytes();
+			writeBytes();
+		}
+	}
+
+}
@@ -11,6 +11,8 @@ import javax.swing.RowFilter;
 
 /**
  * The table filter for RTables. When set on the table, rows are filtered.
+ * <p>If background filtering is enabled on the table, {@link #includeItem(Object)} may be called
+ * from several threads at once, so implementations must be thread-safe.
  * @author Matthew Tropiano
  * @param <T> matching object.
  * @since 2.5.0
@@ -31,4 +33,20 @@ public abstract class RTableFilter<T> extends RowFilter<RTableModel<T>, Integer>
 	 */
 	public abstract boolean includeItem(T item);
 
+	/**
+	 * Checks if this filter is a narrowing of another filter, meaning that every item
+	 * that this filter includes is also included by the other filter (for example, a search prefix
+	 * that is a longer version of the previous prefix).
+	 * <p>When a narrowing filter replaces the current filter on a table, only the currently
+	 * visible rows are tested again instead of every row in the table.
+	 * <p>By default, this returns false.
+	 * @param previous the filter being replaced.
+	 * @return true if this filter only removes items from the results of the previous filter, false otherwise.
+	 * @since 2.8.0
+	 */
+	public boolean isNarrowingOf(RTableFilter<T> previous)
+	{
+		return false;
+	}
+
 }
@@ -0,0 +1,1146 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.AbstractTableModel;
+
+import com.blackrook.commons.hash.HashMap;
+import com.blackrook.commons.list.List;
+import com.blackrook.swing.table.RTableModel.Column;
+
+/**
+ * A table model that shows the rows of an {@link RTableModel} grouped by the value of one column,
+ * with a header row for each group that can be collapsed or expanded.
+ * <p>Groups are kept up to date from the source model's events, a row at a time, and listeners are told
+ * about inserted, removed, and updated grouped rows with row events, so views keep their selection and scroll position.
+ * A row that changes but stays in its group does not leave it, so a collapsed group stays collapsed.
+ * For every numeric column, each group keeps a count, sum, minimum, and maximum in primitive accumulators,
+ * so adding, removing, or changing a row updates them in constant time. The only exception is removing
+ * or changing a group's current minimum or maximum, which is found again from the group's rows the next time it is read.
+ * Header rows show one of these aggregates per column, chosen with {@link #setAggregate(int, Aggregate)}.
+ * <p>Row objects are never copied: member rows read their values from the source model, and the
+ * grouped row order is kept as an array of source row indices, rebuilt only when groups change.
+ * Groups are ordered by value, with the null group first, and member rows are in source order.
+ * <p>This model must only be used on the Event Dispatch Thread. It does not support paged source models.
+ * Call {@link #dispose()} to detach it from its source.
+ * @author Matthew Tropiano
+ * @param <T> the row object type.
+ * @since 2.8.0
+ */
+public class RTableGroupModel<T> extends AbstractTableModel
+{
+	private static final long serialVersionUID = 2094315717946120462L;
+
+	/** Stand-in key for the null group. */
+	private static final Object NULL_KEY = new Object();
+
+	/**
+	 * Aggregates shown in group header rows.
+	 */
+	public static enum Aggregate
+	{
+		/** Amount of non-null values. */
+		COUNT,
+		/** Sum of the values. */
+		SUM,
+		/** Smallest value. */
+		MIN,
+		/** Largest value. */
+		MAX,
+		/** Mean of the non-null values. */
+		AVERAGE;
+	}
+
+	/** Group ordering: nulls first, then comparables by natural order, then everything else by string. */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static final Comparator<Group> GROUP_COMPARATOR = new Comparator<Group>()
+	{
+		@Override
+		public int compare(Group g1, Group g2)
+		{
+			Object k1 = g1.key;
+			Object k2 = g2.key;
+			if (k1 == NULL_KEY)
+				return k2 == NULL_KEY ? 0 : -1;
+			else if (k2 == NULL_KEY)
+				return 1;
+			else if (k1 instanceof Comparable && k1.getClass() == k2.getClass())
+				return ((Comparable)k1).compareTo(k2);
+			return String.valueOf(k1).compareTo(String.valueOf(k2));
+		}
+	};
+
+	/** Source model. */
+	private final RTableModel<T> source;
+	/** Source listener. */
+	private final TableModelListener sourceListener;
+	/** Grouped column index. */
+	private final int groupColumn;
+	/** Grouped column accessor. */
+	private final ColumnAccessor groupAccessor;
+
+	/** Aggregate slot per column, or -1 if the column is not numeric. */
+	private final int[] columnSlots;
+	/** Accessor per slot. */
+	private final ColumnAccessor[] slotAccessors;
+	/** Integer values per slot (false is floating-point). */
+	private final boolean[] slotIntegral;
+	/** Primitive getter per slot. */
+	private final boolean[] slotPrimitive;
+	/** Shown aggregate per column, or null. */
+	private final Aggregate[] shown;
+
+	/** Amount of source rows tracked. */
+	private int rowCount;
+	/** Group per source row. */
+	private Group[] rowGroups;
+	/** Last read integer values, per slot per source row (null for floating-point slots). */
+	private long[][] longValues;
+	/** Last read floating-point values, per slot per source row (null for integer slots). */
+	private double[][] doubleValues;
+	/** Last read null values, per slot per source row (null for primitive slots). */
+	private boolean[][] nullValues;
+
+	/** Groups by key. */
+	private HashMap<Object, Group> groupMap;
+	/** All groups, including emptied ones until the next layout. */
+	private List<Group> groupList;
+
+	/** Grouped rows need rebuilding? */
+	private boolean layoutDirty;
+	/** Grouped row to source row, or -(group position + 1) for header rows. */
+	private int[] layout;
+	/** Grouped row count. */
+	private int layoutRows;
+	/** Groups in order. */
+	private Group[] layoutGroups;
+	/** Source row to grouped row, or -1 if collapsed. */
+	private int[] sourceToLayout;
+	/** Source rows in group order, collapsed groups included. */
+	private int[] members;
+
+	/**
+	 * Creates a new group model.
+	 * @param source the source model.
+	 * @param groupColumn the index of the column to group by.
+	 * @throws IndexOutOfBoundsException if the column is out of range.
+	 */
+	RTableGroupModel(RTableModel<T> source, int groupColumn)
+	{
+		List<Column> columns = source.getColumnList();
+		if (groupColumn < 0 || groupColumn >= columns.size())
+			throw new IndexOutOfBoundsException("Column index " + groupColumn + " is out of range.");
+
+		this.source = source;
+		this.groupColumn = groupColumn;
+		this.groupAccessor = columns.getByIndex(groupColumn).accessor;
+		this.columnSlots = new int[columns.size()];
+		this.shown = new Aggregate[columns.size()];
+
+		int slots = 0;
+		for (int i = 0; i < columns.size(); i++)
+		{
+			Column column = columns.getByIndex(i);
+			columnSlots[i] = i != groupColumn && column.getterMethod != null && Number.class.isAssignableFrom(column.dataType) ? slots++ : -1;
+		}
+		this.slotAccessors = new ColumnAccessor[slots];
+		this.slotIntegral = new boolean[slots];
+		this.slotPrimitive = new boolean[slots];
+		for (int i = 0; i < columns.size(); i++)
+		{
+			int slot = columnSlots[i];
+			if (slot < 0)
+				continue;
+			Column column = columns.getByIndex(i);
+			Class<?> type = column.getterMethod.getReturnType();
+			slotAccessors[slot] = column.accessor;
+			slotIntegral[slot] = ColumnAccessor.isIntegerPrimitive(type)
+				|| type == Long.class || type == Integer.class || type == Short.class || type == Byte.class;
+			slotPrimitive[slot] = type.isPrimitive();
+			shown[i] = Aggregate.SUM;
+		}
+
+		this.sourceListener = new TableModelListener()
+		{
+			@Override
+			public void tableChanged(TableModelEvent e)
+			{
+				sourceChanged(e);
+			}
+		};
+		source.addTableModelListener(sourceListener);
+		rebuild();
+	}
+
+	/**
+	 * Detaches this model from its source. It stops following changes afterward.
+	 */
+	public void dispose()
+	{
+		source.removeTableModelListener(sourceListener);
+	}
+
+	/**
+	 * @return the source model.
+	 */
+	public RTableModel<T> getSourceModel()
+	{
+		return source;
+	}
+
+	/**
+	 * @return the index of the grouped column.
+	 */
+	public int getGroupColumn()
+	{
+		return groupColumn;
+	}
+
+	/**
+	 * Sets the aggregate shown in group header rows for a column.
+	 * By default, numeric columns show {@link Aggregate#SUM} and other columns show nothing.
+	 * Only {@link Aggregate#COUNT} can be shown for non-numeric columns.
+	 * @param columnIndex the column index.
+	 * @param aggregate the aggregate, or null for none.
+	 * @throws IndexOutOfBoundsException if the column is out of range.
+	 * @throws IllegalArgumentException if the column is not numeric and the aggregate is not COUNT.
+	 */
+	public void setAggregate(int columnIndex, Aggregate aggregate)
+	{
+		checkColumn(columnIndex);
+		if (aggregate != null && aggregate != Aggregate.COUNT && columnSlots[columnIndex] < 0)
+			throw new IllegalArgumentException("Column " + getColumnName(columnIndex) + " is not numeric.");
+		shown[columnIndex] = aggregate;
+		if (layoutRows > 0)
+			fireTableRowsUpdated(0, layoutRows - 1);
+	}
+
+	/**
+	 * Gets the aggregate shown in group header rows for a column.
+	 * @param columnIndex the column index.
+	 * @return the aggregate, or null for none.
+	 * @throws IndexOutOfBoundsException if the column is out of range.
+	 */
+	public Aggregate getAggregate(int columnIndex)
+	{
+		checkColumn(columnIndex);
+		return shown[columnIndex];
+	}
+
+	/**
+	 * @return the amount of groups.
+	 */
+	public int getGroupCount()
+	{
+		return groupMap.size();
+	}
+
+	/**
+	 * Returns the group keys, in group order.
+	 * @return a new list of the keys. The null group's key is null.
+	 */
+	public List<Object> getGroupKeys()
+	{
+		layout();
+		List<Object> out = new List<Object>(Math.max(layoutGroups.length, 1));
+		for (Group group : layoutGroups)
+			out.add(group.key != NULL_KEY ? group.key : null);
+		return out;
+	}
+
+	/**
+	 * Gets the amount of rows in a group.
+	 * @param key the group key.
+	 * @return the amount of rows, or 0 if there is no such group.
+	 */
+	public int getGroupSize(Object key)
+	{
+		Group group = groupMap.get(key != null ? key : NULL_KEY);
+		return group != null ? group.count : 0;
+	}
+
+	/**
+	 * Gets an aggregate of a column over a group.
+	 * COUNT is the amount of non-null values. The others are null if there are none.
+	 * SUM, MIN, and MAX are Longs for integer columns and Doubles for floating-point columns, and AVERAGE is a Double.
+	 * For non-numeric columns, only COUNT is available, and it is the size of the group.
+	 * @param key the group key.
+	 * @param columnIndex the column index.
+	 * @param aggregate the aggregate to get.
+	 * @return the aggregate value, or null if there is no such group or no value.
+	 * @throws IndexOutOfBoundsException if the column is out of range.
+	 */
+	public Number getAggregate(Object key, int columnIndex, Aggregate aggregate)
+	{
+		checkColumn(columnIndex);
+		Group group = groupMap.get(key != null ? key : NULL_KEY);
+		return group != null ? aggregate(group, columnIndex, aggregate) : null;
+	}
+
+	/**
+	 * Checks if a group is expanded.
+	 * @param key the group key.
+	 * @return true if the group exists and is expanded, false if not.
+	 */
+	public boolean isExpanded(Object key)
+	{
+		Group group = groupMap.get(key != null ? key : NULL_KEY);
+		return group != null && group.expanded;
+	}
+
+	/**
+	 * Expands or collapses a group. Groups start expanded.
+	 * @param key the group key.
+	 * @param expanded true to expand, false to collapse.
+	 */
+	public void setExpanded(Object key, boolean expanded)
+	{
+		Group group = groupMap.get(key != null ? key : NULL_KEY);
+		if (group == null || group.expanded == expanded)
+			return;
+		expand(group, expanded);
+	}
+
+	/**
+	 * Expands or collapses all groups.
+	 * @param expanded true to expand, false to collapse.
+	 */
+	public void setAllExpanded(boolean expanded)
+	{
+		for (Group group : groupList)
+			group.expanded = expanded;
+		invalidateLayout();
+	}
+
+	/**
+	 * Expands or collapses the group of a header row.
+	 * @param rowIndex the row index in this model.
+	 * @return true if the row is a header row, false if not.
+	 */
+	public boolean toggleExpanded(int rowIndex)
+	{
+		layout();
+		if (rowIndex < 0 || rowIndex >= layoutRows || layout[rowIndex] >= 0)
+			return false;
+		Group group = layoutGroups[-layout[rowIndex] - 1];
+		expand(group, !group.expanded);
+		return true;
+	}
+
+	/**
+	 * Checks if a row is a group header row.
+	 * @param rowIndex the row index in this model.
+	 * @return true if so, false if not.
+	 */
+	public boolean isGroupRow(int rowIndex)
+	{
+		layout();
+		return rowIndex >= 0 && rowIndex < layoutRows && layout[rowIndex] < 0;
+	}
+
+	/**
+	 * Gets the key of the group that a row belongs to.
+	 * @param rowIndex the row index in this model.
+	 * @return the group key, or null for the null group or if the row is out of range.
+	 */
+	public Object getGroupKey(int rowIndex)
+	{
+		layout();
+		if (rowIndex < 0 || rowIndex >= layoutRows)
+			return null;
+		int index = layout[rowIndex];
+		Object key = index < 0 ? layoutGroups[-index - 1].key : rowGroups[index].key;
+		return key != NULL_KEY ? key : null;
+	}
+
+	/**
+	 * Converts a row index in this model to a row index in the source model.
+	 * @param rowIndex the row index in this model.
+	 * @return the source row index, or -1 for header rows.
+	 */
+	public int convertRowIndexToSource(int rowIndex)
+	{
+		layout();
+		if (rowIndex < 0 || rowIndex >= layoutRows)
+			throw new IndexOutOfBoundsException("Row index " + rowIndex + " is out of range.");
+		return Math.max(layout[rowIndex], -1);
+	}
+
+	/**
+	 * Converts a row index in the source model to a row index in this model.
+	 * @param sourceIndex the source row index.
+	 * @return the row index in this model, or -1 if its group is collapsed.
+	 */
+	public int convertRowIndexFromSource(int sourceIndex)
+	{
+		layout();
+		if (sourceIndex < 0 || sourceIndex >= rowCount)
+			throw new IndexOutOfBoundsException("Row index " + sourceIndex + " is out of range.");
+		return sourceToLayout[sourceIndex];
+	}
+
+	@Override
+	public int getRowCount()
+	{
+		layout();
+		return layoutRows;
+	}
+
+	@Override
+	public int getColumnCount()
+	{
+		return source.getColumnCount();
+	}
+
+	@Override
+	public String getColumnName(int column)
+	{
+		return source.getColumnName(column);
+	}
+
+	@Override
+	public Class<?> getColumnClass(int columnIndex)
+	{
+		// header rows show text in the group column.
+		if (columnIndex == groupColumn)
+			return Object.class;
+		return source.getColumnClass(columnIndex);
+	}
+
+	@Override
+	public boolean isCellEditable(int rowIndex, int columnIndex)
+	{
+		int index = convertRowIndexToSource(rowIndex);
+		return index >= 0 && source.isCellEditable(index, columnIndex);
+	}
+
+	@Override
+	public Object getValueAt(int rowIndex, int columnIndex)
+	{
+		layout();
+		int index = layout[rowIndex];
+		if (index >= 0)
+			return source.getValueAt(index, columnIndex);
+
+		Group group = layoutGroups[-index - 1];
+		if (columnIndex == groupColumn)
+		{
+			String key = group.key != NULL_KEY ? String.valueOf(group.key) : "";
+			return (group.expanded ? "\u25BE " : "\u25B8 ") + key + " (" + group.count + ")";
+		}
+		Aggregate aggregate = shown[columnIndex];
+		return aggregate != null ? aggregate(group, columnIndex, aggregate) : null;
+	}
+
+	@Override
+	public void setValueAt(Object value, int rowIndex, int columnIndex)
+	{
+		int index = convertRowIndexToSource(rowIndex);
+		if (index >= 0)
+			source.setValueAt(value, index, columnIndex);
+	}
+
+	private void checkColumn(int columnIndex)
+	{
+		if (columnIndex < 0 || columnIndex >= columnSlots.length)
+			throw new IndexOutOfBoundsException("Column index " + columnIndex + " is out of range.");
+	}
+
+	// Gets an aggregate of a group.
+	private Number aggregate(Group group, int columnIndex, Aggregate aggregate)
+	{
+		int slot = columnSlots[columnIndex];
+		if (slot < 0)
+			return aggregate == Aggregate.COUNT ? Integer.valueOf(group.count) : null;
+
+		long count = group.counts[slot];
+		if (aggregate == Aggregate.COUNT)
+			return count;
+		if (count == 0)
+			return null;
+
+		if ((aggregate == Aggregate.MIN || aggregate == Aggregate.MAX) && group.stale[slot])
+			recomputeExtremes(group, slot);
+
+		switch (aggregate)
+		{
+			case SUM:
+				return slotIntegral[slot] ? (Number)group.longSums[slot] : (Number)group.doubleSums[slot];
+			case MIN:
+				return slotIntegral[slot] ? (Number)group.longMins[slot] : (Number)group.doubleMins[slot];
+			case MAX:
+				return slotIntegral[slot] ? (Number)group.longMaxes[slot] : (Number)group.doubleMaxes[slot];
+			case AVERAGE:
+				return (slotIntegral[slot] ? (double)group.longSums[slot] : group.doubleSums[slot]) / count;
+			default:
+				return null;
+		}
+	}
+
+	// Finds a group's minimum and maximum again from its own rows, after one was removed.
+	private void recomputeExtremes(Group group, int slot)
+	{
+		layout();
+		boolean first = true;
+		boolean[] nulls = nullValues[slot];
+		int end = group.memberStart + group.count;
+		for (int m = group.memberStart; m < end; m++)
+		{
+			int i = members[m];
+			if (nulls != null && nulls[i])
+				continue;
+			if (slotIntegral[slot])
+			{
+				long value = longValues[slot][i];
+				if (first || value < group.longMins[slot])
+					group.longMins[slot] = value;
+				if (first || value > group.longMaxes[slot])
+					group.longMaxes[slot] = value;
+			}
+			else
+			{
+				double value = doubleValues[slot][i];
+				if (first || value < group.doubleMins[slot])
+					group.doubleMins[slot] = value;
+				if (first || value > group.doubleMaxes[slot])
+					group.doubleMaxes[slot] = value;
+			}
+			first = false;
+		}
+		group.stale[slot] = false;
+	}
+
+	// Handles a source model change.
+	private void sourceChanged(TableModelEvent e)
+	{
+		int first = e.getFirstRow();
+		int last = e.getLastRow();
+		if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE)
+		{
+			rebuild();
+			return;
+		}
+
+		// removed rows are reported at their positions before the change.
+		layout();
+		switch (e.getType())
+		{
+			case TableModelEvent.INSERT:
+				insertRows(first, last);
+				break;
+			case TableModelEvent.DELETE:
+				deleteRows(first, last);
+				break;
+			case TableModelEvent.UPDATE:
+				updateRows(first, last, e.getColumn());
+				break;
+		}
+	}
+
+	// Reads every source row again.
+	private void rebuild()
+	{
+		int count = source.isPaged() ? 0 : source.getRowCount();
+		HashMap<Object, Boolean> collapsed = new HashMap<Object, Boolean>();
+		if (groupList != null)
+			for (Group group : groupList)
+				if (!group.expanded)
+					collapsed.put(group.key, Boolean.TRUE);
+
+		int slots = slotAccessors.length;
+		this.rowCount = 0;
+		this.rowGroups = new Group[Math.max(count, 16)];
+		this.longValues = new long[slots][];
+		this.doubleValues = new double[slots][];
+		this.nullValues = new boolean[slots][];
+		for (int s = 0; s < slots; s++)
+		{
+			if (slotIntegral[s])
+				longValues[s] = new long[rowGroups.length];
+			else
+				doubleValues[s] = new double[rowGroups.length];
+			if (!slotPrimitive[s])
+				nullValues[s] = new boolean[rowGroups.length];
+		}
+		this.groupMap = new HashMap<Object, Group>();
+		this.groupList = new List<Group>();
+
+		openRows(0, count);
+		for (int i = 0; i < count; i++)
+			addRow(i, source.getRowAt(i));
+		for (Group group : groupList)
+			group.expanded = !collapsed.containsKey(group.key);
+		invalidateLayout();
+	}
+
+	// Makes room for rows at an index.
+	private void openRows(int index, int count)
+	{
+		int size = rowCount + count;
+		if (size > rowGroups.length)
+		{
+			int capacity = Math.max(size, rowGroups.length + (rowGroups.length >> 1));
+			rowGroups = Arrays.copyOf(rowGroups, capacity);
+			for (int s = 0; s < slotAccessors.length; s++)
+			{
+				if (longValues[s] != null)
+					longValues[s] = Arrays.copyOf(longValues[s], capacity);
+				if (doubleValues[s] != null)
+					doubleValues[s] = Arrays.copyOf(doubleValues[s], capacity);
+				if (nullValues[s] != null)
+					nullValues[s] = Arrays.copyOf(nullValues[s], capacity);
+			}
+		}
+		int tail = rowCount - index;
+		System.arraycopy(rowGroups, index, rowGroups, index + count, tail);
+		for (int s = 0; s < slotAccessors.length; s++)
+		{
+			if (longValues[s] != null)
+				System.arraycopy(longValues[s], index, longValues[s], index + count, tail);
+			if (doubleValues[s] != null)
+				System.arraycopy(doubleValues[s], index, doubleValues[s], index + count, tail);
+			if (nullValues[s] != null)
+				System.arraycopy(nullValues[s], index, nullValues[s], index + count, tail);
+		}
+		rowCount = size;
+	}
+
+	// Removes rows at an index.
+	private void closeRows(int index, int count)
+	{
+		int tail = rowCount - index - count;
+		System.arraycopy(rowGroups, index + count, rowGroups, index, tail);
+		for (int s = 0; s < slotAccessors.length; s++)
+		{
+			if (longValues[s] != null)
+				System.arraycopy(longValues[s], index + count, longValues[s], index, tail);
+			if (doubleValues[s] != null)
+				System.arraycopy(doubleValues[s], index + count, doubleValues[s], index, tail);
+			if (nullValues[s] != null)
+				System.arraycopy(nullValues[s], index + count, nullValues[s], index, tail);
+		}
+		rowCount -= count;
+		Arrays.fill(rowGroups, rowCount, rowCount + count, null);
+	}
+
+	// Adds source rows.
+	private void insertRows(int first, int last)
+	{
+		int groupsBefore = groupList.size();
+		openRows(first, last - first + 1);
+		List<Group> touched = new List<Group>();
+		for (int i = first; i <= last; i++)
+			touched.add(addRow(i, source.getRowAt(i)));
+		List<Group> created = createdGroups(groupsBefore);
+		relayout();
+
+		RowList inserted = new RowList();
+		RowList updated = new RowList();
+		for (Group group : created)
+			inserted.add(group.headerRow);
+		for (int i = first; i <= last; i++)
+			if (sourceToLayout[i] >= 0)
+				inserted.add(sourceToLayout[i]);
+		for (Group group : touched)
+			updated.add(group.headerRow);
+		fireChanges(new RowList(), inserted, updated);
+	}
+
+	// Removes source rows.
+	private void deleteRows(int first, int last)
+	{
+		last = Math.min(last, rowCount - 1);
+		RowList removed = new RowList();
+		List<Group> touched = new List<Group>();
+		for (int i = first; i <= last; i++)
+		{
+			Group group = rowGroups[i];
+			if (sourceToLayout[i] >= 0)
+				removed.add(sourceToLayout[i]);
+			removeRow(i);
+			if (group.count == 0)
+				removed.add(group.headerRow);
+			else
+				touched.add(group);
+		}
+		closeRows(first, last - first + 1);
+		relayout();
+
+		RowList updated = new RowList();
+		for (Group group : touched)
+			if (group.count > 0)
+				updated.add(group.headerRow);
+		fireChanges(removed, new RowList(), updated);
+	}
+
+	// Reads changed source rows again.
+	private void updateRows(int first, int last, int column)
+	{
+		last = Math.min(last, rowCount - 1);
+		if (column != TableModelEvent.ALL_COLUMNS && column != groupColumn && (column < 0 || columnSlots[column] < 0))
+		{
+			fireSourceRowsUpdated(first, last);
+			return;
+		}
+
+		int groupsBefore = groupList.size();
+		RowList removed = new RowList();
+		List<Group> touched = new List<Group>();
+		boolean[] moved = null;
+		for (int i = first; i <= last; i++)
+		{
+			Group before = rowGroups[i];
+			Object row = source.getRowAt(i);
+			if (before.key.equals(getKey(row)))
+			{
+				// same group: only the aggregates change.
+				removeValues(i, before);
+				addValues(i, before, row);
+				continue;
+			}
+
+			if (moved == null)
+				moved = new boolean[last - first + 1];
+			moved[i - first] = true;
+			if (sourceToLayout[i] >= 0)
+				removed.add(sourceToLayout[i]);
+			removeRow(i);
+			// groups made in this update were never shown.
+			if (before.count == 0 && before.laidOut)
+				removed.add(before.headerRow);
+			else
+				touched.add(before);
+			touched.add(addRow(i, row));
+		}
+
+		if (moved == null)
+		{
+			fireSourceRowsUpdated(first, last);
+			return;
+		}
+
+		List<Group> created = createdGroups(groupsBefore);
+		relayout();
+		RowList inserted = new RowList();
+		RowList updated = new RowList();
+		for (Group group : created)
+			if (group.count > 0)
+				inserted.add(group.headerRow);
+		for (int i = first; i <= last; i++)
+		{
+			int row = sourceToLayout[i];
+			if (row < 0)
+				continue;
+			if (moved[i - first])
+				inserted.add(row);
+			else
+				updated.add(row);
+			updated.add(rowGroups[i].headerRow);
+		}
+		for (Group group : touched)
+			if (group.count > 0)
+				updated.add(group.headerRow);
+		fireChanges(removed, inserted, updated);
+	}
+
+	// Gets the groups added to the group list since it had a size.
+	private List<Group> createdGroups(int sizeBefore)
+	{
+		List<Group> out = new List<Group>(Math.max(groupList.size() - sizeBefore, 1));
+		for (int i = sizeBefore; i < groupList.size(); i++)
+			out.add(groupList.getByIndex(i));
+		return out;
+	}
+
+	// Reports updated source rows and their group headers.
+	private void fireSourceRowsUpdated(int first, int last)
+	{
+		RowList updated = new RowList();
+		for (int i = first; i <= last; i++)
+		{
+			if (sourceToLayout[i] >= 0)
+				updated.add(sourceToLayout[i]);
+			updated.add(rowGroups[i].headerRow);
+		}
+		fireChanges(new RowList(), new RowList(), updated);
+	}
+
+	// Gets the group key of a source row.
+	private Object getKey(Object row)
+	{
+		Object key = row != null && groupAccessor != null ? groupAccessor.get(row) : null;
+		return key != null ? key : NULL_KEY;
+	}
+
+	// Reads a source row into a tracked row slot and adds it to its group.
+	private Group addRow(int index, Object row)
+	{
+		Object key = getKey(row);
+		Group group = groupMap.get(key);
+		if (group == null)
+		{
+			groupMap.put(key, group = new Group(key, slotAccessors.length));
+			groupList.add(group);
+		}
+		rowGroups[index] = group;
+		group.count++;
+		addValues(index, group, row);
+		return group;
+	}
+
+	// Reads a source row's values into a tracked row slot and adds them to a group's aggregates.
+	private void addValues(int index, Group group, Object row)
+	{
+		for (int s = 0; s < slotAccessors.length; s++)
+		{
+			ColumnAccessor accessor = slotAccessors[s];
+			boolean isNull = false;
+			long longValue = 0L;
+			double doubleValue = 0.0;
+			if (row == null)
+				isNull = true;
+			else if (slotPrimitive[s])
+			{
+				if (slotIntegral[s])
+					longValue = accessor.getLong(row);
+				else
+					doubleValue = accessor.getDouble(row);
+			}
+			else
+			{
+				Object value = accessor.get(row);
+				if (value == null)
+					isNull = true;
+				else if (slotIntegral[s])
+					longValue = ((Number)value).longValue();
+				else
+					doubleValue = ((Number)value).doubleValue();
+			}
+
+			if (nullValues[s] != null)
+				nullValues[s][index] = isNull;
+			if (isNull)
+				continue;
+
+			long count = ++group.counts[s];
+			if (slotIntegral[s])
+			{
+				longValues[s][index] = longValue;
+				group.longSums[s] += longValue;
+				if (count == 1 || longValue < group.longMins[s])
+					group.longMins[s] = longValue;
+				if (count == 1 || longValue > group.longMaxes[s])
+					group.longMaxes[s] = longValue;
+			}
+			else
+			{
+				doubleValues[s][index] = doubleValue;
+				group.doubleSums[s] += doubleValue;
+				if (count == 1 || doubleValue < group.doubleMins[s])
+					group.doubleMins[s] = doubleValue;
+				if (count == 1 || doubleValue > group.doubleMaxes[s])
+					group.doubleMaxes[s] = doubleValue;
+			}
+			if (count == 1)
+				group.stale[s] = false;
+		}
+	}
+
+	// Removes a tracked row from its group, using its last read values.
+	private void removeRow(int index)
+	{
+		Group group = rowGroups[index];
+		rowGroups[index] = null;
+		if (--group.count == 0)
+			groupMap.removeUsingKey(group.key);
+		removeValues(index, group);
+	}
+
+	// Removes a tracked row's last read values from a group's aggregates.
+	private void removeValues(int index, Group group)
+	{
+		for (int s = 0; s < slotAccessors.length; s++)
+		{
+			if (nullValues[s] != null && nullValues[s][index])
+				continue;
+
+			long count = --group.counts[s];
+			if (slotIntegral[s])
+			{
+				long value = longValues[s][index];
+				group.longSums[s] -= value;
+				if (count > 0 && (value == group.longMins[s] || value == group.longMaxes[s]))
+					group.stale[s] = true;
+			}
+			else
+			{
+				double value = doubleValues[s][index];
+				group.doubleSums[s] -= value;
+				if (count > 0 && (value == group.doubleMins[s] || value == group.doubleMaxes[s]))
+					group.stale[s] = true;
+			}
+			if (count == 0)
+			{
+				group.stale[s] = false;
+				if (!slotIntegral[s])
+					group.doubleSums[s] = 0.0;
+			}
+		}
+	}
+
+	// Marks the grouped rows for rebuilding and tells listeners that everything changed.
+	private void invalidateLayout()
+	{
+		layoutDirty = true;
+		fireTableDataChanged();
+	}
+
+	// Rebuilds the grouped rows now, without telling listeners.
+	private void relayout()
+	{
+		layoutDirty = true;
+		layout();
+	}
+
+	// Expands or collapses a group, and reports its member rows as inserted or removed.
+	private void expand(Group group, boolean expanded)
+	{
+		layout();
+		int header = group.headerRow;
+		group.expanded = expanded;
+		relayout();
+		if (group.count > 0)
+			fireTableChanged(new TableModelEvent(this, header + 1, header + group.count, TableModelEvent.ALL_COLUMNS,
+				expanded ? TableModelEvent.INSERT : TableModelEvent.DELETE));
+		fireTableRowsUpdated(header, header);
+	}
+
+	/**
+	 * Tells listeners about a change to the grouped rows, after the layout was rebuilt.
+	 * Removed rows are fired first, by their positions before the change, from last to first,
+	 * then inserted rows, by their positions after it, from first to last, then updated rows.
+	 * If that takes more than {@value RTableModel#MAX_RANGE_EVENTS} events, one data change event is fired instead.
+	 */
+	private void fireChanges(RowList removed, RowList inserted, RowList updated)
+	{
+		int[] removedRows = removed.toSortedArray();
+		int[] insertedRows = inserted.toSortedArray();
+		if (countRanges(removedRows) + countRanges(insertedRows) > RTableModel.MAX_RANGE_EVENTS)
+		{
+			fireTableDataChanged();
+			return;
+		}
+
+		int end = removedRows.length - 1;
+		for (int i = removedRows.length - 1; i >= 0; i--)
+		{
+			if (i == 0 || removedRows[i - 1] != removedRows[i] - 1)
+			{
+				fireTableRowsDeleted(removedRows[i], removedRows[end]);
+				end = i - 1;
+			}
+		}
+		int start = 0;
+		for (int i = 0; i < insertedRows.length; i++)
+		{
+			if (i == insertedRows.length - 1 || insertedRows[i + 1] != insertedRows[i] + 1)
+			{
+				fireTableRowsInserted(insertedRows[start], insertedRows[i]);
+				start = i + 1;
+			}
+		}
+
+		int[] updatedRows = updated.toSortedArray();
+		if (updatedRows.length == 0)
+			return;
+		if (countRanges(updatedRows) > RTableModel.MAX_RANGE_EVENTS)
+		{
+			fireTableRowsUpdated(updatedRows[0], updatedRows[updatedRows.length - 1]);
+			return;
+		}
+		start = 0;
+		for (int i = 0; i < updatedRows.length; i++)
+		{
+			if (i == updatedRows.length - 1 || updatedRows[i + 1] != updatedRows[i] + 1)
+			{
+				fireTableRowsUpdated(updatedRows[start], updatedRows[i]);
+				start = i + 1;
+			}
+		}
+	}
+
+	// Counts the contiguous ranges in sorted, distinct rows.
+	private static int countRanges(int[] rows)
+	{
+		int out = rows.length > 0 ? 1 : 0;
+		for (int i = 1; i < rows.length; i++)
+			if (rows[i] != rows[i - 1] + 1)
+				out++;
+		return out;
+	}
+
+	// Rebuilds the grouped rows, if needed.
+	private void layout()
+	{
+		if (!layoutDirty)
+			return;
+		layoutDirty = false;
+
+		// drop emptied groups.
+		List<Group> live = new List<Group>(Math.max(groupMap.size(), 1));
+		for (Group group : groupList)
+			if (group.count > 0)
+				live.add(group);
+		groupList = live;
+
+		Group[] groups = new Group[live.size()];
+		for (int i = 0; i < groups.length; i++)
+			groups[i] = live.getByIndex(i);
+		Arrays.sort(groups, GROUP_COMPARATOR);
+
+		// place each group's header and members, members in source order.
+		int rows = groups.length;
+		for (int g = 0; g < groups.length; g++)
+		{
+			groups[g].position = g;
+			if (groups[g].expanded)
+				rows += groups[g].count;
+		}
+		int[] next = new int[groups.length];
+		int[] nextMember = new int[groups.length];
+		int row = 0;
+		int member = 0;
+		int[] out = new int[rows];
+		for (int g = 0; g < groups.length; g++)
+		{
+			Group group = groups[g];
+			group.laidOut = true;
+			group.headerRow = row;
+			out[row++] = -(g + 1);
+			next[g] = row;
+			if (group.expanded)
+				row += group.count;
+			group.memberStart = member;
+			nextMember[g] = member;
+			member += group.count;
+		}
+
+		int[] toLayout = new int[rowCount];
+		int[] memberRows = new int[rowCount];
+		for (int i = 0; i < rowCount; i++)
+		{
+			Group group = rowGroups[i];
+			memberRows[nextMember[group.position]++] = i;
+			if (group.expanded)
+			{
+				int r = next[group.position]++;
+				out[r] = i;
+				toLayout[i] = r;
+			}
+			else
+				toLayout[i] = -1;
+		}
+
+		layout = out;
+		layoutRows = rows;
+		layoutGroups = groups;
+		sourceToLayout = toLayout;
+		members = memberRows;
+	}
+
+	/**
+	 * A group and its aggregates, per numeric column slot.
+	 */
+	private static final class Group
+	{
+		/** Group key (NULL_KEY for null). */
+		private final Object key;
+		/** Amount of rows. */
+		private int count;
+		/** Expanded? */
+		private boolean expanded;
+		/** Shown in a layout yet? */
+		private boolean laidOut;
+		/** Position in group order, set by layout. */
+		private int position;
+		/** Header row, set by layout. */
+		private int headerRow;
+		/** Offset of this group's source rows in the member array, set by layout. */
+		private int memberStart;
+
+		/** Non-null value counts. */
+		private final long[] counts;
+		private final long[] longSums;
+		private final long[] longMins;
+		private final long[] longMaxes;
+		private final double[] doubleSums;
+		private final double[] doubleMins;
+		private final double[] doubleMaxes;
+		/** Minimum or maximum needs recomputing? */
+		private final boolean[] stale;
+
+		private Group(Object key, int slots)
+		{
+			this.key = key;
+			this.count = 0;
+			this.expanded = true;
+			this.laidOut = false;
+			this.position = 0;
+			this.headerRow = 0;
+			this.memberStart = 0;
+			this.counts = new long[slots];
+			this.longSums = new long[slots];
+			this.longMins = new long[slots];
+			this.longMaxes = new long[slots];
+			this.doubleSums = new double[slots];
+			this.doubleMins = new double[slots];
+			this.doubleMaxes = new double[slots];
+			this.stale = new boolean[slots];
+		}
+	}
+
+	/**
+	 * A growable list of grouped row indices.
+	 */
+	private static final class RowList
+	{
+		private int[] rows;
+		private int size;
+
+		private RowList()
+		{
+			this.rows = new int[8];
+			this.size = 0;
+		}
+
+		private void add(int row)
+		{
+			if (size == rows.length)
+				rows = Arrays.copyOf(rows, size * 2);
+			rows[size++] = row;
+		}
+
+		// Returns the distinct rows, in ascending order.
+		private int[] toSortedArray()
+		{
+			int[] out = Arrays.copyOf(rows, size);
+			Arrays.sort(out);
+			int count = 0;
+			for (int i = 0; i < out.length; i++)
+				if (count == 0 || out[count - 1] != out[i])
+					out[count++] = out[i];
+			return count < out.length ? Arrays.copyOf(out, count) : out;
+		}
+	}
+
+}
@@ -0,0 +1,1069 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+import javax.swing.SwingWorker;
+
+import com.blackrook.commons.hash.HashMap;
+import com.blackrook.commons.list.List;
+import com.blackrook.swing.table.RTableExporter.Format;
+import com.blackrook.swing.table.RTableModel.Column;
+
+/**
+ * Reads rows into an {@link RTable} from CSV or TSV, in the formats written by {@link RTableExporter}.
+ * <p>Each record becomes a new row object, and its fields are converted to the types of the
+ * columns' setters and set through the columns' accessors. Columns without setters, or of types
+ * that cannot be read from text, are skipped. If the input has a header line, fields are matched
+ * to columns by name, and fields with unknown names are ignored; otherwise they are read in column order.
+ * <p>Input is decoded through one reused buffer and is never held in memory all at once.
+ * With {@link #readAsync(ReadableByteChannel)}, records are parsed on a worker thread and the rows
+ * are added to the end of the table in batches on the Event Dispatch Thread, so the rows read so far
+ * can be browsed while the rest load.
+ * <p>Importers must be created and started on the Event Dispatch Thread.
+ * @author Matthew Tropiano
+ * @param <T> the row object type.
+ * @since 2.8.0
+ */
+public class RTableImporter<T>
+{
+	/** Size of the byte and character buffers. */
+	private static final int BUFFER_SIZE = 65536;
+	/** Default amount of rows added to the table at a time. */
+	public static final int DEFAULT_BATCH_SIZE = 5000;
+	/** Longest time that read rows wait before being added to the table, in milliseconds. */
+	private static final long MAX_BATCH_DELAY = 100L;
+	/** Amount of records read between cancellation checks. */
+	private static final int CANCEL_CHECK_ROWS = 256;
+
+	/**
+	 * Creates new row objects.
+	 * @param <T> the row object type.
+	 */
+	public static interface RowFactory<T>
+	{
+		/**
+		 * Creates a new, blank row object. May be called off of the Event Dispatch Thread.
+		 * @return a new row object.
+		 */
+		public T create();
+	}
+
+	/** Target table. */
+	private final RTable<T> table;
+	/** Target model. */
+	private final RTableModel<T> model;
+	/** Row factory. */
+	private RowFactory<T> rowFactory;
+
+	/** Input format. */
+	private Format format;
+	/** Read a header line? */
+	private boolean header;
+	/** Input charset. */
+	private Charset charset;
+	/** Date format, or null for ISO 8601. */
+	private DateFormat dateFormat;
+	/** Skip unreadable fields? */
+	private boolean lenient;
+	/** Rows per batch. */
+	private int batchSize;
+
+	/**
+	 * Creates a new importer.
+	 * @param table the target table.
+	 * @param model the target table's model.
+	 * @param rowFactory the row factory.
+	 * @param format the input format.
+	 */
+	RTableImporter(RTable<T> table, RTableModel<T> model, RowFactory<T> rowFactory, Format format)
+	{
+		this.table = table;
+		this.model = model;
+		this.header = true;
+		this.charset = StandardCharsets.UTF_8;
+		this.dateFormat = null;
+		this.lenient = false;
+		this.batchSize = DEFAULT_BATCH_SIZE;
+		setRowFactory(rowFactory);
+		setFormat(format);
+	}
+
+	/**
+	 * Creates a row factory that calls the public no-argument constructor of a class.
+	 * @param <T> the row object type.
+	 * @param classType the row class.
+	 * @return a new row factory.
+	 * @throws IllegalArgumentException if the class has no public no-argument constructor.
+	 */
+	static <T> RowFactory<T> constructorFactory(final Class<T> classType)
+	{
+		final Constructor<T> constructor;
+		try {
+			constructor = classType.getConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Class " + classType.getName() + " has no public no-argument constructor.");
+		}
+		if (Modifier.isAbstract(classType.getModifiers()))
+			throw new IllegalArgumentException("Class " + classType.getName() + " is abstract.");
+
+		return new RowFactory<T>()
+		{
+			@Override
+			public T create()
+			{
+				try {
+					return constructor.newInstance();
+				} catch (InvocationTargetException e) {
+					throw new RuntimeException("Could not create row object.", e.getCause());
+				} catch (ReflectiveOperationException e) {
+					throw new RuntimeException("Could not create row object.", e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Sets the factory that creates row objects.
+	 * @param rowFactory the factory.
+	 * @return this importer.
+	 * @throws IllegalArgumentException if rowFactory is null.
+	 */
+	public RTableImporter<T> setRowFactory(RowFactory<T> rowFactory)
+	{
+		if (rowFactory == null)
+			throw new IllegalArgumentException("Row factory cannot be null.");
+		this.rowFactory = rowFactory;
+		return this;
+	}
+
+	/**
+	 * Sets the input format.
+	 * @param format the format, either {@link Format#CSV} or {@link Format#TSV}.
+	 * @return this importer.
+	 * @throws IllegalArgumentException if format is null or not a delimited format.
+	 */
+	public RTableImporter<T> setFormat(Format format)
+	{
+		if (format != Format.CSV && format != Format.TSV)
+			throw new IllegalArgumentException("Only CSV and TSV can be imported.");
+		this.format = format;
+		return this;
+	}
+
+	/**
+	 * Sets whether the first line names the columns. Default is true.
+	 * @param header true if the input has a header line.
+	 * @return this importer.
+	 */
+	public RTableImporter<T> setHeader(boolean header)
+	{
+		this.header = header;
+		return this;
+	}
+
+	/**
+	 * Sets the input character set. Default is UTF-8.
+	 * Malformed input is replaced.
+	 * @param charset the charset.
+	 * @return this importer.
+	 * @throws IllegalArgumentException if charset is null.
+	 */
+	public RTableImporter<T> setCharset(Charset charset)
+	{
+		if (charset == null)
+			throw new IllegalArgumentException("Charset cannot be null.");
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * Sets the format for date columns. The format is copied when an import starts.
+	 * By default, dates are read in ISO 8601 with a time zone or offset, or as milliseconds since the epoch.
+	 * @param dateFormat the format, or null for the default.
+	 * @return this importer.
+	 */
+	public RTableImporter<T> setDateFormat(DateFormat dateFormat)
+	{
+		this.dateFormat = dateFormat;
+		return this;
+	}
+
+	/**
+	 * Sets whether fields that cannot be converted to their column's type are skipped.
+	 * If false (the default), such a field stops the import with an error.
+	 * @param lenient true to skip unreadable fields, leaving them at the row object's default.
+	 * @return this importer.
+	 */
+	public RTableImporter<T> setLenient(boolean lenient)
+	{
+		this.lenient = lenient;
+		return this;
+	}
+
+	/**
+	 * Sets how many rows are added to the table at a time in background imports.
+	 * Rows are also added if they have waited for a short time, so that a slow input still shows progress.
+	 * @param batchSize the amount of rows.
+	 * @return this importer.
+	 * @throws IllegalArgumentException if batchSize is less than 1.
+	 */
+	public RTableImporter<T> setBatchSize(int batchSize)
+	{
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be at least 1.");
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Reads rows on the calling thread, which must be the Event Dispatch Thread,
+	 * and adds them to the end of the table all at once. The channel is not closed.
+	 * @param channel the channel to read from.
+	 * @return the amount of rows read.
+	 * @throws IOException if a read error occurs, or a field cannot be read and this importer is not lenient.
+	 * @throws IllegalStateException if the table is backed by a row provider.
+	 */
+	public long read(ReadableByteChannel channel) throws IOException
+	{
+		List<T> rows = new List<T>();
+		long out = new Job().read(channel, null, rows);
+		table.addItems(rows);
+		return out;
+	}
+
+	/**
+	 * Reads rows from a file on the calling thread, which must be the Event Dispatch Thread,
+	 * and adds them to the end of the table all at once.
+	 * @param file the file to read from.
+	 * @return the amount of rows read.
+	 * @throws IOException if a read error occurs, or a field cannot be read and this importer is not lenient.
+	 * @throws IllegalStateException if the table is backed by a row provider.
+	 */
+	public long read(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			return read(channel);
+		}
+	}
+
+	/**
+	 * Starts reading rows in the background, adding them to the end of the table in batches.
+	 * The channel is not closed.
+	 * <p>The returned worker's result is the amount of rows read. If the channel has a known size,
+	 * its progress goes from 0 to 100. It checks for cancellation between records, so it can be
+	 * cancelled without interrupting, which would close an interruptible channel.
+	 * Rows read before a cancellation or error stay in the table.
+	 * @param channel the channel to read from.
+	 * @return the started worker.
+	 * @throws IllegalStateException if the table is backed by a row provider.
+	 */
+	public SwingWorker<Long, List<T>> readAsync(ReadableByteChannel channel)
+	{
+		return start(new Job(), channel, null);
+	}
+
+	/**
+	 * Starts reading rows from a file in the background, adding them to the end of the table in batches.
+	 * <p>The returned worker's result is the amount of rows read, and its progress goes from 0 to 100.
+	 * Rows read before a cancellation or error stay in the table.
+	 * @param file the file to read from.
+	 * @return the started worker.
+	 * @throws IllegalStateException if the table is backed by a row provider.
+	 */
+	public SwingWorker<Long, List<T>> readAsync(File file)
+	{
+		return start(new Job(), null, file);
+	}
+
+	// Starts a job in the background.
+	private SwingWorker<Long, List<T>> start(Job job, ReadableByteChannel channel, File file)
+	{
+		ImportWorker out = new ImportWorker(job, channel, file);
+		out.execute();
+		return out;
+	}
+
+	/**
+	 * Converts field text to a column value.
+	 */
+	private static abstract class Converter
+	{
+		/**
+		 * Converts text to a value.
+		 * @param text the field text.
+		 * @return the value.
+		 * @throws IllegalArgumentException if the text cannot be converted.
+		 */
+		abstract Object convert(CharSequence text);
+
+		/**
+		 * Creates a converter for a type.
+		 * @param type the type.
+		 * @param dateFormat the date format, or null for ISO 8601.
+		 * @return the converter, or null if the type cannot be converted from text.
+		 */
+		static Converter create(final Class<?> type, final DateFormat dateFormat)
+		{
+			final boolean primitive = type.isPrimitive();
+			if (type == String.class || type == CharSequence.class || type == Object.class)
+				return new Converter()
+				{
+					@Override
+					Object convert(CharSequence text)
+					{
+						return text.toString();
+					}
+				};
+			else if (type == Integer.TYPE || type == Integer.class)
+				return new IntegerConverter(primitive, Integer.MIN_VALUE, Integer.MAX_VALUE)
+				{
+					@Override
+					Object box(long value)
+					{
+						return (int)value;
+					}
+				};
+			else if (type == Long.TYPE || type == Long.class)
+				return new IntegerConverter(primitive, Long.MIN_VALUE, Long.MAX_VALUE)
+				{
+					@Override
+					Object box(long value)
+					{
+						return value;
+					}
+				};
+			else if (type == Short.TYPE || type == Short.class)
+				return new IntegerConverter(primitive, Short.MIN_VALUE, Short.MAX_VALUE)
+				{
+					@Override
+					Object box(long value)
+					{
+						return (short)value;
+					}
+				};
+			else if (type == Byte.TYPE || type == Byte.class)
+				return new IntegerConverter(primitive, Byte.MIN_VALUE, Byte.MAX_VALUE)
+				{
+					@Override
+					Object box(long value)
+					{
+						return (byte)value;
+					}
+				};
+			else if (type == Double.TYPE || type == Double.class)
+				return new Converter()
+				{
+					@Override
+					Object convert(CharSequence text)
+					{
+						if (text.length() == 0)
+							return primitive ? 0.0 : null;
+						return Double.parseDouble(text.toString());
+					}
+				};
+			else if (type == Float.TYPE || type == Float.class)
+				return new Converter()
+				{
+					@Override
+					Object convert(CharSequence text)
+					{
+						if (text.length() == 0)
+							return primitive ? 0f : null;
+						return Float.parseFloat(text.toString());
+					}
+				};
+			else if (type == Boolean.TYPE || type == Boolean.class)
+				return new Converter()
+				{
+					@Override
+					Object convert(CharSequence text)
+					{
+						if (text.length() == 0)
+							return primitive ? false : null;
+						String s = text.toString();
+						if (s.equalsIgnoreCase("true"))
+							return true;
+						else if (s.equalsIgnoreCase("false"))
+							return false;
+						throw new IllegalArgumentException("Not a boolean.");
+					}
+				};
+			else if (type == Character.TYPE || type == Character.class)
+				return new Converter()
+				{
+					@Override
+					Object convert(CharSequence text)
+					{
+						if (text.length() == 0)
+							return primitive ? '\0' : null;
+						if (text.length() > 1)
+							throw new IllegalArgumentException("More than one character.");
+						return text.charAt(0);
+					}
+				};
+			else if (type.isEnum())
+			{
+				final HashMap<String, Object> constants = new HashMap<String, Object>();
+				for (Object constant : type.getEnumConstants())
+				{
+					constants.put(constant.toString(), constant);
+					constants.put(((Enum<?>)constant).name(), constant);
+				}
+				return new Converter()
+				{
+					@Override
+					Object convert(CharSequence text)
+					{
+						if (text.length() == 0)
+							return null;
+						Object out = constants.get(text.toString());
+						if (out == null)
+							throw new IllegalArgumentException("Not a constant of " + type.getSimpleName() + ".");
+						return out;
+					}
+				};
+			}
+			else if (type == Date.class)
+				return new Converter()
+				{
+					@Override
+					Object convert(CharSequence text)
+					{
+						if (text.length() == 0)
+							return null;
+						if (dateFormat == null)
+						{
+							long millis = parseUTCDate(text);
+							if (millis != Long.MIN_VALUE)
+								return new Date(millis);
+						}
+						String s = text.toString();
+						if (dateFormat != null)
+						{
+							try {
+								return dateFormat.parse(s);
+							} catch (ParseException e) {
+								throw new IllegalArgumentException("Not a date.");
+							}
+						}
+						try {
+							return Date.from(Instant.parse(s));
+						} catch (DateTimeParseException e) {
+							// try the others.
+						}
+						try {
+							return Date.from(OffsetDateTime.parse(s).toInstant());
+						} catch (DateTimeParseException e) {
+							// try the others.
+						}
+						return new Date(Long.parseLong(s));
+					}
+				};
+
+			// anything else with a static valueOf(String) or a String constructor.
+			try {
+				final Method valueOf = type.getMethod("valueOf", String.class);
+				if (Modifier.isStatic(valueOf.getModifiers()) && type.isAssignableFrom(valueOf.getReturnType()))
+					return new ReflectConverter()
+					{
+						@Override
+						Object create(String text) throws ReflectiveOperationException
+						{
+							return valueOf.invoke(null, text);
+						}
+					};
+			} catch (NoSuchMethodException e) {
+				// try constructor.
+			}
+			try {
+				final Constructor<?> constructor = type.getConstructor(String.class);
+				if (!Modifier.isAbstract(type.getModifiers()))
+					return new ReflectConverter()
+					{
+						@Override
+						Object create(String text) throws ReflectiveOperationException
+						{
+							return constructor.newInstance(text);
+						}
+					};
+			} catch (NoSuchMethodException e) {
+				// not convertible.
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Quickly parses a time in the form written by {@link RTableExporter}, <code>yyyy-MM-ddTHH:mm:ss.SSSZ</code>.
+	 * @param text the text.
+	 * @return the time in milliseconds since the epoch, or {@link Long#MIN_VALUE} if the text is not in that form.
+	 */
+	private static long parseUTCDate(CharSequence text)
+	{
+		if (text.length() != 24 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+			|| text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(19) != '.' || text.charAt(23) != 'Z')
+			return Long.MIN_VALUE;
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 2);
+		int day = digits(text, 8, 2);
+		int hour = digits(text, 11, 2);
+		int minute = digits(text, 14, 2);
+		int second = digits(text, 17, 2);
+		int millis = digits(text, 20, 3);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+			|| minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0)
+			return Long.MIN_VALUE;
+
+		// days since the epoch from a civil date, in the proleptic Gregorian calendar.
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long days = era * 146097 + dayOfEra - 719468;
+		return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L + millis;
+	}
+
+	// Parses a run of decimal digits, or returns -1 if any are not digits.
+	private static int digits(CharSequence text, int start, int length)
+	{
+		int out = 0;
+		for (int i = start; i < start + length; i++)
+		{
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9)
+				return -1;
+			out = out * 10 + digit;
+		}
+		return out;
+	}
+
+	/**
+	 * Converter for integer types, parsed without creating a string.
+	 */
+	private static abstract class IntegerConverter extends Converter
+	{
+		private final boolean primitive;
+		private final long min;
+		private final long max;
+
+		private IntegerConverter(boolean primitive, long min, long max)
+		{
+			this.primitive = primitive;
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		Object convert(CharSequence text)
+		{
+			if (text.length() == 0)
+				return primitive ? box(0L) : null;
+
+			int i = 0;
+			boolean negative = false;
+			if (text.charAt(0) == '-' || text.charAt(0) == '+')
+			{
+				negative = text.charAt(0) == '-';
+				if (++i == text.length())
+					throw new IllegalArgumentException("Not a number.");
+			}
+
+			// accumulate negatively, so that the minimum value fits.
+			long out = 0;
+			for (; i < text.length(); i++)
+			{
+				int digit = text.charAt(i) - '0';
+				if (digit < 0 || digit > 9)
+					throw new IllegalArgumentException("Not a number.");
+				if (out < (Long.MIN_VALUE + digit) / 10)
+					throw new IllegalArgumentException("Number out of range.");
+				out = out * 10 - digit;
+			}
+			if (!negative)
+			{
+				if (out == Long.MIN_VALUE)
+					throw new IllegalArgumentException("Number out of range.");
+				out = -out;
+			}
+			if (out < min || out > max)
+				throw new IllegalArgumentException("Number out of range.");
+			return box(out);
+		}
+
+		/**
+		 * Boxes a value in range as this converter's type.
+		 * @param value the value.
+		 * @return the boxed value.
+		 */
+		abstract Object box(long value);
+	}
+
+	/**
+	 * Converter that calls a method or constructor that takes a string.
+	 */
+	private static abstract class ReflectConverter extends Converter
+	{
+		@Override
+		Object convert(CharSequence text)
+		{
+			if (text.length() == 0)
+				return null;
+			try {
+				return create(text.toString());
+			} catch (InvocationTargetException e) {
+				throw new IllegalArgumentException(String.valueOf(e.getCause().getMessage()));
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException(e.getMessage());
+			}
+		}
+
+		/**
+		 * Creates a value from text.
+		 * @param text the text.
+		 * @return the new value.
+		 * @throws ReflectiveOperationException if the call fails.
+		 */
+		abstract Object create(String text) throws ReflectiveOperationException;
+	}
+
+	/**
+	 * A single import, with everything read from the table on the Event Dispatch Thread.
+	 */
+	private class Job
+	{
+		private final Format format;
+		private final boolean header;
+		private final CharsetDecoder decoder;
+		private final boolean lenient;
+		private final int batchSize;
+		private final RowFactory<T> rowFactory;
+		/** All settable columns, by name. */
+		private final HashMap<String, Integer> columnsByName;
+		/** Column names. */
+		private final String[] names;
+		/** Column accessors. */
+		private final ColumnAccessor[] accessors;
+		/** Column converters, null for columns that cannot be set. */
+		private final Converter[] converters;
+
+		private Job()
+		{
+			if (model.isPaged())
+				throw new IllegalStateException("Tables backed by a row provider cannot be imported into.");
+
+			this.format = RTableImporter.this.format;
+			this.header = RTableImporter.this.header;
+			this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.lenient = RTableImporter.this.lenient;
+			this.batchSize = RTableImporter.this.batchSize;
+			this.rowFactory = RTableImporter.this.rowFactory;
+			DateFormat dates = dateFormat != null ? (DateFormat)dateFormat.clone() : null;
+
+			List<Column> columns = model.getColumnList();
+			this.columnsByName = new HashMap<String, Integer>();
+			this.names = new String[columns.size()];
+			this.accessors = new ColumnAccessor[columns.size()];
+			this.converters = new Converter[columns.size()];
+			for (int i = 0; i < columns.size(); i++)
+			{
+				Column column = columns.getByIndex(i);
+				names[i] = column.name;
+				accessors[i] = column.accessor;
+				if (column.setterMethod != null)
+					converters[i] = Converter.create(column.setterMethod.getParameterTypes()[0], dates);
+				if (!columnsByName.containsKey(column.name))
+					columnsByName.put(column.name, i);
+			}
+		}
+
+		// Finds a column by header name, exactly or ignoring case.
+		private int findColumn(String name)
+		{
+			Integer out = columnsByName.get(name);
+			if (out != null)
+				return out;
+			for (int i = 0; i < names.length; i++)
+				if (names[i].equalsIgnoreCase(name))
+					return i;
+			return -1;
+		}
+
+		/**
+		 * Reads all records.
+		 * @param channel the input channel.
+		 * @param worker the worker to publish to, or null to add all rows to the output list.
+		 * @param output the list to add rows to, if no worker.
+		 * @return the amount of rows read.
+		 */
+		private long read(ReadableByteChannel channel, ImportWorker worker, List<T> output) throws IOException
+		{
+			long size = -1L;
+			if (worker != null && channel instanceof SeekableByteChannel)
+			{
+				SeekableByteChannel seekable = (SeekableByteChannel)channel;
+				size = seekable.size() - seekable.position();
+			}
+
+			RecordReader in = new RecordReader(channel, decoder, format == Format.CSV ? ',' : '\t', format == Format.TSV);
+
+			// field index to column index.
+			int[] fieldColumns;
+			if (header)
+			{
+				List<String> fields = new List<String>();
+				while (in.nextField())
+					fields.add(in.field.toString());
+				if (fields.isEmpty() && in.isEOF())
+					return 0L;
+				fieldColumns = new int[fields.size()];
+				for (int i = 0; i < fieldColumns.length; i++)
+					fieldColumns[i] = findColumn(fields.getByIndex(i));
+			}
+			else
+			{
+				fieldColumns = new int[names.length];
+				for (int i = 0; i < fieldColumns.length; i++)
+					fieldColumns[i] = i;
+			}
+
+			long count = 0L;
+			long lastPublish = System.currentTimeMillis();
+			List<T> batch = worker != null ? new List<T>(batchSize) : output;
+			while (!in.isEOF())
+			{
+				if (worker != null && count % CANCEL_CHECK_ROWS == 0)
+				{
+					if (worker.isCancelled())
+						break;
+					if (size > 0)
+						worker.progress(Math.min(in.bytesRead, size), size);
+				}
+
+				long line = in.line;
+				T row = null;
+				int field = 0;
+				while (in.nextField())
+				{
+					if (field == 0 && row == null)
+						row = rowFactory.create();
+					int column = field < fieldColumns.length ? fieldColumns[field] : -1;
+					field++;
+					if (column < 0 || converters[column] == null)
+						continue;
+					try {
+						accessors[column].set(row, converters[column].convert(in.field));
+					} catch (IllegalArgumentException e) {
+						if (!lenient)
+							throw new IOException("Line " + line + ", column \"" + names[column] + "\": cannot read \"" + in.field + "\": " + e.getMessage());
+					}
+				}
+				// skip blank lines.
+				if (row == null || (field == 1 && in.field.length() == 0 && fieldColumns.length > 1))
+					continue;
+
+				batch.add(row);
+				count++;
+				if (worker != null)
+				{
+					long now = System.currentTimeMillis();
+					if (batch.size() >= batchSize || now - lastPublish >= MAX_BATCH_DELAY)
+					{
+						worker.publishBatch(batch);
+						batch = new List<T>(batchSize);
+						lastPublish = now;
+					}
+				}
+			}
+			if (worker != null && !batch.isEmpty())
+				worker.publishBatch(batch);
+			if (worker != null && !worker.isCancelled())
+				worker.progress(1L, 1L);
+			return count;
+		}
+	}
+
+	/**
+	 * Runs an import in the background.
+	 */
+	private class ImportWorker extends SwingWorker<Long, List<T>>
+	{
+		private final Job job;
+		/** Channel to read from, or null to open the file. */
+		private final ReadableByteChannel channel;
+		/** File to read from, if no channel. */
+		private final File file;
+
+		private ImportWorker(Job job, ReadableByteChannel channel, File file)
+		{
+			this.job = job;
+			this.channel = channel;
+			this.file = file;
+		}
+
+		@Override
+		protected Long doInBackground() throws Exception
+		{
+			if (channel != null)
+				return job.read(channel, this, null);
+			try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+			{
+				return job.read(fileChannel, this, null);
+			}
+		}
+
+		@Override
+		protected void process(java.util.List<List<T>> chunks)
+		{
+			if (chunks.size() == 1)
+			{
+				table.addItems(chunks.get(0));
+				return;
+			}
+			int size = 0;
+			for (List<T> chunk : chunks)
+				size += chunk.size();
+			List<T> rows = new List<T>(size);
+			for (List<T> chunk : chunks)
+				for (T row : chunk)
+					rows.add(row);
+			table.addItems(rows);
+		}
+
+		// Publishes a batch of rows.
+		@SuppressWarnings("unchecked")
+		private void publishBatch(List<T> batch)
+		{
+			publish(batch);
+		}
+
+		// Reports progress.
+		private void progress(long amount, long total)
+		{
+			setProgress((int)(amount * 100 / total));
+		}
+	}
+
+	/**
+	 * Splits decoded input into records and fields.
+	 */
+	private static class RecordReader
+	{
+		private final ReadableByteChannel channel;
+		private final CharsetDecoder decoder;
+		private final ByteBuffer bytes;
+		private final CharBuffer chars;
+		/** Field separator. */
+		private final char separator;
+		/** Backslash escapes (TSV) instead of quotes (CSV)? */
+		private final boolean escapes;
+
+		/** Current field text. */
+		private final StringBuilder field;
+		/** Current line number, starting at 1. */
+		private long line;
+		/** Bytes read from the channel so far. */
+		private long bytesRead;
+		/** End of input reached on the channel? */
+		private boolean channelEOF;
+		/** All input decoded? */
+		private boolean decoded;
+		/** True after the last field of a record, until the next record starts. */
+		private boolean endOfRecord;
+
+		private RecordReader(ReadableByteChannel channel, CharsetDecoder decoder, char separator, boolean escapes)
+		{
+			this.channel = channel;
+			this.decoder = decoder;
+			this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+			this.chars = CharBuffer.allocate(BUFFER_SIZE);
+			this.separator = separator;
+			this.escapes = escapes;
+			this.field = new StringBuilder(64);
+			this.line = 1L;
+			this.bytesRead = 0L;
+			this.channelEOF = false;
+			this.decoded = false;
+			this.endOfRecord = false;
+			chars.flip();
+			decoder.reset();
+		}
+
+		// Gets the next character, or -1 at the end of input.
+		private int read() throws IOException
+		{
+			if (!chars.hasRemaining() && !fill())
+				return -1;
+			return chars.get();
+		}
+
+		// Peeks at the next character, or -1 at the end of input.
+		private int peek() throws IOException
+		{
+			if (!chars.hasRemaining() && !fill())
+				return -1;
+			return chars.get(chars.position());
+		}
+
+		// Decodes more characters. Returns false at the end of input.
+		private boolean fill() throws IOException
+		{
+			if (decoded)
+				return false;
+			chars.compact();
+			try {
+				while (chars.position() == 0)
+				{
+					if (channelEOF)
+					{
+						bytes.flip();
+						decoder.decode(bytes, chars, true);
+						bytes.compact();
+						decoder.flush(chars);
+						decoded = true;
+						break;
+					}
+					int n = channel.read(bytes);
+					if (n < 0)
+						channelEOF = true;
+					else
+						bytesRead += n;
+					bytes.flip();
+					decoder.decode(bytes, chars, false);
+					bytes.compact();
+				}
+			} finally {
+				chars.flip();
+			}
+			return chars.hasRemaining();
+		}
+
+		/**
+		 * Checks if there are no more records.
+		 */
+		private boolean isEOF() throws IOException
+		{
+			return peek() < 0;
+		}
+
+		/**
+		 * Reads the next field of the current record into {@link #field}.
+		 * @return true if a field was read, false at the end of the record.
+		 */
+		private boolean nextField() throws IOException
+		{
+			if (endOfRecord)
+			{
+				endOfRecord = false;
+				return false;
+			}
+
+			field.setLength(0);
+			int c = read();
+			if (c < 0)
+				return false;
+
+			boolean quoted = !escapes && c == '"';
+			if (quoted)
+				c = read();
+
+			while (true)
+			{
+				if (c < 0)
+				{
+					if (quoted)
+						throw new IOException("Line " + line + ": unterminated quoted field.");
+					endOfRecord = true;
+					return true;
+				}
+				else if (quoted && c == '"')
+				{
+					if (peek() == '"')
+					{
+						field.append('"');
+						read();
+					}
+					else
+						quoted = false;
+				}
+				else if (quoted)
+				{
+					if (c == '\n')
+						line++;
+					field.append((char)c);
+				}
+				else if (c == separator)
+					return true;
+				else if (c == '\r' || c == '\n')
+				{
+					if (c == '\r' && peek() == '\n')
+						read();
+					line++;
+					endOfRecord = true;
+					return true;
+				}
+				else if (escapes && c == '\\')
+				{
+					int e = read();
+					switch (e)
+					{
+						case 't':
+							field.append('\t');
+							break;
+						case 'n':
+							field.append('\n');
+							break;
+						case 'r':
+							field.append('\r');
+							break;
+						case '\\':
+							field.append('\\');
+							break;
+						case -1:
+							field.append('\\');
+							c = -1;
+							continue;
+						default:
+							field.append('\\').append((char)e);
+							break;
+					}
+				}
+				else
+					field.append((char)c);
+				c = read();
+			}
+		}
+	}
+
+}
@@ -8,12 +8,18 @@
 package com.blackrook.swing.table;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
 
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
 import com.blackrook.commons.Reflect;
+import com.blackrook.commons.hash.HashMap;
 import com.blackrook.commons.list.List;
 
 /**
@@ -24,21 +30,79 @@ import com.blackrook.commons.list.List;
 public class RTableModel<T extends Object> extends AbstractTableModel implements Iterable<T>
 {
 	private static final long serialVersionUID = 8496763669872325993L;
+
+	/** Maximum amount of contiguous ranges reported as separate events in one bulk removal, update, or change. */
+	static final int MAX_RANGE_EVENTS = 16;
 	
 	/** The list of columns. */
 	private List<Column> columnList;
 	/** Data set. */
 	private List<T> data;
+	/** Column name to column index. */
+	private HashMap<String, Integer> columnNameMap;
+	/** Value indexes, per column (null for columns that are not indexed), or null if no columns are indexed. */
+	private ColumnIndex[] columnIndexes;
+	/** Row to the index of its first occurrence, by identity. Built on demand - null if out of date. */
+	private IdentityHashMap<T, RowIndex> rowIndexMap;
+	/** Paged row source, or null if rows come from the backing list. */
+	private PagedRows<T> pagedRows;
+	/** Last known cell values of every row, by identity, once {@link #updateRows(Iterable)} has been called. Null until then. */
+	private IdentityHashMap<T, Object[]> cellCache;
+	/** Set while cell updates found by {@link #updateRows(Iterable)} are fired. */
+	private boolean diffing;
+	/** Set while the deletions of {@link #removeRows(int...)} are fired, after it has moved the row index map. */
+	private boolean removing;
 
+	/** Parsed column lists, per row class. */
+	private static final ClassValue<List<Column>> COLUMN_CACHE = new ClassValue<List<Column>>()
+	{
+		@Override
+		protected List<Column> computeValue(Class<?> type)
+		{
+			return createColumnList(type);
+		}
+	};
+	
 	/**
 	 * Creates a table descriptor using a base class,
 	 * inspecting its getter fields.
 	 */
 	RTableModel(Class<T> classType, List<T> backingList)
 	{
-		this.columnList = new List<Column>();
+		this.columnList = COLUMN_CACHE.get(classType);
 		this.data = backingList;
-		
+		this.columnNameMap = new HashMap<String, Integer>();
+		this.columnIndexes = null;
+		this.rowIndexMap = null;
+		this.pagedRows = null;
+		this.cellCache = null;
+		this.diffing = false;
+		this.removing = false;
+
+		for (int i = 0; i < columnList.size(); i++)
+		{
+			Column col = columnList.getByIndex(i);
+			if (!columnNameMap.containsKey(col.name))
+				columnNameMap.put(col.name, i);
+			if (col.indexed)
+			{
+				if (columnIndexes == null)
+					columnIndexes = new ColumnIndex[columnList.size()];
+				columnIndexes[i] = new ColumnIndex(col.accessor);
+			}
+		}
+		rebuildColumnIndexes();
+	}
+	
+	/**
+	 * Creates the column list for a class by inspecting its annotated getters.
+	 * The returned list is shared between all models of the same class and must not be altered.
+	 * @param classType the class to inspect.
+	 * @return the list of columns, sorted by order.
+	 */
+	private static List<Column> createColumnList(Class<?> classType)
+	{
+		List<Column> columnList = new List<Column>();
 		for (Method method : classType.getMethods())
 		{
 			String fieldName = Reflect.getFieldName(method.getName());
@@ -55,6 +119,7 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 					} catch (NoSuchMethodException ex) {
 						col.setterMethod = null;
 					}
+					col.accessor = ColumnAccessor.create(col.getterMethod, col.setterMethod);
 					col.width = td.width();
 					String tname = td.name().trim();
 					col.name = tname.length() > 0 ? tname : fieldName;
@@ -62,12 +127,13 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 					col.sortable = td.sortable();
 					col.editable = td.editable() && col.setterMethod != null;
 					col.tip = td.tip().trim().length() > 0 ? td.tip() : null;
+					col.indexed = td.indexed();
 					columnList.add(col);
 				}
 			}
 		}
 		
-		columnList.sort(new Comparator<RTableModel<T>.Column>()
+		columnList.sort(new Comparator<Column>()
 		{
 			@Override
 			public int compare(Column c1, Column c2)
@@ -76,11 +142,12 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 			}
 		});
 		
+		return columnList;
 	}
 	
 	// Some fields may be primitive. Swing JTable has no cell renderers
 	// for these, so they need boxing.
-	private Class<?> upgradePrimitiveType(Class<?> clazz)
+	private static Class<?> upgradePrimitiveType(Class<?> clazz)
 	{
 		if (Reflect.PRIMITIVE_TO_CLASS_MAP.containsKey(clazz))
 			return Reflect.PRIMITIVE_TO_CLASS_MAP.get(clazz);
@@ -89,17 +156,127 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 
 	/**
 	 * Returns the column list.
+	 * This list is shared - do not alter it.
 	 */
 	List<Column> getColumnList()
 	{
 		return columnList;
 	}
 	
+	/**
+	 * Sets a row provider that supplies the rows of this model a page at a time, instead of the backing list.
+	 * Uses {@value PagedRows#DEFAULT_PAGE_SIZE} rows per page and
+	 * keeps at most {@value PagedRows#DEFAULT_MAX_PAGES} pages in memory.
+	 * @param provider the row provider, or null to go back to the backing list.
+	 * @since 2.8.0
+	 * @see #setRowProvider(RTableRowProvider, int, int)
+	 */
+	public void setRowProvider(RTableRowProvider<T> provider)
+	{
+		setRowProvider(provider, PagedRows.DEFAULT_PAGE_SIZE, PagedRows.DEFAULT_MAX_PAGES);
+	}
+
+	/**
+	 * Sets a row provider that supplies the rows of this model a page at a time, instead of the backing list.
+	 * <p>Pages are fetched in the background when rows on them are first read, and until a page arrives,
+	 * its rows are read as null. Only the most recently used pages are kept in memory.
+	 * While a provider is set, the rows cannot be changed through this model,
+	 * cells are not editable, and value lookups are unavailable.
+	 * @param provider the row provider, or null to go back to the backing list.
+	 * @param pageSize the amount of rows per page.
+	 * @param maxPages the maximum amount of pages kept in memory.
+	 * @throws IllegalArgumentException if pageSize or maxPages is less than 1.
+	 * @since 2.8.0
+	 */
+	public void setRowProvider(RTableRowProvider<T> provider, int pageSize, int maxPages)
+	{
+		PagedRows<T> next = provider != null ? new PagedRows<T>(this, provider, pageSize, maxPages) : null;
+		if (pagedRows != null)
+			pagedRows.close();
+		pagedRows = next;
+		rowIndexMap = null;
+		fireTableDataChanged();
+	}
+
+	/**
+	 * @return the current row provider, or null if rows come from the backing list.
+	 * @since 2.8.0
+	 */
+	public RTableRowProvider<T> getRowProvider()
+	{
+		return pagedRows != null ? pagedRows.getProvider() : null;
+	}
+
+	/**
+	 * @return true if this model is backed by a row provider, false if not.
+	 * @since 2.8.0
+	 */
+	public boolean isPaged()
+	{
+		return pagedRows != null;
+	}
+
+	/**
+	 * Discards all cached pages and reads the row count from the row provider again.
+	 * Does nothing if this model is not backed by a row provider.
+	 * @since 2.8.0
+	 */
+	public void refreshRows()
+	{
+		if (pagedRows != null)
+			setRowProvider(pagedRows.getProvider(), pagedRows.getPageSize(), pagedRows.getMaxPages());
+	}
+
+	/**
+	 * Requests the pages that contain a range of rows ahead of time, if this model is backed by a row provider.
+	 * Queued requests for pages outside of this range are dropped.
+	 * @param first the first row index.
+	 * @param last the last row index (inclusive).
+	 * @since 2.8.0
+	 */
+	public void prefetchRows(int first, int last)
+	{
+		if (pagedRows != null)
+			pagedRows.prefetch(first, last);
+	}
+
+	// Throws an exception if the model is backed by a row provider.
+	private void checkNotPaged()
+	{
+		if (pagedRows != null)
+			throw new IllegalStateException("This model is backed by a row provider.");
+	}
+
+	/**
+	 * Gets the index of a column by its name.
+	 * @param name the column name.
+	 * @return the column index, or -1 if no column has that name.
+	 * @since 2.8.0
+	 */
+	public int getColumnIndex(String name)
+	{
+		Integer out = columnNameMap.get(name);
+		return out != null ? out : -1;
+	}
+
+	/**
+	 * Checks if a column keeps an index of its values.
+	 * @param columnIndex the column index.
+	 * @return true if so, false if not.
+	 * @since 2.8.0
+	 * @see TableDescriptor#indexed()
+	 */
+	public boolean isColumnIndexed(int columnIndex)
+	{
+		return pagedRows == null && columnIndexes != null && columnIndex >= 0 && columnIndex < columnIndexes.length && columnIndexes[columnIndex] != null;
+	}
+
 	/**
 	 * Clears this model of all data.
 	 */
 	public void clear()
 	{
+		checkNotPaged();
 		data.clear();
 		fireTableDataChanged();
 	}
@@ -111,6 +288,7 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	@SuppressWarnings("unchecked")
 	public void addRows(T ... row)
 	{
+		checkNotPaged();
 		if (row.length == 0)
 			return;
 			
@@ -122,18 +300,71 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	
 	/**
 	 * Adds rows to this model and fires the appropriate method.
+	 * @param start the starting index. If greater than the row count, the rows are added to the end.
 	 * @param row the row to add.
 	 */
 	@SuppressWarnings("unchecked")
 	public void addRows(int start, T ... row)
 	{
-		if (row.length == 0)
+		checkNotPaged();
+		if (row.length == 0 || start < 0)
 			return;
 
+		start = Math.min(start, data.size());
 		int i = start;
 		for (T r : row)
 			data.add(i++, r);
+		fireTableRowsInserted(start, i - 1);
+	}
+
+	/**
+	 * Adds many rows to the end of this model in one pass,
+	 * firing a single insertion event.
+	 * The rows are only iterated once.
+	 * @param rows the rows to add.
+	 * @return the list of added rows, in order.
+	 * @since 2.8.0
+	 */
+	public List<T> addAll(Iterable<? extends T> rows)
+	{
+		checkNotPaged();
+		List<T> added = copyRows(rows);
+		int start = data.size();
+		for (T r : added)
+			data.add(r);
+		if (data.size() > start)
+			fireTableRowsInserted(start, data.size() - 1);
+		return added;
+	}
+
+	/**
+	 * Replaces the entire contents of this model in one pass,
+	 * firing a single data change event.
+	 * Sort keys on the attached sorter are kept.
+	 * The rows are copied before the current contents are cleared, so they are only iterated once,
+	 * and can be this model itself or a view of its backing list.
+	 * @param rows the new rows.
+	 * @return the list of new rows, in order.
+	 * @since 2.8.0
+	 */
+	public List<T> replaceAll(Iterable<? extends T> rows)
+	{
+		checkNotPaged();
+		List<T> added = copyRows(rows);
+		data.clear();
+		for (T r : added)
+			data.add(r);
 		fireTableDataChanged();
+		return added;
+	}
+
+	// Copies rows into a new list.
+	private static <T> List<T> copyRows(Iterable<? extends T> rows)
+	{
+		List<T> out = new List<T>();
+		for (T r : rows)
+			out.add(r);
+		return out;
 	}
 	
 	/**
@@ -143,7 +374,7 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	 */
 	public boolean removeRow(T row)
 	{
-		int index = data.getIndexOf(row);
+		int index = getIndexOf(row);
 		if (index >= 0)
 			return removeRowAt(index) != null;
 		return false;
@@ -156,10 +387,14 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	 */
 	public T removeRowAt(int index)
 	{
+		checkNotPaged();
 		T out = null;
 		out = data.removeIndex(index);
 		if (out != null)
+		{
+			unindexRow(out);
 			fireTableRowsDeleted(index, index);
+		}
 		return out;
 	}
 	
@@ -169,9 +404,239 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	 */
 	public void removeMultipleRows(int ... indices)
 	{
-		for (int i : indices)
+		removeRows(indices);
+	}
+
+	/**
+	 * Removes multiple rows from this model in one compacting pass over the backing list.
+	 * Indices are interpreted against the model as it is before the removal, may be in any order,
+	 * and out-of-range or duplicate indices are ignored.
+	 * <p>One deletion event is fired per contiguous range of removed rows, from last to first,
+	 * unless there are more than {@value #MAX_RANGE_EVENTS} ranges, in which case one data change event is fired.
+	 * @param indices the row indices to remove.
+	 * @return the list of removed rows, in model order.
+	 * @since 2.8.0
+	 */
+	public List<T> removeRows(int ... indices)
+	{
+		checkNotPaged();
+		int size = data.size();
+		int[] sorted = Arrays.copyOf(indices, indices.length);
+		Arrays.sort(sorted);
+
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++)
+		{
+			int index = sorted[i];
+			if (index < 0 || index >= size)
+				continue;
+			if (count > 0 && sorted[count - 1] == index)
+				continue;
+			sorted[count++] = index;
+		}
+
+		List<T> removed = new List<T>(Math.max(count, 1));
+		if (count == 0)
+			return removed;
+
+		int write = sorted[0];
+		int next = 0;
+		for (int read = sorted[0]; read < size; read++)
+		{
+			T row = data.getByIndex(read);
+			if (next < count && sorted[next] == read)
+			{
+				removed.add(row);
+				next++;
+			}
+			else
+			{
+				data.replace(write++, row);
+			}
+		}
+		for (int i = size - 1; i >= write; i--)
 			data.removeIndex(i);
-		fireTableDataChanged();
+
+		for (T row : removed)
+			unindexRow(row);
+		if (rowIndexMap != null)
+			moveRowIndexesUp(sorted[0]);
+		removing = true;
+		try {
+			fireRowsDeleted(sorted, count);
+		} finally {
+			removing = false;
+		}
+		return removed;
+	}
+
+	/**
+	 * Checks rows for changes and notifies listeners of only the cells that changed.
+	 * <p>Rows are found by identity. The first call remembers the cell values of every row in this model,
+	 * and reports the rows that it was given as updated. The same happens on the first call after a change
+	 * to the whole table, like {@link #fireTableDataChanged()}. From then on, the cell values of rows are remembered
+	 * as they are added, and again whenever they are reported as updated, and each check compares the current
+	 * cell values to the remembered ones using {@link Object#equals(Object)}. A row with one changed cell
+	 * is reported with a cell update, and rows with more are reported with row updates, one per contiguous range.
+	 * Values that are changed in place (like a mutable Date) cannot be detected this way.
+	 * <p>The remembered values take one array of column values per row, and are kept until the row is removed.
+	 * @param rows the rows to check. Rows not in this model are ignored.
+	 * @return the rows that changed, in the order checked.
+	 * @throws IllegalStateException if this model is backed by a row provider.
+	 * @since 2.8.0
+	 */
+	public List<T> updateRows(Iterable<? extends T> rows)
+	{
+		checkNotPaged();
+		boolean seeded = cellCache != null;
+		if (!seeded)
+		{
+			cellCache = new IdentityHashMap<T, Object[]>(data.size());
+			rememberCells(0, data.size() - 1);
+		}
+
+		IdentityHashMap<T, RowIndex> indexMap = getRowIndexMap();
+		int columns = columnList.size();
+		List<T> out = new List<T>();
+		int[] changedRows = new int[16];
+		int changedRowCount = 0;
+		diffing = true;
+		try {
+			for (T row : rows)
+			{
+				RowIndex rowIndex = indexMap.get(row);
+				if (rowIndex == null)
+					continue;
+				int index = rowIndex.index;
+
+				int changedColumn = -1;
+				int changes = 0;
+				Object[] values = seeded ? cellCache.get(row) : null;
+				if (values != null)
+				{
+					for (int c = 0; c < columns; c++)
+					{
+						Object value = columnList.getByIndex(c).accessor.get(row);
+						if (!Objects.equals(value, values[c]))
+						{
+							values[c] = value;
+							changedColumn = c;
+							changes++;
+						}
+					}
+				}
+				else
+				{
+					// rows not checked against remembered values are reported whole.
+					if (seeded)
+						rememberCells(index, index);
+					changes = columns;
+				}
+
+				if (changes == 0)
+					continue;
+				out.add(row);
+				if (changedColumn >= 0 && changes == 1)
+				{
+					fireTableCellUpdated(index, changedColumn);
+				}
+				else
+				{
+					if (changedRowCount == changedRows.length)
+						changedRows = Arrays.copyOf(changedRows, changedRowCount * 2);
+					changedRows[changedRowCount++] = index;
+				}
+			}
+			if (changedRowCount > 0)
+				fireRowsUpdated(Arrays.copyOf(changedRows, changedRowCount));
+		} finally {
+			diffing = false;
+		}
+		return out;
+	}
+
+	/**
+	 * Checks if this model is currently firing the cell updates found by {@link #updateRows(Iterable)}.
+	 * @return true if so, false if not.
+	 */
+	boolean isDiffing()
+	{
+		return diffing;
+	}
+
+	/**
+	 * Notifies listeners that a set of rows have been updated.
+	 * One update event is fired per contiguous range of rows, unless there are more than
+	 * {@value #MAX_RANGE_EVENTS} ranges, in which case one event is fired for the span of all of them.
+	 * @param indices the updated row indices, in any order. Out-of-range and duplicate indices are ignored.
+	 * @since 2.8.0
+	 */
+	public void fireRowsUpdated(int ... indices)
+	{
+		int size = getRowCount();
+		int[] sorted = Arrays.copyOf(indices, indices.length);
+		Arrays.sort(sorted);
+
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++)
+		{
+			int index = sorted[i];
+			if (index < 0 || index >= size)
+				continue;
+			if (count > 0 && sorted[count - 1] == index)
+				continue;
+			sorted[count++] = index;
+		}
+		if (count == 0)
+			return;
+
+		int ranges = 1;
+		for (int i = 1; i < count; i++)
+			if (sorted[i] != sorted[i - 1] + 1)
+				ranges++;
+
+		if (ranges > MAX_RANGE_EVENTS)
+		{
+			fireTableRowsUpdated(sorted[0], sorted[count - 1]);
+			return;
+		}
+
+		int start = sorted[0];
+		for (int i = 1; i < count; i++)
+		{
+			if (sorted[i] != sorted[i - 1] + 1)
+			{
+				fireTableRowsUpdated(start, sorted[i - 1]);
+				start = sorted[i];
+			}
+		}
+		fireTableRowsUpdated(start, sorted[count - 1]);
+	}
+
+	// Fires deletion events for sorted, distinct indices.
+	private void fireRowsDeleted(int[] sorted, int count)
+	{
+		int ranges = 1;
+		for (int i = 1; i < count; i++)
+			if (sorted[i] != sorted[i - 1] + 1)
+				ranges++;
+
+		if (ranges > MAX_RANGE_EVENTS)
+		{
+			fireTableDataChanged();
+			return;
+		}
+
+		int end = sorted[count - 1];
+		for (int i = count - 1; i > 0; i--)
+		{
+			if (sorted[i - 1] != sorted[i] - 1)
+			{
+				fireTableRowsDeleted(sorted[i], end);
+				end = sorted[i - 1];
+			}
+		}
+		fireTableRowsDeleted(sorted[0], end);
 	}
 	
 	/**
@@ -181,12 +646,329 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	 */
 	public T getRowAt(int index)
 	{
+		if (pagedRows != null)
+			return pagedRows.get(index);
 		return data.getByIndex(index);
 	}
 	
+	/**
+	 * Gets the index of a row in this model.
+	 * The row is looked up by identity first, and if it is not found, by {@link Object#equals(Object)}.
+	 * If this model is backed by a row provider, only cached rows are searched, by identity.
+	 * @param row the row to look for.
+	 * @return the index of the row, or -1 if not found.
+	 * @since 2.8.0
+	 */
+	public int getIndexOf(T row)
+	{
+		if (pagedRows != null)
+			return pagedRows.indexOf(row);
+		RowIndex out = getRowIndexMap().get(row);
+		if (out != null)
+			return out.index;
+		return data.getIndexOf(row);
+	}
+
+	/**
+	 * Gets the index of a row in this model by identity only.
+	 * If this model is backed by a row provider, only cached rows are searched.
+	 * @param row the row to look for.
+	 * @return the index of the row, or -1 if not found.
+	 */
+	int getIdentityIndexOf(Object row)
+	{
+		if (pagedRows != null)
+			return pagedRows.indexOf(row);
+		RowIndex out = getRowIndexMap().get(row);
+		return out != null ? out.index : -1;
+	}
+
+	/**
+	 * Gets the indices of the rows whose value in a column is equal to a specific value.
+	 * If the column is indexed, this does not need to look at every row.
+	 * @param columnIndex the column index.
+	 * @param value the value to look for (can be null).
+	 * @return the matching row indices, in ascending order.
+	 * @since 2.8.0
+	 * @see TableDescriptor#indexed()
+	 */
+	public int[] getRowIndicesWhere(int columnIndex, Object value)
+	{
+		checkNotPaged();
+		if (isColumnIndexed(columnIndex))
+		{
+			IdentityHashMap<T, RowIndex> indexMap = getRowIndexMap();
+			Set<Object> rows = columnIndexes[columnIndex].get(value);
+			int[] out = new int[rows.size()];
+			int i = 0;
+			for (Object row : rows)
+			{
+				RowIndex index = indexMap.get(row);
+				// only first occurrences are mapped, so rows that are in this model more than once are scanned for.
+				if (index != null && index.count > 1)
+				{
+					i = -1;
+					break;
+				}
+				if (index != null)
+					out[i++] = index.index;
+			}
+			if (i >= 0)
+			{
+				out = i < out.length ? Arrays.copyOf(out, i) : out;
+				Arrays.sort(out);
+				return out;
+			}
+		}
+		
+		Column col = columnList.getByIndex(columnIndex);
+		if (col == null)
+			return new int[0];
+
+		int[] out = new int[16];
+		int count = 0;
+		for (int i = 0; i < data.size(); i++)
+		{
+			if (Objects.equals(col.accessor.get(data.getByIndex(i)), value))
+			{
+				if (count == out.length)
+					out = Arrays.copyOf(out, out.length * 2);
+				out[count++] = i;
+			}
+		}
+		return Arrays.copyOf(out, count);
+	}
+
+	/**
+	 * Gets the rows whose value in a column is equal to a specific value.
+	 * If the column is indexed, this does not need to look at every row.
+	 * @param columnIndex the column index.
+	 * @param value the value to look for (can be null).
+	 * @return the matching rows, in model order.
+	 * @since 2.8.0
+	 * @see TableDescriptor#indexed()
+	 */
+	public List<T> getRowsWhere(int columnIndex, Object value)
+	{
+		int[] indices = getRowIndicesWhere(columnIndex, value);
+		List<T> out = new List<T>(Math.max(indices.length, 1));
+		for (int i : indices)
+			out.add(data.getByIndex(i));
+		return out;
+	}
+
+	/**
+	 * Creates a filter that includes rows whose value in a column is equal to a specific value.
+	 * If the column is indexed, the filter is evaluated using the index.
+	 * @param columnIndex the column index.
+	 * @param value the value to look for (can be null).
+	 * @return a new filter.
+	 * @throws IndexOutOfBoundsException if the column index is out of range.
+	 * @since 2.8.0
+	 */
+	public RTableFilter<T> createValueFilter(int columnIndex, Object value)
+	{
+		checkNotPaged();
+		if (columnIndex < 0 || columnIndex >= columnList.size())
+			throw new IndexOutOfBoundsException("Column index " + columnIndex + " is out of range.");
+		return new ValueFilter<T>(this, columnIndex, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Column indexes are kept up to date from the events that pass through here,
+	 * so rows that are changed outside of this model should be reported with
+	 * {@link #fireTableRowsUpdated(int, int)}.
+	 */
+	@Override
+	public void fireTableChanged(TableModelEvent e)
+	{
+		updateIndexes(e);
+		super.fireTableChanged(e);
+	}
+
+	// Gets the row index map, building it if necessary.
+	private IdentityHashMap<T, RowIndex> getRowIndexMap()
+	{
+		if (rowIndexMap == null)
+		{
+			IdentityHashMap<T, RowIndex> map = new IdentityHashMap<T, RowIndex>(data.size());
+			for (int i = 0; i < data.size(); i++)
+			{
+				RowIndex index = map.putIfAbsent(data.getByIndex(i), new RowIndex(i));
+				if (index != null)
+					index.count++;
+			}
+			rowIndexMap = map;
+		}
+		return rowIndexMap;
+	}
+
+	// Removes a removed row from the row index map and the column indexes.
+	private void unindexRow(T row)
+	{
+		RowIndex rowIndex = rowIndexMap != null ? rowIndexMap.get(row) : null;
+		if (rowIndex != null && --rowIndex.count <= 0)
+			rowIndexMap.remove(row);
+		// another occurrence is left, but which one is first is not known.
+		else if (rowIndex != null)
+			rowIndexMap = null;
+		if (columnIndexes != null)
+			for (ColumnIndex index : columnIndexes)
+				if (index != null)
+					index.remove(row);
+		if (cellCache != null)
+			cellCache.remove(row);
+	}
+
+	// Updates the mapped indexes of the rows from a starting index to the end, after rows before them were removed.
+	private void moveRowIndexesUp(int start)
+	{
+		for (int i = start; i < data.size(); i++)
+		{
+			T row = data.getByIndex(i);
+			RowIndex index = rowIndex(row, i);
+			// rows only moved up, so a first occurrence not yet seen still has a greater index.
+			if (index.index > i)
+				index.index = i;
+		}
+	}
+
+	// Updates the mapped indexes of the rows from a starting index to the end, after an amount of rows were inserted before them.
+	private void moveRowIndexesDown(int start, int count)
+	{
+		// backwards, so that each row's first occurrence is the last one written.
+		for (int i = data.size() - 1; i >= start; i--)
+		{
+			RowIndex index = rowIndexMap.get(data.getByIndex(i));
+			if (index != null && index.index == i - count)
+				index.index = i;
+		}
+	}
+
+	// Gets a row's mapped index, mapping it to a position if it is not mapped.
+	private RowIndex rowIndex(T row, int position)
+	{
+		RowIndex out = rowIndexMap.get(row);
+		if (out == null)
+			rowIndexMap.put(row, out = new RowIndex(position));
+		return out;
+	}
+
+	// Remembers the current cell values of a range of rows.
+	private void rememberCells(int first, int last)
+	{
+		int columns = columnList.size();
+		for (int i = first; i <= last; i++)
+		{
+			T row = data.getByIndex(i);
+			Object[] values = new Object[columns];
+			for (int c = 0; c < columns; c++)
+				values[c] = columnList.getByIndex(c).accessor.get(row);
+			cellCache.put(row, values);
+		}
+	}
+
+	// Rebuilds all column indexes.
+	private void rebuildColumnIndexes()
+	{
+		if (columnIndexes == null)
+			return;
+		for (ColumnIndex index : columnIndexes)
+		{
+			if (index == null)
+				continue;
+			index.clear();
+			for (int i = 0; i < data.size(); i++)
+				index.add(data.getByIndex(i));
+		}
+	}
+
+	// Updates the row index map, column indexes, and cell cache for a model event.
+	// Removed rows are taken out of the indexes by the removal methods.
+	private void updateIndexes(TableModelEvent e)
+	{
+		if (pagedRows != null)
+			return;
+
+		int first = e.getFirstRow();
+		int last = e.getLastRow();
+		if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE)
+		{
+			rowIndexMap = null;
+			// re-seeded by the next call to updateRows().
+			cellCache = null;
+			rebuildColumnIndexes();
+			return;
+		}
+
+		int count = last - first + 1;
+		last = Math.min(last, data.size() - 1);
+		switch (e.getType())
+		{
+			case TableModelEvent.INSERT:
+			{
+				// the rows after the inserted ones moved down.
+				if (rowIndexMap != null)
+				{
+					moveRowIndexesDown(last + 1, count);
+					for (int i = first; i <= last; i++)
+					{
+						T row = data.getByIndex(i);
+						RowIndex index = rowIndexMap.get(row);
+						if (index == null)
+							rowIndexMap.put(row, new RowIndex(i));
+						else
+						{
+							index.count++;
+							if (index.index > i)
+								index.index = i;
+						}
+					}
+				}
+				if (columnIndexes != null)
+					for (ColumnIndex index : columnIndexes)
+						if (index != null)
+							for (int i = first; i <= last; i++)
+								index.add(data.getByIndex(i));
+				if (cellCache != null)
+					rememberCells(first, last);
+				break;
+			}
+			case TableModelEvent.DELETE:
+			{
+				// the rows after the removed ones moved up. the removed rows are already unmapped,
+				// and bulk removals have already moved the rest, once for all of their ranges.
+				if (rowIndexMap != null && !removing)
+					moveRowIndexesUp(first);
+				break;
+			}
+			case TableModelEvent.UPDATE:
+			{
+				// changes reported some other way are already known to listeners.
+				if (!diffing && cellCache != null)
+					rememberCells(first, last);
+				if (columnIndexes == null)
+					break;
+				int column = e.getColumn();
+				for (int c = 0; c < columnIndexes.length; c++)
+				{
+					ColumnIndex index = columnIndexes[c];
+					if (index == null || (column != TableModelEvent.ALL_COLUMNS && column != c))
+						continue;
+					for (int i = first; i <= last; i++)
+						index.update(data.getByIndex(i));
+				}
+				break;
+			}
+		}
+	}
+
 	@Override
 	public Iterator<T> iterator()
 	{
+		if (pagedRows != null)
+			return pagedRows.iterator();
 		return data.iterator();
 	}
 
@@ -204,15 +986,14 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 		if (col.getterMethod == null)
 			return null;
 		else
-		{
-			Object out = Reflect.invokeBlind(col.getterMethod, row);
-			return out;
-		}
+			return col.accessor.get(row);
 	}
 
 	@Override
 	public void setValueAt(Object aValue, int rowIndex, int columnIndex)
 	{
+		if (pagedRows != null)
+			return;
 		T row = getRowAt(rowIndex);;
 		if (row == null) return;
 		
@@ -223,7 +1004,7 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 			return;
 		else
 		{
-			Reflect.invokeBlind(col.setterMethod, row, aValue);
+			col.accessor.set(row, aValue);
 			fireTableCellUpdated(rowIndex, columnIndex);
 		}
 	}
@@ -255,12 +1036,16 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	@Override
 	public int getRowCount()
 	{
+		if (pagedRows != null)
+			return pagedRows.getRowCount();
 		return data.size();
 	}
 
 	@Override
 	public boolean isCellEditable(int rowIndex, int columnIndex)
 	{
+		if (pagedRows != null)
+			return false;
 		Column col = columnList.getByIndex(columnIndex);
 		if (col == null)
 			return false;
@@ -269,8 +1054,9 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 	
 	/**
 	 * Descriptor column.
+	 * Columns are shared between all models of the same row class.
 	 */
-	public final class Column
+	public static final class Column
 	{
 		/** Nice name. */
 		String name;
@@ -284,17 +1070,82 @@ public class RTableModel<T extends Object> extends AbstractTableModel implements
 		boolean sortable;
 		/** Editable? */
 		boolean editable;
+		/** Indexed? */
+		boolean indexed;
 		/** Data type class. */
 		Class<?> dataType;
 		/** Setter Method (can be null). */
 		Method setterMethod;
 		/** Getter Method. */
 		Method getterMethod;
+		/** Resolved accessor for the getter and setter. */
+		ColumnAccessor accessor;
 		
 		private Column()
 		{
 			// blank. set fields in parent class.
 		}
 	}
+
+	/**
+	 * Filter that includes rows whose column value is equal to a specific value.
+	 */
+	static final class ValueFilter<T> extends RTableFilter<T>
+	{
+		/** Source model. */
+		private final RTableModel<T> model;
+		/** Column index. */
+		private final int columnIndex;
+		/** Value to match. */
+		private final Object value;
+
+		private ValueFilter(RTableModel<T> model, int columnIndex, Object value)
+		{
+			this.model = model;
+			this.columnIndex = columnIndex;
+			this.value = value;
+		}
+
+		@Override
+		public boolean includeItem(T item)
+		{
+			return Objects.equals(model.columnList.getByIndex(columnIndex).accessor.get(item), value);
+		}
+
+		/**
+		 * Checks if this filter can be evaluated with a column index on a model.
+		 * @param model the model to filter.
+		 * @return true if so, false if not.
+		 */
+		boolean isIndexedOn(RTableModel<T> model)
+		{
+			return this.model == model && model.isColumnIndexed(columnIndex);
+		}
+
+		/**
+		 * @return the indices of the matching rows in the source model.
+		 */
+		int[] getRowIndices()
+		{
+			return model.getRowIndicesWhere(columnIndex, value);
+		}
+	}
+
+	/**
+	 * The index of a row's first occurrence, changed in place when rows move, and its amount of occurrences.
+	 */
+	private static final class RowIndex
+	{
+		/** Row index. */
+		private int index;
+		/** Amount of occurrences. */
+		private int count;
+
+		private RowIndex(int index)
+		{
+			this.index = index;
+			this.count = 1;
+		}
+	}
 }
 
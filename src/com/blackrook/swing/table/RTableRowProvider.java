@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import com.blackrook.commons.list.List;
+
+/**
+ * Supplies rows to an RTable on demand, one page at a time, for data sets
+ * that are too large to keep in memory or that live somewhere else, like on disk.
+ * <p>Rows supplied this way are read-only as far as the table is concerned,
+ * and the table cannot be sorted or filtered while a provider is set.
+ * @author Matthew Tropiano
+ * @param <T> the row type.
+ * @since 2.8.0
+ */
+public interface RTableRowProvider<T>
+{
+	/**
+	 * Returns the total amount of rows.
+	 * This is called on the Event Dispatch Thread when the provider is set or refreshed, so it should be fast.
+	 * @return the amount of rows.
+	 */
+	public int getRowCount();
+
+	/**
+	 * Fetches a range of rows.
+	 * This is called from a background thread, but never by more than one thread at a time.
+	 * <p>If this throws an exception, the exception is rethrown on the Event Dispatch Thread,
+	 * and the rows are fetched again the next time that the table reads them.
+	 * @param start the index of the first row to fetch.
+	 * @param count the amount of rows to fetch.
+	 * @param out the list to add the fetched rows to, in order.
+	 */
+	public void fetchRows(int start, int count, List<T> out);
+
+}
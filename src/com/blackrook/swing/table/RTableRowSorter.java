@@ -0,0 +1,1786 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingWorker;
+import javax.swing.event.TableModelEvent;
+
+import com.blackrook.swing.table.RTableModel.Column;
+import com.blackrook.swing.table.RTableModel.ValueFilter;
+
+/**
+ * The row sorter used by RTables.
+ * <p>Sorting extracts each sort key column's values once per row into a key array
+ * (a Schwartzian transform) and then performs a single stable sort of model indices against those keys,
+ * so column getters are never called during comparisons. Large sorts are split across the common fork/join pool.
+ * Columns that use the stock comparators in {@link RTableUtils} are keyed by primitive long or double arrays.
+ * If all keys are long keys and their combined range is small enough, such as enums, booleans, and small integers,
+ * the keys are packed into one primitive long per row and sorted directly.
+ * <p>In asynchronous mode, sorts of large models run on a background worker, and the resulting
+ * view-to-model mapping is swapped in on the Event Dispatch Thread in one step. Until it arrives,
+ * the previous ordering is kept, with newly inserted rows placed at the end of the view.
+ * <p>The keys extracted for the last sort are kept, so that a few inserted rows can be placed into the
+ * sorted order by binary search instead of sorting every row again.
+ * <p>Filters can likewise be evaluated in parallel chunks in the background. When a filter is replaced
+ * by a narrowing of itself, only the currently visible rows are tested again. Rows that are inserted, removed,
+ * or updated while a filter is evaluated in the background are logged, and the result is brought up to date
+ * with them when it arrives, so a steadily changing model does not keep the filter from finishing.
+ * @author Matthew Tropiano
+ * @param <T> the row type.
+ * @since 2.8.0
+ */
+abstract class RTableRowSorter<T> extends RowSorter<RTableModel<T>>
+{
+	/** Default row count at or above which asynchronous sorts are done in the background. */
+	public static final int DEFAULT_ASYNC_THRESHOLD = 10000;
+	/** Row count at or above which a sort is split across multiple threads. */
+	public static final int PARALLEL_THRESHOLD = 65536;
+	/** Partition size below which the parallel sort stops splitting. */
+	private static final int PARALLEL_GRAIN = 8192;
+	/** Partition size below which insertion sort is used. */
+	private static final int INSERTION_THRESHOLD = 32;
+	/** Most model changes that a background filter result is caught up with, before the filter is evaluated again instead. */
+	private static final int MAX_PENDING_CHANGES = 64;
+	/** Inserted rows are placed into the sort order unless they are more than 1/n of the existing rows, in which case all rows are sorted again. */
+	private static final int INSERT_RESORT_RATIO = 8;
+
+	/** The model to sort. */
+	private RTableModel<T> model;
+	/** Current sort keys. */
+	private List<SortKey> sortKeys;
+	/** Max amount of sort keys. */
+	private int maxSortKeys;
+	/** Sorts on updates? */
+	private boolean sortsOnUpdates;
+	/** The current filter. */
+	private RTableFilter<T> filter;
+
+	/** Cached model row count. */
+	private int modelRowCount;
+	/** Sort order of all model rows (null is model order). */
+	private int[] order;
+	/** Specs of the keys that the order was sorted by (null if not kept). */
+	private SortSpec[] orderSpecs;
+	/** Keys that the order was sorted by, per model row (null if not kept). */
+	private SortKeys[] orderKeys;
+	/** Filter results per model row (null is all included). */
+	private boolean[] included;
+	/** View to model mapping (null is identity). */
+	private int[] viewToModel;
+	/** Model to view mapping (null is identity or needs rebuild). */
+	private int[] modelToView;
+
+	/** Asynchronous sorts enabled? */
+	private boolean async;
+	/** Asynchronous sort threshold. */
+	private int asyncThreshold;
+	/** Incremented on every change that invalidates a pending sort. */
+	private long generation;
+	/** Pending background sort. */
+	private SortWorker pendingSort;
+	/** Sort to restart once a bulk removal has been fully reported. */
+	private boolean deferredSort;
+
+	/** Asynchronous filtering enabled? */
+	private boolean asyncFilter;
+	/** Incremented on every change that invalidates a pending filter. */
+	private long filterGeneration;
+	/** Pending background filter. */
+	private FilterWorker pendingFilter;
+
+	/**
+	 * Creates a new sorter for a model.
+	 * @param model the model to sort.
+	 */
+	RTableRowSorter(RTableModel<T> model)
+	{
+		this.model = model;
+		this.sortKeys = Collections.emptyList();
+		this.maxSortKeys = 3;
+		this.sortsOnUpdates = false;
+		this.filter = null;
+		this.modelRowCount = model.getRowCount();
+		this.order = null;
+		this.orderSpecs = null;
+		this.orderKeys = null;
+		this.included = null;
+		this.viewToModel = null;
+		this.modelToView = null;
+		this.async = false;
+		this.asyncThreshold = DEFAULT_ASYNC_THRESHOLD;
+		this.generation = 0L;
+		this.pendingSort = null;
+		this.asyncFilter = false;
+		this.filterGeneration = 0L;
+		this.pendingFilter = null;
+		this.deferredSort = false;
+	}
+
+	/**
+	 * Checks if a column can be sorted.
+	 * @param column the model column index.
+	 * @return true if so, false if not.
+	 */
+	public abstract boolean isSortable(int column);
+
+	/**
+	 * Returns the comparator to use for a column.
+	 * @param column the model column index.
+	 * @return the comparator to use, or null to use the default comparison for the column class.
+	 */
+	public abstract Comparator<?> getComparator(int column);
+
+	@Override
+	public RTableModel<T> getModel()
+	{
+		return model;
+	}
+
+	/**
+	 * Sets the maximum amount of sort keys.
+	 * @param max the maximum amount of keys.
+	 * @throws IllegalArgumentException if max is less than 1.
+	 */
+	public void setMaxSortKeys(int max)
+	{
+		if (max < 1)
+			throw new IllegalArgumentException("Invalid max");
+		maxSortKeys = max;
+	}
+
+	/**
+	 * @return the maximum amount of sort keys.
+	 */
+	public int getMaxSortKeys()
+	{
+		return maxSortKeys;
+	}
+
+	/**
+	 * Sets if the table is re-sorted when rows are updated.
+	 * @param sortsOnUpdates true if so, false if not.
+	 */
+	public void setSortsOnUpdates(boolean sortsOnUpdates)
+	{
+		this.sortsOnUpdates = sortsOnUpdates;
+	}
+
+	/**
+	 * @return true if the table is re-sorted when rows are updated, false if not.
+	 */
+	public boolean getSortsOnUpdates()
+	{
+		return sortsOnUpdates;
+	}
+
+	/**
+	 * Sets if large sorts are done in the background.
+	 * @param async true if so, false if not.
+	 */
+	public void setAsync(boolean async)
+	{
+		this.async = async;
+	}
+
+	/**
+	 * @return true if large sorts are done in the background, false if not.
+	 */
+	public boolean isAsync()
+	{
+		return async;
+	}
+
+	/**
+	 * Sets the row count at or above which sorts are done in the background, if asynchronous sorting is enabled.
+	 * @param asyncThreshold the row threshold.
+	 */
+	public void setAsyncThreshold(int asyncThreshold)
+	{
+		this.asyncThreshold = Math.max(0, asyncThreshold);
+	}
+
+	/**
+	 * @return the row count at or above which sorts are done in the background.
+	 */
+	public int getAsyncThreshold()
+	{
+		return asyncThreshold;
+	}
+
+	/**
+	 * @return true if a background sort is in progress, false if not.
+	 */
+	public boolean isSortPending()
+	{
+		return pendingSort != null;
+	}
+
+	/**
+	 * Sets if filters on large models are evaluated in the background.
+	 * If enabled, filters are evaluated in parallel chunks and must be thread-safe.
+	 * @param asyncFilter true if so, false if not.
+	 */
+	public void setAsyncFilter(boolean asyncFilter)
+	{
+		this.asyncFilter = asyncFilter;
+	}
+
+	/**
+	 * @return true if filters on large models are evaluated in the background, false if not.
+	 */
+	public boolean isAsyncFilter()
+	{
+		return asyncFilter;
+	}
+
+	/**
+	 * @return true if a background filter is in progress, false if not.
+	 */
+	public boolean isFilterPending()
+	{
+		return pendingFilter != null;
+	}
+
+	/**
+	 * Sets the row filter.
+	 * <p>If the new filter is a narrowing of the current one (see {@link RTableFilter#isNarrowingOf(RTableFilter)}),
+	 * only the currently visible rows are tested.
+	 * If asynchronous filtering is enabled and the amount of rows to test is large enough, this returns immediately
+	 * and the results are applied later on the Event Dispatch Thread. Until then, {@link #getRowFilter()}
+	 * returns the previous filter.
+	 * @param filter the filter to use. Can be null for no filter.
+	 */
+	public void setRowFilter(RTableFilter<T> filter)
+	{
+		invalidateFilter();
+		if (filter == null)
+		{
+			applyFilter(null, null, null);
+			return;
+		}
+
+		// value filters on indexed columns read their rows straight from the index.
+		if (filter instanceof ValueFilter && ((ValueFilter<T>)filter).isIndexedOn(model))
+		{
+			int[] matches = ((ValueFilter<T>)filter).getRowIndices();
+			boolean[] results = new boolean[matches.length];
+			Arrays.fill(results, true);
+			applyFilter(filter, matches, results);
+			return;
+		}
+
+		int[] candidates = null;
+		if (this.filter != null && included != null && filter.isNarrowingOf(this.filter))
+			candidates = viewToModel;
+
+		int count = candidates != null ? candidates.length : modelRowCount;
+		Object[] rows = new Object[count];
+		for (int i = 0; i < count; i++)
+			rows[i] = model.getRowAt(candidates != null ? candidates[i] : i);
+
+		if (asyncFilter && count >= asyncThreshold)
+		{
+			pendingFilter = new FilterWorker(filter, candidates, rows, modelRowCount, filterGeneration);
+			pendingFilter.execute();
+		}
+		else
+		{
+			applyFilter(filter, candidates, evaluateFilter(filter, rows, false));
+		}
+	}
+
+	// Applies filter results to the view. Candidates are the model rows tested, or null for all rows.
+	private void applyFilter(RTableFilter<T> filter, int[] candidates, boolean[] results)
+	{
+		int[] last = getPreviousMapping();
+		this.filter = filter;
+		if (candidates == null)
+			included = results;
+		else
+		{
+			boolean[] out = new boolean[modelRowCount];
+			for (int i = 0; i < candidates.length; i++)
+				out[candidates[i]] = results[i];
+			included = out;
+		}
+		buildView();
+		fireRowSorterChanged(last);
+	}
+
+	/**
+	 * @return the current row filter, or null if none.
+	 */
+	public RTableFilter<T> getRowFilter()
+	{
+		return filter;
+	}
+
+	@Override
+	public void toggleSortOrder(int column)
+	{
+		checkColumn(column);
+		if (!isSortable(column))
+			return;
+
+		List<SortKey> keys = new ArrayList<SortKey>(getSortKeys());
+		int sortIndex;
+		for (sortIndex = keys.size() - 1; sortIndex >= 0; sortIndex--)
+			if (keys.get(sortIndex).getColumn() == column)
+				break;
+
+		if (sortIndex == -1)
+			keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+		else if (sortIndex == 0)
+			keys.set(0, toggle(keys.get(0)));
+		else
+		{
+			keys.remove(sortIndex);
+			keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+		}
+
+		if (keys.size() > maxSortKeys)
+			keys = keys.subList(0, maxSortKeys);
+		setSortKeys(keys);
+	}
+
+	@Override
+	public List<? extends SortKey> getSortKeys()
+	{
+		return sortKeys;
+	}
+
+	@Override
+	public void setSortKeys(List<? extends SortKey> keys)
+	{
+		setSortKeys(keys, true);
+	}
+
+	/**
+	 * Sets the sort keys, and optionally re-sorts.
+	 * If not re-sorted, the current view order is kept until the next sort,
+	 * so this should only be used right before all of the model's rows change,
+	 * which sorts by the new keys once.
+	 * @param keys the new sort keys. Can be null for none.
+	 * @param sortNow true to re-sort now if the keys changed, false to leave it to the next change.
+	 * @throws IllegalArgumentException if a key is null or refers to a column out of range.
+	 */
+	void setSortKeys(List<? extends SortKey> keys, boolean sortNow)
+	{
+		List<SortKey> old = sortKeys;
+		if (keys != null && keys.size() > 0)
+		{
+			int max = model.getColumnCount();
+			for (SortKey key : keys)
+			{
+				if (key == null || key.getColumn() < 0 || key.getColumn() >= max)
+					throw new IllegalArgumentException("Invalid SortKey");
+			}
+			sortKeys = Collections.unmodifiableList(new ArrayList<SortKey>(keys));
+		}
+		else
+		{
+			sortKeys = Collections.emptyList();
+		}
+
+		if (!sortKeys.equals(old))
+		{
+			fireSortOrderChanged();
+			if (sortNow)
+				sort();
+			else
+			{
+				invalidate();
+				setOrder(order, null, null);
+			}
+		}
+	}
+
+	/**
+	 * Re-sorts the model using the current sort keys.
+	 * If asynchronous sorting is enabled and the model is large enough, this returns immediately
+	 * and the results are applied later on the Event Dispatch Thread.
+	 */
+	public void sort()
+	{
+		invalidate();
+		SortSpec[] specs = createSpecs();
+		if (specs == null)
+		{
+			int[] last = getPreviousMapping();
+			setOrder(null, null, null);
+			buildView();
+			fireRowSorterChanged(last);
+		}
+		else if (async && modelRowCount >= asyncThreshold)
+		{
+			Object[] rows = new Object[modelRowCount];
+			for (int i = 0; i < rows.length; i++)
+				rows[i] = model.getRowAt(i);
+			pendingSort = new SortWorker(rows, specs, generation);
+			pendingSort.execute();
+		}
+		else
+		{
+			int[] last = getPreviousMapping();
+			Object[] rows = new Object[modelRowCount];
+			for (int i = 0; i < rows.length; i++)
+				rows[i] = model.getRowAt(i);
+			SortKeys[] keys = extractKeys(rows, specs);
+			setOrder(computeOrder(keys, rows.length), specs, keys);
+			buildView();
+			fireRowSorterChanged(last);
+		}
+	}
+
+	@Override
+	public int convertRowIndexToModel(int index)
+	{
+		if (viewToModel == null)
+		{
+			if (index < 0 || index >= modelRowCount)
+				throw new IndexOutOfBoundsException("Invalid index");
+			return index;
+		}
+		return viewToModel[index];
+	}
+
+	@Override
+	public int convertRowIndexToView(int index)
+	{
+		if (index < 0 || index >= modelRowCount)
+			throw new IndexOutOfBoundsException("Invalid index");
+		if (viewToModel == null)
+			return index;
+		if (modelToView == null)
+		{
+			int[] out = new int[modelRowCount];
+			Arrays.fill(out, -1);
+			for (int i = 0; i < viewToModel.length; i++)
+				out[viewToModel[i]] = i;
+			modelToView = out;
+		}
+		return modelToView[index];
+	}
+
+	@Override
+	public int getViewRowCount()
+	{
+		return viewToModel != null ? viewToModel.length : modelRowCount;
+	}
+
+	@Override
+	public int getModelRowCount()
+	{
+		return model.getRowCount();
+	}
+
+	/**
+	 * @return true if every view index is the same as its model index, false if not.
+	 */
+	boolean isIdentity()
+	{
+		return viewToModel == null;
+	}
+
+	@Override
+	public void modelStructureChanged()
+	{
+		RTableFilter<T> pending = invalidateFilter();
+		invalidate();
+		modelRowCount = model.getRowCount();
+		sortKeys = Collections.emptyList();
+		setOrder(null, null, null);
+		included = filterRows(0, modelRowCount);
+		buildView();
+		restartFilter(pending);
+	}
+
+	@Override
+	public void allRowsChanged()
+	{
+		RTableFilter<T> pending = invalidateFilter();
+		invalidate();
+		modelRowCount = model.getRowCount();
+		setOrder(null, null, null);
+		included = filterRows(0, modelRowCount);
+		buildView();
+		if (isSorted())
+			sort();
+		restartFilter(pending);
+	}
+
+	@Override
+	public void rowsInserted(int firstRow, int endRow)
+	{
+		checkRange(firstRow, endRow, model.getRowCount());
+		boolean wasPending = invalidate();
+		int count = endRow - firstRow + 1;
+		logFilterChange(TableModelEvent.INSERT, firstRow, count);
+		int oldCount = modelRowCount;
+		modelRowCount = model.getRowCount();
+
+		if (included != null)
+		{
+			boolean[] out = new boolean[modelRowCount];
+			System.arraycopy(included, 0, out, 0, firstRow);
+			System.arraycopy(included, firstRow, out, endRow + 1, oldCount - firstRow);
+			for (int i = firstRow; i <= endRow; i++)
+				out[i] = filter.includeItem(model.getRowAt(i));
+			included = out;
+		}
+
+		if (order != null && orderKeys != null && !wasPending && (long)count * INSERT_RESORT_RATIO <= oldCount)
+		{
+			insertOrder(firstRow, count, oldCount);
+			buildView();
+		}
+		else
+		{
+			if (order != null)
+			{
+				int[] out = new int[modelRowCount];
+				for (int i = 0; i < oldCount; i++)
+					out[i] = order[i] >= firstRow ? order[i] + count : order[i];
+				for (int i = 0; i < count; i++)
+					out[oldCount + i] = firstRow + i;
+				setOrder(out, null, null);
+			}
+			buildView();
+			if (isSorted())
+				sort();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>{@link RTableModel#removeRows(int...)} removes all of its rows first and then reports one deletion
+	 * per contiguous range, so while those are reported, the model already has fewer rows than this sorter.
+	 * The view is kept in step with each range, but a sort that had to be interrupted is only
+	 * restarted after the last range, once the model can be read again.
+	 */
+	@Override
+	public void rowsDeleted(int firstRow, int endRow)
+	{
+		checkRange(firstRow, endRow, modelRowCount);
+		boolean wasPending = invalidate();
+		int count = endRow - firstRow + 1;
+		logFilterChange(TableModelEvent.DELETE, firstRow, count);
+		int oldCount = modelRowCount;
+		modelRowCount = oldCount - count;
+
+		if (order != null)
+		{
+			int[] out = new int[oldCount - count];
+			int n = 0;
+			for (int i = 0; i < oldCount; i++)
+			{
+				int m = order[i];
+				if (m < firstRow)
+					out[n++] = m;
+				else if (m > endRow)
+					out[n++] = m - count;
+			}
+			order = out;
+		}
+
+		if (orderKeys != null)
+		{
+			for (int k = 0; k < orderKeys.length; k++)
+				orderKeys[k] = orderKeys[k].delete(firstRow, endRow);
+		}
+
+		if (included != null)
+		{
+			boolean[] out = new boolean[oldCount - count];
+			System.arraycopy(included, 0, out, 0, firstRow);
+			System.arraycopy(included, endRow + 1, out, firstRow, oldCount - endRow - 1);
+			included = out;
+		}
+
+		// deletion keeps the relative order, but a pending sort is now stale.
+		buildView();
+
+		// bulk removals report several ranges after all of the rows are gone,
+		// so the model can only be read again after the last one.
+		deferredSort |= wasPending;
+		if (modelRowCount != model.getRowCount())
+			return;
+
+		wasPending = deferredSort;
+		deferredSort = false;
+		if (wasPending)
+			sort();
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow)
+	{
+		rowsUpdated(firstRow, endRow, -1);
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow, int column)
+	{
+		checkRange(firstRow, endRow, modelRowCount);
+		logFilterChange(TableModelEvent.UPDATE, firstRow, endRow - firstRow + 1);
+		boolean changed = false;
+		if (included != null)
+		{
+			for (int i = firstRow; i <= endRow; i++)
+			{
+				boolean include = filter.includeItem(model.getRowAt(i));
+				changed |= include != included[i];
+				included[i] = include;
+			}
+		}
+
+		if (sortsOnUpdates && isSorted() && (column < 0 || isSortKey(column)))
+			sort();
+		// the view only changes if a row was filtered in or out.
+		else if (changed)
+			buildView();
+	}
+
+	/**
+	 * Checks if there are sort keys that affect order.
+	 * @return true if so, false if not.
+	 */
+	public boolean isSorted()
+	{
+		for (SortKey key : sortKeys)
+			if (key.getSortOrder() != SortOrder.UNSORTED)
+				return true;
+		return false;
+	}
+
+	// Checks if a column is an effective sort key.
+	private boolean isSortKey(int column)
+	{
+		for (SortKey key : sortKeys)
+			if (key.getColumn() == column && key.getSortOrder() != SortOrder.UNSORTED)
+				return true;
+		return false;
+	}
+
+	// Toggles sort key order.
+	private static SortKey toggle(SortKey key)
+	{
+		if (key.getSortOrder() == SortOrder.ASCENDING)
+			return new SortKey(key.getColumn(), SortOrder.DESCENDING);
+		return new SortKey(key.getColumn(), SortOrder.ASCENDING);
+	}
+
+	private void checkColumn(int column)
+	{
+		if (column < 0 || column >= model.getColumnCount())
+			throw new IndexOutOfBoundsException("column beyond range of TableModel");
+	}
+
+	private static void checkRange(int firstRow, int endRow, int rowCount)
+	{
+		if (firstRow > endRow || firstRow < 0 || endRow >= rowCount)
+			throw new IndexOutOfBoundsException("Invalid range");
+	}
+
+	// Invalidates a pending filter, if any. Returns the pending filter, or null if none was pending.
+	private RTableFilter<T> invalidateFilter()
+	{
+		filterGeneration++;
+		if (pendingFilter == null)
+			return null;
+		RTableFilter<T> out = pendingFilter.filter;
+		pendingFilter.cancel(false);
+		pendingFilter = null;
+		return out;
+	}
+
+	// Logs a model change on the pending filter, if any, so that its result can be caught up with it.
+	private void logFilterChange(int type, int firstRow, int count)
+	{
+		if (pendingFilter != null)
+			pendingFilter.logChange(type, firstRow, count);
+	}
+
+	// Restarts an invalidated filter.
+	private void restartFilter(RTableFilter<T> pending)
+	{
+		if (pending != null)
+			setRowFilter(pending);
+	}
+
+	// Invalidates a pending sort, if any. Returns true if a sort was pending.
+	private boolean invalidate()
+	{
+		generation++;
+		if (pendingSort == null)
+			return false;
+		pendingSort.cancel(false);
+		pendingSort = null;
+		return true;
+	}
+
+	// Returns the current mapping, for events.
+	private int[] getPreviousMapping()
+	{
+		if (viewToModel != null)
+			return viewToModel;
+		int[] out = new int[modelRowCount];
+		for (int i = 0; i < out.length; i++)
+			out[i] = i;
+		return out;
+	}
+
+	// Filters a range of rows with the current filter. Returns null if no filter.
+	private boolean[] filterRows(int start, int end)
+	{
+		if (filter == null)
+			return null;
+		boolean[] out = new boolean[end - start];
+		for (int i = start; i < end; i++)
+			out[i - start] = filter.includeItem(model.getRowAt(i));
+		return out;
+	}
+
+	/**
+	 * Evaluates a filter over a set of rows. Safe to call off of the Event Dispatch Thread,
+	 * provided that the rows are not changed during the call.
+	 * @param filter the filter to use.
+	 * @param rows the rows to test.
+	 * @param parallel if true, large row sets are split into chunks tested in parallel.
+	 * @return the results for each row.
+	 */
+	private static <T> boolean[] evaluateFilter(RTableFilter<T> filter, Object[] rows, boolean parallel)
+	{
+		boolean[] out = new boolean[rows.length];
+		if (parallel && rows.length >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1)
+			ForkJoinPool.commonPool().invoke(new FilterTask<T>(filter, rows, out, 0, rows.length));
+		else
+			FilterTask.filter(filter, rows, out, 0, rows.length);
+		return out;
+	}
+
+	// Rebuilds the view mapping from the sort order and filter results.
+	private void buildView()
+	{
+		modelToView = null;
+		if (order == null && included == null)
+		{
+			viewToModel = null;
+			return;
+		}
+
+		int[] out = new int[modelRowCount];
+		int n = 0;
+		for (int i = 0; i < modelRowCount; i++)
+		{
+			int m = order != null ? order[i] : i;
+			if (included == null || included[m])
+				out[n++] = m;
+		}
+		viewToModel = n == out.length ? out : Arrays.copyOf(out, n);
+	}
+
+	// Sets the sort order and the keys it was sorted by.
+	private void setOrder(int[] order, SortSpec[] specs, SortKeys[] keys)
+	{
+		this.order = order;
+		this.orderSpecs = specs;
+		this.orderKeys = keys;
+	}
+
+	/**
+	 * Places newly inserted model rows into the current sort order, using the keys kept from the last sort.
+	 * Each row goes after every row that sorts the same and comes before it in the model, like a stable sort would put it.
+	 * @param firstRow the first inserted model row.
+	 * @param count the amount of inserted rows.
+	 * @param oldCount the amount of rows in the order before the insertion.
+	 */
+	private void insertOrder(int firstRow, int count, int oldCount)
+	{
+		Object[] rows = new Object[count];
+		for (int i = 0; i < count; i++)
+			rows[i] = model.getRowAt(firstRow + i);
+		for (int k = 0; k < orderKeys.length; k++)
+			orderKeys[k] = orderKeys[k].insert(firstRow, orderSpecs[k].extract(rows));
+		IndexComparator comparator = orderKeys.length == 1 ? orderKeys[0] : new CompositeComparator(orderKeys);
+
+		int[] added = new int[count];
+		for (int i = 0; i < count; i++)
+			added[i] = firstRow + i;
+		sort(added, comparator);
+
+		int[] out = new int[modelRowCount];
+		int n = 0;
+		int copied = 0;
+		for (int i = 0; i < count; i++)
+		{
+			int row = added[i];
+			// first old position that sorts after this row. added rows are in order, so the search starts at the last one.
+			int lo = copied, hi = oldCount;
+			while (lo < hi)
+			{
+				int mid = (lo + hi) >>> 1;
+				int m = order[mid] >= firstRow ? order[mid] + count : order[mid];
+				int c = comparator.compare(m, row);
+				if (c > 0 || (c == 0 && m > row))
+					hi = mid;
+				else
+					lo = mid + 1;
+			}
+			for (; copied < lo; copied++)
+				out[n++] = order[copied] >= firstRow ? order[copied] + count : order[copied];
+			out[n++] = row;
+		}
+		for (; copied < oldCount; copied++)
+			out[n++] = order[copied] >= firstRow ? order[copied] + count : order[copied];
+		order = out;
+	}
+
+	// Creates the sort specs for the current keys. Returns null if unsorted.
+	@SuppressWarnings("unchecked")
+	private SortSpec[] createSpecs()
+	{
+		List<SortSpec> out = new ArrayList<SortSpec>(sortKeys.size());
+		for (SortKey key : sortKeys)
+		{
+			if (key.getSortOrder() == SortOrder.UNSORTED)
+				continue;
+
+			int column = key.getColumn();
+			Column col = model.getColumnList().getByIndex(column);
+			SortSpec spec = new SortSpec();
+			spec.accessor = col.accessor;
+			spec.descending = key.getSortOrder() == SortOrder.DESCENDING;
+
+			Comparator<?> comparator = getComparator(column);
+			spec.keyType = getKeyType(comparator, col.dataType);
+			// primitive booleans and chars are keyed from their boxed values.
+			Class<?> returnType = col.getterMethod.getReturnType();
+			spec.primitive = (spec.keyType == KeyType.LONG && ColumnAccessor.isIntegerPrimitive(returnType))
+				|| (spec.keyType == KeyType.DOUBLE && ColumnAccessor.isFloatPrimitive(returnType));
+			if (comparator != null)
+				spec.comparator = (Comparator<Object>)comparator;
+			else if (col.dataType == String.class)
+				spec.collate = true;
+			else if (Comparable.class.isAssignableFrom(col.dataType))
+				spec.comparator = COMPARABLE_COMPARATOR;
+			else
+			{
+				spec.collate = true;
+				spec.useToString = true;
+			}
+			out.add(spec);
+		}
+		return out.isEmpty() ? null : out.toArray(new SortSpec[out.size()]);
+	}
+
+	/**
+	 * Figures out if a column can be sorted by primitive keys.
+	 * This is possible if its comparator is one of the stock comparators in {@link RTableUtils}
+	 * and its type is a matching type.
+	 * @param comparator the column comparator.
+	 * @param type the column type.
+	 * @return the key type to use.
+	 */
+	private static KeyType getKeyType(Comparator<?> comparator, Class<?> type)
+	{
+		if (comparator == null)
+			return KeyType.OBJECT;
+		else if (comparator == RTableUtils.INTEGER_COMPARATOR || comparator == RTableUtils.LONG_COMPARATOR)
+			return KeyType.LONG;
+		else if (comparator == RTableUtils.DOUBLE_COMPARATOR)
+			return KeyType.DOUBLE;
+		else if (comparator == RTableUtils.ENUM_COMPARATOR && Enum.class.isAssignableFrom(type))
+			return KeyType.LONG;
+		else if (comparator == RTableUtils.DATE_COMPARATOR && Date.class.isAssignableFrom(type))
+			return KeyType.LONG;
+		else if (comparator == RTableUtils.BOOLEAN_COMPARATOR && type == Boolean.class)
+			return KeyType.LONG;
+		else if (comparator == RTableUtils.NUMBER_COMPARATOR)
+		{
+			if (type == Byte.class || type == Short.class || type == Integer.class || type == Long.class)
+				return KeyType.LONG;
+			else if (type == Float.class || type == Double.class)
+				return KeyType.DOUBLE;
+		}
+		return KeyType.OBJECT;
+	}
+
+	/**
+	 * Extracts the sort keys of a set of rows. Safe to call off of the Event Dispatch Thread,
+	 * provided that the rows are not changed during the call.
+	 * @param rows the rows to sort.
+	 * @param specs the sort key specs.
+	 * @return the keys for each spec.
+	 */
+	private static SortKeys[] extractKeys(Object[] rows, SortSpec[] specs)
+	{
+		SortKeys[] keys = new SortKeys[specs.length];
+		for (int k = 0; k < specs.length; k++)
+			keys[k] = specs[k].extract(rows);
+		return keys;
+	}
+
+	/**
+	 * Computes the sorted order of a set of rows from their extracted keys.
+	 * Safe to call off of the Event Dispatch Thread.
+	 * @param keys the extracted keys.
+	 * @param rowCount the amount of rows.
+	 * @return the sorted row indices.
+	 */
+	private static int[] computeOrder(SortKeys[] keys, int rowCount)
+	{
+		int[] packed;
+		if ((packed = packedOrder(keys, rowCount)) != null)
+			return packed;
+
+		int[] out = new int[rowCount];
+		for (int i = 0; i < out.length; i++)
+			out[i] = i;
+		sort(out, keys.length == 1 ? keys[0] : new CompositeComparator(keys));
+		return out;
+	}
+
+	/**
+	 * Sorts by packing the ranks of all keys and the row index into one long per row and sorting those directly,
+	 * which avoids indirect key lookups and per-key comparisons during the sort. The ranks are combined in mixed radix,
+	 * with the first key most significant, and the row index in the low bits keeps the sort stable.
+	 * @param keys the extracted keys.
+	 * @param rowCount the amount of rows.
+	 * @return the sorted row indices, or null if any key is not a long key or the combined key range is too wide to pack.
+	 */
+	private static int[] packedOrder(SortKeys[] keys, int rowCount)
+	{
+		// ranks must stay positive when shifted.
+		long[] weights = new long[keys.length];
+		long total = 1L;
+		for (int k = keys.length - 1; k >= 0; k--)
+		{
+			if (!(keys[k] instanceof LongKeys))
+				return null;
+			long radix = ((LongKeys)keys[k]).radix();
+			if (radix < 0L || radix > Integer.MAX_VALUE)
+				return null;
+			weights[k] = total;
+			total *= radix;
+			if (total > Integer.MAX_VALUE)
+				return null;
+		}
+
+		long[] packed = new long[rowCount];
+		for (int i = 0; i < rowCount; i++)
+		{
+			long rank = 0L;
+			for (int k = 0; k < keys.length; k++)
+				rank += ((LongKeys)keys[k]).rank(i) * weights[k];
+			packed[i] = (rank << 32) | i;
+		}
+
+		if (packed.length >= PARALLEL_THRESHOLD)
+			Arrays.parallelSort(packed);
+		else
+			Arrays.sort(packed);
+
+		int[] out = new int[packed.length];
+		for (int i = 0; i < out.length; i++)
+			out[i] = (int)packed[i];
+		return out;
+	}
+
+	/**
+	 * Stable sort of row indices. Splits across the common pool for large arrays.
+	 * @param indices the indices to sort.
+	 * @param comparator the index comparator.
+	 */
+	static void sort(int[] indices, IndexComparator comparator)
+	{
+		int[] temp = new int[indices.length];
+		if (indices.length >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1)
+			ForkJoinPool.commonPool().invoke(new SortTask(indices, temp, 0, indices.length, comparator));
+		else
+			mergeSort(indices, temp, 0, indices.length, comparator);
+	}
+
+	// Stable merge sort of a range.
+	private static void mergeSort(int[] a, int[] temp, int start, int end, IndexComparator comparator)
+	{
+		if (end - start <= INSERTION_THRESHOLD)
+		{
+			insertionSort(a, start, end, comparator);
+			return;
+		}
+		int mid = (start + end) >>> 1;
+		mergeSort(a, temp, start, mid, comparator);
+		mergeSort(a, temp, mid, end, comparator);
+		merge(a, temp, start, mid, end, comparator);
+	}
+
+	// Stable insertion sort of a range.
+	private static void insertionSort(int[] a, int start, int end, IndexComparator comparator)
+	{
+		for (int i = start + 1; i < end; i++)
+		{
+			int x = a[i];
+			int j = i;
+			while (j > start && comparator.compare(a[j - 1], x) > 0)
+			{
+				a[j] = a[j - 1];
+				j--;
+			}
+			a[j] = x;
+		}
+	}
+
+	// Merges two adjacent sorted ranges.
+	private static void merge(int[] a, int[] temp, int start, int mid, int end, IndexComparator comparator)
+	{
+		// already in order? (common on re-sorts after appends)
+		if (comparator.compare(a[mid - 1], a[mid]) <= 0)
+			return;
+
+		System.arraycopy(a, start, temp, start, end - start);
+		int i = start, j = mid, k = start;
+		while (i < mid && j < end)
+			a[k++] = comparator.compare(temp[j], temp[i]) < 0 ? temp[j++] : temp[i++];
+		while (i < mid)
+			a[k++] = temp[i++];
+		while (j < end)
+			a[k++] = temp[j++];
+	}
+
+	/** Natural ordering comparator. */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static final Comparator<Object> COMPARABLE_COMPARATOR = new Comparator<Object>()
+	{
+		@Override
+		public int compare(Object o1, Object o2)
+		{
+			return ((Comparable)o1).compareTo(o2);
+		}
+	};
+
+	/**
+	 * Compares two rows by their indices.
+	 */
+	interface IndexComparator
+	{
+		/**
+		 * Compares two rows.
+		 * @param a the first row index.
+		 * @param b the second row index.
+		 * @return less than 0, 0, or greater than 0 if the first row comes before, is equal to, or after the second.
+		 */
+		int compare(int a, int b);
+	}
+
+	/**
+	 * Sort key storage types.
+	 */
+	private enum KeyType
+	{
+		/** Keys are objects, compared with a comparator. */
+		OBJECT,
+		/** Keys are longs. */
+		LONG,
+		/** Keys are doubles. */
+		DOUBLE;
+	}
+
+	/**
+	 * A resolved sort key column.
+	 */
+	private static class SortSpec
+	{
+		/** Column accessor. */
+		private ColumnAccessor accessor;
+		/** Comparator for values. */
+		private Comparator<Object> comparator;
+		/** Compare with collation keys? */
+		private boolean collate;
+		/** Collate the value's toString()? */
+		private boolean useToString;
+		/** Descending order? */
+		private boolean descending;
+		/** Key storage type. */
+		private KeyType keyType;
+		/** Getter returns a primitive? */
+		private boolean primitive;
+		/** Collator for collation keys, created on first use so that keys extracted later compare with earlier ones. */
+		private Collator collator;
+
+		// Extracts the keys from each row.
+		private SortKeys extract(Object[] rows)
+		{
+			switch (keyType)
+			{
+				case LONG:
+					return extractLongs(rows);
+				case DOUBLE:
+					return extractDoubles(rows);
+				default:
+					return extractObjects(rows);
+			}
+		}
+
+		private SortKeys extractLongs(Object[] rows)
+		{
+			long[] out = new long[rows.length];
+			boolean[] nulls = null;
+			if (primitive)
+			{
+				for (int i = 0; i < rows.length; i++)
+					out[i] = accessor.getLong(rows[i]);
+			}
+			else for (int i = 0; i < rows.length; i++)
+			{
+				Object value = accessor.get(rows[i]);
+				if (value == null)
+				{
+					if (nulls == null)
+						nulls = new boolean[rows.length];
+					nulls[i] = true;
+				}
+				else if (value instanceof Number)
+					out[i] = ((Number)value).longValue();
+				else if (value instanceof Enum)
+					out[i] = ((Enum<?>)value).ordinal();
+				else if (value instanceof Date)
+					out[i] = ((Date)value).getTime();
+				else if (value instanceof Boolean)
+					out[i] = ((Boolean)value) ? 1L : 0L;
+			}
+			return new LongKeys(out, nulls, descending);
+		}
+
+		private SortKeys extractDoubles(Object[] rows)
+		{
+			double[] out = new double[rows.length];
+			boolean[] nulls = null;
+			if (primitive)
+			{
+				for (int i = 0; i < rows.length; i++)
+					out[i] = accessor.getDouble(rows[i]);
+			}
+			else for (int i = 0; i < rows.length; i++)
+			{
+				Object value = accessor.get(rows[i]);
+				if (value == null)
+				{
+					if (nulls == null)
+						nulls = new boolean[rows.length];
+					nulls[i] = true;
+				}
+				else
+					out[i] = ((Number)value).doubleValue();
+			}
+			return new DoubleKeys(out, nulls, descending);
+		}
+
+		private SortKeys extractObjects(Object[] rows)
+		{
+			Object[] out = new Object[rows.length];
+			if (!collate)
+			{
+				for (int i = 0; i < rows.length; i++)
+					out[i] = accessor.get(rows[i]);
+				return new ObjectKeys(out, comparator, descending);
+			}
+
+			// collation keys are expensive - make one per distinct string.
+			if (collator == null)
+				collator = Collator.getInstance();
+			HashMap<String, CollationKey> keyCache = new HashMap<String, CollationKey>();
+			for (int i = 0; i < rows.length; i++)
+			{
+				Object value = accessor.get(rows[i]);
+				if (value == null)
+					continue;
+				String str = useToString ? value.toString() : (String)value;
+				CollationKey key = keyCache.get(str);
+				if (key == null)
+					keyCache.put(str, key = collator.getCollationKey(str));
+				out[i] = key;
+			}
+			return new ObjectKeys(out, COMPARABLE_COMPARATOR, descending);
+		}
+	}
+
+	/**
+	 * Extracted keys for one sort column. Nulls always sort before non-nulls in ascending order.
+	 */
+	private static abstract class SortKeys implements IndexComparator
+	{
+		/** Descending order? */
+		protected final boolean descending;
+
+		protected SortKeys(boolean descending)
+		{
+			this.descending = descending;
+		}
+
+		/**
+		 * Creates a copy of these keys with more keys inserted.
+		 * @param index the row index to insert at.
+		 * @param inserted the keys to insert, extracted by the same spec.
+		 * @return the new keys.
+		 */
+		abstract SortKeys insert(int index, SortKeys inserted);
+
+		/**
+		 * Creates a copy of these keys without a range of rows.
+		 * @param firstRow the first row to remove.
+		 * @param endRow the last row to remove (inclusive).
+		 * @return the new keys.
+		 */
+		abstract SortKeys delete(int firstRow, int endRow);
+
+		// Copies an array into a new one, with another array inserted at an index.
+		static void splice(Object source, int sourceLength, Object inserted, int insertedLength, int index, Object out)
+		{
+			System.arraycopy(source, 0, out, 0, index);
+			System.arraycopy(inserted, 0, out, index, insertedLength);
+			System.arraycopy(source, index, out, index + insertedLength, sourceLength - index);
+		}
+
+		// Copies an array into a new one, without a range of elements.
+		static void cut(Object source, int sourceLength, int firstRow, int endRow, Object out)
+		{
+			System.arraycopy(source, 0, out, 0, firstRow);
+			System.arraycopy(source, endRow + 1, out, firstRow, sourceLength - endRow - 1);
+		}
+
+		// Splices two null flag arrays, either of which can be null for no nulls.
+		static boolean[] spliceNulls(boolean[] source, int sourceLength, boolean[] inserted, int insertedLength, int index)
+		{
+			if (source == null && inserted == null)
+				return null;
+			boolean[] out = new boolean[sourceLength + insertedLength];
+			if (source != null)
+			{
+				System.arraycopy(source, 0, out, 0, index);
+				System.arraycopy(source, index, out, index + insertedLength, sourceLength - index);
+			}
+			if (inserted != null)
+				System.arraycopy(inserted, 0, out, index, insertedLength);
+			return out;
+		}
+
+		// Cuts a range out of a null flag array, which can be null for no nulls.
+		static boolean[] cutNulls(boolean[] source, int firstRow, int endRow)
+		{
+			if (source == null)
+				return null;
+			boolean[] out = new boolean[source.length - (endRow - firstRow + 1)];
+			cut(source, source.length, firstRow, endRow, out);
+			return out;
+		}
+	}
+
+	/**
+	 * Object keys with a comparator.
+	 */
+	private static class ObjectKeys extends SortKeys
+	{
+		private final Object[] keys;
+		private final Comparator<Object> comparator;
+
+		private ObjectKeys(Object[] keys, Comparator<Object> comparator, boolean descending)
+		{
+			super(descending);
+			this.keys = keys;
+			this.comparator = comparator;
+		}
+
+		@Override
+		public int compare(int a, int b)
+		{
+			Object v1 = keys[a];
+			Object v2 = keys[b];
+			int result;
+			if (v1 == null)
+				result = v2 == null ? 0 : -1;
+			else if (v2 == null)
+				result = 1;
+			else
+				result = comparator.compare(v1, v2);
+			return descending ? -result : result;
+		}
+
+		@Override
+		SortKeys insert(int index, SortKeys inserted)
+		{
+			Object[] add = ((ObjectKeys)inserted).keys;
+			Object[] out = new Object[keys.length + add.length];
+			splice(keys, keys.length, add, add.length, index, out);
+			return new ObjectKeys(out, comparator, descending);
+		}
+
+		@Override
+		SortKeys delete(int firstRow, int endRow)
+		{
+			Object[] out = new Object[keys.length - (endRow - firstRow + 1)];
+			cut(keys, keys.length, firstRow, endRow, out);
+			return new ObjectKeys(out, comparator, descending);
+		}
+	}
+
+	/**
+	 * Primitive long keys.
+	 */
+	private static class LongKeys extends SortKeys
+	{
+		private final long[] keys;
+		private final boolean[] nulls;
+		/** Smallest non-null key, set by radix(). */
+		private long min;
+		/** Largest non-null key, set by radix(). */
+		private long max;
+
+		private LongKeys(long[] keys, boolean[] nulls, boolean descending)
+		{
+			super(descending);
+			this.keys = keys;
+			this.nulls = nulls;
+		}
+
+		@Override
+		public int compare(int a, int b)
+		{
+			int result;
+			if (nulls != null && (nulls[a] || nulls[b]))
+				result = nulls[a] == nulls[b] ? 0 : (nulls[a] ? -1 : 1);
+			else
+				result = Long.compare(keys[a], keys[b]);
+			return descending ? -result : result;
+		}
+
+		@Override
+		SortKeys insert(int index, SortKeys inserted)
+		{
+			LongKeys add = (LongKeys)inserted;
+			long[] out = new long[keys.length + add.keys.length];
+			splice(keys, keys.length, add.keys, add.keys.length, index, out);
+			return new LongKeys(out, spliceNulls(nulls, keys.length, add.nulls, add.keys.length, index), descending);
+		}
+
+		@Override
+		SortKeys delete(int firstRow, int endRow)
+		{
+			long[] out = new long[keys.length - (endRow - firstRow + 1)];
+			cut(keys, keys.length, firstRow, endRow, out);
+			return new LongKeys(out, cutNulls(nulls, firstRow, endRow), descending);
+		}
+
+		/**
+		 * Finds the range of the non-null keys. Must be called before {@link #rank(int)}.
+		 * @return the amount of distinct ranks, including two for nulls, or -1 if the range does not fit in a long.
+		 */
+		private long radix()
+		{
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for (int i = 0; i < keys.length; i++)
+			{
+				if (nulls != null && nulls[i])
+					continue;
+				min = Math.min(min, keys[i]);
+				max = Math.max(max, keys[i]);
+			}
+			if (min > max)
+				min = max = 0L;
+
+			this.min = min;
+			this.max = max;
+			long range = max - min;
+			if (range < 0L || range > Long.MAX_VALUE - 3L)
+				return -1L;
+			// rank 0 and (range + 2) are reserved for nulls.
+			return range + 3L;
+		}
+
+		/**
+		 * Gets the rank of a row's key, from 0 to one less than {@link #radix()}, in sort order.
+		 * @param row the row index.
+		 * @return the rank.
+		 */
+		private long rank(int row)
+		{
+			if (nulls != null && nulls[row])
+				return descending ? max - min + 2L : 0L;
+			return descending ? max - keys[row] + 1L : keys[row] - min + 1L;
+		}
+	}
+
+	/**
+	 * Primitive double keys.
+	 */
+	private static class DoubleKeys extends SortKeys
+	{
+		private final double[] keys;
+		private final boolean[] nulls;
+
+		private DoubleKeys(double[] keys, boolean[] nulls, boolean descending)
+		{
+			super(descending);
+			this.keys = keys;
+			this.nulls = nulls;
+		}
+
+		@Override
+		public int compare(int a, int b)
+		{
+			int result;
+			if (nulls != null && (nulls[a] || nulls[b]))
+				result = nulls[a] == nulls[b] ? 0 : (nulls[a] ? -1 : 1);
+			else
+				result = Double.compare(keys[a], keys[b]);
+			return descending ? -result : result;
+		}
+
+		@Override
+		SortKeys insert(int index, SortKeys inserted)
+		{
+			DoubleKeys add = (DoubleKeys)inserted;
+			double[] out = new double[keys.length + add.keys.length];
+			splice(keys, keys.length, add.keys, add.keys.length, index, out);
+			return new DoubleKeys(out, spliceNulls(nulls, keys.length, add.nulls, add.keys.length, index), descending);
+		}
+
+		@Override
+		SortKeys delete(int firstRow, int endRow)
+		{
+			double[] out = new double[keys.length - (endRow - firstRow + 1)];
+			cut(keys, keys.length, firstRow, endRow, out);
+			return new DoubleKeys(out, cutNulls(nulls, firstRow, endRow), descending);
+		}
+	}
+
+	/**
+	 * Compares rows by several extracted keys, in order.
+	 */
+	private static class CompositeComparator implements IndexComparator
+	{
+		private final SortKeys[] keys;
+
+		private CompositeComparator(SortKeys[] keys)
+		{
+			this.keys = keys;
+		}
+
+		@Override
+		public int compare(int a, int b)
+		{
+			for (int k = 0; k < keys.length; k++)
+			{
+				int result = keys[k].compare(a, b);
+				if (result != 0)
+					return result;
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Parallel merge sort task.
+	 */
+	private static class SortTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = -2473580402317463541L;
+
+		private final int[] a;
+		private final int[] temp;
+		private final int start;
+		private final int end;
+		private final IndexComparator comparator;
+
+		private SortTask(int[] a, int[] temp, int start, int end, IndexComparator comparator)
+		{
+			this.a = a;
+			this.temp = temp;
+			this.start = start;
+			this.end = end;
+			this.comparator = comparator;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (end - start <= PARALLEL_GRAIN)
+			{
+				mergeSort(a, temp, start, end, comparator);
+				return;
+			}
+			int mid = (start + end) >>> 1;
+			invokeAll(
+				new SortTask(a, temp, start, mid, comparator),
+				new SortTask(a, temp, mid, end, comparator)
+			);
+			merge(a, temp, start, mid, end, comparator);
+		}
+	}
+
+	/**
+	 * Parallel filter task.
+	 */
+	private static class FilterTask<T> extends RecursiveAction
+	{
+		private static final long serialVersionUID = 4411786447402781256L;
+
+		private final RTableFilter<T> filter;
+		private final Object[] rows;
+		private final boolean[] out;
+		private final int start;
+		private final int end;
+
+		private FilterTask(RTableFilter<T> filter, Object[] rows, boolean[] out, int start, int end)
+		{
+			this.filter = filter;
+			this.rows = rows;
+			this.out = out;
+			this.start = start;
+			this.end = end;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> void filter(RTableFilter<T> filter, Object[] rows, boolean[] out, int start, int end)
+		{
+			for (int i = start; i < end; i++)
+				out[i] = filter.includeItem((T)rows[i]);
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (end - start <= PARALLEL_GRAIN)
+			{
+				filter(filter, rows, out, start, end);
+				return;
+			}
+			int mid = (start + end) >>> 1;
+			invokeAll(
+				new FilterTask<T>(filter, rows, out, start, mid),
+				new FilterTask<T>(filter, rows, out, mid, end)
+			);
+		}
+	}
+
+	/**
+	 * Background filter worker.
+	 * Model changes made in the meantime are logged, so that the result can be caught up with them.
+	 */
+	private class FilterWorker extends SwingWorker<boolean[], Void>
+	{
+		private final RTableFilter<T> filter;
+		private final int[] candidates;
+		private final Object[] rows;
+		/** Model row count when the rows were taken. */
+		private final int rowCount;
+		private final long workerGeneration;
+		/** Model changes since the rows were taken, as event type, first row, and count triples. */
+		private int[] changes;
+		private int changeCount;
+
+		private FilterWorker(RTableFilter<T> filter, int[] candidates, Object[] rows, int rowCount, long workerGeneration)
+		{
+			this.filter = filter;
+			this.candidates = candidates;
+			this.rows = rows;
+			this.rowCount = rowCount;
+			this.workerGeneration = workerGeneration;
+			this.changes = new int[MAX_PENDING_CHANGES * 3];
+			this.changeCount = 0;
+		}
+
+		// Logs a model change.
+		private void logChange(int type, int firstRow, int count)
+		{
+			if (changeCount < MAX_PENDING_CHANGES)
+			{
+				changes[changeCount * 3] = type;
+				changes[changeCount * 3 + 1] = firstRow;
+				changes[changeCount * 3 + 2] = count;
+			}
+			changeCount++;
+		}
+
+		@Override
+		protected boolean[] doInBackground() throws Exception
+		{
+			return evaluateFilter(filter, rows, true);
+		}
+
+		@Override
+		protected void done()
+		{
+			if (isCancelled() || workerGeneration != filterGeneration)
+				return;
+
+			pendingFilter = null;
+			boolean[] result;
+			try {
+				result = get();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Background filter failed.", e.getCause());
+			}
+
+			if (changeCount == 0)
+				applyFilter(filter, candidates, result);
+			else if ((result = catchUp(result)) != null)
+				applyFilter(filter, null, result);
+			else
+				setRowFilter(filter);
+		}
+
+		/**
+		 * Brings a result up to date with the logged model changes.
+		 * Inserted and updated rows are tested again once all of the changes are replayed.
+		 * @return the results for every current model row, or null if there were too many changes or rows to test.
+		 */
+		private boolean[] catchUp(boolean[] result)
+		{
+			if (changeCount > MAX_PENDING_CHANGES)
+				return null;
+
+			int size = rowCount;
+			boolean[] out;
+			if (candidates == null)
+				out = result;
+			else
+			{
+				out = new boolean[size];
+				for (int i = 0; i < candidates.length; i++)
+					out[candidates[i]] = result[i];
+			}
+			boolean[] stale = new boolean[size];
+
+			for (int c = 0; c < changeCount; c++)
+			{
+				int type = changes[c * 3];
+				int first = changes[c * 3 + 1];
+				int count = changes[c * 3 + 2];
+				switch (type)
+				{
+					case TableModelEvent.INSERT:
+					{
+						out = spliceFlags(out, size, first, count);
+						stale = spliceFlags(stale, size, first, count);
+						Arrays.fill(stale, first, first + count, true);
+						size += count;
+						break;
+					}
+					case TableModelEvent.DELETE:
+					{
+						boolean[] next = new boolean[size - count];
+						SortKeys.cut(out, size, first, first + count - 1, next);
+						out = next;
+						next = new boolean[size - count];
+						SortKeys.cut(stale, size, first, first + count - 1, next);
+						stale = next;
+						size -= count;
+						break;
+					}
+					case TableModelEvent.UPDATE:
+					{
+						Arrays.fill(stale, first, first + count, true);
+						break;
+					}
+				}
+			}
+			if (size != modelRowCount)
+				return null;
+
+			int tested = 0;
+			for (int i = 0; i < size; i++)
+				if (stale[i])
+					tested++;
+			if (tested >= asyncThreshold)
+				return null;
+
+			for (int i = 0; i < size; i++)
+				if (stale[i])
+					out[i] = filter.includeItem(model.getRowAt(i));
+			return out;
+		}
+	}
+
+	// Returns a copy of a flag array with a range of unset flags inserted.
+	private static boolean[] spliceFlags(boolean[] flags, int size, int index, int count)
+	{
+		boolean[] out = new boolean[size + count];
+		System.arraycopy(flags, 0, out, 0, index);
+		System.arraycopy(flags, index, out, index + count, size - index);
+		return out;
+	}
+
+	/**
+	 * Background sort worker.
+	 */
+	private class SortWorker extends SwingWorker<int[], Void>
+	{
+		private final Object[] rows;
+		private final SortSpec[] specs;
+		private final long workerGeneration;
+		/** Extracted keys, set in the background before the result is available. */
+		private SortKeys[] keys;
+
+		private SortWorker(Object[] rows, SortSpec[] specs, long workerGeneration)
+		{
+			this.rows = rows;
+			this.specs = specs;
+			this.workerGeneration = workerGeneration;
+			this.keys = null;
+		}
+
+		@Override
+		protected int[] doInBackground() throws Exception
+		{
+			keys = extractKeys(rows, specs);
+			return computeOrder(keys, rows.length);
+		}
+
+		@Override
+		protected void done()
+		{
+			if (isCancelled() || workerGeneration != generation)
+				return;
+
+			pendingSort = null;
+			int[] result;
+			try {
+				result = get();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Background sort failed.", e.getCause());
+			}
+
+			int[] last = getPreviousMapping();
+			setOrder(result, specs, keys);
+			buildView();
+			fireRowSorterChanged(last);
+		}
+	}
+
+}
@@ -0,0 +1,588 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.Arrays;
+
+import javax.swing.ListSelectionModel;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableModelEvent;
+
+/**
+ * A row selection model that stores the selection as model indices in a {@link RowBitSet}.
+ * <p>The {@link ListSelectionModel} methods take and return view indices like any other selection model,
+ * and convert them through the row sorter. Because the stored indices do not depend on the view,
+ * sorting and filtering never have to move the selection around. Rows that are filtered out stay
+ * selected, but are not reported until they are visible again. Selecting every row while no filter
+ * is set only marks a few chunks of the set, no matter how many rows there are.
+ * <p>The table must not update the selection on sort itself, and model changes must be passed
+ * to {@link #modelChanged(TableModelEvent)} after the table and its sorter have seen them.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class RTableSelectionModel implements ListSelectionModel, RowSorterListener
+{
+	/** Selected row count above which the selection extent is found by scanning the view instead. */
+	private static final int SCAN_THRESHOLD = 4096;
+
+	/** The row sorter. */
+	private final RTableRowSorter<?> sorter;
+	/** Selected model indices. */
+	private final RowBitSet selected;
+	/** Listeners. */
+	private final EventListenerList listenerList;
+
+	/** Selection mode. */
+	private int selectionMode;
+	/** Anchor, as a model index. */
+	private int anchorIndex;
+	/** Lead, as a model index. */
+	private int leadIndex;
+	/** Adjusting flag. */
+	private boolean valueIsAdjusting;
+
+	/** First view index changed since the last event, or -1. */
+	private int dirtyFirst;
+	/** Last view index changed since the last event, or -1. */
+	private int dirtyLast;
+	/** First view index changed while adjusting, or -1. */
+	private int adjustedFirst;
+	/** Last view index changed while adjusting, or -1. */
+	private int adjustedLast;
+	/** Set if the selection changed while the sorter may not be caught up with the model. */
+	private boolean pendingChange;
+	/** Model row count as of the last model change seen. */
+	private int modelRowCount;
+
+	/** Cached lowest selected view index. */
+	private int minIndex;
+	/** Cached highest selected view index. */
+	private int maxIndex;
+	/** Set if the cached extent is up to date. */
+	private boolean extentValid;
+
+	/**
+	 * Creates a new selection model.
+	 * @param sorter the table's row sorter.
+	 */
+	RTableSelectionModel(RTableRowSorter<?> sorter)
+	{
+		this.sorter = sorter;
+		this.selected = new RowBitSet();
+		this.listenerList = new EventListenerList();
+		this.selectionMode = MULTIPLE_INTERVAL_SELECTION;
+		this.anchorIndex = -1;
+		this.leadIndex = -1;
+		this.valueIsAdjusting = false;
+		this.dirtyFirst = -1;
+		this.dirtyLast = -1;
+		this.adjustedFirst = -1;
+		this.adjustedLast = -1;
+		this.pendingChange = false;
+		this.modelRowCount = sorter.getModel().getRowCount();
+		this.extentValid = false;
+		sorter.addRowSorterListener(this);
+	}
+
+	@Override
+	public void setSelectionInterval(int index0, int index1)
+	{
+		if (index0 < 0 || index1 < 0)
+			return;
+		if (selectionMode == SINGLE_SELECTION)
+			index0 = index1;
+		// cleared and selected again with one event.
+		if (!selected.isEmpty())
+		{
+			selected.clear();
+			markDirty(0, sorter.getViewRowCount() - 1);
+		}
+		anchorIndex = toModel(index0);
+		leadIndex = toModel(index1);
+		addViewRange(Math.min(index0, index1), Math.max(index0, index1));
+		changed(0, -1);
+	}
+
+	@Override
+	public void addSelectionInterval(int index0, int index1)
+	{
+		if (index0 < 0 || index1 < 0)
+			return;
+		if (selectionMode != MULTIPLE_INTERVAL_SELECTION)
+		{
+			setSelectionInterval(index0, index1);
+			return;
+		}
+		anchorIndex = toModel(index0);
+		leadIndex = toModel(index1);
+		addViewRange(Math.min(index0, index1), Math.max(index0, index1));
+	}
+
+	@Override
+	public void removeSelectionInterval(int index0, int index1)
+	{
+		if (index0 < 0 || index1 < 0)
+			return;
+		int first = Math.min(index0, index1);
+		int last = Math.max(index0, index1);
+		// a single interval cannot be split in two.
+		if (selectionMode == SINGLE_INTERVAL_SELECTION && first > getMinSelectionIndex() && last < getMaxSelectionIndex())
+			last = getMaxSelectionIndex();
+		anchorIndex = toModel(index0);
+		leadIndex = toModel(index1);
+		removeViewRange(first, last);
+	}
+
+	@Override
+	public int getMinSelectionIndex()
+	{
+		updateExtent();
+		return minIndex;
+	}
+
+	@Override
+	public int getMaxSelectionIndex()
+	{
+		updateExtent();
+		return maxIndex;
+	}
+
+	@Override
+	public boolean isSelectedIndex(int index)
+	{
+		int modelIndex = toModel(index);
+		return modelIndex >= 0 && selected.contains(modelIndex);
+	}
+
+	@Override
+	public int getAnchorSelectionIndex()
+	{
+		return toView(anchorIndex);
+	}
+
+	@Override
+	public void setAnchorSelectionIndex(int index)
+	{
+		anchorIndex = toModel(index);
+	}
+
+	@Override
+	public int getLeadSelectionIndex()
+	{
+		return toView(leadIndex);
+	}
+
+	@Override
+	public void setLeadSelectionIndex(int index)
+	{
+		int old = getLeadSelectionIndex();
+		leadIndex = toModel(index);
+		if (old != index)
+		{
+			// repaints the old and new lead.
+			if (old >= 0)
+				markDirty(old, old);
+			if (index >= 0)
+				markDirty(index, index);
+			fireChanges();
+		}
+	}
+
+	@Override
+	public void clearSelection()
+	{
+		if (selected.isEmpty())
+			return;
+		selected.clear();
+		changed(0, sorter.getViewRowCount() - 1);
+	}
+
+	@Override
+	public boolean isSelectionEmpty()
+	{
+		return getMinSelectionIndex() < 0;
+	}
+
+	/**
+	 * Does nothing. Rows are inserted through {@link #modelChanged(TableModelEvent)}.
+	 */
+	@Override
+	public void insertIndexInterval(int index, int length, boolean before)
+	{
+		// Do nothing.
+	}
+
+	/**
+	 * Does nothing. Rows are removed through {@link #modelChanged(TableModelEvent)}.
+	 */
+	@Override
+	public void removeIndexInterval(int index0, int index1)
+	{
+		// Do nothing.
+	}
+
+	@Override
+	public void setValueIsAdjusting(boolean valueIsAdjusting)
+	{
+		if (this.valueIsAdjusting == valueIsAdjusting)
+			return;
+		this.valueIsAdjusting = valueIsAdjusting;
+		if (!valueIsAdjusting && adjustedFirst >= 0)
+		{
+			// one last event for everything that changed while adjusting.
+			int first = adjustedFirst;
+			int last = adjustedLast;
+			adjustedFirst = -1;
+			adjustedLast = -1;
+			fireValueChanged(first, last, false);
+		}
+	}
+
+	@Override
+	public boolean getValueIsAdjusting()
+	{
+		return valueIsAdjusting;
+	}
+
+	@Override
+	public void setSelectionMode(int selectionMode)
+	{
+		switch (selectionMode)
+		{
+			case SINGLE_SELECTION:
+			case SINGLE_INTERVAL_SELECTION:
+			case MULTIPLE_INTERVAL_SELECTION:
+				this.selectionMode = selectionMode;
+				break;
+			default:
+				throw new IllegalArgumentException("invalid selectionMode");
+		}
+	}
+
+	@Override
+	public int getSelectionMode()
+	{
+		return selectionMode;
+	}
+
+	@Override
+	public void addListSelectionListener(ListSelectionListener listener)
+	{
+		listenerList.add(ListSelectionListener.class, listener);
+	}
+
+	@Override
+	public void removeListSelectionListener(ListSelectionListener listener)
+	{
+		listenerList.remove(ListSelectionListener.class, listener);
+	}
+
+	@Override
+	public void sorterChanged(RowSorterEvent e)
+	{
+		extentValid = false;
+	}
+
+	/**
+	 * Moves the selection along with rows inserted into or deleted from the model.
+	 * Must be called after the table and its sorter have handled the event.
+	 * @param e the model event.
+	 */
+	void modelChanged(TableModelEvent e)
+	{
+		extentValid = false;
+		int rowCount = sorter.getModel().getRowCount();
+		if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE)
+		{
+			// the table clears the selection by itself.
+			modelRowCount = rowCount;
+		}
+		else if (e.getType() == TableModelEvent.INSERT)
+		{
+			int length = e.getLastRow() - e.getFirstRow() + 1;
+			modelRowCount += length;
+			selected.insertRange(e.getFirstRow(), length);
+			anchorIndex = shiftInserted(anchorIndex, e.getFirstRow(), length);
+			leadIndex = shiftInserted(leadIndex, e.getFirstRow(), length);
+		}
+		else if (e.getType() == TableModelEvent.DELETE)
+		{
+			int first = e.getFirstRow();
+			int last = e.getLastRow();
+			modelRowCount -= last - first + 1;
+			int next = selected.nextSetBit(first);
+			if (next >= 0 && next <= last)
+				pendingChange = true;
+			selected.deleteRange(first, last);
+			anchorIndex = shiftDeleted(anchorIndex, first, last);
+			leadIndex = shiftDeleted(leadIndex, first, last);
+		}
+
+		// bulk removals report several ranges after all of the rows are gone,
+		// so listeners are only told once the last one is in.
+		if (pendingChange && modelRowCount == rowCount)
+		{
+			pendingChange = false;
+			changed(0, sorter.getViewRowCount() - 1);
+		}
+	}
+
+	/**
+	 * Replaces the selection with a set of view rows, with one event.
+	 * @param rows the view indices. Out-of-range indices are ignored.
+	 */
+	void setSelectedViewRows(int[] rows)
+	{
+		int viewCount = sorter.getViewRowCount();
+		selected.clear();
+		int last = -1;
+		for (int i = 0; i < rows.length; i++)
+		{
+			if (rows[i] < 0 || rows[i] >= viewCount)
+				continue;
+			selected.add(sorter.convertRowIndexToModel(rows[i]));
+			last = rows[i];
+		}
+		if (selectionMode == SINGLE_SELECTION && last >= 0)
+		{
+			selected.clear();
+			selected.add(sorter.convertRowIndexToModel(last));
+		}
+		anchorIndex = leadIndex = toModel(last);
+		changed(0, viewCount - 1);
+	}
+
+	/**
+	 * Replaces the selection with a set of model rows, with one event.
+	 * @param rows the model indices. Out-of-range indices are ignored.
+	 */
+	void setSelectedModelRows(int[] rows)
+	{
+		selected.clear();
+		int last = -1;
+		for (int i = 0; i < rows.length; i++)
+		{
+			if (rows[i] < 0 || rows[i] >= modelRowCount)
+				continue;
+			selected.add(rows[i]);
+			last = rows[i];
+		}
+		if (selectionMode == SINGLE_SELECTION && last >= 0)
+		{
+			selected.clear();
+			selected.add(last);
+		}
+		anchorIndex = leadIndex = last;
+		changed(0, sorter.getViewRowCount() - 1);
+	}
+
+	/**
+	 * Gets the next selected model index that is visible.
+	 * @param modelIndex the model index to start from.
+	 * @return the model index found, or -1 if none.
+	 */
+	int nextSelected(int modelIndex)
+	{
+		int out = selected.nextSetBit(modelIndex);
+		if (sorter.isIdentity())
+			return out < modelRowCount ? out : -1;
+		while (out >= 0 && out < modelRowCount && sorter.convertRowIndexToView(out) < 0)
+			out = selected.nextSetBit(out + 1);
+		return out < modelRowCount ? out : -1;
+	}
+
+	/**
+	 * @return the amount of visible selected rows.
+	 */
+	int getSelectedCount()
+	{
+		if (sorter.getViewRowCount() == modelRowCount)
+			return selected.cardinality();
+		int out = 0;
+		for (int i = nextSelected(0); i >= 0; i = nextSelected(i + 1))
+			out++;
+		return out;
+	}
+
+	/**
+	 * @return the visible selected rows, as model indices in ascending order.
+	 */
+	int[] getSelectedModelRows()
+	{
+		int[] out = new int[getSelectedCount()];
+		int n = 0;
+		for (int i = nextSelected(0); i >= 0 && n < out.length; i = nextSelected(i + 1))
+			out[n++] = i;
+		return out;
+	}
+
+	/**
+	 * @return the visible selected rows, as view indices in ascending order.
+	 */
+	int[] getSelectedViewRows()
+	{
+		int[] out = getSelectedModelRows();
+		if (sorter.isIdentity())
+			return out;
+		for (int i = 0; i < out.length; i++)
+			out[i] = sorter.convertRowIndexToView(out[i]);
+		Arrays.sort(out);
+		return out;
+	}
+
+	// Selects a range of view rows.
+	private void addViewRange(int first, int last)
+	{
+		int viewCount = sorter.getViewRowCount();
+		last = Math.min(last, viewCount - 1);
+		if (first > last)
+			return;
+		if (sorter.isIdentity() || (first == 0 && last == viewCount - 1 && viewCount == modelRowCount))
+			selected.addRange(sorter.isIdentity() ? first : 0, sorter.isIdentity() ? last : modelRowCount - 1);
+		else for (int i = first; i <= last; i++)
+			selected.add(sorter.convertRowIndexToModel(i));
+		changed(first, last);
+	}
+
+	// Deselects a range of view rows.
+	private void removeViewRange(int first, int last)
+	{
+		int viewCount = sorter.getViewRowCount();
+		last = Math.min(last, viewCount - 1);
+		if (first > last)
+			return;
+		if (sorter.isIdentity())
+			selected.removeRange(first, last);
+		else if (first == 0 && last == viewCount - 1 && viewCount == modelRowCount)
+			selected.clear();
+		else for (int i = first; i <= last; i++)
+			selected.remove(sorter.convertRowIndexToModel(i));
+		changed(first, last);
+	}
+
+	// Converts a view index to a model index, or -1 if out of range.
+	private int toModel(int viewIndex)
+	{
+		if (viewIndex < 0 || viewIndex >= sorter.getViewRowCount())
+			return -1;
+		return sorter.convertRowIndexToModel(viewIndex);
+	}
+
+	// Converts a model index to a view index, or -1 if out of range or not visible.
+	private int toView(int modelIndex)
+	{
+		// the table sees model changes before this does.
+		if (modelIndex < 0 || modelIndex >= Math.min(modelRowCount, sorter.getModelRowCount()) || pendingChange)
+			return -1;
+		return sorter.convertRowIndexToView(modelIndex);
+	}
+
+	// Moves a model index past inserted rows.
+	private static int shiftInserted(int index, int first, int length)
+	{
+		return index >= first ? index + length : index;
+	}
+
+	// Moves a model index past deleted rows. Indices in the deleted range become -1.
+	private static int shiftDeleted(int index, int first, int last)
+	{
+		if (index < first)
+			return index;
+		return index > last ? index - (last - first + 1) : -1;
+	}
+
+	// Finds the lowest and highest selected view indices.
+	private void updateExtent()
+	{
+		if (extentValid)
+			return;
+		extentValid = true;
+		minIndex = -1;
+		maxIndex = -1;
+		if (pendingChange || selected.isEmpty())
+			return;
+
+		int viewCount = sorter.getViewRowCount();
+		if (sorter.isIdentity())
+		{
+			minIndex = selected.nextSetBit(0);
+			maxIndex = selected.previousSetBit(viewCount - 1);
+			if (minIndex >= viewCount)
+				minIndex = maxIndex = -1;
+		}
+		else if (selected.cardinality() <= SCAN_THRESHOLD)
+		{
+			for (int i = selected.nextSetBit(0); i >= 0 && i < modelRowCount; i = selected.nextSetBit(i + 1))
+			{
+				int view = sorter.convertRowIndexToView(i);
+				if (view < 0)
+					continue;
+				minIndex = minIndex < 0 ? view : Math.min(minIndex, view);
+				maxIndex = Math.max(maxIndex, view);
+			}
+		}
+		else
+		{
+			// a large selection is probably dense in the view, too.
+			for (int i = 0; i < viewCount && minIndex < 0; i++)
+				if (selected.contains(sorter.convertRowIndexToModel(i)))
+					minIndex = i;
+			for (int i = viewCount - 1; i >= 0 && maxIndex < 0; i--)
+				if (selected.contains(sorter.convertRowIndexToModel(i)))
+					maxIndex = i;
+		}
+	}
+
+	// Records a change to a range of view rows and fires all changes so far.
+	private void changed(int first, int last)
+	{
+		extentValid = false;
+		if (first <= last)
+			markDirty(first, last);
+		fireChanges();
+	}
+
+	// Adds a range of view rows to the next event.
+	private void markDirty(int first, int last)
+	{
+		dirtyFirst = dirtyFirst < 0 ? first : Math.min(dirtyFirst, first);
+		dirtyLast = Math.max(dirtyLast, last);
+	}
+
+	// Fires the pending changes, and remembers them if adjusting.
+	private void fireChanges()
+	{
+		if (dirtyFirst < 0)
+			return;
+		int first = dirtyFirst;
+		int last = dirtyLast;
+		dirtyFirst = -1;
+		dirtyLast = -1;
+		if (valueIsAdjusting)
+		{
+			adjustedFirst = adjustedFirst < 0 ? first : Math.min(adjustedFirst, first);
+			adjustedLast = Math.max(adjustedLast, last);
+		}
+		fireValueChanged(first, last, valueIsAdjusting);
+	}
+
+	// Notifies listeners of a change.
+	private void fireValueChanged(int first, int last, boolean isAdjusting)
+	{
+		ListSelectionEvent event = new ListSelectionEvent(this, first, last, isAdjusting);
+		Object[] listeners = listenerList.getListenerList();
+		for (int i = listeners.length - 2; i >= 0; i -= 2)
+			if (listeners[i] == ListSelectionListener.class)
+				((ListSelectionListener)listeners[i + 1]).valueChanged(event);
+	}
+
+}
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.Timer;
+
+import com.blackrook.commons.list.List;
+
+/**
+ * A lock-free queue of table changes that any thread can post to,
+ * drained on the Event Dispatch Thread at most once per frame.
+ * <p>Each drain takes up to a maximum amount of changes and coalesces them into one set of removals,
+ * one set of additions, and one set of updates, which are handed to the {@link Applier} together.
+ * An item added and then removed in the same drain is never added at all.
+ * Changes past the maximum wait for the next frame.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class RTableUpdateQueue<T>
+{
+	/** Default drains per second. */
+	static final int DEFAULT_FRAME_RATE = 30;
+	/** Default maximum changes per drain. */
+	static final int DEFAULT_MAX_BATCH = 10000;
+
+	/**
+	 * Change types.
+	 */
+	static enum Type
+	{
+		ADD,
+		UPDATE,
+		REMOVE;
+	}
+
+	/**
+	 * Applies batches of changes on the Event Dispatch Thread.
+	 */
+	static interface Applier<T>
+	{
+		/**
+		 * Applies one drain's worth of coalesced changes.
+		 * Removals must be applied first, then additions, then updates.
+		 * @param removed the items to remove, which were in the table before this drain.
+		 * @param added the items to add to the end of the table, in posted order.
+		 * @param updated the items to report as updated. May include items no longer in the table.
+		 */
+		void apply(List<T> removed, List<T> added, List<T> updated);
+	}
+
+	/** The applier. */
+	private final Applier<T> applier;
+	/** Queued changes. */
+	private final ConcurrentLinkedQueue<Change<T>> queue;
+	/** Drain timer. */
+	private final Timer timer;
+	/** Set while a drain is scheduled. */
+	private final AtomicBoolean scheduled;
+
+	/** Amount of queued changes. */
+	private final AtomicInteger size;
+	/** Highest amount of queued changes seen. */
+	private final AtomicInteger peakSize;
+	/** Total changes applied. */
+	private final AtomicLong appliedCount;
+	/** Total changes rejected because the queue was full. */
+	private final AtomicLong rejectedCount;
+
+	/** Maximum amount of queued changes. 0 is unbounded. */
+	private volatile int capacity;
+	/** Maximum changes per drain. */
+	private volatile int maxBatch;
+
+	/**
+	 * Creates a new queue.
+	 * @param applier the applier to hand changes to.
+	 */
+	RTableUpdateQueue(Applier<T> applier)
+	{
+		this.applier = applier;
+		this.queue = new ConcurrentLinkedQueue<Change<T>>();
+		this.scheduled = new AtomicBoolean(false);
+		this.size = new AtomicInteger(0);
+		this.peakSize = new AtomicInteger(0);
+		this.appliedCount = new AtomicLong(0L);
+		this.rejectedCount = new AtomicLong(0L);
+		this.capacity = 0;
+		this.maxBatch = DEFAULT_MAX_BATCH;
+		this.timer = new Timer(1000 / DEFAULT_FRAME_RATE, new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				drain();
+			}
+		});
+		this.timer.setRepeats(false);
+		this.timer.setCoalesce(true);
+	}
+
+	/**
+	 * Sets the maximum amount of drains per second.
+	 * @param framesPerSecond the frame rate.
+	 * @throws IllegalArgumentException if framesPerSecond is less than 1.
+	 */
+	void setFrameRate(int framesPerSecond)
+	{
+		if (framesPerSecond < 1)
+			throw new IllegalArgumentException("Frame rate must be at least 1.");
+		timer.setInitialDelay(Math.max(1000 / framesPerSecond, 1));
+	}
+
+	/**
+	 * Sets the maximum amount of queued changes. Posts past this are rejected.
+	 * @param capacity the capacity, or 0 for unbounded.
+	 * @throws IllegalArgumentException if capacity is less than 0.
+	 */
+	void setCapacity(int capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity cannot be less than 0.");
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Sets the maximum amount of changes applied per drain.
+	 * @param maxBatch the maximum batch size.
+	 * @throws IllegalArgumentException if maxBatch is less than 1.
+	 */
+	void setMaxBatch(int maxBatch)
+	{
+		if (maxBatch < 1)
+			throw new IllegalArgumentException("Maximum batch size must be at least 1.");
+		this.maxBatch = maxBatch;
+	}
+
+	/**
+	 * Posts a change. Can be called from any thread.
+	 * @param type the change type.
+	 * @param item the changed item.
+	 * @return true if queued, false if the queue is full.
+	 */
+	boolean post(Type type, T item)
+	{
+		int max = capacity;
+		int current;
+		do {
+			current = size.get();
+			if (max > 0 && current >= max)
+			{
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+		} while (!size.compareAndSet(current, current + 1));
+
+		int peak;
+		while ((peak = peakSize.get()) < current + 1 && !peakSize.compareAndSet(peak, current + 1));
+
+		queue.offer(new Change<T>(type, item));
+		if (scheduled.compareAndSet(false, true))
+			timer.restart();
+		return true;
+	}
+
+	/**
+	 * @return the amount of queued changes.
+	 */
+	int getSize()
+	{
+		return size.get();
+	}
+
+	/**
+	 * @return the highest amount of queued changes seen.
+	 */
+	int getPeakSize()
+	{
+		return peakSize.get();
+	}
+
+	/**
+	 * @return the total amount of changes applied.
+	 */
+	long getAppliedCount()
+	{
+		return appliedCount.get();
+	}
+
+	/**
+	 * @return the total amount of changes rejected because the queue was full.
+	 */
+	long getRejectedCount()
+	{
+		return rejectedCount.get();
+	}
+
+	// Drains up to one batch on the Event Dispatch Thread.
+	private void drain()
+	{
+		int max = maxBatch;
+		int count = 0;
+		try {
+			List<T> removed = new List<T>();
+			List<T> added = new List<T>();
+			List<T> updated = new List<T>();
+			// additions not yet applied, per item, so that a later removal can cancel one.
+			IdentityHashMap<T, Integer> addCounts = new IdentityHashMap<T, Integer>();
+			IdentityHashMap<T, Integer> cancelCounts = new IdentityHashMap<T, Integer>();
+
+			Change<T> change;
+			while (count < max && (change = queue.poll()) != null)
+			{
+				count++;
+				switch (change.type)
+				{
+					case ADD:
+						added.add(change.item);
+						increment(addCounts, change.item);
+						break;
+					case REMOVE:
+						if (decrement(addCounts, change.item))
+							increment(cancelCounts, change.item);
+						else
+							removed.add(change.item);
+						break;
+					case UPDATE:
+						updated.add(change.item);
+						break;
+				}
+			}
+
+			if (!cancelCounts.isEmpty())
+			{
+				List<T> kept = new List<T>(Math.max(added.size(), 1));
+				for (T item : added)
+				{
+					if (!decrement(cancelCounts, item))
+						kept.add(item);
+				}
+				added = kept;
+			}
+
+			if (count > 0)
+				applier.apply(removed, added, updated);
+		} finally {
+			size.addAndGet(-count);
+			appliedCount.addAndGet(count);
+			reschedule();
+		}
+	}
+
+	// Increments an item count.
+	private static <T> void increment(IdentityHashMap<T, Integer> counts, T item)
+	{
+		Integer current = counts.get(item);
+		counts.put(item, current != null ? current + 1 : 1);
+	}
+
+	// Decrements an item count. Returns false if it was already 0.
+	private static <T> boolean decrement(IdentityHashMap<T, Integer> counts, T item)
+	{
+		Integer current = counts.get(item);
+		if (current == null)
+			return false;
+		if (current == 1)
+			counts.remove(item);
+		else
+			counts.put(item, current - 1);
+		return true;
+	}
+
+	// Schedules the next drain if there is anything left.
+	private void reschedule()
+	{
+		if (!queue.isEmpty())
+		{
+			timer.restart();
+			return;
+		}
+		scheduled.set(false);
+		// a post may have happened after the empty check but before the flag was cleared.
+		if (!queue.isEmpty() && scheduled.compareAndSet(false, true))
+			timer.restart();
+	}
+
+	/**
+	 * A single queued change.
+	 */
+	private static class Change<T>
+	{
+		private final Type type;
+		private final T item;
+
+		private Change(Type type, T item)
+		{
+			this.type = type;
+			this.item = item;
+		}
+	}
+
+}
@@ -12,12 +12,14 @@ import java.util.Date;
 
 /**
  * A class that contains table sorters/renderers for classes.
+ * <p>When one of these comparators is used for a column of the matching type,
+ * RTable sorting compares primitive keys extracted from the column instead of calling the comparator.
  * @author Matthew Tropiano
  * @since 2.5.0
  */
 public interface RTableUtils
 {
-	/** Comparator for Booleans. */
+	/** Comparator for Enums, by ordinal. */
 	@SuppressWarnings("rawtypes")
 	public static final Comparator<Enum> ENUM_COMPARATOR = new Comparator<Enum>()
 	{
@@ -26,14 +28,12 @@ public interface RTableUtils
 		{
 			if (obj1 == obj2)
 				return 0;
-			else if (obj1 == null && obj2 != null)
+			else if (obj1 == null)
 				return -1;
-			else if (obj1 != null && obj2 == null)
+			else if (obj2 == null)
 				return 1;
-			else if (obj1.equals(obj2))
-				return 0;
 			else
-				return obj1.ordinal() - obj2.ordinal();
+				return Integer.compare(obj1.ordinal(), obj2.ordinal());
 		};
 	};  
 
@@ -45,18 +45,20 @@ public interface RTableUtils
 		{
 			if (obj1 == obj2)
 				return 0;
-			else if (obj1 == null && obj2 != null)
+			else if (obj1 == null)
 				return -1;
-			else if (obj1 != null && obj2 == null)
+			else if (obj2 == null)
 				return 1;
-			else if (obj1.equals(obj2))
-				return 0;
 			else
-				return obj1.compareTo(obj2);
+				return Boolean.compare(obj1, obj2);
 		};
 	};  
 
-	/** Comparator for Numbers. */
+	/** 
+	 * Comparator for Numbers.
+	 * Integral wrapper types (Byte, Short, Integer, Long) are compared exactly as longs, 
+	 * and everything else is compared as doubles, so equal values of different types compare as equal.
+	 */
 	public static final Comparator<Number> NUMBER_COMPARATOR = new Comparator<Number>()
 	{
 		@Override
@@ -64,18 +66,83 @@ public interface RTableUtils
 		{
 			if (obj1 == obj2)
 				return 0;
-			else if (obj1 == null && obj2 != null)
+			else if (obj1 == null)
 				return -1;
-			else if (obj1 != null && obj2 == null)
+			else if (obj2 == null)
 				return 1;
-			else if (obj1.equals(obj2))
+			else if (isIntegral(obj1) && isIntegral(obj2))
+				return Long.compare(obj1.longValue(), obj2.longValue());
+			else
+				return Double.compare(obj1.doubleValue(), obj2.doubleValue());
+		};
+		
+		private boolean isIntegral(Number n)
+		{
+			return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+		}
+	};
+
+	/** 
+	 * Comparator for Integers.
+	 * @since 2.8.0
+	 */
+	public static final Comparator<Integer> INTEGER_COMPARATOR = new Comparator<Integer>()
+	{
+		@Override
+		public int compare(Integer obj1, Integer obj2)
+		{
+			if (obj1 == obj2)
 				return 0;
+			else if (obj1 == null)
+				return -1;
+			else if (obj2 == null)
+				return 1;
 			else
-				return obj1.doubleValue() > obj2.doubleValue() ? 1 : -1;
+				return Integer.compare(obj1, obj2);
 		};
 	};
-		
-	/** Comparator for Dates. */
+
+	/** 
+	 * Comparator for Longs.
+	 * @since 2.8.0
+	 */
+	public static final Comparator<Long> LONG_COMPARATOR = new Comparator<Long>()
+	{
+		@Override
+		public int compare(Long obj1, Long obj2)
+		{
+			if (obj1 == obj2)
+				return 0;
+			else if (obj1 == null)
+				return -1;
+			else if (obj2 == null)
+				return 1;
+			else
+				return Long.compare(obj1, obj2);
+		};
+	};
+
+	/** 
+	 * Comparator for Doubles.
+	 * @since 2.8.0
+	 */
+	public static final Comparator<Double> DOUBLE_COMPARATOR = new Comparator<Double>()
+	{
+		@Override
+		public int compare(Double obj1, Double obj2)
+		{
+			if (obj1 == obj2)
+				return 0;
+			else if (obj1 == null)
+				return -1;
+			else if (obj2 == null)
+				return 1;
+			else
+				return Double.compare(obj1, obj2);
+		};
+	};
+
+	/** Comparator for Dates, by epoch milliseconds. */
 	public static final Comparator<Date> DATE_COMPARATOR = new Comparator<Date>()
 	{
 		@Override
@@ -83,14 +150,12 @@ public interface RTableUtils
 		{
 			if (obj1 == obj2)
 				return 0;
-			else if (obj1 == null && obj2 != null)
+			else if (obj1 == null)
 				return -1;
-			else if (obj1 != null && obj2 == null)
+			else if (obj2 == null)
 				return 1;
-			else if (obj1.equals(obj2))
-				return 0;
 			else
-				return obj1.getTime() > obj2.getTime() ? 1 : -1;
+				return Long.compare(obj1.getTime(), obj2.getTime());
 		};
 	};  
 }
@@ -0,0 +1,684 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative row indices.
+ * <p>Indices are split into chunks of 65536. Each chunk is stored in the smallest of three forms:
+ * a sorted array for sparse chunks, a bitmap for dense ones, or a shared marker for full ones,
+ * so setting a range of millions of indices only touches a few chunks.
+ * This is the same layout that "roaring" bitmaps use, without run containers.
+ * <p>This class is not thread-safe.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+final class RowBitSet
+{
+	/** Bits per chunk index. */
+	private static final int CHUNK_BITS = 16;
+	/** Indices per chunk. */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	/** Mask for an index within a chunk. */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/** Largest amount of indices stored in an array chunk. */
+	private static final int ARRAY_MAX = 4096;
+	/** Words in a bitmap chunk. */
+	private static final int WORDS = CHUNK_SIZE / 64;
+	/** Marker for a full chunk. */
+	private static final Chunk FULL = new FullChunk();
+
+	/** Chunks, by high bits of the index. Null chunks are empty. */
+	private Chunk[] chunks;
+
+	/**
+	 * Creates a new empty set.
+	 */
+	RowBitSet()
+	{
+		this.chunks = new Chunk[0];
+	}
+
+	/**
+	 * Checks if an index is in this set.
+	 * @param index the index.
+	 * @return true if so, false if not.
+	 */
+	boolean contains(int index)
+	{
+		if (index < 0)
+			return false;
+		int high = index >>> CHUNK_BITS;
+		return high < chunks.length && chunks[high] != null && chunks[high].contains(index & CHUNK_MASK);
+	}
+
+	/**
+	 * Adds an index to this set.
+	 * @param index the index.
+	 */
+	void add(int index)
+	{
+		int high = index >>> CHUNK_BITS;
+		ensureChunks(high + 1);
+		Chunk chunk = chunks[high];
+		chunks[high] = chunk != null ? chunk.add(index & CHUNK_MASK) : new ArrayChunk(index & CHUNK_MASK, index & CHUNK_MASK);
+	}
+
+	/**
+	 * Removes an index from this set.
+	 * @param index the index.
+	 */
+	void remove(int index)
+	{
+		int high = index >>> CHUNK_BITS;
+		if (index >= 0 && high < chunks.length && chunks[high] != null)
+			chunks[high] = chunks[high].remove(index & CHUNK_MASK);
+	}
+
+	/**
+	 * Adds a range of indices to this set.
+	 * @param from the first index.
+	 * @param to the last index, inclusive.
+	 */
+	void addRange(int from, int to)
+	{
+		if (from > to)
+			return;
+		int firstHigh = from >>> CHUNK_BITS;
+		int lastHigh = to >>> CHUNK_BITS;
+		ensureChunks(lastHigh + 1);
+		for (int high = firstHigh; high <= lastHigh; high++)
+		{
+			int low = high == firstHigh ? from & CHUNK_MASK : 0;
+			int lowEnd = high == lastHigh ? to & CHUNK_MASK : CHUNK_MASK;
+			Chunk chunk = chunks[high];
+			if (low == 0 && lowEnd == CHUNK_MASK)
+				chunks[high] = FULL;
+			else if (chunk == null)
+				chunks[high] = lowEnd - low < ARRAY_MAX ? new ArrayChunk(low, lowEnd) : new BitmapChunk().addRange(low, lowEnd);
+			else
+				chunks[high] = chunk.addRange(low, lowEnd);
+		}
+	}
+
+	/**
+	 * Removes a range of indices from this set.
+	 * @param from the first index.
+	 * @param to the last index, inclusive.
+	 */
+	void removeRange(int from, int to)
+	{
+		from = Math.max(from, 0);
+		if (from > to)
+			return;
+		int firstHigh = from >>> CHUNK_BITS;
+		int lastHigh = Math.min(to >>> CHUNK_BITS, chunks.length - 1);
+		for (int high = firstHigh; high <= lastHigh; high++)
+		{
+			Chunk chunk = chunks[high];
+			if (chunk == null)
+				continue;
+			int low = high == firstHigh ? from & CHUNK_MASK : 0;
+			int lowEnd = high == (to >>> CHUNK_BITS) ? to & CHUNK_MASK : CHUNK_MASK;
+			chunks[high] = low == 0 && lowEnd == CHUNK_MASK ? null : chunk.removeRange(low, lowEnd);
+		}
+	}
+
+	/**
+	 * Removes all indices from this set.
+	 */
+	void clear()
+	{
+		chunks = new Chunk[0];
+	}
+
+	/**
+	 * @return true if this set has no indices, false if not.
+	 */
+	boolean isEmpty()
+	{
+		for (int i = 0; i < chunks.length; i++)
+			if (chunks[i] != null)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the amount of indices in this set.
+	 */
+	int cardinality()
+	{
+		int out = 0;
+		for (int i = 0; i < chunks.length; i++)
+			if (chunks[i] != null)
+				out += chunks[i].cardinality();
+		return out;
+	}
+
+	/**
+	 * Gets the lowest index in this set that is at or after an index.
+	 * @param from the index to start from.
+	 * @return the index found, or -1 if none.
+	 */
+	int nextSetBit(int from)
+	{
+		from = Math.max(from, 0);
+		for (int high = from >>> CHUNK_BITS; high < chunks.length; high++)
+		{
+			Chunk chunk = chunks[high];
+			if (chunk == null)
+				continue;
+			int low = chunk.next(high == from >>> CHUNK_BITS ? from & CHUNK_MASK : 0);
+			if (low >= 0)
+				return high << CHUNK_BITS | low;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the lowest index not in this set that is at or after an index.
+	 * @param from the index to start from.
+	 * @return the index found.
+	 */
+	int nextClearBit(int from)
+	{
+		from = Math.max(from, 0);
+		for (int high = from >>> CHUNK_BITS; high < chunks.length; high++)
+		{
+			int low = high == from >>> CHUNK_BITS ? from & CHUNK_MASK : 0;
+			Chunk chunk = chunks[high];
+			if (chunk == null)
+				return high << CHUNK_BITS | low;
+			low = chunk.nextClear(low);
+			if (low >= 0)
+				return high << CHUNK_BITS | low;
+		}
+		return Math.max(from, chunks.length << CHUNK_BITS);
+	}
+
+	/**
+	 * Gets the highest index in this set that is at or before an index.
+	 * @param from the index to start from.
+	 * @return the index found, or -1 if none.
+	 */
+	int previousSetBit(int from)
+	{
+		if (from < 0 || chunks.length == 0)
+			return -1;
+		int startHigh = from >>> CHUNK_BITS;
+		if (startHigh >= chunks.length)
+		{
+			startHigh = chunks.length - 1;
+			from = startHigh << CHUNK_BITS | CHUNK_MASK;
+		}
+		for (int high = startHigh; high >= 0; high--)
+		{
+			Chunk chunk = chunks[high];
+			if (chunk == null)
+				continue;
+			int low = chunk.previous(high == startHigh ? from & CHUNK_MASK : CHUNK_MASK);
+			if (low >= 0)
+				return high << CHUNK_BITS | low;
+		}
+		return -1;
+	}
+
+	/**
+	 * Makes room for a range of new indices: all indices at or after the start of the range
+	 * are moved up by its length. The new indices are not in the set.
+	 * @param index the first new index.
+	 * @param length the amount of new indices.
+	 */
+	void insertRange(int index, int length)
+	{
+		if (length <= 0 || previousSetBit(Integer.MAX_VALUE) < index)
+			return;
+		Chunk[] old = chunks;
+		RowBitSet source = new RowBitSet();
+		source.chunks = old;
+		chunks = Arrays.copyOf(old, index >>> CHUNK_BITS);
+		int start = source.nextSetBit(chunks.length << CHUNK_BITS);
+		while (start >= 0)
+		{
+			int end = source.nextClearBit(start) - 1;
+			if (end < index)
+				addRange(start, end);
+			else if (start >= index)
+				addRange(start + length, end + length);
+			else
+			{
+				addRange(start, index - 1);
+				addRange(index + length, end + length);
+			}
+			start = source.nextSetBit(end + 1);
+		}
+	}
+
+	/**
+	 * Deletes a range of indices: indices in the range are removed,
+	 * and all indices after it are moved down by its length.
+	 * @param from the first index.
+	 * @param to the last index, inclusive.
+	 */
+	void deleteRange(int from, int to)
+	{
+		if (from > to || previousSetBit(Integer.MAX_VALUE) < from)
+			return;
+		int length = to - from + 1;
+		Chunk[] old = chunks;
+		RowBitSet source = new RowBitSet();
+		source.chunks = old;
+		chunks = Arrays.copyOf(old, from >>> CHUNK_BITS);
+		int start = source.nextSetBit(chunks.length << CHUNK_BITS);
+		while (start >= 0)
+		{
+			int end = source.nextClearBit(start) - 1;
+			if (end < from)
+				addRange(start, end);
+			else if (start > to)
+				addRange(start - length, end - length);
+			else
+			{
+				addRange(start, from - 1);
+				addRange(from, end - length);
+			}
+			start = source.nextSetBit(end + 1);
+		}
+	}
+
+	// Grows the chunk table.
+	private void ensureChunks(int count)
+	{
+		if (chunks.length < count)
+			chunks = Arrays.copyOf(chunks, Math.max(count, chunks.length * 2));
+	}
+
+	/**
+	 * A chunk of up to 65536 indices, addressed by the low bits of the index.
+	 * Changes return the chunk that should replace this one, which is null if it became empty.
+	 */
+	private static abstract class Chunk
+	{
+		abstract int cardinality();
+
+		abstract boolean contains(int low);
+
+		abstract Chunk add(int low);
+
+		abstract Chunk remove(int low);
+
+		abstract Chunk addRange(int low, int lowEnd);
+
+		abstract Chunk removeRange(int low, int lowEnd);
+
+		// Next set index at or after low, or -1.
+		abstract int next(int low);
+
+		// Next clear index at or after low, or -1.
+		abstract int nextClear(int low);
+
+		// Previous set index at or before low, or -1.
+		abstract int previous(int low);
+
+		abstract BitmapChunk toBitmap();
+	}
+
+	/**
+	 * A chunk with every index set.
+	 */
+	private static class FullChunk extends Chunk
+	{
+		@Override
+		int cardinality()
+		{
+			return CHUNK_SIZE;
+		}
+
+		@Override
+		boolean contains(int low)
+		{
+			return true;
+		}
+
+		@Override
+		Chunk add(int low)
+		{
+			return this;
+		}
+
+		@Override
+		Chunk remove(int low)
+		{
+			return toBitmap().remove(low);
+		}
+
+		@Override
+		Chunk addRange(int low, int lowEnd)
+		{
+			return this;
+		}
+
+		@Override
+		Chunk removeRange(int low, int lowEnd)
+		{
+			return toBitmap().removeRange(low, lowEnd);
+		}
+
+		@Override
+		int next(int low)
+		{
+			return low;
+		}
+
+		@Override
+		int nextClear(int low)
+		{
+			return -1;
+		}
+
+		@Override
+		int previous(int low)
+		{
+			return low;
+		}
+
+		@Override
+		BitmapChunk toBitmap()
+		{
+			BitmapChunk out = new BitmapChunk();
+			Arrays.fill(out.words, -1L);
+			out.cardinality = CHUNK_SIZE;
+			return out;
+		}
+	}
+
+	/**
+	 * A sparse chunk, stored as a sorted array.
+	 */
+	private static class ArrayChunk extends Chunk
+	{
+		private char[] values;
+		private int size;
+
+		// Creates a chunk with a range of indices.
+		private ArrayChunk(int low, int lowEnd)
+		{
+			this.size = lowEnd - low + 1;
+			this.values = new char[Math.max(size, 4)];
+			for (int i = 0; i < size; i++)
+				values[i] = (char)(low + i);
+		}
+
+		@Override
+		int cardinality()
+		{
+			return size;
+		}
+
+		@Override
+		boolean contains(int low)
+		{
+			return Arrays.binarySearch(values, 0, size, (char)low) >= 0;
+		}
+
+		@Override
+		Chunk add(int low)
+		{
+			int pos = Arrays.binarySearch(values, 0, size, (char)low);
+			if (pos >= 0)
+				return this;
+			if (size == ARRAY_MAX)
+				return toBitmap().add(low);
+			pos = -pos - 1;
+			if (size == values.length)
+				values = Arrays.copyOf(values, Math.min(size * 2, ARRAY_MAX));
+			System.arraycopy(values, pos, values, pos + 1, size - pos);
+			values[pos] = (char)low;
+			size++;
+			return this;
+		}
+
+		@Override
+		Chunk remove(int low)
+		{
+			int pos = Arrays.binarySearch(values, 0, size, (char)low);
+			if (pos < 0)
+				return this;
+			System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+			size--;
+			return size > 0 ? this : null;
+		}
+
+		@Override
+		Chunk addRange(int low, int lowEnd)
+		{
+			return toBitmap().addRange(low, lowEnd);
+		}
+
+		@Override
+		Chunk removeRange(int low, int lowEnd)
+		{
+			int n = 0;
+			for (int i = 0; i < size; i++)
+				if (values[i] < low || values[i] > lowEnd)
+					values[n++] = values[i];
+			size = n;
+			return size > 0 ? this : null;
+		}
+
+		@Override
+		int next(int low)
+		{
+			int pos = Arrays.binarySearch(values, 0, size, (char)low);
+			if (pos < 0)
+				pos = -pos - 1;
+			return pos < size ? values[pos] : -1;
+		}
+
+		@Override
+		int nextClear(int low)
+		{
+			int pos = Arrays.binarySearch(values, 0, size, (char)low);
+			if (pos < 0)
+				return low;
+			while (pos < size && values[pos] == low)
+			{
+				pos++;
+				low++;
+			}
+			return low <= CHUNK_MASK ? low : -1;
+		}
+
+		@Override
+		int previous(int low)
+		{
+			int pos = Arrays.binarySearch(values, 0, size, (char)low);
+			if (pos < 0)
+				pos = -pos - 2;
+			return pos >= 0 ? values[pos] : -1;
+		}
+
+		@Override
+		BitmapChunk toBitmap()
+		{
+			BitmapChunk out = new BitmapChunk();
+			for (int i = 0; i < size; i++)
+				out.words[values[i] >>> 6] |= 1L << values[i];
+			out.cardinality = size;
+			return out;
+		}
+	}
+
+	/**
+	 * A dense chunk, stored as a bitmap.
+	 */
+	private static class BitmapChunk extends Chunk
+	{
+		private final long[] words;
+		private int cardinality;
+
+		private BitmapChunk()
+		{
+			this.words = new long[WORDS];
+			this.cardinality = 0;
+		}
+
+		@Override
+		int cardinality()
+		{
+			return cardinality;
+		}
+
+		@Override
+		boolean contains(int low)
+		{
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		Chunk add(int low)
+		{
+			long word = words[low >>> 6];
+			if ((word & (1L << low)) == 0)
+			{
+				words[low >>> 6] = word | (1L << low);
+				cardinality++;
+			}
+			return cardinality == CHUNK_SIZE ? FULL : this;
+		}
+
+		@Override
+		Chunk remove(int low)
+		{
+			long word = words[low >>> 6];
+			if ((word & (1L << low)) != 0)
+			{
+				words[low >>> 6] = word & ~(1L << low);
+				cardinality--;
+			}
+			return cardinality <= ARRAY_MAX ? toArray() : this;
+		}
+
+		@Override
+		Chunk addRange(int low, int lowEnd)
+		{
+			setRange(low, lowEnd, true);
+			return normalize();
+		}
+
+		@Override
+		Chunk removeRange(int low, int lowEnd)
+		{
+			setRange(low, lowEnd, false);
+			return normalize();
+		}
+
+		// Sets or clears a range of bits, and keeps the cardinality up to date.
+		private void setRange(int low, int lowEnd, boolean set)
+		{
+			int firstWord = low >>> 6;
+			int lastWord = lowEnd >>> 6;
+			for (int w = firstWord; w <= lastWord; w++)
+			{
+				long mask = -1L;
+				if (w == firstWord)
+					mask &= -1L << low;
+				if (w == lastWord)
+					mask &= -1L >>> (63 - (lowEnd & 63));
+				long word = words[w];
+				long changed = set ? word | mask : word & ~mask;
+				cardinality += Long.bitCount(changed) - Long.bitCount(word);
+				words[w] = changed;
+			}
+		}
+
+		// Converts to the smallest form for the cardinality.
+		private Chunk normalize()
+		{
+			if (cardinality == 0)
+				return null;
+			else if (cardinality == CHUNK_SIZE)
+				return FULL;
+			else if (cardinality <= ARRAY_MAX)
+				return toArray();
+			return this;
+		}
+
+		@Override
+		int next(int low)
+		{
+			int w = low >>> 6;
+			long word = words[w] & (-1L << low);
+			while (true)
+			{
+				if (word != 0)
+					return w * 64 + Long.numberOfTrailingZeros(word);
+				if (++w == WORDS)
+					return -1;
+				word = words[w];
+			}
+		}
+
+		@Override
+		int nextClear(int low)
+		{
+			int w = low >>> 6;
+			long word = ~words[w] & (-1L << low);
+			while (true)
+			{
+				if (word != 0)
+					return w * 64 + Long.numberOfTrailingZeros(word);
+				if (++w == WORDS)
+					return -1;
+				word = ~words[w];
+			}
+		}
+
+		@Override
+		int previous(int low)
+		{
+			int w = low >>> 6;
+			long word = words[w] & (-1L >>> (63 - (low & 63)));
+			while (true)
+			{
+				if (word != 0)
+					return w * 64 + 63 - Long.numberOfLeadingZeros(word);
+				if (--w < 0)
+					return -1;
+				word = words[w];
+			}
+		}
+
+		@Override
+		BitmapChunk toBitmap()
+		{
+			return this;
+		}
+
+		// Converts to an array chunk.
+		private ArrayChunk toArray()
+		{
+			ArrayChunk out = new ArrayChunk(0, -1);
+			out.values = new char[Math.max(cardinality, 4)];
+			int n = 0;
+			for (int w = 0; w < WORDS; w++)
+			{
+				long word = words[w];
+				while (word != 0)
+				{
+					out.values[n++] = (char)(w * 64 + Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			out.size = n;
+			return out;
+		}
+	}
+
+}
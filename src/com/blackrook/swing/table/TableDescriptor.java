@@ -36,4 +36,10 @@ public @interface TableDescriptor
 	boolean sortable() default true;
 	/** Editable? If false, disable editing. If true, edit if setter exists. */
 	boolean editable() default true;
+	/**
+	 * Indexed? If true, the table model keeps a hash index of this column's values,
+	 * so that rows can be found and filtered by value without looking at every row.
+	 * @since 2.8.0
+	 */
+	boolean indexed() default false;
 }
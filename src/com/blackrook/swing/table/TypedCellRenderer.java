@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.swing.table;
+
+import java.awt.Component;
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.util.Date;
+
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import com.blackrook.swing.table.RTableModel.Column;
+
+/**
+ * A cell renderer that reads its value straight from the row object through the column's accessor,
+ * instead of through {@link JTable#getValueAt(int, int)}, so primitive values are never boxed.
+ * <p>Formatted text is kept in a small cache keyed by value, and formatting on a cache miss
+ * reuses the same buffer, so repainting the same cells allocates nothing.
+ * These renderers draw the same text as the stock JTable renderers for the same types.
+ * Like all renderers, they must only be used on the Event Dispatch Thread.
+ * @author Matthew Tropiano
+ * @since 2.8.0
+ */
+abstract class TypedCellRenderer extends DefaultTableCellRenderer
+{
+	private static final long serialVersionUID = -2402950867461806946L;
+
+	/** The column accessor. */
+	protected final ColumnAccessor accessor;
+
+	/**
+	 * Creates the typed renderer for a column, if there is one for its type.
+	 * @param column the column.
+	 * @return a new renderer, or null if the column should use the stock renderer for its type.
+	 */
+	static TypedCellRenderer create(Column column)
+	{
+		Class<?> type = column.getterMethod.getReturnType();
+		if (ColumnAccessor.isIntegerPrimitive(type))
+			return new IntegerRenderer(column.accessor);
+		else if (ColumnAccessor.isFloatPrimitive(type))
+			return new FloatRenderer(column.accessor);
+		else if (Date.class.isAssignableFrom(type))
+			return new DateRenderer(column.accessor);
+		else if (type.isEnum())
+			return new EnumRenderer(column.accessor, type.getEnumConstants().length);
+		return null;
+	}
+
+	private TypedCellRenderer(ColumnAccessor accessor)
+	{
+		this.accessor = accessor;
+	}
+
+	/**
+	 * Sets up this renderer for a cell from its row object.
+	 * @param table the table.
+	 * @param row the row object, or null if not available.
+	 * @param isSelected if the cell is selected.
+	 * @param hasFocus if the cell has focus.
+	 * @param rowIndex the row index in the view.
+	 * @param columnIndex the column index in the view.
+	 * @return the component to paint with.
+	 */
+	Component getRowRendererComponent(JTable table, Object row, boolean isSelected, boolean hasFocus, int rowIndex, int columnIndex)
+	{
+		super.getTableCellRendererComponent(table, null, isSelected, hasFocus, rowIndex, columnIndex);
+		setText(row != null ? formatRow(row) : "");
+		return this;
+	}
+
+	@Override
+	protected void setValue(Object value)
+	{
+		setText(value != null ? formatValue(value) : "");
+	}
+
+	/**
+	 * Formats this column's value on a row object.
+	 * @param row the row object.
+	 * @return the text to draw.
+	 */
+	protected abstract String formatRow(Object row);
+
+	/**
+	 * Formats a value passed in through {@link #getTableCellRendererComponent(JTable, Object, boolean, boolean, int, int)}.
+	 * @param value the value, not null.
+	 * @return the text to draw.
+	 */
+	protected abstract String formatValue(Object value);
+
+	/**
+	 * Two-way set-associative cache of formatted strings, keyed by a long.
+	 * A new key pushes out the least recently added key in its set.
+	 */
+	private static class StringCache
+	{
+		/** Amount of sets, as a power of two. */
+		private static final int SET_BITS = 8;
+
+		private final long[] keys;
+		private final String[] values;
+
+		private StringCache()
+		{
+			this.keys = new long[2 << SET_BITS];
+			this.values = new String[2 << SET_BITS];
+		}
+
+		// Gets a cached string, or null if not cached.
+		private String get(long key)
+		{
+			int slot = slot(key);
+			if (values[slot] != null && keys[slot] == key)
+				return values[slot];
+			slot++;
+			if (values[slot] != null && keys[slot] == key)
+				return values[slot];
+			return null;
+		}
+
+		// Caches a string.
+		private String put(long key, String value)
+		{
+			int slot = slot(key);
+			keys[slot + 1] = keys[slot];
+			values[slot + 1] = values[slot];
+			keys[slot] = key;
+			values[slot] = value;
+			return value;
+		}
+
+		// Gets the first slot of a key's set.
+		private static int slot(long key)
+		{
+			return (int)((key * 0x9E3779B97F4A7C15L) >>> (64 - SET_BITS)) << 1;
+		}
+	}
+
+	/**
+	 * Renderer for primitive integer columns. Draws the same text as {@link Long#toString(long)}.
+	 */
+	private static class IntegerRenderer extends TypedCellRenderer
+	{
+		private static final long serialVersionUID = 6114587018622624367L;
+
+		private final StringCache cache;
+		private final StringBuilder buffer;
+
+		private IntegerRenderer(ColumnAccessor accessor)
+		{
+			super(accessor);
+			this.cache = new StringCache();
+			this.buffer = new StringBuilder(20);
+			setHorizontalAlignment(SwingConstants.RIGHT);
+		}
+
+		@Override
+		protected String formatRow(Object row)
+		{
+			return format(accessor.getLong(row));
+		}
+
+		@Override
+		protected String formatValue(Object value)
+		{
+			return value instanceof Number ? format(((Number)value).longValue()) : value.toString();
+		}
+
+		private String format(long value)
+		{
+			String out = cache.get(value);
+			if (out != null)
+				return out;
+			buffer.setLength(0);
+			buffer.append(value);
+			return cache.put(value, buffer.toString());
+		}
+	}
+
+	/**
+	 * Renderer for primitive floating-point columns. Draws the same text as {@link NumberFormat#getInstance()}.
+	 */
+	private static class FloatRenderer extends TypedCellRenderer
+	{
+		private static final long serialVersionUID = -5081474553542286424L;
+
+		private final StringCache cache;
+		private final StringBuffer buffer;
+		private final FieldPosition position;
+		private final NumberFormat format;
+
+		private FloatRenderer(ColumnAccessor accessor)
+		{
+			super(accessor);
+			this.cache = new StringCache();
+			this.buffer = new StringBuffer(32);
+			this.position = new FieldPosition(0);
+			this.format = NumberFormat.getInstance();
+			setHorizontalAlignment(SwingConstants.RIGHT);
+		}
+
+		@Override
+		protected String formatRow(Object row)
+		{
+			return format(accessor.getDouble(row));
+		}
+
+		@Override
+		protected String formatValue(Object value)
+		{
+			return value instanceof Number ? format(((Number)value).doubleValue()) : value.toString();
+		}
+
+		private String format(double value)
+		{
+			long key = Double.doubleToRawLongBits(value);
+			String out = cache.get(key);
+			if (out != null)
+				return out;
+			buffer.setLength(0);
+			format.format(value, buffer, position);
+			return cache.put(key, buffer.toString());
+		}
+	}
+
+	/**
+	 * Renderer for date columns. Draws the same text as {@link DateFormat#getDateInstance()}.
+	 */
+	private static class DateRenderer extends TypedCellRenderer
+	{
+		private static final long serialVersionUID = 4620381587706524713L;
+
+		private final StringCache cache;
+		private final StringBuffer buffer;
+		private final FieldPosition position;
+		private final DateFormat format;
+
+		private DateRenderer(ColumnAccessor accessor)
+		{
+			super(accessor);
+			this.cache = new StringCache();
+			this.buffer = new StringBuffer(32);
+			this.position = new FieldPosition(0);
+			this.format = DateFormat.getDateInstance();
+		}
+
+		@Override
+		protected String formatRow(Object row)
+		{
+			Object value = accessor.get(row);
+			return value != null ? formatValue(value) : "";
+		}
+
+		@Override
+		protected String formatValue(Object value)
+		{
+			if (!(value instanceof Date))
+				return value.toString();
+			Date date = (Date)value;
+			long key = date.getTime();
+			String out = cache.get(key);
+			if (out != null)
+				return out;
+			buffer.setLength(0);
+			format.format(date, buffer, position);
+			return cache.put(key, buffer.toString());
+		}
+	}
+
+	/**
+	 * Renderer for enum columns. Draws the same text as {@link Enum#toString()}, cached per constant.
+	 */
+	private static class EnumRenderer extends TypedCellRenderer
+	{
+		private static final long serialVersionUID = -8953000924781329187L;
+
+		private final String[] names;
+
+		private EnumRenderer(ColumnAccessor accessor, int constants)
+		{
+			super(accessor);
+			this.names = new String[constants];
+		}
+
+		@Override
+		protected String formatRow(Object row)
+		{
+			Object value = accessor.get(row);
+			return value != null ? formatValue(value) : "";
+		}
+
+		@Override
+		protected String formatValue(Object value)
+		{
+			if (!(value instanceof Enum))
+				return value.toString();
+			int ordinal = ((Enum<?>)value).ordinal();
+			if (ordinal >= names.length)
+				return value.toString();
+			String out = names[ordinal];
+			return out != null ? out : (names[ordinal] = value.toString());
+		}
+	}
+
+}